@@ -5,6 +5,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+/**
+ * 启动类
+ * <p>
+ * 默认启动完整应用（API + 定时抓取）。以 worker 模式启动（追加 worker profile，如 --spring.profiles.active=docker,worker）时
+ * 不启动 Web 服务和定时调度，只消费 Redis 中的抓取任务（见 CrawlJobWorker）；此时 API 实例需开启 crawler.queue.enabled
+ */
 @SpringBootApplication
 @MapperScan("com.pricepulse.backend.mapper")
 @EnableScheduling // 启用定时任务
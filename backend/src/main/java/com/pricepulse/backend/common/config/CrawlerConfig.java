@@ -1,8 +1,8 @@
 package com.pricepulse.backend.common.config;
 
+import com.pricepulse.backend.service.crawler.CrawlerHttpClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -11,11 +11,11 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class CrawlerConfig {
 
+    /**
+     * 默认 RestTemplate，使用共享 HTTP 客户端的默认配置（crawler.http.defaults）
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);
-        factory.setReadTimeout(5000);
-        return new RestTemplate(factory);
+    public RestTemplate restTemplate(CrawlerHttpClients httpClients) {
+        return httpClients.restTemplate("default");
     }
 }
@@ -0,0 +1,332 @@
+package com.pricepulse.backend.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 爬虫调度相关配置（crawler.*）
+ * <p>
+ * 按平台区分的参数以平台标识（jd/pdd/taobao，即 CrawlerService.getPlatform()）为键
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "crawler")
+public class CrawlerProperties {
+
+    /**
+     * 并发抓取执行器配置
+     */
+    private Executor executor = new Executor();
+
+    /**
+     * 按平台限流配置
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 抓取结果缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 共享 HTTP 客户端配置
+     */
+    private Http http = new Http();
+
+    /**
+     * 按平台熔断配置
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 抓取时间预算配置
+     */
+    private Budget budget = new Budget();
+
+    /**
+     * 抓取任务队列配置（Redis Stream）
+     */
+    private Queue queue = new Queue();
+
+    @Data
+    public static class Executor {
+
+        /**
+         * 未单独配置的平台使用的并发上限
+         */
+        private int defaultConcurrency = 4;
+
+        /**
+         * 各平台并发上限
+         */
+        private Map<String, Integer> concurrency = new HashMap<>();
+
+        public int concurrencyOf(String platform) {
+            Integer value = concurrency.get(platform);
+            return value != null && value > 0 ? value : defaultConcurrency;
+        }
+    }
+
+    @Data
+    public static class RateLimit {
+
+        /**
+         * 阻塞等待许可的最长时间（毫秒）
+         */
+        private long maxWaitMs = 30000;
+
+        /**
+         * 未单独配置的平台使用的限流参数
+         */
+        private Limit defaults = new Limit();
+
+        /**
+         * 各平台限流参数
+         */
+        private Map<String, Limit> platforms = new HashMap<>();
+
+        public Limit limitOf(String platform) {
+            Limit limit = platforms.get(platform);
+            return limit != null ? limit : defaults;
+        }
+    }
+
+    @Data
+    public static class Http {
+
+        /**
+         * 未单独配置的平台使用的超时参数
+         */
+        private Timeout defaults = new Timeout();
+
+        /**
+         * 各平台超时参数
+         */
+        private Map<String, Timeout> platforms = new HashMap<>();
+
+        public Timeout timeoutOf(String platform) {
+            Timeout timeout = platforms.get(platform);
+            return timeout != null ? timeout : defaults;
+        }
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * 未单独配置的平台使用的熔断参数
+         */
+        private Breaker defaults = new Breaker();
+
+        /**
+         * 各平台熔断参数
+         */
+        private Map<String, Breaker> platforms = new HashMap<>();
+
+        public Breaker breakerOf(String platform) {
+            Breaker breaker = platforms.get(platform);
+            return breaker != null ? breaker : defaults;
+        }
+    }
+
+    @Data
+    public static class Budget {
+
+        /**
+         * 未单独配置的平台单次抓取（单个商品或一批商品）的总时限（毫秒），包括限流等待、接口调用和各级兜底
+         */
+        private long defaultProductTimeoutMs = 10000;
+
+        /**
+         * 各平台单次抓取的总时限（毫秒）
+         */
+        private Map<String, Long> productTimeoutMs = new HashMap<>();
+
+        /**
+         * 每轮定时抓取的总时限（毫秒），到期后尚未完成的商品记为超时
+         */
+        private long cycleTimeoutMs = 60000;
+
+        public long productTimeoutOf(String platform) {
+            Long value = productTimeoutMs.get(platform);
+            return value != null && value > 0 ? value : defaultProductTimeoutMs;
+        }
+    }
+
+    @Data
+    public static class Queue {
+
+        /**
+         * 是否把定时抓取交给任务队列（开启后本实例的定时任务只入队，由 worker 实例抓取）
+         */
+        private boolean enabled = false;
+
+        private String streamKey = "crawl:jobs";
+
+        /**
+         * worker 所在的消费者组
+         */
+        private String group = "crawlers";
+
+        /**
+         * Stream 保留的最大条数（近似裁剪）
+         */
+        private long maxLength = 100000;
+
+        /**
+         * 单个任务的最长处理时间（毫秒），超过后未确认的任务由其他 worker 接管
+         */
+        private long jobTimeoutMs = 120000;
+
+        /**
+         * 任务最多投递次数，超过后丢弃
+         */
+        private int maxDeliveries = 3;
+
+        private Worker worker = new Worker();
+    }
+
+    @Data
+    public static class Worker {
+
+        /**
+         * 是否在本实例消费抓取任务（worker 模式）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每次读取的任务数
+         */
+        private int batchSize = 50;
+
+        /**
+         * 没有任务时阻塞等待的时间（毫秒）
+         */
+        private long blockMs = 1000;
+
+        /**
+         * 检查超时未确认任务的间隔（毫秒）
+         */
+        private long reclaimIntervalMs = 30000;
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否启用抓取结果缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 进程内缓存最多保存的商品数
+         */
+        private int maxEntries = 10000;
+
+        /**
+         * 未单独配置的平台的成功结果缓存时间（毫秒）
+         */
+        private long defaultTtlMs = 120000;
+
+        /**
+         * 各平台成功结果缓存时间（毫秒）
+         */
+        private Map<String, Long> ttlMs = new HashMap<>();
+
+        /**
+         * 失败结果缓存时间（毫秒），避免对失效链接反复请求
+         */
+        private long negativeTtlMs = 30000;
+
+        /**
+         * 是否同时写入 Redis（多实例共享）
+         */
+        private boolean redisEnabled = false;
+
+        public long ttlOf(String platform) {
+            Long value = ttlMs.get(platform);
+            return value != null ? value : defaultTtlMs;
+        }
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * 令牌补充速率（每秒）
+         */
+        private double permitsPerSecond = 5;
+
+        /**
+         * 令牌桶容量（允许的突发请求数）
+         */
+        private int burst = 10;
+
+        /**
+         * 同时进行中的请求上限
+         */
+        private int maxInFlight = 8;
+    }
+
+    @Data
+    public static class Timeout {
+
+        /**
+         * 建立连接超时（毫秒）
+         */
+        private long connectTimeoutMs = 3000;
+
+        /**
+         * 等待响应超时（毫秒）
+         */
+        private long readTimeoutMs = 5000;
+    }
+
+    @Data
+    public static class Breaker {
+
+        /**
+         * 是否启用熔断
+         */
+        private boolean enabled = true;
+
+        /**
+         * 统计最近多少次调用
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口内至少有多少次调用才计算失败率
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * 失败率阈值（百分比），达到后熔断
+         */
+        private double failureRateThreshold = 50;
+
+        /**
+         * 超过此耗时（毫秒）的调用记为慢调用
+         */
+        private long slowCallDurationMs = 4000;
+
+        /**
+         * 慢调用率阈值（百分比），达到后熔断
+         */
+        private double slowCallRateThreshold = 80;
+
+        /**
+         * 熔断持续时间（毫秒），之后进入半开状态试探
+         */
+        private long openDurationMs = 30000;
+
+        /**
+         * 半开状态允许的试探调用数
+         */
+        private int halfOpenCalls = 3;
+    }
+}
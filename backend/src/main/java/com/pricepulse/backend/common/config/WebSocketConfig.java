@@ -1,12 +1,14 @@
 package com.pricepulse.backend.common.config;
 
 import com.pricepulse.backend.common.websocket.NotificationWebSocketHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
 @Configuration
+@ConditionalOnWebApplication // worker 模式不启动 Web 服务
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
@@ -0,0 +1,30 @@
+package com.pricepulse.backend.common.dto;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryPage {
+
+    /**
+     * 本页的价格记录（按时间正序）
+     */
+    private List<PriceHistory> items;
+
+    /**
+     * 下一页的游标（本页最后一条的 checked_at），没有下一页时为 null
+     */
+    private LocalDateTime nextCursor;
+
+    /**
+     * 下一页游标的 id 部分（本页最后一条的 id，归档记录为序号），与 nextCursor 一起传回
+     */
+    private Long nextCursorId;
+}
@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PriceInfo {
@@ -47,4 +47,53 @@ public class PriceInfo {
      * 错误信息（如果抓取失败）
      */
     private String errorMessage;
+
+    /**
+     * 缓存状态（未经过缓存时为 null）
+     */
+    private CacheStatus cacheStatus;
+
+    /**
+     * 失败类型（抓取成功时为 null）
+     */
+    private FailureType failureType;
+
+    /**
+     * 页面未变化（304 或内容哈希相同），价格沿用上次的解析结果
+     */
+    private Boolean notModified;
+
+    public enum CacheStatus {
+        /**
+         * 未命中缓存，本次实际抓取
+         */
+        MISS,
+        /**
+         * 命中缓存的抓取结果
+         */
+        HIT,
+        /**
+         * 命中缓存的失败结果，本次未抓取
+         */
+        NEGATIVE_HIT
+    }
+
+    public enum FailureType {
+        /**
+         * 未拿到限流许可
+         */
+        RATE_LIMITED,
+        /**
+         * 平台熔断中，未请求平台
+         */
+        CIRCUIT_OPEN,
+        /**
+         * 超过截止时间
+         */
+        TIMEOUT,
+        /**
+         * 其他错误
+         */
+        ERROR
+    }
 }
@@ -13,5 +13,6 @@ public class PriceHistory {
     private BigDecimal discountRate;
     private String currency;
     private LocalDateTime checkedAt;
+    private LocalDateTime lastSeenAt;
     private String source;
 }
@@ -0,0 +1,34 @@
+package com.pricepulse.backend.common.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * 价格汇总（price_rollup_hourly / price_rollup_daily 中的一行）：一个商品在一个时间段内检查到的价格
+ */
+@Data
+public class PriceRollup {
+    private Long productId;
+    private LocalDateTime bucketStart;
+    private BigDecimal openPrice;
+    private BigDecimal highPrice;
+    private BigDecimal lowPrice;
+    private BigDecimal closePrice;
+    private BigDecimal priceSum;
+    private Integer sampleCount;
+    private LocalDateTime openAt;
+    private LocalDateTime closeAt;
+
+    /**
+     * 时间段内的平均价格（按样本数平均）
+     */
+    public BigDecimal getAvgPrice() {
+        if (priceSum == null || sampleCount == null || sampleCount == 0) {
+            return closePrice;
+        }
+        return priceSum.divide(BigDecimal.valueOf(sampleCount), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -23,6 +23,8 @@ public class Product {
     private Integer stockStatus;
     private String description;
     private LocalDateTime lastChecked;
+    private LocalDateTime nextCheckAt;
+    private BigDecimal priceChangeEwma;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Integer status;
@@ -0,0 +1,15 @@
+package com.pricepulse.backend.common.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品的关注统计：关注人数、开启通知的关注者设置的最高期望价格
+ */
+@Data
+public class ProductFollowerStats {
+    private Long productId;
+    private Integer followers;
+    private BigDecimal maxTargetPrice;
+}
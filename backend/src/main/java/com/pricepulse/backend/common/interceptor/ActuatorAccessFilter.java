@@ -0,0 +1,77 @@
+package com.pricepulse.backend.common.interceptor;
+
+import com.pricepulse.backend.common.entity.User;
+import com.pricepulse.backend.common.util.JwtUtil;
+import com.pricepulse.backend.mapper.UserMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+/**
+ * Actuator 访问控制
+ * <p>
+ * Actuator 端点不经过 Spring MVC 拦截器，这里用过滤器保护：/actuator/health 公开（容器健康检查），
+ * 其他端点（如 /actuator/metrics，包含抓取、队列、分区和写回指标）需要管理员 Token。
+ */
+@Component
+@Slf4j
+public class ActuatorAccessFilter extends OncePerRequestFilter {
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private static final String HEALTH_PATH = "/actuator/health";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 按解码、去掉 ;参数、规范化 // 和 .. 之后的路径匹配（与容器路由一致），原始 URI 中的 /actuator;x/metrics 也会被拦截
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = StringUtils.cleanPath(
+                UrlPathHelper.defaultInstance.getPathWithinApplication(request).replaceAll("/{2,}", "/"));
+        return !(path.equals(ACTUATOR_PATH) || path.startsWith(ACTUATOR_PATH + "/"))
+                || path.equals(HEALTH_PATH) || path.startsWith(HEALTH_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String bearerToken = request.getHeader("Authorization");
+        String token = StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")
+                ? bearerToken.substring(7)
+                : null;
+        if (token == null || !jwtUtil.validateToken(token)) {
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, "未授权访问");
+            return;
+        }
+
+        Long userId = jwtUtil.getUserIdFromToken(token);
+        User user = userMapper.selectById(userId);
+        if (user == null || !"ADMIN".equals(user.getRole())) {
+            log.warn("非管理员访问监控端点, userId={}, uri={}", userId, request.getRequestURI());
+            reject(response, HttpServletResponse.SC_FORBIDDEN, "无管理员权限");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"code\":" + status + ",\"message\":\"" + message + "\"}");
+    }
+}
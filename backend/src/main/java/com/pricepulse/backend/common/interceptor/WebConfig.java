@@ -32,6 +32,7 @@ public class WebConfig implements WebMvcConfigurer {
                         "/error",
                         "/static/**",
                         "/api/test/**",
+                        "/actuator/health",
                         "/webjars/**",
                         "/favicon.ico"
                 );
@@ -0,0 +1,81 @@
+package com.pricepulse.backend.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 带过期时间的 LRU 缓存（线程安全）
+ * <p>
+ * 每个条目单独指定存活时间；超过容量时淘汰最久未访问的条目，读取到已过期的条目时顺带删除
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxEntries;
+
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public ExpiringLruCache(int maxEntries) {
+        this(maxEntries, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock 纳秒时钟（测试时可替换）
+     */
+    public ExpiringLruCache(int maxEntries, LongSupplier nanoClock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringLruCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 取出未过期的值，不存在或已过期时返回 null
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * 放入值，ttl 小于等于 0 时不缓存
+     */
+    public synchronized void put(K key, V value, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong() + unit.toNanos(ttl)));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+}
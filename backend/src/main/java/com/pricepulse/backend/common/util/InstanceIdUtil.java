@@ -0,0 +1,30 @@
+package com.pricepulse.backend.common.util;
+
+import java.net.InetAddress;
+
+/**
+ * 当前应用实例的标识
+ * 多实例部署时用于区分 Redis 中的消费者、租约持有者等（主机名-进程号）
+ */
+public class InstanceIdUtil {
+
+    private static final String INSTANCE_ID = resolve();
+
+    /**
+     * 获取当前实例标识
+     * @return 主机名-进程号
+     */
+    public static String current() {
+        return INSTANCE_ID;
+    }
+
+    private static String resolve() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,123 @@
+package com.pricepulse.backend.controller;
+
+import com.pricepulse.backend.common.entity.User;
+import com.pricepulse.backend.common.response.Result;
+import com.pricepulse.backend.scheduler.CrawlPartitionLeases;
+import com.pricepulse.backend.service.AdminUserService;
+import com.pricepulse.backend.service.PriceRollupService;
+import com.pricepulse.backend.service.crawler.CrawlCircuitBreaker;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 管理员爬虫运行状态接口
+ * <p>
+ * 查看各平台熔断器状态，平台恢复后可手动重置熔断；查看本实例持有的抓取分区；从价格历史重建价格汇总
+ * 所有接口需要ADMIN角色权限
+ */
+@RestController
+@RequestMapping("/api/admin/crawler")
+@Slf4j
+public class AdminCrawlerController {
+
+    @Autowired
+    private CrawlCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private CrawlPartitionLeases partitionLeases;
+
+    @Autowired
+    private PriceRollupService priceRollupService;
+
+    @Autowired
+    private AdminUserService adminUserService;
+
+    private void checkAdminPermission(HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        if (userId == null) {
+            throw new RuntimeException("未授权访问");
+        }
+
+        User user = adminUserService.getUserById(userId);
+        if (user == null || !"ADMIN".equals(user.getRole())) {
+            log.error("用户不是管理员, userId={}", userId);
+            throw new RuntimeException("无管理员权限");
+        }
+    }
+
+    /**
+     * 获取各平台熔断器状态
+     */
+    @GetMapping("/circuit-breakers")
+    public Result<List<CrawlCircuitBreaker.Snapshot>> getCircuitBreakers(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            return Result.success(circuitBreaker.snapshots());
+        } catch (Exception e) {
+            log.error("获取熔断器状态失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 手动重置平台熔断器
+     */
+    @PostMapping("/circuit-breakers/{platform}/reset")
+    public Result<CrawlCircuitBreaker.Snapshot> resetCircuitBreaker(@PathVariable String platform,
+                                                                   HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            circuitBreaker.reset(platform);
+            return Result.success("熔断器已重置", circuitBreaker.snapshots().stream()
+                    .filter(snapshot -> snapshot.platform().equals(platform))
+                    .findFirst()
+                    .orElse(null));
+        } catch (Exception e) {
+            log.error("重置熔断器失败, platform={}", platform, e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取本实例持有的抓取分区
+     */
+    @GetMapping("/partitions")
+    public Result<Map<String, Object>> getPartitions(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            Set<Integer> owned = partitionLeases.ownedPartitions();
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("instanceId", partitionLeases.getInstanceId());
+            data.put("enabled", partitionLeases.isEnabled());
+            data.put("partitionCount", partitionLeases.getPartitionCount());
+            data.put("ownedPartitions", owned != null ? new TreeSet<>(owned) : null);
+            return Result.success(data);
+        } catch (Exception e) {
+            log.error("获取抓取分区失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 从价格历史重建小时、每日价格汇总（后台执行）
+     */
+    @PostMapping("/rollups/backfill")
+    public Result<Boolean> backfillRollups(HttpServletRequest request) {
+        try {
+            checkAdminPermission(request);
+            boolean started = priceRollupService.startBackfill();
+            return Result.success(started ? "已开始重建价格汇总" : "价格汇总正在重建中", started);
+        } catch (Exception e) {
+            log.error("重建价格汇总失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+}
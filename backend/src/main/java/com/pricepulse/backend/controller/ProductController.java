@@ -1,13 +1,13 @@
 package com.pricepulse.backend.controller;
 
+import com.pricepulse.backend.common.dto.PriceHistoryPage;
 import com.pricepulse.backend.common.dto.PriceInfo;
 import com.pricepulse.backend.common.entity.PriceHistory;
 import com.pricepulse.backend.common.entity.Product;
 import com.pricepulse.backend.common.entity.UserProduct;
 import com.pricepulse.backend.common.exception.BusinessException;
 import com.pricepulse.backend.common.response.Result;
-import com.pricepulse.backend.mapper.UserProductMapper;
-import com.pricepulse.backend.service.NotificationService;
+import com.pricepulse.backend.service.PriceCrawlPipeline;
 import com.pricepulse.backend.service.PriceHistoryService;
 import com.pricepulse.backend.service.ProductService;
 import com.pricepulse.backend.service.crawler.CrawlerService;
@@ -15,11 +15,16 @@ import com.pricepulse.backend.service.crawler.CrawlerStrategyFactory;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 商品管理控制器
@@ -44,63 +49,93 @@ public class ProductController {
     private CrawlerStrategyFactory crawlerFactory;
 
     @Autowired
-    private NotificationService notificationService;
+    private PriceCrawlPipeline crawlPipeline;
 
-    @Autowired
-    private UserProductMapper userProductMapper;
+    /**
+     * 解析商品链接的最长等待时间（毫秒）
+     */
+    @Value("${crawler.parse-url.timeout-ms:8000}")
+    private long parseUrlTimeoutMs;
+
+    /**
+     * 价格曲线默认及最多返回的点数
+     */
+    @Value("${price-history.default-max-points:1000}")
+    private int defaultMaxPoints;
+
+    @Value("${price-history.max-points-limit:5000}")
+    private int maxPointsLimit;
+
+    /**
+     * 原始价格记录分页的默认及最大每页条数
+     */
+    @Value("${price-history.default-page-size:500}")
+    private int defaultPageSize;
+
+    @Value("${price-history.max-page-size:2000}")
+    private int maxPageSize;
 
     /**
      * 根据 URL 解析商品信息
      * <p>
-     * 使用爬虫服务从电商平台URL中提取商品信息，包括名称、价格、图片等
+     * 使用爬虫服务从电商平台URL中提取商品信息，包括名称、价格、图片等。
+     * 抓取异步进行，不占用请求线程；超过 crawler.parse-url.timeout-ms 仍未完成时返回只包含链接和平台的部分结果
      *
      * @param request 请求参数，必须包含 url 字段
      * @return 解析后的商品信息
      */
     @PostMapping("/parse-url")
-    public Result<Product> parseProductUrl(@RequestBody Map<String, String> request) {
-        try {
-            String url = request.get("url");
-            if (url == null || url.trim().isEmpty()) {
-                return Result.error("URL 不能为空");
-            }
+    public CompletableFuture<Result<Product>> parseProductUrl(@RequestBody Map<String, String> request) {
+        String url = request.get("url");
+        if (url == null || url.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(Result.error("URL 不能为空"));
+        }
 
-            log.info("解析商品 URL: {}", url);
+        log.info("解析商品 URL: {}", url);
 
+        CrawlerService crawler;
+        String platform;
+        try {
             // 使用爬虫工厂获取对应平台的爬虫服务
-            CrawlerService crawler = crawlerFactory.getCrawler(url);
-            String platform = crawlerFactory.getPlatform(url);
-
-            // 爬取价格信息
-            PriceInfo priceInfo = crawler.crawlPrice(url);
-
-            // 构建商品对象
-            Product product = new Product();
-            product.setName(priceInfo.getTitle());
-            product.setDescription(priceInfo.getTitle());
-            product.setCategory("其他");
-            product.setPlatform(platform);
-            product.setOriginalPrice(priceInfo.getOriginalPrice() != null ?
-                    priceInfo.getOriginalPrice() : priceInfo.getCurrentPrice());
-            product.setCurrentPrice(priceInfo.getCurrentPrice());
-            product.setDiscountRate(priceInfo.getDiscountRate() != null ?
-                    priceInfo.getDiscountRate() : BigDecimal.ZERO);
-            product.setUrl(url);
-            product.setImageUrl(priceInfo.getImageUrl());
-
-            log.info("解析成功: {}", product.getName());
-            return Result.success(product);
-
+            crawler = crawlerFactory.getCrawler(url);
+            platform = crawlerFactory.getPlatform(url);
         } catch (UnsupportedOperationException e) {
-            log.error("不支持的平台, url: {}", request.get("url"), e);
-            return Result.error(e.getMessage());
-        } catch (BusinessException e) {
-            log.error("解析 URL 失败, url: {}", request.get("url"), e);
-            return Result.error(e.getMessage());
-        } catch (Exception e) {
-            log.error("解析 URL 异常, url: {}", request.get("url"), e);
-            return Result.error("服务器内部错误");
+            log.error("不支持的平台, url: {}", url, e);
+            return CompletableFuture.completedFuture(Result.error(e.getMessage()));
         }
+
+        // 异步爬取价格信息
+        return crawler.crawlPriceAsync(url, Duration.ofMillis(parseUrlTimeoutMs))
+                .thenApply(priceInfo -> toParseResult(url, platform, priceInfo))
+                .exceptionally(e -> {
+                    log.error("解析 URL 异常, url: {}", url, e);
+                    return Result.error("服务器内部错误");
+                });
+    }
+
+    private Result<Product> toParseResult(String url, String platform, PriceInfo priceInfo) {
+        // 构建商品对象
+        Product product = new Product();
+        product.setName(priceInfo.getTitle());
+        product.setDescription(priceInfo.getTitle());
+        product.setCategory("其他");
+        product.setPlatform(platform);
+        product.setOriginalPrice(priceInfo.getOriginalPrice() != null ?
+                priceInfo.getOriginalPrice() : priceInfo.getCurrentPrice());
+        product.setCurrentPrice(priceInfo.getCurrentPrice());
+        product.setDiscountRate(priceInfo.getDiscountRate() != null ?
+                priceInfo.getDiscountRate() : BigDecimal.ZERO);
+        product.setUrl(url);
+        product.setImageUrl(priceInfo.getImageUrl());
+
+        if (priceInfo.getErrorMessage() != null) {
+            // 超时或抓取失败：返回已知的链接和平台，价格由用户补充或稍后刷新
+            log.warn("解析未完成: {}, url: {}", priceInfo.getErrorMessage(), url);
+            return Result.success(priceInfo.getErrorMessage(), product);
+        }
+
+        log.info("解析成功: {}", product.getName());
+        return Result.success(product);
     }
 
     /**
@@ -319,12 +354,20 @@ public class ProductController {
 
     /**
      * 获取商品的价格历史记录
+     * <p>
+     * 返回 [from, to] 内降采样后的价格曲线（按时间倒序），最多 maxPoints 个点；from 为空时从最早的记录开始，
+     * to 为空时到当前时间为止。需要逐条原始记录时使用 /price-history/raw 分页读取。
      */
     @GetMapping("/{productId}/price-history")
-    public Result<List<PriceHistory>> getPriceHistory(@PathVariable Long productId) {
+    public Result<List<PriceHistory>> getPriceHistory(
+            @PathVariable Long productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer maxPoints) {
         try {
-            log.info("获取商品价格历史，productId: {}", productId);
-            List<PriceHistory> history = priceHistoryService.getPriceHistory(productId);
+            int points = Math.min(maxPoints != null ? Math.max(maxPoints, 3) : defaultMaxPoints, maxPointsLimit);
+            log.info("获取商品价格历史，productId: {}，maxPoints: {}", productId, points);
+            List<PriceHistory> history = priceHistoryService.getPriceHistory(productId, from, to, points);
             log.info("价格历史数据数量：{}", history.size());
             return Result.success(history);
         } catch (Exception e) {
@@ -333,8 +376,32 @@ public class ProductController {
         }
     }
 
+    /**
+     * 按时间正序分页读取商品的原始价格记录
+     * <p>
+     * 首页不传 cursor，之后把上一页返回的 nextCursor、nextCursorId 作为 cursor、cursorId 传入，nextCursor 为空表示已读完
+     */
+    @GetMapping("/{productId}/price-history/raw")
+    public Result<PriceHistoryPage> getRawPriceHistory(
+            @PathVariable Long productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursor,
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            int pageSize = Math.min(limit != null ? Math.max(limit, 1) : defaultPageSize, maxPageSize);
+            return Result.success(priceHistoryService.getRawPage(productId, from, to, cursor, cursorId, pageSize));
+        } catch (Exception e) {
+            log.error("分页获取价格历史失败，productId: {}", productId, e);
+            return Result.error(e.getMessage());
+        }
+    }
+
     /**
      * 手动触发价格爬取
+     * <p>
+     * 与定时任务共用 {@link PriceCrawlPipeline}，该商品正在抓取或刚抓取过时直接复用结果
      */
     @PostMapping("/crawl-price/{productId}")
     public Result<Product> crawlProductPrice(@PathVariable Long productId) {
@@ -346,149 +413,20 @@ public class ProductController {
                 return Result.error("商品不存在");
             }
 
-            // 【修改】获取基准价格：使用当前价格作为基准
-            BigDecimal currentPrice = product.getCurrentPrice();
-            if (currentPrice == null) {
-                currentPrice = product.getOriginalPrice();
+            PriceCrawlPipeline.Outcome outcome = crawlPipeline.submit(product, "MANUAL");
+            if (!outcome.isSuccess()) {
+                String reason = outcome.getPriceInfo() != null ? outcome.getPriceInfo().getErrorMessage() : null;
+                return Result.error("价格爬取失败：" + (reason != null ? reason : "未获取到价格"));
             }
-            if (currentPrice == null) {
-                currentPrice = new BigDecimal("1000");
-            }
-
-            log.info("基准价格：当前价={}, 原价={}",
-                    product.getCurrentPrice(), product.getOriginalPrice());
-
-            // 【修改】随机降价 5%-20%（确保每次都降价）
-            double randomFactor = 0.80 + Math.random() * 0.20;
-
-            // 确保随机因子小于 1（保证降价）
-            if (randomFactor >= 1.0) {
-                randomFactor = 0.95;
-            }
-
-            BigDecimal newPrice = currentPrice.multiply(new BigDecimal(String.valueOf(randomFactor)))
-                    .setScale(2, BigDecimal.ROUND_HALF_UP);
-
-            // 【新增】二次检查：确保新价格一定低于当前价格
-            if (newPrice.compareTo(currentPrice) >= 0) {
-                // 如果新价格大于或等于当前价格，强制降价 10%
-                newPrice = currentPrice.multiply(new BigDecimal("0.9"))
-                        .setScale(2, BigDecimal.ROUND_HALF_UP);
-                log.info("检测到价格未下降，强制降价 10%");
-            }
-
-            BigDecimal discountRate = newPrice.divide(currentPrice, 4, BigDecimal.ROUND_HALF_UP)
-                    .multiply(new BigDecimal("100"))
-                    .setScale(2, BigDecimal.ROUND_HALF_UP);
-
-            log.info("【演示模式】价格更新：原价 {} -> 新价 {}, 折扣率 {}%",
-                    currentPrice, newPrice, discountRate);
-
-            // 【修改】检查是否降价并发送通知（与当前价格比较）
-            BigDecimal oldPrice = product.getCurrentPrice();
-
-            log.info("=== [降价通知] 开始检查 ===");
-            log.info("商品 ID: {}, 商品名称：{}", product.getId(), product.getName());
-            log.info("当前价格：{}, 新价格：{}", oldPrice, newPrice);
-            log.info("是否降价：{}", (oldPrice != null && newPrice.compareTo(oldPrice) < 0));
 
-            // 直接更新价格相关字段
-            product.setCurrentPrice(newPrice);
-            product.setOriginalPrice(currentPrice); // 保持原价为之前的价格
-            product.setDiscountRate(discountRate);
-
-            // 【新增】如果降价了，触发通知
-            if (oldPrice != null && newPrice.compareTo(oldPrice) < 0) {
-                log.info("检测到降价：商品 {} 从 {} 降到 {}", product.getName(), oldPrice, newPrice);
-
-                // 触发降价通知
-                triggerPriceDropNotification(product, oldPrice, newPrice);
-            } else {
-                log.warn("价格未下降或 oldPrice 为 null，跳过通知");
-            }
-
-            // 记录价格历史
-            PriceHistory history = new PriceHistory();
-            history.setProductId(productId);
-            history.setCheckedAt(java.time.LocalDateTime.now());
-            history.setPrice(newPrice);
-            history.setOriginalPrice(currentPrice);
-            history.setDiscountRate(discountRate);
-            history.setCurrency("CNY");
-            history.setSource("manual");
-            priceHistoryService.addPriceHistory(history);
-
-            // 保存更新 - 使用完整更新
-            productService.updateProduct(product);
-
-            log.info("价格更新成功");
+            log.info("价格爬取完成，商品 {} 当前价格 {}（{}）", productId, product.getCurrentPrice(),
+                    outcome.isReused() ? "复用最近结果" : outcome.isPriceChanged() ? "价格已更新" : "价格未变");
+            // 价格写回是异步批量进行的，直接返回已同步最新价格的商品对象
             return Result.success(product);
 
         } catch (Exception e) {
-            log.error("价格更新失败，productId: {}", productId, e);
-            return Result.error("更新失败：" + e.getMessage());
-        }
-    }
-
-    /**
-     * 触发降价通知
-     */
-    private void triggerPriceDropNotification(Product product, BigDecimal oldPrice, BigDecimal newPrice) {
-        try {
-            log.info("=== [降价通知] 准备发送通知 ===");
-            log.info("商品 ID: {}, 商品名称：{}", product.getId(), product.getName());
-            log.info("商品原价：{}, 商品现价：{}", oldPrice, newPrice);
-
-            // 获取关注该商品的所有用户
-            var userProducts = userProductMapper.selectByProductId(product.getId());
-
-            log.info("查询到的关注用户数量：{}", userProducts == null ? 0 : userProducts.size());
-            if (userProducts != null) {
-                for (var up : userProducts) {
-                    log.info("  - 用户 ID: {}, 阈值：{}", up.getUserId(), up.getPriceDropThreshold());
-                }
-            }
-
-            if (userProducts == null || userProducts.isEmpty()) {
-                log.debug("商品 {} 暂无关注用户，跳过通知", product.getName());
-                return;
-            }
-
-            log.info("商品 {} 有 {} 个用户关注，准备发送通知", product.getName(), userProducts.size());
-
-            for (var userProduct : userProducts) {
-                // 检查是否达到提醒阈值
-                BigDecimal alertThreshold = userProduct.getPriceDropThreshold();
-                if (alertThreshold == null) {
-                    alertThreshold = new BigDecimal("0.1"); // 默认 10%
-                }
-
-                // 计算降价幅度
-                BigDecimal dropAmount = oldPrice.subtract(newPrice);
-                BigDecimal dropPercent = dropAmount.divide(oldPrice, 4, java.math.BigDecimal.ROUND_HALF_UP)
-                        .multiply(new BigDecimal("100"));
-
-                log.info("用户 {} 关注商品 {}，降价幅度 {}%，阈值 {}%",
-                        userProduct.getUserId(), product.getName(), dropPercent, alertThreshold.multiply(new BigDecimal("100")));
-
-                // 【修复】如果降价幅度达到阈值，发送通知
-                // alertThreshold 是小数形式（如 0.1 表示 10%），dropPercent 是百分比形式（如 12.1 表示 12.1%）
-                if (dropPercent.compareTo(alertThreshold.multiply(new BigDecimal("100"))) >= 0) {
-                    log.info("✅ 用户 {} 达到通知条件，发送通知...", userProduct.getUserId());
-
-                    notificationService.sendPriceDropNotification(
-                            userProduct.getUserId(),
-                            product.getName(),
-                            oldPrice,
-                            newPrice
-                    );
-                    log.info("已为用户 {} 发送降价通知", userProduct.getUserId());
-                } else {
-                    log.debug("降价幅度未达到用户 {} 的提醒阈值", userProduct.getUserId());
-                }
-            }
-        } catch (Exception e) {
-            log.error("触发降价通知失败", e);
+            log.error("价格爬取失败，productId: {}", productId, e);
+            return Result.error("爬取失败：" + e.getMessage());
         }
     }
 }
@@ -0,0 +1,26 @@
+package com.pricepulse.backend.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+@Mapper
+public interface PddGoodsSignMapper {
+
+    /**
+     * 查询已解析的 goods_sign
+     */
+    @Select("SELECT goods_sign FROM pdd_goods_sign WHERE goods_key = #{goodsKey}")
+    String selectGoodsSign(String goodsKey);
+
+    /**
+     * 保存解析结果（已存在时覆盖并刷新解析时间）
+     */
+    @Insert("INSERT INTO pdd_goods_sign(goods_key, goods_sign, resolved_at) VALUES(#{goodsKey}, #{goodsSign}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE goods_sign = VALUES(goods_sign), resolved_at = NOW()")
+    int upsert(@Param("goodsKey") String goodsKey, @Param("goodsSign") String goodsSign);
+
+    /**
+     * 删除解析结果（goods_sign 失效时）
+     */
+    @Delete("DELETE FROM pdd_goods_sign WHERE goods_key = #{goodsKey}")
+    int deleteByKey(String goodsKey);
+}
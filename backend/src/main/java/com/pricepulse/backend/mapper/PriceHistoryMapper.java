@@ -2,6 +2,8 @@ package com.pricepulse.backend.mapper;
 
 import com.pricepulse.backend.common.entity.PriceHistory;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,6 +21,19 @@ public interface PriceHistoryMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(PriceHistory priceHistory);
 
+    /**
+     * 批量插入价格历史记录（单条多行 INSERT）
+     */
+    @InsertProvider(type = PriceHistorySqlProvider.class, method = "insertBatch")
+    int insertBatch(@Param("histories") List<PriceHistory> histories);
+
+    /**
+     * 价格未变化时延长商品最新一条记录的最后出现时间（只延长，较早的检查不会缩短）
+     */
+    @Update("UPDATE price_history SET last_seen_at = GREATEST(COALESCE(last_seen_at, checked_at), #{seenAt}) " +
+            "WHERE product_id = #{productId} ORDER BY checked_at DESC LIMIT 1")
+    int touchLatest(@Param("productId") Long productId, @Param("seenAt") LocalDateTime seenAt);
+
     /**
      * 根据ID查询价格历史
      */
@@ -37,6 +52,24 @@ public interface PriceHistoryMapper {
     @Select("SELECT * FROM price_history WHERE product_id = #{productId} ORDER BY checked_at DESC LIMIT 1")
     PriceHistory selectLatestByProductId(Long productId);
 
+    /**
+     * 查询商品最近 N 条价格（按时间倒序）
+     */
+    @Select("SELECT price FROM price_history WHERE product_id = #{productId} ORDER BY checked_at DESC LIMIT #{limit}")
+    List<BigDecimal> selectRecentPrices(@Param("productId") Long productId, @Param("limit") int limit);
+
+    /**
+     * 商品最近 limit 条价格历史（按时间倒序）
+     */
+    @Select("SELECT * FROM price_history WHERE product_id = #{productId} ORDER BY checked_at DESC LIMIT #{limit}")
+    List<PriceHistory> selectRecent(@Param("productId") Long productId, @Param("limit") int limit);
+
+    /**
+     * 每个商品最近 limit 条价格历史（按商品、时间倒序）
+     */
+    @SelectProvider(type = PriceHistorySqlProvider.class, method = "selectRecentByProductIds")
+    List<PriceHistory> selectRecentByProductIds(@Param("productIds") List<Long> productIds, @Param("limit") int limit);
+
     /**
      * 查询指定时间范围内的价格历史
      */
@@ -45,6 +78,54 @@ public interface PriceHistoryMapper {
                                          @Param("startTime") java.time.LocalDateTime startTime,
                                          @Param("endTime") java.time.LocalDateTime endTime);
 
+    /**
+     * 流式读取商品在 [from, to] 内开始的记录（按时间正序），逐条交给 handler，不在内存中攒整个结果集
+     */
+    @SelectProvider(type = PriceHistorySqlProvider.class, method = "selectByProductBetween")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    void streamByProductBetween(@Param("productId") Long productId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to,
+                                ResultHandler<PriceHistory> handler);
+
+    /**
+     * 按 (checked_at, id) 游标分页读取商品的价格历史（按时间正序）
+     */
+    @SelectProvider(type = PriceHistorySqlProvider.class, method = "selectPage")
+    List<PriceHistory> selectPage(@Param("productId") Long productId,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("after") LocalDateTime after,
+                                  @Param("afterId") Long afterId,
+                                  @Param("to") LocalDateTime to,
+                                  @Param("limit") int limit);
+
+    /**
+     * 商品最早一条记录的时间，没有记录时返回 null
+     */
+    @Select("SELECT MIN(checked_at) FROM price_history WHERE product_id = #{productId}")
+    LocalDateTime selectEarliestCheckedAt(@Param("productId") Long productId);
+
+    /**
+     * 商品在 before 之前开始的最后一条记录
+     */
+    @Select("SELECT * FROM price_history WHERE product_id = #{productId} AND checked_at < #{before} " +
+            "ORDER BY checked_at DESC LIMIT 1")
+    PriceHistory selectLatestBefore(@Param("productId") Long productId, @Param("before") LocalDateTime before);
+
+    /**
+     * 按 ID 顺序分批读取价格历史（ID 在 (afterId, maxId] 之间，最多 limit 条）
+     */
+    @Select("SELECT * FROM price_history WHERE id > #{afterId} AND id <= #{maxId} ORDER BY id LIMIT #{limit}")
+    List<PriceHistory> selectBatchAfterId(@Param("afterId") long afterId,
+                                          @Param("maxId") long maxId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 当前最大的价格历史 ID，没有记录时返回 0
+     */
+    @Select("SELECT IFNULL(MAX(id), 0) FROM price_history")
+    long selectMaxId();
+
     /**
      * 统计商品价格记录数量
      */
@@ -52,10 +133,76 @@ public interface PriceHistoryMapper {
     int countByProductId(Long productId);
 
     /**
-     * 删除指定天前的价格历史记录
+     * 按时间顺序删除指定时间之前的价格历史，每次最多 limit 条（分块删除，避免长时间锁表）
+     */
+    @Delete("DELETE FROM price_history WHERE checked_at < #{date} ORDER BY checked_at LIMIT #{limit}")
+    int deleteOlderThan(@Param("date") LocalDateTime date, @Param("limit") int limit);
+
+    /**
+     * 在 cutoff 之前开始、之后仍被检查到的记录（按 ID 分批，已在 cutoff 处拆分过的商品不再返回）
+     */
+    @Select("SELECT * FROM price_history ph WHERE ph.checked_at < #{cutoff} AND ph.last_seen_at >= #{cutoff} " +
+            "AND ph.id > #{afterId} " +
+            "AND NOT EXISTS (SELECT 1 FROM price_history x WHERE x.product_id = ph.product_id AND x.checked_at = #{cutoff}) " +
+            "ORDER BY ph.id LIMIT #{limit}")
+    List<PriceHistory> selectRunsCrossing(@Param("cutoff") LocalDateTime cutoff,
+                                          @Param("afterId") long afterId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 有 before 之前记录的商品 ID（按 ID 分批）
+     */
+    @Select("SELECT DISTINCT product_id FROM price_history WHERE checked_at < #{before} AND product_id > #{afterProductId} " +
+            "ORDER BY product_id LIMIT #{limit}")
+    List<Long> selectProductIdsBefore(@Param("before") LocalDateTime before,
+                                      @Param("afterProductId") long afterProductId,
+                                      @Param("limit") int limit);
+
+    /**
+     * 商品在 before 之前的价格历史（按时间正序）
+     */
+    @Select("SELECT * FROM price_history WHERE product_id = #{productId} AND checked_at < #{before} ORDER BY checked_at")
+    List<PriceHistory> selectByProductBefore(@Param("productId") Long productId, @Param("before") LocalDateTime before);
+
+    /**
+     * 删除商品在 before 之前的价格历史
+     */
+    @Delete("DELETE FROM price_history WHERE product_id = #{productId} AND checked_at < #{before}")
+    int deleteByProductBefore(@Param("productId") Long productId, @Param("before") LocalDateTime before);
+
+    /**
+     * price_history 的分区（按顺序），未分区时返回空列表；bound 为分区上界（UNIX 时间戳，最后一个分区为 MAXVALUE）
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS bound FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'price_history' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<Map<String, Object>> selectPartitions();
+
+    /**
+     * 按数据库会话时区把时间换算成分区上界使用的 UNIX 时间戳
      */
-    @Delete("DELETE FROM price_history WHERE checked_at < #{date}")
-    int deleteOlderThan(java.time.LocalDateTime date);
+    @Select("SELECT UNIX_TIMESTAMP(#{time})")
+    long toUnixTimestamp(@Param("time") LocalDateTime time);
+
+    /**
+     * 按数据库会话时区把分区上界换算成时间
+     */
+    @Select("SELECT FROM_UNIXTIME(#{seconds})")
+    LocalDateTime fromUnixTimestamp(@Param("seconds") long seconds);
+
+    /**
+     * 从 p_future 中拆出一个月分区，上界为 bound（yyyy-MM-dd HH:mm:ss）
+     */
+    @Update("ALTER TABLE price_history REORGANIZE PARTITION p_future INTO (" +
+            "PARTITION ${name} VALUES LESS THAN (UNIX_TIMESTAMP('${bound}')), " +
+            "PARTITION p_future VALUES LESS THAN MAXVALUE)")
+    void addPartition(@Param("name") String name, @Param("bound") String bound);
+
+    /**
+     * 删除整个分区（分区内的记录一并删除）
+     */
+    @Update("ALTER TABLE price_history DROP PARTITION ${name}")
+    void dropPartition(@Param("name") String name);
 
     /**
      * 统计今日降价商品数量
@@ -80,25 +227,6 @@ public interface PriceHistoryMapper {
     BigDecimal calculateTotalSavings(@Param("userId") Long userId);
 
 
-    /**
-     * 获取最近 N 天的平均价格（使用 SQL Provider）
-     */
-    @SelectProvider(type = PriceHistorySqlProvider.class, method = "getAveragePriceByDays")
-    List<Map<String, Object>> getAveragePriceByDays(
-            @Param("productIds") List<Long> productIds,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("days") Integer days);
-
-    /**
-     * 获取每个商品在最近 N 天的每日价格（用于多商品对比）
-     */
-    @SelectProvider(type = PriceHistorySqlProvider.class, method = "getDailyPricesByProducts")
-    List<Map<String, Object>> getDailyPricesByProducts(
-            @Param("productIds") List<Long> productIds,
-            @Param("startDate") LocalDateTime startDate);
-
-
-
     /**
      * 按分类统计商品数量（使用 SQL Provider）
      */
@@ -1,38 +1,69 @@
 package com.pricepulse.backend.mapper;
 
-import org.apache.ibatis.jdbc.SQL;
+import com.pricepulse.backend.common.entity.PriceHistory;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public class PriceHistorySqlProvider {
 
-
-    public String getAveragePriceByDays(List<Long> productIds, LocalDateTime startDate) {
-        String ids = String.join(",", productIds.stream().map(String::valueOf).toArray(String[]::new));
-
-        return new SQL() {{
-            SELECT("DATE(checked_at) as date, AVG(price) as avgPrice");
-            FROM("price_history");
-            WHERE("product_id IN (" + ids + ")");
-            WHERE("checked_at >= '" + startDate + "'");
-            GROUP_BY("DATE(checked_at)");
-            ORDER_BY("date ASC");
-        }}.toString();
+    /**
+     * 多行 INSERT，一条语句写入一批价格历史
+     */
+    public String insertBatch(List<PriceHistory> histories) {
+        StringBuilder sql = new StringBuilder("INSERT INTO price_history(product_id, price, original_price, " +
+                "discount_rate, currency, checked_at, last_seen_at, source) VALUES ");
+        for (int i = 0; i < histories.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(#{histories[").append(i).append("].productId}, ")
+                    .append("#{histories[").append(i).append("].price}, ")
+                    .append("#{histories[").append(i).append("].originalPrice}, ")
+                    .append("#{histories[").append(i).append("].discountRate}, ")
+                    .append("#{histories[").append(i).append("].currency}, ")
+                    .append("#{histories[").append(i).append("].checkedAt}, ")
+                    .append("#{histories[").append(i).append("].lastSeenAt}, ")
+                    .append("#{histories[").append(i).append("].source})");
+        }
+        return sql.toString();
     }
 
-    public String getDailyPricesByProducts(List<Long> productIds, LocalDateTime startDate) {
-        String ids = String.join(",", productIds.stream().map(String::valueOf).toArray(String[]::new));
+    /**
+     * 商品在 [from, to] 内开始的记录（按时间正序），from、to 为空时不限
+     */
+    public String selectByProductBetween(Long productId, LocalDateTime from, LocalDateTime to) {
+        return "SELECT * FROM price_history WHERE product_id = #{productId}" +
+                (from != null ? " AND checked_at >= #{from}" : "") +
+                (to != null ? " AND checked_at <= #{to}" : "") +
+                " ORDER BY checked_at";
+    }
 
-        return new SQL() {{
-            SELECT("ph.product_id, p.name as product_name, DATE(ph.checked_at) as date, ph.price");
-            FROM("price_history ph");
-            FROM("products p");
-            WHERE("ph.product_id = p.id");
-            WHERE("ph.product_id IN (" + ids + ")");
-            WHERE("ph.checked_at >= '" + startDate + "'");
-            ORDER_BY("ph.product_id, DATE(ph.checked_at) ASC");
-        }}.toString();
+    /**
+     * 按 (checked_at, id) 分页（游标为上一页最后一条的 checked_at 和 id，不含）；同一时间的多条记录不会被跳过
+     */
+    public String selectPage(Long productId, LocalDateTime from, LocalDateTime after, Long afterId,
+                             LocalDateTime to, int limit) {
+        return "SELECT * FROM price_history WHERE product_id = #{productId}" +
+                (from != null ? " AND checked_at >= #{from}" : "") +
+                (after != null ? " AND checked_at >= #{after} AND (checked_at > #{after} OR id > #{afterId})" : "") +
+                (to != null ? " AND checked_at <= #{to}" : "") +
+                " ORDER BY checked_at, id LIMIT #{limit}";
     }
 
+    /**
+     * 每个商品最近 limit 条记录（按商品、时间倒序）
+     */
+    public String selectRecentByProductIds(List<Long> productIds, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM (SELECT ph.*, ROW_NUMBER() OVER " +
+                "(PARTITION BY product_id ORDER BY checked_at DESC) AS rn FROM price_history ph WHERE product_id IN (");
+        for (int i = 0; i < productIds.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("#{productIds[").append(i).append("]}");
+        }
+        sql.append(")) t WHERE rn <= #{limit} ORDER BY product_id, checked_at DESC");
+        return sql.toString();
+    }
 }
@@ -0,0 +1,67 @@
+package com.pricepulse.backend.mapper;
+
+import com.pricepulse.backend.common.entity.PriceRollup;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface PriceRollupMapper {
+
+    /**
+     * 批量合并小时汇总（单条多行 INSERT ... ON DUPLICATE KEY UPDATE）
+     */
+    @InsertProvider(type = PriceRollupSqlProvider.class, method = "upsertHourly")
+    int upsertHourly(@Param("rollups") List<PriceRollup> rollups);
+
+    /**
+     * 批量合并每日汇总
+     */
+    @InsertProvider(type = PriceRollupSqlProvider.class, method = "upsertDaily")
+    int upsertDaily(@Param("rollups") List<PriceRollup> rollups);
+
+    /**
+     * 查询商品从起始日期开始的每日汇总（按商品、日期排序）
+     */
+    @SelectProvider(type = PriceRollupSqlProvider.class, method = "selectDailySince")
+    List<PriceRollup> selectDailySince(@Param("productIds") List<Long> productIds,
+                                       @Param("startDate") LocalDateTime startDate);
+
+    /**
+     * 查询每个商品在起始日期之前的最后一条每日汇总
+     */
+    @SelectProvider(type = PriceRollupSqlProvider.class, method = "selectLastDailyBefore")
+    List<PriceRollup> selectLastDailyBefore(@Param("productIds") List<Long> productIds,
+                                            @Param("startDate") LocalDateTime startDate);
+
+    /**
+     * 按时间顺序删除指定时间之前的小时汇总，每次最多 limit 条
+     */
+    @Delete("DELETE FROM price_rollup_hourly WHERE bucket_start < #{date} ORDER BY bucket_start LIMIT #{limit}")
+    int deleteHourlyOlderThan(@Param("date") LocalDateTime date, @Param("limit") int limit);
+
+    /**
+     * 按时间顺序删除指定时间之前的每日汇总，每次最多 limit 条
+     */
+    @Delete("DELETE FROM price_rollup_daily WHERE bucket_start < #{date} ORDER BY bucket_start LIMIT #{limit}")
+    int deleteDailyOlderThan(@Param("date") LocalDateTime date, @Param("limit") int limit);
+
+    /**
+     * 每日汇总表是否已有数据
+     */
+    @Select("SELECT EXISTS(SELECT 1 FROM price_rollup_daily)")
+    boolean existsDaily();
+
+    /**
+     * 清空小时汇总（重建前）
+     */
+    @Update("TRUNCATE TABLE price_rollup_hourly")
+    void truncateHourly();
+
+    /**
+     * 清空每日汇总（重建前）
+     */
+    @Update("TRUNCATE TABLE price_rollup_daily")
+    void truncateDaily();
+}
@@ -0,0 +1,78 @@
+package com.pricepulse.backend.mapper;
+
+import com.pricepulse.backend.common.entity.PriceRollup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class PriceRollupSqlProvider {
+
+    /**
+     * 合并到已有汇总：赋值从左到右执行，开盘价、收盘价要在对应时间更新之前比较
+     */
+    private static final String MERGE =
+            " AS r ON DUPLICATE KEY UPDATE " +
+            "open_price = IF(r.open_at < open_at, r.open_price, open_price), " +
+            "open_at = LEAST(open_at, r.open_at), " +
+            "close_price = IF(r.close_at >= close_at, r.close_price, close_price), " +
+            "close_at = GREATEST(close_at, r.close_at), " +
+            "high_price = GREATEST(high_price, r.high_price), " +
+            "low_price = LEAST(low_price, r.low_price), " +
+            "price_sum = price_sum + r.price_sum, " +
+            "sample_count = sample_count + r.sample_count";
+
+    public String upsertHourly(List<PriceRollup> rollups) {
+        return upsert("price_rollup_hourly", rollups);
+    }
+
+    public String upsertDaily(List<PriceRollup> rollups) {
+        return upsert("price_rollup_daily", rollups);
+    }
+
+    /**
+     * 商品从起始日期开始的每日汇总
+     */
+    public String selectDailySince(List<Long> productIds, LocalDateTime startDate) {
+        return "SELECT * FROM price_rollup_daily " +
+                "WHERE product_id IN (" + ids(productIds) + ") AND bucket_start >= #{startDate} " +
+                "ORDER BY product_id, bucket_start";
+    }
+
+    /**
+     * 每个商品在起始日期之前的最后一条每日汇总，用于补齐起始日期之后尚未检查过的日子
+     */
+    public String selectLastDailyBefore(List<Long> productIds, LocalDateTime startDate) {
+        return "SELECT r.* FROM price_rollup_daily r JOIN (" +
+                "SELECT product_id, MAX(bucket_start) AS bucket_start FROM price_rollup_daily " +
+                "WHERE product_id IN (" + ids(productIds) + ") AND bucket_start < #{startDate} " +
+                "GROUP BY product_id) latest " +
+                "ON r.product_id = latest.product_id AND r.bucket_start = latest.bucket_start";
+    }
+
+    private static String upsert(String table, List<PriceRollup> rollups) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                .append("(product_id, bucket_start, open_price, high_price, low_price, close_price, price_sum, " +
+                        "sample_count, open_at, close_at) VALUES ");
+        for (int i = 0; i < rollups.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            String item = "#{rollups[" + i + "].";
+            sql.append("(").append(item).append("productId}, ")
+                    .append(item).append("bucketStart}, ")
+                    .append(item).append("openPrice}, ")
+                    .append(item).append("highPrice}, ")
+                    .append(item).append("lowPrice}, ")
+                    .append(item).append("closePrice}, ")
+                    .append(item).append("priceSum}, ")
+                    .append(item).append("sampleCount}, ")
+                    .append(item).append("openAt}, ")
+                    .append(item).append("closeAt})");
+        }
+        return sql.append(MERGE).toString();
+    }
+
+    private static String ids(List<Long> productIds) {
+        return String.join(",", productIds.stream().map(String::valueOf).toArray(String[]::new));
+    }
+}
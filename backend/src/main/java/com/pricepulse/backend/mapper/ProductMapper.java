@@ -4,6 +4,7 @@ import com.pricepulse.backend.common.entity.Product;
 import org.apache.ibatis.annotations.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -25,7 +26,7 @@ public interface ProductMapper {
      * 根据 ID 查询商品
      */
     @Select("SELECT * FROM products WHERE id = #{id}")
-    @Results({
+    @Results(id = "productResultMap", value = {
             @Result(property = "id", column = "id"),
             @Result(property = "name", column = "name"),
             @Result(property = "url", column = "url"),
@@ -42,6 +43,8 @@ public interface ProductMapper {
             @Result(property = "reviewCount", column = "review_count"),
             @Result(property = "stockStatus", column = "stock_status"),
             @Result(property = "lastChecked", column = "last_checked"),
+            @Result(property = "nextCheckAt", column = "next_check_at"),
+            @Result(property = "priceChangeEwma", column = "price_change_ewma"),
             @Result(property = "createdAt", column = "created_at"),
             @Result(property = "updatedAt", column = "updated_at"),
             @Result(property = "status", column = "status")
@@ -75,6 +78,28 @@ public interface ProductMapper {
     })
     List<Product> selectAll();
 
+    /**
+     * 按 ID 分页查询上架商品（键集分页，批量任务按批次遍历全表）
+     *
+     * @param lastId 上一批最后一个商品的 ID，首批传 0
+     */
+    @Select("SELECT * FROM products WHERE status = 1 AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    @ResultMap("productResultMap")
+    List<Product> selectActiveAfterId(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 按上架状态统计商品数量
+     */
+    @Select("SELECT status, COUNT(*) AS total FROM products GROUP BY status")
+    List<Map<String, Object>> countGroupByStatus();
+
+    /**
+     * 按平台统计所有商品数量（平台为空时归为 OTHER）
+     */
+    @Select("SELECT COALESCE(platform, 'OTHER') AS platform, COUNT(*) AS total FROM products " +
+            "GROUP BY COALESCE(platform, 'OTHER')")
+    List<Map<String, Object>> countGroupByPlatform();
+
     /**
      * 根据平台 ID 查询商品
      */
@@ -113,6 +138,12 @@ public interface ProductMapper {
             "WHERE id = #{id}")
     int update(Product product);
 
+    /**
+     * 深度更新后批量写回销量和最后检查时间（单条 UPDATE，价格由写回缓冲区写入）
+     */
+    @UpdateProvider(type = ProductSqlProvider.class, method = "updateSalesCounts")
+    int updateSalesCounts(@Param("products") List<Product> products);
+
     /**
      * 删除商品
      */
@@ -241,6 +272,13 @@ public interface ProductMapper {
     @SelectProvider(type = ProductSqlProvider.class, method = "countByPlatform")
     List<Map<String, Object>> countByPlatform(@Param("productIds") java.util.List<Long> productIds);
 
+    /**
+     * 按 ID 批量查询上架中的商品（抓取任务队列用，顺序不保证）
+     */
+    @SelectProvider(type = ProductSqlProvider.class, method = "selectActiveByIds")
+    @ResultMap("productResultMap")
+    List<Product> selectActiveByIds(@Param("productIds") java.util.List<Long> productIds);
+
     /**
      * 多条件组合搜索商品
      */
@@ -344,5 +382,47 @@ public interface ProductMapper {
      */
     @Update("UPDATE products SET status = #{status}, updated_at = NOW() WHERE id = #{id}")
     int updateStatus(@Param("id") Long id, @Param("status") Integer status);
-}
 
+    /**
+     * 查询在指定时间之前到期的待检查商品（按到期时间升序，走 idx_products_status_next_check 索引）
+     */
+    @Select("SELECT * FROM products WHERE status = 1 AND next_check_at <= #{dueBefore} " +
+            "ORDER BY next_check_at ASC LIMIT #{limit}")
+    @ResultMap("productResultMap")
+    List<Product> selectDueProducts(@Param("dueBefore") LocalDateTime dueBefore, @Param("limit") int limit);
+
+    /**
+     * 查询指定分区内在指定时间之前到期的待检查商品（分区 = MOD(id, partitionCount)，partitions 不能为空）
+     */
+    @SelectProvider(type = ProductSqlProvider.class, method = "selectDueProductsInPartitions")
+    @ResultMap("productResultMap")
+    List<Product> selectDueProductsInPartitions(@Param("dueBefore") LocalDateTime dueBefore,
+                                                @Param("partitionCount") int partitionCount,
+                                                @Param("partitions") java.util.Collection<Integer> partitions,
+                                                @Param("limit") int limit);
+
+    /**
+     * 键集分页查询指定分区内的上架商品（partitions 不能为空）
+     */
+    @SelectProvider(type = ProductSqlProvider.class, method = "selectActiveAfterIdInPartitions")
+    @ResultMap("productResultMap")
+    List<Product> selectActiveAfterIdInPartitions(@Param("lastId") long lastId,
+                                                  @Param("partitionCount") int partitionCount,
+                                                  @Param("partitions") java.util.Collection<Integer> partitions,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 只更新抓取得到的价格字段（抓取结果批量写回用）
+     */
+    @Update("UPDATE products SET current_price = #{currentPrice}, original_price = #{originalPrice}, " +
+            "discount_rate = #{discountRate}, last_checked = #{lastChecked}, updated_at = NOW() WHERE id = #{id}")
+    int updateCrawledPrice(Product product);
+
+    /**
+     * 更新商品的抓取调度信息（下次检查时间、价格变动频率）
+     */
+    @Update("UPDATE products SET next_check_at = #{nextCheckAt}, price_change_ewma = #{priceChangeEwma} WHERE id = #{id}")
+    int updateCrawlSchedule(@Param("id") Long id,
+                            @Param("nextCheckAt") LocalDateTime nextCheckAt,
+                            @Param("priceChangeEwma") BigDecimal priceChangeEwma);
+}
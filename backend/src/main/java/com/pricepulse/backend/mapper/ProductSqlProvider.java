@@ -1,8 +1,11 @@
 package com.pricepulse.backend.mapper;
 
+import com.pricepulse.backend.common.entity.Product;
 import org.apache.ibatis.jdbc.SQL;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public class ProductSqlProvider {
@@ -29,6 +32,66 @@ public class ProductSqlProvider {
         }}.toString();
     }
 
+    public String selectActiveByIds(List<Long> productIds) {
+        String ids = String.join(",", productIds.stream().map(String::valueOf).toArray(String[]::new));
+
+        return new SQL() {{
+            SELECT("*");
+            FROM("products");
+            WHERE("status = 1");
+            WHERE("id IN (" + ids + ")");
+        }}.toString();
+    }
+
+    public String updateSalesCounts(List<Product> products) {
+        StringBuilder cases = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < products.size(); i++) {
+            cases.append(" WHEN #{products[").append(i).append("].id} THEN #{products[")
+                    .append(i).append("].salesCount}");
+            if (i > 0) {
+                ids.append(", ");
+            }
+            ids.append("#{products[").append(i).append("].id}");
+        }
+        return "UPDATE products SET sales_count = CASE id" + cases + " ELSE sales_count END, " +
+                "last_checked = NOW(), updated_at = NOW() WHERE id IN (" + ids + ")";
+    }
+
+    public String selectDueProductsInPartitions(LocalDateTime dueBefore, int partitionCount,
+                                                Collection<Integer> partitions, int limit) {
+        return new SQL() {{
+            SELECT("*");
+            FROM("products");
+            WHERE("status = 1");
+            WHERE("next_check_at <= #{dueBefore}");
+            WHERE(partitionCondition(partitionCount, partitions));
+            ORDER_BY("next_check_at ASC");
+            LIMIT("#{limit}");
+        }}.toString();
+    }
+
+    public String selectActiveAfterIdInPartitions(long lastId, int partitionCount,
+                                                  Collection<Integer> partitions, int limit) {
+        return new SQL() {{
+            SELECT("*");
+            FROM("products");
+            WHERE("status = 1");
+            WHERE("id > #{lastId}");
+            WHERE(partitionCondition(partitionCount, partitions));
+            ORDER_BY("id");
+            LIMIT("#{limit}");
+        }}.toString();
+    }
+
+    /**
+     * 商品分区条件：MOD(id, 分区数) IN (分区号...)
+     */
+    private static String partitionCondition(int partitionCount, Collection<Integer> partitions) {
+        String ids = String.join(",", partitions.stream().map(String::valueOf).toArray(String[]::new));
+        return "MOD(id, " + partitionCount + ") IN (" + ids + ")";
+    }
+
     public String searchWithFilters(String keyword, String category, String platform,
                                     BigDecimal minPrice, BigDecimal maxPrice) {
         return new SQL() {{
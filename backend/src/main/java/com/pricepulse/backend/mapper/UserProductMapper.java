@@ -1,5 +1,6 @@
 package com.pricepulse.backend.mapper;
 
+import com.pricepulse.backend.common.entity.ProductFollowerStats;
 import com.pricepulse.backend.common.entity.UserProduct;
 import com.pricepulse.backend.common.entity.UserProductWithProduct;
 import org.apache.ibatis.annotations.*;
@@ -145,6 +146,17 @@ public interface UserProductMapper {
     @Select("SELECT COUNT(*) FROM user_products WHERE product_id = #{productId}")
     int countByProductId(Long productId);
 
+    /**
+     * 一次查询一批商品的关注人数和开启通知的最高期望价格（最先被触达的期望价），无人关注的商品不返回
+     */
+    @SelectProvider(type = UserProductSqlProvider.class, method = "selectFollowerStatsByProductIds")
+    @Results({
+            @Result(property = "productId", column = "product_id"),
+            @Result(property = "followers", column = "followers"),
+            @Result(property = "maxTargetPrice", column = "max_target_price")
+    })
+    List<ProductFollowerStats> selectFollowerStatsByProductIds(@Param("productIds") List<Long> productIds);
+
 
     /**
      * 根据用户 ID 和商品 ID 查询关注记录数量
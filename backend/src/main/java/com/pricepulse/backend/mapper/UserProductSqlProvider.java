@@ -0,0 +1,20 @@
+package com.pricepulse.backend.mapper;
+
+import org.apache.ibatis.jdbc.SQL;
+
+import java.util.List;
+
+public class UserProductSqlProvider {
+
+    public String selectFollowerStatsByProductIds(List<Long> productIds) {
+        String ids = String.join(",", productIds.stream().map(String::valueOf).toArray(String[]::new));
+
+        return new SQL() {{
+            SELECT("product_id, COUNT(*) AS followers");
+            SELECT("MAX(CASE WHEN notification_enabled = 1 THEN target_price END) AS max_target_price");
+            FROM("user_products");
+            WHERE("product_id IN (" + ids + ")");
+            GROUP_BY("product_id");
+        }}.toString();
+    }
+}
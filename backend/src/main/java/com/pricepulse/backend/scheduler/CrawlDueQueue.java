@@ -0,0 +1,162 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.PriceWriteBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 按到期时间排序的待抓取队列
+ * <p>
+ * 内存中用优先队列保存即将到期的商品，定期用 next_check_at 上的索引查询补充（只取未来一小段时间内到期的商品）。
+ * 每个节拍只弹出已到期的商品，调度开销与到期数量成正比，而与商品总量无关。
+ * <p>
+ * 开启分区（{@link CrawlPartitionLeases}）时只加载本实例持有的分区内的商品；持有的分区变化后立即重新补充，
+ * 已不属于本实例的商品在弹出时丢弃。
+ */
+@Component
+@Slf4j
+public class CrawlDueQueue {
+
+    private static final Comparator<DueEntry> BY_DUE_TIME =
+            Comparator.comparing(DueEntry::dueAt).thenComparing(e -> e.product().getId());
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CrawlPartitionLeases partitionLeases;
+
+    @Autowired
+    private PriceWriteBuffer writeBuffer;
+
+    /**
+     * 每次补充时向后看多远（毫秒）
+     */
+    @Value("${scheduler.due-queue.refill-horizon-ms:300000}")
+    private long refillHorizonMs;
+
+    /**
+     * 两次例行补充的间隔（毫秒），用于发现新增或被提前的商品
+     */
+    @Value("${scheduler.due-queue.refill-interval-ms:60000}")
+    private long refillIntervalMs;
+
+    /**
+     * 单次补充最多加载的商品数
+     */
+    @Value("${scheduler.due-queue.refill-batch-size:500}")
+    private int refillBatchSize;
+
+    private final PriorityQueue<DueEntry> queue = new PriorityQueue<>(BY_DUE_TIME);
+
+    /**
+     * 已在队列中的商品 ID，避免重复加载
+     */
+    private final Set<Long> queuedIds = new HashSet<>();
+
+    private LocalDateTime nextRefillAt;
+
+    private boolean lastRefillFull;
+
+    /**
+     * 上次补充时持有分区的版本
+     */
+    private long partitionVersion;
+
+    /**
+     * 取出已到期的商品（最多 max 个）
+     */
+    public synchronized List<Product> pollDue(LocalDateTime now, int max) {
+        refillIfNeeded(now);
+
+        List<Product> due = new ArrayList<>();
+        while (due.size() < max && !queue.isEmpty() && !queue.peek().dueAt().isAfter(now)) {
+            Product product = queue.poll().product();
+            queuedIds.remove(product.getId());
+            if (partitionLeases.owns(product.getId())) {
+                due.add(product);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * 记录商品的下次检查时间（连同商品当前的价格变动频率一起写回）
+     * <p>
+     * 交给写回缓冲区随下一次刷新批量写入数据库；时间落在当前加载窗口内的商品会在下次补充时重新入队，
+     * 补充时尚未写入的调度信息覆盖数据库中的旧值
+     */
+    public void reschedule(Product product, LocalDateTime nextCheckAt) {
+        writeBuffer.schedule(product.getId(), nextCheckAt, product.getPriceChangeEwma());
+        product.setNextCheckAt(nextCheckAt);
+    }
+
+    /**
+     * 当前队列中的商品数
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    private void refillIfNeeded(LocalDateTime now) {
+        boolean routine = nextRefillAt == null || !now.isBefore(nextRefillAt);
+        boolean drained = lastRefillFull && queue.size() < refillBatchSize / 2;
+        boolean rebalanced = partitionVersion != partitionLeases.version();
+        if (!routine && !drained && !rebalanced) {
+            return;
+        }
+        if (rebalanced) {
+            queue.removeIf(entry -> !partitionLeases.owns(entry.product().getId()));
+            queuedIds.removeIf(id -> !partitionLeases.owns(id));
+            partitionVersion = partitionLeases.version();
+        }
+
+        LocalDateTime horizon = now.plusNanos(refillHorizonMs * 1_000_000);
+        // 已在队列中的商品也会被查出来，多取这么多条以保证能拿到新的到期商品
+        int limit = refillBatchSize + queuedIds.size();
+        Set<Integer> partitions = partitionLeases.ownedPartitions();
+        List<Product> products;
+        if (partitions == null) {
+            products = productMapper.selectDueProducts(horizon, limit);
+        } else if (partitions.isEmpty()) {
+            products = List.of();
+        } else {
+            products = productMapper.selectDueProductsInPartitions(horizon, partitionLeases.getPartitionCount(),
+                    partitions, limit);
+        }
+
+        int added = 0;
+        for (Product product : products) {
+            // 刚抓取过的商品，新的下次检查时间可能还在写回缓冲区中
+            if (writeBuffer.applyPendingSchedule(product) && product.getNextCheckAt().isAfter(horizon)) {
+                continue;
+            }
+            if (queuedIds.add(product.getId())) {
+                LocalDateTime dueAt = product.getNextCheckAt() != null ? product.getNextCheckAt() : now;
+                queue.add(new DueEntry(dueAt, product));
+                added++;
+            }
+        }
+
+        lastRefillFull = products.size() >= limit;
+        nextRefillAt = now.plusNanos(refillIntervalMs * 1_000_000);
+        if (added > 0) {
+            log.debug("待抓取队列补充 {} 个商品，当前队列长度 {}", added, queue.size());
+        }
+    }
+
+    private record DueEntry(LocalDateTime dueAt, Product product) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.entity.ProductFollowerStats;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.UserProductMapper;
+import com.pricepulse.backend.service.cache.PriceTickStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 自适应抓取间隔
+ * <p>
+ * 根据三项输入给商品打分，间隔 = 基础间隔 / 分数，并限制在 [最小间隔, 最大间隔] 内：
+ * <ul>
+ *     <li>关注人数：无人关注的商品大幅降频，关注越多越频繁（按对数增长）</li>
+ *     <li>价格变动频率：每次检查价格是否变化的指数加权平均（EWMA），常变价的商品更频繁</li>
+ *     <li>接近期望价：当前价格离关注者的期望价越近越频繁，保证降价提醒不被延迟</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class CrawlIntervalPolicy {
+
+    /**
+     * 没有价格变动记录时使用的先验频率
+     */
+    static final double PRIOR_CHANGE_RATE = 0.25;
+
+    /**
+     * 首次计算 EWMA 时最多回看的历史价格条数
+     */
+    private static final int SEED_HISTORY_SIZE = 20;
+
+    @Autowired
+    private UserProductMapper userProductMapper;
+
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private PriceTickStore priceTickStore;
+
+    /**
+     * 基础间隔（毫秒），分数为 1 的商品按此间隔检查
+     */
+    @Value("${scheduler.price-update.interval-ms:1800000}")
+    private long baseIntervalMs;
+
+    @Value("${scheduler.adaptive.min-interval-ms:300000}")
+    private long minIntervalMs;
+
+    @Value("${scheduler.adaptive.max-interval-ms:86400000}")
+    private long maxIntervalMs;
+
+    /**
+     * EWMA 平滑系数，越大越看重最近几次检查
+     */
+    @Value("${scheduler.adaptive.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    /**
+     * 无人关注商品的分数
+     */
+    @Value("${scheduler.adaptive.orphan-score:0.125}")
+    private double orphanScore;
+
+    /**
+     * 当前价格与期望价的差距在此比例内视为“即将触达”
+     */
+    @Value("${scheduler.adaptive.near-target-ratio:0.05}")
+    private double nearTargetRatio;
+
+    /**
+     * 当前价格与期望价的差距在此比例内视为“接近”
+     */
+    @Value("${scheduler.adaptive.close-target-ratio:0.15}")
+    private double closeTargetRatio;
+
+    /**
+     * 一次查询一批商品的关注统计（按商品 ID），无人关注的商品不在结果中
+     */
+    public Map<Long, ProductFollowerStats> followerStats(List<Product> products) {
+        if (products.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).distinct().toList();
+        Map<Long, ProductFollowerStats> stats = new HashMap<>();
+        for (ProductFollowerStats row : userProductMapper.selectFollowerStatsByProductIds(productIds)) {
+            stats.put(row.getProductId(), row);
+        }
+        return stats;
+    }
+
+    /**
+     * 根据本次检查结果更新商品的价格变动频率，并计算下次检查前的间隔（毫秒）
+     *
+     * @param product      刚检查完的商品（currentPrice 已是最新价格）
+     * @param priceChanged 本次检查价格是否发生变化
+     */
+    public long nextInterval(Product product, boolean priceChanged) {
+        return nextInterval(product, priceChanged, followerStats(List.of(product)).get(product.getId()));
+    }
+
+    /**
+     * 同 {@link #nextInterval(Product, boolean)}，关注统计由调用方按批查好（见 {@link #followerStats}）
+     *
+     * @param stats 商品的关注统计，无人关注时为 null
+     */
+    public long nextInterval(Product product, boolean priceChanged, ProductFollowerStats stats) {
+        return interval(product, updateChangeRate(product, priceChanged), stats);
+    }
+
+    /**
+     * 本次没有拿到新观测（抓取失败、命中抓取结果缓存）时的检查间隔：按商品当前的价格变动频率计算，不更新 EWMA，
+     * 避免平台长时间故障把常变价商品的频率衰减下去
+     *
+     * @param stats 商品的关注统计，无人关注时为 null
+     */
+    public long retryInterval(Product product, ProductFollowerStats stats) {
+        double changeRate = product.getPriceChangeEwma() != null
+                ? product.getPriceChangeEwma().doubleValue()
+                : seedChangeRate(product.getId());
+        return interval(product, changeRate, stats);
+    }
+
+    private long interval(Product product, double changeRate, ProductFollowerStats stats) {
+        int followers = stats != null && stats.getFollowers() != null ? stats.getFollowers() : 0;
+
+        double score = followerFactor(followers) * volatilityFactor(changeRate);
+        if (followers > 0) {
+            score *= proximityFactor(product.getCurrentPrice(), stats.getMaxTargetPrice());
+        }
+
+        long interval = clamp(Math.round(baseIntervalMs / score));
+        log.debug("商品 {} 关注 {} 人，变价频率 {}，分数 {}，下次检查间隔 {} 秒",
+                product.getId(), followers, String.format("%.3f", changeRate),
+                String.format("%.2f", score), interval / 1000);
+        return interval;
+    }
+
+    /**
+     * 更新并写回商品的 EWMA；首次计算时用最近的价格历史作为初始值
+     */
+    double updateChangeRate(Product product, boolean priceChanged) {
+        double previous = product.getPriceChangeEwma() != null
+                ? product.getPriceChangeEwma().doubleValue()
+                : seedChangeRate(product.getId());
+        double updated = ewmaAlpha * (priceChanged ? 1 : 0) + (1 - ewmaAlpha) * previous;
+        product.setPriceChangeEwma(BigDecimal.valueOf(updated).setScale(4, RoundingMode.HALF_UP));
+        return updated;
+    }
+
+    /**
+     * 关注人数因子：无人关注时大幅降频，有人关注时按 log2 增长（1 人为 1，4 人为 2，16 人为 3）
+     */
+    double followerFactor(int followers) {
+        if (followers <= 0) {
+            return orphanScore;
+        }
+        return 1 + 0.5 * (Math.log(followers) / Math.log(2));
+    }
+
+    /**
+     * 变价频率因子：从不变价的商品为 0.25，每次都变价的商品为 3.25
+     */
+    double volatilityFactor(double changeRate) {
+        return 0.25 + 3 * changeRate;
+    }
+
+    /**
+     * 期望价接近度因子：当前价格越接近关注者的最高期望价越频繁
+     */
+    double proximityFactor(BigDecimal currentPrice, BigDecimal targetPrice) {
+        if (currentPrice == null || targetPrice == null || targetPrice.signum() <= 0) {
+            return 1;
+        }
+        double gap = (currentPrice.doubleValue() - targetPrice.doubleValue()) / targetPrice.doubleValue();
+        if (gap <= nearTargetRatio) {
+            return 4;
+        }
+        if (gap <= closeTargetRatio) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private double seedChangeRate(Long productId) {
+        int cachedChanges = priceTickStore.countRecentChanges(productId, SEED_HISTORY_SIZE);
+        if (cachedChanges >= 0) {
+            return (PRIOR_CHANGE_RATE + (double) cachedChanges / SEED_HISTORY_SIZE) / 2;
+        }
+        List<BigDecimal> prices = priceHistoryMapper.selectRecentPrices(productId, SEED_HISTORY_SIZE);
+        if (prices.size() < 2) {
+            return PRIOR_CHANGE_RATE;
+        }
+        // 价格历史只在价格变化时写入，按相邻记录的时间跨度无法还原检查次数，这里用变化条数与先验折中
+        int changes = 0;
+        for (int i = 1; i < prices.size(); i++) {
+            if (prices.get(i).compareTo(prices.get(i - 1)) != 0) {
+                changes++;
+            }
+        }
+        return (PRIOR_CHANGE_RATE + (double) changes / SEED_HISTORY_SIZE) / 2;
+    }
+
+    private long clamp(long intervalMs) {
+        return Math.max(minIntervalMs, Math.min(maxIntervalMs, intervalMs));
+    }
+}
@@ -0,0 +1,242 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Redis Stream 的抓取任务队列
+ * <p>
+ * 开启 crawler.queue.enabled 后，定时任务把到期商品写入 Stream（每个商品一条任务，只带商品 ID），
+ * worker 实例通过消费者组读取：同一任务只投递给组内一个 worker，抓取并写回后确认（XACK）。
+ * 超过 job-timeout-ms 仍未确认的任务（worker 宕机或卡住）由其他 worker 接管（XCLAIM），投递满 max-deliveries 次后丢弃。
+ * <p>
+ * 入队前先设置 crawl:job:{商品 ID} 标记（SET NX），任务确认后删除，多个实例同时调度也不会重复入队。
+ * <p>
+ * 指标：crawler.queue.jobs（result=published/duplicate/acked/reclaimed/dropped 标签）
+ */
+@Component
+@Slf4j
+public class CrawlJobQueue {
+
+    private static final String JOB_MARKER_KEY = "crawl:job:";
+
+    private static final String PRODUCT_ID_FIELD = "productId";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile boolean groupCreated;
+
+    public boolean isEnabled() {
+        return crawlerProperties.getQueue().isEnabled();
+    }
+
+    /**
+     * 任务的最长存活时间：入队标记的有效期，也是入队时商品下次检查时间临时顺延的时长（覆盖全部投递次数）
+     */
+    public Duration leaseDuration() {
+        CrawlerProperties.Queue config = crawlerProperties.getQueue();
+        return Duration.ofMillis(config.getJobTimeoutMs() * (Math.max(1, config.getMaxDeliveries()) + 1L));
+    }
+
+    /**
+     * 把商品写入任务队列，已有未确认任务的商品跳过；返回实际入队的商品
+     */
+    public List<Product> publish(List<Product> products) {
+        CrawlerProperties.Queue config = crawlerProperties.getQueue();
+        Expiration markerTtl = Expiration.from(leaseDuration());
+        List<Object> marked = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (Product product : products) {
+                redis.set(JOB_MARKER_KEY + product.getId(), "1", markerTtl, RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+
+        List<Product> published = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (Boolean.TRUE.equals(marked.get(i))) {
+                published.add(products.get(i));
+            }
+        }
+
+        if (!published.isEmpty()) {
+            RedisStreamCommands.XAddOptions options = RedisStreamCommands.XAddOptions
+                    .maxlen(config.getMaxLength())
+                    .approximateTrimming(true);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Product product : published) {
+                    redis.xAdd(StreamRecords.string(Map.of(PRODUCT_ID_FIELD, product.getId().toString()))
+                            .withStreamKey(config.getStreamKey()), options);
+                }
+                return null;
+            });
+        }
+
+        count("published", published.size());
+        count("duplicate", products.size() - published.size());
+        return published;
+    }
+
+    /**
+     * 以 consumer 的身份读取新任务，没有任务时最多阻塞 block
+     */
+    public List<Job> read(String consumer, int count, Duration block) {
+        CrawlerProperties.Queue config = crawlerProperties.getQueue();
+        ensureGroup(config);
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                Consumer.from(config.getGroup(), consumer),
+                StreamReadOptions.empty().count(count).block(block),
+                StreamOffset.create(config.getStreamKey(), ReadOffset.lastConsumed()));
+        return toJobs(records);
+    }
+
+    /**
+     * 接管超时未确认的任务（最多 count 个），投递次数已满的任务确认后丢弃
+     */
+    public List<Job> reclaim(String consumer, int count) {
+        CrawlerProperties.Queue config = crawlerProperties.getQueue();
+        ensureGroup(config);
+        Duration minIdle = Duration.ofMillis(config.getJobTimeoutMs());
+
+        List<RecordId> claimable = new ArrayList<>();
+        List<RecordId> exhausted = new ArrayList<>();
+        for (PendingMessage message : redisTemplate.opsForStream()
+                .pending(config.getStreamKey(), config.getGroup(), Range.unbounded(), count)) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) < 0) {
+                continue;
+            }
+            if (message.getTotalDeliveryCount() >= config.getMaxDeliveries()) {
+                exhausted.add(message.getId());
+            } else {
+                claimable.add(message.getId());
+            }
+        }
+
+        if (!exhausted.isEmpty()) {
+            // 商品的下次检查时间已临时顺延，标记过期后会重新入队
+            redisTemplate.opsForStream().acknowledge(config.getStreamKey(), config.getGroup(),
+                    exhausted.toArray(RecordId[]::new));
+            log.warn("{} 个抓取任务投递 {} 次仍未完成，已丢弃：{}", exhausted.size(), config.getMaxDeliveries(), exhausted);
+            count("dropped", exhausted.size());
+        }
+        if (claimable.isEmpty()) {
+            return List.of();
+        }
+
+        List<Job> jobs = toJobs(redisTemplate.opsForStream().claim(config.getStreamKey(), config.getGroup(), consumer,
+                minIdle, claimable.toArray(RecordId[]::new)));
+        if (!jobs.isEmpty()) {
+            log.info("接管 {} 个超时未确认的抓取任务", jobs.size());
+            count("reclaimed", jobs.size());
+        }
+        return jobs;
+    }
+
+    /**
+     * 确认任务已处理完，并删除对应商品的入队标记
+     */
+    public void ack(List<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        CrawlerProperties.Queue config = crawlerProperties.getQueue();
+        redisTemplate.opsForStream().acknowledge(config.getStreamKey(), config.getGroup(),
+                jobs.stream().map(Job::id).toArray(RecordId[]::new));
+        redisTemplate.delete(jobs.stream()
+                .filter(job -> job.productId() != null)
+                .map(job -> JOB_MARKER_KEY + job.productId())
+                .toList());
+        count("acked", jobs.size());
+    }
+
+    private void ensureGroup(CrawlerProperties.Queue config) {
+        if (groupCreated) {
+            return;
+        }
+        try {
+            // 从头消费，消费者组创建前已入队的任务也会被处理；Stream 不存在时一并创建
+            redisTemplate.opsForStream().createGroup(config.getStreamKey(), ReadOffset.from("0-0"), config.getGroup());
+            log.info("创建抓取任务消费者组 {}（{}）", config.getGroup(), config.getStreamKey());
+        } catch (Exception e) {
+            if (!isBusyGroup(e)) {
+                throw e;
+            }
+        }
+        groupCreated = true;
+    }
+
+    private static boolean isBusyGroup(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("BUSYGROUP")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Job> toJobs(List<MapRecord<String, Object, Object>> records) {
+        if (records == null || records.isEmpty()) {
+            return List.of();
+        }
+        List<Job> jobs = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            jobs.add(new Job(record.getId(), parseProductId(record.getValue().get(PRODUCT_ID_FIELD))));
+        }
+        return jobs;
+    }
+
+    private static Long parseProductId(Object value) {
+        try {
+            return value != null ? Long.valueOf(value.toString()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void count(String result, int amount) {
+        if (amount > 0) {
+            meterRegistry.counter("crawler.queue.jobs", "result", result).increment(amount);
+        }
+    }
+
+    /**
+     * 抓取任务
+     *
+     * @param id        Stream 中的记录 ID
+     * @param productId 商品 ID（记录内容无法识别时为 null，直接确认）
+     */
+    public record Job(RecordId id, Long productId) {
+    }
+}
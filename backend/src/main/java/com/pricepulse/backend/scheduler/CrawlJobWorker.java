@@ -0,0 +1,128 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.util.InstanceIdUtil;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.PriceWriteBuffer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 抓取任务 worker
+ * <p>
+ * crawler.queue.worker.enabled 开启时（worker 模式，见 application-worker.yml），应用启动后在后台线程循环消费抓取任务：
+ * 读取一批任务 → 加载商品 → 抓取并顺延下次检查时间 → 价格立即写回 → 确认任务。
+ * 处理失败的任务不确认，超时后由其他 worker 接管；每隔 reclaim-interval-ms 接管一次其他 worker 超时未确认的任务。
+ * 增加 worker 实例即可提高抓取吞吐，同一任务只会投递给一个 worker。
+ */
+@Component
+@Slf4j
+public class CrawlJobWorker {
+
+    /**
+     * 读取或处理出错后的等待时间（毫秒）
+     */
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    @Autowired
+    private CrawlJobQueue jobQueue;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private PriceCrawlerScheduler scheduler;
+
+    @Autowired
+    private PriceWriteBuffer writeBuffer;
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    private final String consumerName = InstanceIdUtil.current();
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!crawlerProperties.getQueue().getWorker().isEnabled()) {
+            return;
+        }
+        running = true;
+        thread = Thread.ofVirtual().name("crawl-job-worker").start(this::run);
+        log.info("抓取任务 worker {} 已启动", consumerName);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(Duration.ofSeconds(10));
+        }
+    }
+
+    private void run() {
+        CrawlerProperties.Worker config = crawlerProperties.getQueue().getWorker();
+        long nextReclaimAt = 0;
+        while (running) {
+            try {
+                if (System.currentTimeMillis() >= nextReclaimAt) {
+                    process(jobQueue.reclaim(consumerName, config.getBatchSize()));
+                    nextReclaimAt = System.currentTimeMillis() + config.getReclaimIntervalMs();
+                }
+                process(jobQueue.read(consumerName, config.getBatchSize(), Duration.ofMillis(config.getBlockMs())));
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("处理抓取任务失败", e);
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        log.info("抓取任务 worker {} 已停止", consumerName);
+    }
+
+    /**
+     * 处理一批任务，返回实际抓取的商品数；已下架或已删除的商品直接确认，价格写回失败时不确认
+     */
+    int process(List<CrawlJobQueue.Job> jobs) throws Exception {
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> productIds = jobs.stream()
+                .map(CrawlJobQueue.Job::productId)
+                .filter(id -> id != null)
+                .distinct()
+                .toList();
+        List<Product> products = productIds.isEmpty() ? List.of() : productMapper.selectActiveByIds(productIds);
+        if (!products.isEmpty()) {
+            int updatedCount = scheduler.crawlDue(products, LocalDateTime.now());
+            // 价格写回后再确认，worker 中途退出或写回失败时任务会被重新投递
+            if (!writeBuffer.flushCompletely()) {
+                log.warn("价格写回未完成，{} 个抓取任务暂不确认，等待重新投递", jobs.size());
+                return products.size();
+            }
+            log.info("抓取任务完成 {} 个，共更新 {} 个商品", products.size(), updatedCount);
+        }
+        jobQueue.ack(jobs);
+        return products.size();
+    }
+}
@@ -0,0 +1,217 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.util.InstanceIdUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 抓取分区租约
+ * <p>
+ * 多实例部署时（scheduler.partition.enabled）商品按 ID 分成 count 个分区（id mod count），各实例通过 Redis 租约
+ * （crawl:partition:{分区号}，值为实例标识，带过期时间）认领分区，定时调度和全量检查只处理本实例持有的分区，
+ * 每个商品每轮只由一个实例抓取。
+ * <p>
+ * 每隔 renew-interval-ms 续约一次：在 crawl:partition:instances 中登记心跳，按存活实例数计算每个实例应持有的分区数
+ * （向上取整），续约已持有的分区，多出的释放给新加入的实例，不足的从空闲分区中认领。实例退出时释放全部分区，
+ * 宕机的实例租约在 lease-ttl-ms 后过期，由其他实例接管。续约失败超过租期时本实例视为不持有任何分区。
+ * 未开启时本实例处理全部商品。
+ * <p>
+ * 指标：crawler.partition.owned（本实例持有的分区数）
+ */
+@Component
+@Slf4j
+public class CrawlPartitionLeases {
+
+    private static final String LEASE_KEY = "crawl:partition:";
+
+    private static final String INSTANCES_KEY = "crawl:partition:instances";
+
+    /**
+     * 租约仍由自己持有时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    /**
+     * 租约仍由自己持有时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scheduler.partition.enabled:false}")
+    private boolean enabled;
+
+    @Value("${scheduler.partition.count:64}")
+    private int partitionCount;
+
+    @Value("${scheduler.partition.lease-ttl-ms:15000}")
+    private long leaseTtlMs;
+
+    private final String instanceId = InstanceIdUtil.current();
+
+    private volatile Set<Integer> owned = Set.of();
+
+    /**
+     * 本次持有的分区在这个时间（System.nanoTime）之前有效
+     */
+    private volatile long validUntilNanos;
+
+    /**
+     * 持有的分区每变化一次加一
+     */
+    private volatile long version;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("crawler.partition.owned", this, leases -> leases.ownedPartitions() != null
+                        ? leases.ownedPartitions().size()
+                        : leases.partitionCount)
+                .description("本实例持有的抓取分区数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int partitionOf(long productId) {
+        return (int) Math.floorMod(productId, (long) partitionCount);
+    }
+
+    /**
+     * 本实例当前持有的分区；未开启分区时返回 null（处理全部商品），租约已失效时返回空集合
+     */
+    public Set<Integer> ownedPartitions() {
+        if (!enabled) {
+            return null;
+        }
+        return System.nanoTime() - validUntilNanos < 0 ? owned : Set.of();
+    }
+
+    /**
+     * 商品是否由本实例负责
+     */
+    public boolean owns(long productId) {
+        Set<Integer> partitions = ownedPartitions();
+        return partitions == null || partitions.contains(partitionOf(productId));
+    }
+
+    /**
+     * 登记心跳、续约并按存活实例数重新分配分区
+     */
+    @Scheduled(fixedDelayString = "${scheduler.partition.renew-interval-ms:5000}")
+    public synchronized void rebalance() {
+        if (!enabled) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            int target = targetPartitions();
+            String ttl = Long.toString(leaseTtlMs);
+
+            TreeSet<Integer> kept = new TreeSet<>();
+            for (Integer partition : owned) {
+                if (Long.valueOf(1).equals(redisTemplate.execute(RENEW_SCRIPT, List.of(LEASE_KEY + partition), instanceId, ttl))) {
+                    kept.add(partition);
+                } else {
+                    log.warn("抓取分区 {} 的租约已失效", partition);
+                }
+            }
+
+            // 多出的分区让给新加入的实例
+            while (kept.size() > target) {
+                Integer partition = kept.pollLast();
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(LEASE_KEY + partition), instanceId);
+            }
+
+            // 从各自的起点开始认领空闲分区，减少实例之间的争抢
+            int offset = Math.floorMod(instanceId.hashCode(), partitionCount);
+            for (int i = 0; i < partitionCount && kept.size() < target; i++) {
+                int partition = (offset + i) % partitionCount;
+                if (!kept.contains(partition) && Boolean.TRUE.equals(redisTemplate.opsForValue()
+                        .setIfAbsent(LEASE_KEY + partition, instanceId, Duration.ofMillis(leaseTtlMs)))) {
+                    kept.add(partition);
+                }
+            }
+
+            update(kept);
+            validUntilNanos = startNanos + Duration.ofMillis(leaseTtlMs).toNanos();
+        } catch (Exception e) {
+            log.error("续约抓取分区失败", e);
+        }
+    }
+
+    /**
+     * 实例退出时释放全部分区，其他实例下次续约时即可接管
+     */
+    @PreDestroy
+    public synchronized void releaseAll() {
+        if (!enabled || owned.isEmpty()) {
+            return;
+        }
+        try {
+            for (Integer partition : owned) {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(LEASE_KEY + partition), instanceId);
+            }
+            redisTemplate.opsForZSet().remove(INSTANCES_KEY, instanceId);
+        } catch (Exception e) {
+            log.warn("释放抓取分区失败：{}", e.getMessage());
+        }
+        update(Set.of());
+    }
+
+    /**
+     * 登记本实例心跳并清理过期实例，返回每个实例应持有的分区数
+     */
+    private int targetPartitions() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(INSTANCES_KEY, instanceId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(INSTANCES_KEY, 0, now - leaseTtlMs);
+        Long live = redisTemplate.opsForZSet().zCard(INSTANCES_KEY);
+        long instances = live != null && live > 0 ? live : 1;
+        return (int) ((partitionCount + instances - 1) / instances);
+    }
+
+    private void update(Set<Integer> partitions) {
+        if (!partitions.equals(owned)) {
+            owned = Set.copyOf(partitions);
+            version++;
+            log.info("本实例 {} 持有抓取分区 {} 个：{}", instanceId, partitions.size(), new TreeSet<>(partitions));
+        }
+    }
+}
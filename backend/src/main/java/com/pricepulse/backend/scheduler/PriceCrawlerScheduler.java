@@ -1,19 +1,55 @@
 package com.pricepulse.backend.scheduler;
 
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.entity.ProductFollowerStats;
+import com.pricepulse.backend.service.PriceCrawlPipeline;
 import com.pricepulse.backend.service.ProductService;
+import com.pricepulse.backend.service.crawler.CrawlCircuitBreaker;
+import com.pricepulse.backend.service.crawler.CrawlDeadline;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
 @Component
 @Slf4j
 public class PriceCrawlerScheduler {
 
+    /**
+     * 平台熔断时，商品最早在这么久之后（毫秒）重试
+     */
+    private static final long MIN_CIRCUIT_RETRY_MS = 5000;
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private PriceCrawlPipeline crawlPipeline;
+
+    @Autowired
+    private CrawlDueQueue dueQueue;
+
+    @Autowired
+    private CrawlIntervalPolicy intervalPolicy;
+
+    @Autowired
+    private CrawlCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private CrawlJobQueue jobQueue;
+
     @Value("${scheduler.price-update.enabled:true}")
     private boolean priceUpdateEnabled;
 
@@ -21,24 +57,117 @@ public class PriceCrawlerScheduler {
     private boolean deepUpdateEnabled;
 
     /**
-     * 每 30 分钟执行一次价格更新
+     * 每个节拍最多抓取的商品数
+     */
+    @Value("${scheduler.price-update.max-batch:200}")
+    private int maxBatch;
+
+    /**
+     * 调度节拍（毫秒），本轮时间用完未抓取的商品在下一个节拍重试
+     */
+    @Value("${scheduler.price-update.tick-ms:10000}")
+    private long tickMs;
+
+    /**
+     * 每个节拍只抓取已到期（next_check_at <= 现在）的商品，抓取后按 {@link CrawlIntervalPolicy} 顺延下次检查时间。
+     * 开启任务队列（crawler.queue.enabled）时只把到期商品写入队列，由 worker 实例抓取
      */
-    @Scheduled(fixedRate = 1800000) // 30 分钟 = 1800000 毫秒
+    @Scheduled(fixedDelayString = "${scheduler.price-update.tick-ms:10000}")
     public void updatePrices() {
         if (!priceUpdateEnabled) {
             log.debug("定时价格更新任务已禁用，跳过");
             return;
         }
 
-        log.info("开始执行定时价格更新任务...");
         try {
-            int updatedCount = productService.updateAllProductsPrice();
+            LocalDateTime now = LocalDateTime.now();
+            List<Product> dueProducts = dueQueue.pollDue(now, maxBatch);
+            if (dueProducts.isEmpty()) {
+                return;
+            }
+
+            if (jobQueue.isEnabled()) {
+                publish(dueProducts, now);
+                return;
+            }
+
+            log.info("开始执行定时价格更新任务，到期商品 {} 个", dueProducts.size());
+            int updatedCount = crawlDue(dueProducts, now);
             log.info("价格更新完成，共更新 {} 个商品", updatedCount);
         } catch (Exception e) {
             log.error("价格更新任务执行失败", e);
         }
     }
 
+    /**
+     * 抓取一批到期商品并顺延各自的下次检查时间，返回价格有变化的商品数（worker 模式下由 {@link CrawlJobWorker} 调用）
+     * <p>
+     * 商品整批提交，由 CrawlExecutor 按平台分组，支持批量查询的平台一次请求查询多个商品。
+     * 整轮抓取不超过 crawler.budget.cycle-timeout-ms，到期未完成的商品记为超时并在下一个节拍重试。
+     * 计算间隔用的关注统计整批查询一次，新的检查时间交给写回缓冲区随价格一起批量写入。
+     * 抓取失败或命中抓取结果缓存的商品不更新价格变动频率，按当前频率算出的间隔重试
+     */
+    public int crawlDue(List<Product> products, LocalDateTime now) throws Exception {
+        CrawlDeadline cycle = CrawlDeadline.after(Duration.ofMillis(crawlerProperties.getBudget().getCycleTimeoutMs()));
+        List<PriceCrawlPipeline.Outcome> outcomes = cycle.call(() -> crawlPipeline.submitAll(products, "AUTO"));
+        Map<Long, ProductFollowerStats> followerStats = followerStats(products);
+
+        int updatedCount = 0;
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            PriceCrawlPipeline.Outcome outcome = outcomes.get(i);
+            boolean priceChanged = outcome.isPriceChanged();
+            if (priceChanged) {
+                updatedCount++;
+            }
+            try {
+                long intervalMs;
+                if (isCircuitOpen(outcome)) {
+                    intervalMs = jittered(circuitRetryInterval(outcome));
+                } else if (cycle.isExpired() && isTimedOut(outcome)) {
+                    intervalMs = tickMs;
+                } else {
+                    ProductFollowerStats stats = followerStats != null
+                            ? followerStats.get(product.getId())
+                            : intervalPolicy.followerStats(List.of(product)).get(product.getId());
+                    // 失败或命中缓存的结果不是新的观测，不能当作“价格未变”更新变价频率
+                    intervalMs = jittered(isObserved(outcome)
+                            ? intervalPolicy.nextInterval(product, priceChanged, stats)
+                            : intervalPolicy.retryInterval(product, stats));
+                }
+                dueQueue.reschedule(product, now.plusNanos(intervalMs * 1_000_000));
+            } catch (Exception e) {
+                log.error("商品 {} 计算下次检查时间失败", product.getId(), e);
+            }
+        }
+        return updatedCount;
+    }
+
+    /**
+     * 整批商品的关注统计只查一次；查询失败时返回 null，改为逐个查询
+     */
+    private Map<Long, ProductFollowerStats> followerStats(List<Product> products) {
+        try {
+            return intervalPolicy.followerStats(products);
+        } catch (Exception e) {
+            log.error("批量查询 {} 个商品的关注统计失败", products.size(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 把到期商品写入抓取任务队列。入队的商品下次检查时间临时顺延一个任务租期，避免重复入队；
+     * worker 抓取后按正常间隔重新计算，任务丢失时租期过后重新到期
+     */
+    private void publish(List<Product> products, LocalDateTime now) {
+        List<Product> published = jobQueue.publish(products);
+        LocalDateTime leaseUntil = now.plus(jobQueue.leaseDuration());
+        for (Product product : published) {
+            dueQueue.reschedule(product, leaseUntil);
+        }
+        log.info("到期商品 {} 个，写入抓取任务队列 {} 个", products.size(), published.size());
+    }
+
     /**
      * 每天凌晨 2 点执行一次深度更新
      */
@@ -57,4 +186,37 @@ public class PriceCrawlerScheduler {
             log.error("深度更新任务执行失败", e);
         }
     }
+
+    private boolean isCircuitOpen(PriceCrawlPipeline.Outcome outcome) {
+        PriceInfo priceInfo = outcome.getPriceInfo();
+        return priceInfo != null && priceInfo.getFailureType() == PriceInfo.FailureType.CIRCUIT_OPEN;
+    }
+
+    /**
+     * 本次抓取是否拿到了平台的新数据（成功且不是命中抓取结果缓存）
+     */
+    private boolean isObserved(PriceCrawlPipeline.Outcome outcome) {
+        return outcome.isSuccess() && outcome.getPriceInfo().getCacheStatus() != PriceInfo.CacheStatus.HIT;
+    }
+
+    private boolean isTimedOut(PriceCrawlPipeline.Outcome outcome) {
+        PriceInfo priceInfo = outcome.getPriceInfo();
+        return priceInfo != null && priceInfo.getFailureType() == PriceInfo.FailureType.TIMEOUT;
+    }
+
+    /**
+     * 平台熔断中未抓取的商品，在熔断结束后重试，不按正常间隔顺延
+     */
+    private long circuitRetryInterval(PriceCrawlPipeline.Outcome outcome) {
+        String platform = outcome.getCrawlResult().getPlatform();
+        return Math.max(MIN_CIRCUIT_RETRY_MS, circuitBreaker.retryAfter(platform).toMillis());
+    }
+
+    /**
+     * 在检查间隔上加 ±10% 的随机抖动，避免大量商品再次同时到期
+     */
+    private long jittered(long intervalMs) {
+        long jitter = intervalMs / 10;
+        return intervalMs + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+    }
 }
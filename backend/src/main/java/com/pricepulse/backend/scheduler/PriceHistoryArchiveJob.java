@@ -0,0 +1,141 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.util.InstanceIdUtil;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.PriceHistoryService;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 价格历史归档任务
+ * <p>
+ * archive.enabled 开启时每天按 archive.cron 执行一次：把 after-days 天之前（按整月对齐）的价格历史按商品写入归档段文件
+ * （{@link PriceArchiveStore}），写入成功后再从数据库删除，数据库只保留近期的热数据。
+ * 跨过归档边界、之后仍被检查到的记录先在边界处拆分；商品最新的一条记录始终留在数据库中，价格未变时仍可延长。
+ * 归档中途失败时已写入的段会在下次归档时与数据库记录合并，不会重复。超过 retention.price-history-months 的段文件一并删除。
+ * <p>
+ * 指标：archive.rows（归档的记录数）、archive.bytes（写入的段文件字节数）、archive.segments.deleted
+ */
+@Component
+@Slf4j
+public class PriceHistoryArchiveJob {
+
+    private static final String LOCK_KEY = "archive:lock";
+
+    private static final Duration LOCK_TTL = Duration.ofHours(2);
+
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private PriceArchiveStore archiveStore;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.after-days:90}")
+    private int afterDays;
+
+    @Value("${archive.product-batch-size:200}")
+    private int productBatchSize;
+
+    @Value("${retention.price-history-months:12}")
+    private int retentionMonths;
+
+    @Scheduled(cron = "${archive.cron:0 0 4 * * ?}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, InstanceIdUtil.current(), LOCK_TTL))) {
+            log.info("其他实例正在归档价格历史");
+            return;
+        }
+        try {
+            archive(LocalDate.now());
+        } catch (Exception e) {
+            log.error("归档价格历史失败", e);
+        } finally {
+            redisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    void archive(LocalDate today) {
+        long startMillis = System.currentTimeMillis();
+        LocalDateTime cutoff = today.minusDays(afterDays).withDayOfMonth(1).atStartOfDay();
+        priceHistoryService.splitRunsCrossing(cutoff, productBatchSize);
+
+        long products = 0;
+        long rows = 0;
+        long bytes = 0;
+        long afterProductId = 0;
+        while (true) {
+            List<Long> productIds = priceHistoryMapper.selectProductIdsBefore(cutoff, afterProductId, productBatchSize);
+            if (productIds.isEmpty()) {
+                break;
+            }
+            for (Long productId : productIds) {
+                ArchiveResult result = archiveProduct(productId, cutoff);
+                rows += result.rows();
+                bytes += result.bytes();
+                products++;
+            }
+            afterProductId = productIds.get(productIds.size() - 1);
+        }
+        meterRegistry.counter("archive.rows").increment(rows);
+        meterRegistry.counter("archive.bytes").increment(bytes);
+
+        LocalDateTime retentionCutoff = today.withDayOfMonth(1).minusMonths(retentionMonths).atStartOfDay();
+        int deletedSegments = archiveStore.deleteBefore(retentionCutoff);
+        meterRegistry.counter("archive.segments.deleted").increment(deletedSegments);
+
+        log.info("价格历史归档完成：{} 个商品 {} 条记录，写入 {} 字节，删除过期段 {} 个，耗时 {} ms",
+                products, rows, bytes, deletedSegments, System.currentTimeMillis() - startMillis);
+    }
+
+    private ArchiveResult archiveProduct(Long productId, LocalDateTime cutoff) {
+        // 商品最新的记录留在数据库中，之后价格未变时仍可延长
+        LocalDateTime before = cutoff;
+        PriceHistory latest = priceHistoryMapper.selectLatestByProductId(productId);
+        if (latest != null && latest.getCheckedAt().isBefore(before)) {
+            before = latest.getCheckedAt();
+        }
+        List<PriceHistory> records = priceHistoryMapper.selectByProductBefore(productId, before);
+        if (records.isEmpty()) {
+            return new ArchiveResult(0, 0);
+        }
+        for (PriceHistory record : records) {
+            // 已在边界处拆分的记录，归档部分截止到边界之前
+            if (record.getLastSeenAt() != null && !record.getLastSeenAt().isBefore(cutoff)) {
+                record.setLastSeenAt(cutoff.minusSeconds(1));
+            }
+        }
+        long bytes = archiveStore.append(productId, records);
+        priceHistoryMapper.deleteByProductBefore(productId, before);
+        return new ArchiveResult(records.size(), bytes);
+    }
+
+    private record ArchiveResult(long rows, long bytes) {
+    }
+}
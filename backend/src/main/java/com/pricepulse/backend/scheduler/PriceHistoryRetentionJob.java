@@ -0,0 +1,215 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.util.InstanceIdUtil;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.service.PriceHistoryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * 价格数据保留任务
+ * <p>
+ * 每天按 retention.cron 执行一次，按粒度分别清理过期数据：
+ * 价格历史保留 price-history-months 个整月，小时汇总保留 hourly-rollup-days 天，每日汇总保留 daily-rollup-days 天。
+ * <p>
+ * price_history 已按月分区时（见 database/partition_price_history.sql），提前 precreate-months 个月从 p_future 拆出新分区，
+ * 整个分区都已过期时直接 DROP PARTITION；未分区时按 checked_at 顺序每次删除 delete-chunk-size 条，块之间暂停 chunk-pause-ms，
+ * 不会长时间锁表、也不会阻塞抓取写回。删除前先把跨过保留边界、之后仍被检查到的记录在边界处拆成一条新记录，
+ * 长期未变价的商品不会丢失当前价格。多个实例通过 Redis 标记保证同一时间只有一个实例执行。
+ * <p>
+ * 指标：retention.rows.deleted（table 标签）、retention.partitions（action=created/dropped 标签）、retention.run（耗时）
+ */
+@Component
+@Slf4j
+public class PriceHistoryRetentionJob {
+
+    private static final String LOCK_KEY = "retention:lock";
+
+    private static final Duration LOCK_TTL = Duration.ofHours(2);
+
+    private static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private PriceRollupMapper rollupMapper;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.price-history-months:12}")
+    private int priceHistoryMonths;
+
+    @Value("${retention.hourly-rollup-days:30}")
+    private int hourlyRollupDays;
+
+    @Value("${retention.daily-rollup-days:730}")
+    private int dailyRollupDays;
+
+    @Value("${retention.precreate-months:2}")
+    private int precreateMonths;
+
+    @Value("${retention.delete-chunk-size:5000}")
+    private int deleteChunkSize;
+
+    @Value("${retention.chunk-pause-ms:100}")
+    private long chunkPauseMs;
+
+    @Scheduled(cron = "${retention.cron:0 30 3 * * ?}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, InstanceIdUtil.current(), LOCK_TTL))) {
+            log.info("其他实例正在执行价格数据清理");
+            return;
+        }
+        try {
+            Timer.builder("retention.run")
+                    .description("价格数据保留任务耗时")
+                    .register(meterRegistry)
+                    .record(() -> purge(LocalDate.now()));
+        } catch (Exception e) {
+            log.error("价格数据清理失败", e);
+        } finally {
+            redisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    void purge(LocalDate today) {
+        LocalDateTime historyCutoff = today.withDayOfMonth(1).minusMonths(priceHistoryMonths).atStartOfDay();
+        int split = priceHistoryService.splitRunsCrossing(historyCutoff, deleteChunkSize);
+        if (split > 0) {
+            log.info("在保留边界 {} 处拆分仍有效的价格记录 {} 条", historyCutoff, split);
+        }
+
+        if (!maintainPartitions(today, historyCutoff)) {
+            deleteInChunks("price_history", () -> priceHistoryMapper.deleteOlderThan(historyCutoff, deleteChunkSize));
+        }
+
+        LocalDateTime hourlyCutoff = today.minusDays(hourlyRollupDays).atStartOfDay();
+        deleteInChunks("price_rollup_hourly", () -> rollupMapper.deleteHourlyOlderThan(hourlyCutoff, deleteChunkSize));
+        LocalDateTime dailyCutoff = today.minusDays(dailyRollupDays).atStartOfDay();
+        deleteInChunks("price_rollup_daily", () -> rollupMapper.deleteDailyOlderThan(dailyCutoff, deleteChunkSize));
+    }
+
+    /**
+     * 已分区时提前创建分区并删除整个过期的分区，返回 false 表示未分区
+     */
+    private boolean maintainPartitions(LocalDate today, LocalDateTime cutoff) {
+        List<Map<String, Object>> partitions = priceHistoryMapper.selectPartitions();
+        if (partitions.isEmpty()) {
+            return false;
+        }
+
+        long lastBound = 0;
+        for (Map<String, Object> partition : partitions) {
+            Long bound = boundOf(partition);
+            if (bound != null) {
+                lastBound = Math.max(lastBound, bound);
+            }
+        }
+        LocalDate until = today.withDayOfMonth(1).plusMonths(precreateMonths + 1L);
+        // 上界是某月 1 日零点；按会话时区换算可能偏差几个小时，先加一天再取月初
+        LocalDate monthStart = lastBound > 0
+                ? priceHistoryMapper.fromUnixTimestamp(lastBound).plusDays(1).toLocalDate().withDayOfMonth(1)
+                : today.withDayOfMonth(1);
+        for (; monthStart.isBefore(until); monthStart = monthStart.plusMonths(1)) {
+            String name = PARTITION_NAME.format(monthStart);
+            priceHistoryMapper.addPartition(name, PARTITION_BOUND.format(monthStart.plusMonths(1).atStartOfDay()));
+            meterRegistry.counter("retention.partitions", "action", "created").increment();
+            log.info("创建价格历史分区 {}", name);
+        }
+
+        long cutoffSeconds = priceHistoryMapper.toUnixTimestamp(cutoff);
+        for (Map<String, Object> partition : partitions) {
+            Long bound = boundOf(partition);
+            if (bound != null && bound <= cutoffSeconds) {
+                String name = String.valueOf(partition.get("name"));
+                priceHistoryMapper.dropPartition(name);
+                meterRegistry.counter("retention.partitions", "action", "dropped").increment();
+                log.info("删除过期的价格历史分区 {}", name);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分块删除直到没有过期数据，返回删除的总条数
+     */
+    private long deleteInChunks(String table, IntSupplier deleteChunk) {
+        long total = 0;
+        while (true) {
+            int deleted = deleteChunk.getAsInt();
+            if (deleted > 0) {
+                total += deleted;
+                meterRegistry.counter("retention.rows.deleted", "table", table).increment(deleted);
+            }
+            if (deleted < deleteChunkSize) {
+                break;
+            }
+            log.debug("{} 已删除过期数据 {} 条", table, total);
+            if (!pause()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("{} 共删除过期数据 {} 条", table, total);
+        }
+        return total;
+    }
+
+    private boolean pause() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Long boundOf(Map<String, Object> partition) {
+        Object bound = partition.get("bound");
+        if (FUTURE_PARTITION.equals(partition.get("name")) || bound == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(bound.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.pricepulse.backend.service;
 
 import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
 import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import com.pricepulse.backend.service.cache.PriceTickStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,6 +24,15 @@ public class AdminProductService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private PriceTickStore priceTickStore;
+
+    @Autowired
+    private PriceArchiveStore archiveStore;
+
     /**
      * 获取所有商品列表（分页，支持审核状态过滤）
      */
@@ -104,7 +116,11 @@ public class AdminProductService {
             throw new RuntimeException("商品不存在");
         }
         
+        // price_history 分区后没有外键级联，先删除价格历史
+        priceHistoryMapper.deleteByProductId(productId);
+        priceTickStore.remove(productId);
         productMapper.deleteById(productId);
+        archiveStore.delete(productId);
         log.info("商品 {} 已删除", productId);
     }
 
@@ -114,18 +130,23 @@ public class AdminProductService {
     public Map<String, Object> getProductStatistics() {
         log.info("获取商品统计数据");
         
-        List<Product> allProducts = productMapper.selectAllProducts();
-        
-        long totalProducts = allProducts.size();
-        long activeProducts = allProducts.stream().filter(p -> p.getStatus() == 1).count();
+        // 直接在数据库中聚合，避免加载整张商品表
+        long totalProducts = 0;
+        long activeProducts = 0;
+        for (Map<String, Object> row : productMapper.countGroupByStatus()) {
+            long count = ((Number) row.get("total")).longValue();
+            totalProducts += count;
+            if (row.get("status") != null && ((Number) row.get("status")).intValue() == 1) {
+                activeProducts += count;
+            }
+        }
         long inactiveProducts = totalProducts - activeProducts;
         
         // 按平台统计
         Map<String, Long> platformStats = new HashMap<>();
-        allProducts.forEach(p -> {
-            String platform = p.getPlatform() != null ? p.getPlatform() : "OTHER";
-            platformStats.put(platform, platformStats.getOrDefault(platform, 0L) + 1);
-        });
+        for (Map<String, Object> row : productMapper.countGroupByPlatform()) {
+            platformStats.put((String) row.get("platform"), ((Number) row.get("total")).longValue());
+        }
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalProducts", totalProducts);
@@ -145,7 +166,10 @@ public class AdminProductService {
         
         for (Long id : productIds) {
             try {
+                priceHistoryMapper.deleteByProductId(id);
+                priceTickStore.remove(id);
                 productMapper.deleteById(id);
+                archiveStore.delete(id);
                 log.info("商品 {} 已删除", id);
             } catch (Exception e) {
                 log.error("删除商品 {} 失败", id, e);
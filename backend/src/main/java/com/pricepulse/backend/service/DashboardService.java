@@ -1,6 +1,7 @@
 package com.pricepulse.backend.service;
 
 
+import com.pricepulse.backend.common.entity.PriceRollup;
 import com.pricepulse.backend.mapper.NotificationMapper;
 import com.pricepulse.backend.mapper.PriceHistoryMapper;
 import com.pricepulse.backend.mapper.ProductMapper;
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -32,6 +34,9 @@ public class DashboardService {
     @Autowired
     private NotificationMapper notificationMapper;
 
+    @Autowired
+    private PriceRollupService priceRollupService;
+
     @Autowired
     private DashboardCacheService cacheService;
 
@@ -77,7 +82,7 @@ public class DashboardService {
     }
 
     /**
-     * 获取价格趋势数据
+     * 获取价格趋势数据：关注商品每天的平均价格（读取每日价格汇总）
      */
     public List<Map<String, Object>> getPriceTrend(Long userId, Integer days) {
         // 1. 先尝试从缓存获取
@@ -107,8 +112,21 @@ public class DashboardService {
             return trend;
         }
 
-        LocalDateTime startDate = LocalDate.now().minusDays(days).atStartOfDay();
-        trend = priceHistoryMapper.getAveragePriceByDays(productIds, startDate, days);
+        // 同一天各商品的当日均价再取平均
+        Map<LocalDate, List<BigDecimal>> pricesByDay = new TreeMap<>();
+        for (List<PriceRollup> series : priceRollupService.dailySeries(productIds, LocalDate.now().minusDays(days)).values()) {
+            for (PriceRollup rollup : series) {
+                pricesByDay.computeIfAbsent(rollup.getBucketStart().toLocalDate(), d -> new ArrayList<>())
+                        .add(rollup.getAvgPrice());
+            }
+        }
+        for (Map.Entry<LocalDate, List<BigDecimal>> entry : pricesByDay.entrySet()) {
+            BigDecimal sum = entry.getValue().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", entry.getKey().toString());
+            point.put("avgPrice", sum.divide(BigDecimal.valueOf(entry.getValue().size()), 2, RoundingMode.HALF_UP));
+            trend.add(point);
+        }
 
         // 3. 写入缓存
         cacheService.setPriceTrend(userId, days, trend);
@@ -219,26 +237,39 @@ public class DashboardService {
     }
 
     /**
-     * 获取多商品价格趋势对比数据
+     * 获取多商品价格趋势对比数据：每个商品每天一行（price 为当天收盘价，另附开盘、最高、最低和平均价）
      */
     public List<Map<String, Object>> getMultiProductPriceTrend(Long userId, Integer days) {
         log.info("获取多商品价格趋势，userId={}, days={}", userId, days);
 
-        var userProducts = userProductMapper.selectByUserId(userId);
+        var userProducts = userProductMapper.selectByUserIdWithProductInfo(userId);
         if (userProducts == null || userProducts.isEmpty()) {
             return new ArrayList<>();
         }
 
-        List<Long> productIds = userProducts.stream()
-                .map(up -> up.getProductId())
-                .collect(Collectors.toList());
-
-        if (productIds.isEmpty()) {
-            return new ArrayList<>();
+        Map<Long, String> productNames = new HashMap<>();
+        for (var up : userProducts) {
+            productNames.put(up.getProductId(), up.getProductName());
         }
 
-        LocalDateTime startDate = LocalDate.now().minusDays(days).atStartOfDay();
-        return priceHistoryMapper.getDailyPricesByProducts(productIds, startDate);
+        List<Map<String, Object>> trend = new ArrayList<>();
+        Map<Long, List<PriceRollup>> seriesByProduct =
+                priceRollupService.dailySeries(new ArrayList<>(productNames.keySet()), LocalDate.now().minusDays(days));
+        for (Map.Entry<Long, List<PriceRollup>> entry : seriesByProduct.entrySet()) {
+            for (PriceRollup rollup : entry.getValue()) {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("product_id", entry.getKey());
+                point.put("product_name", productNames.get(entry.getKey()));
+                point.put("date", rollup.getBucketStart().toLocalDate().toString());
+                point.put("price", rollup.getClosePrice());
+                point.put("open_price", rollup.getOpenPrice());
+                point.put("high_price", rollup.getHighPrice());
+                point.put("low_price", rollup.getLowPrice());
+                point.put("avg_price", rollup.getAvgPrice());
+                trend.add(point);
+            }
+        }
+        return trend;
     }
 
 }
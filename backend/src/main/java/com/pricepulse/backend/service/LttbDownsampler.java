@@ -0,0 +1,153 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式 Largest-Triangle-Three-Buckets 降采样
+ * <p>
+ * 价格点按时间升序逐个传入，最多保留 maxPoints 个：首尾两点固定保留，中间按时间把 [from, to] 等分成 maxPoints - 2 个桶，
+ * 每个桶保留与上一个保留点、下一个桶平均点组成的三角形面积最大的点，尽量保住曲线的峰谷。
+ * 只缓存当前两个桶内的点，内存占用与总点数无关；总点数不超过 maxPoints 时原样返回。
+ */
+public class LttbDownsampler implements Consumer<PriceHistory> {
+
+    private final int maxPoints;
+
+    private final long fromSecond;
+
+    private final long span;
+
+    private final int bucketCount;
+
+    /**
+     * 点数未超过 maxPoints 之前先原样缓存
+     */
+    private List<PriceHistory> raw = new ArrayList<>();
+
+    private final List<PriceHistory> sampled = new ArrayList<>();
+
+    private PriceHistory selected;
+
+    /**
+     * 等待下一个桶平均点的桶
+     */
+    private List<PriceHistory> waiting;
+
+    private List<PriceHistory> filling = new ArrayList<>();
+
+    private int fillingIndex = -1;
+
+    private PriceHistory last;
+
+    public LttbDownsampler(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints 至少为 3");
+        }
+        this.maxPoints = maxPoints;
+        this.fromSecond = second(from);
+        this.span = Math.max(1, second(to) - fromSecond);
+        this.bucketCount = maxPoints - 2;
+    }
+
+    @Override
+    public void accept(PriceHistory point) {
+        if (raw != null) {
+            raw.add(point);
+            if (raw.size() <= maxPoints) {
+                return;
+            }
+            List<PriceHistory> buffered = raw;
+            raw = null;
+            buffered.forEach(this::sample);
+            return;
+        }
+        sample(point);
+    }
+
+    /**
+     * 降采样结果（按时间升序）
+     */
+    public List<PriceHistory> finish() {
+        if (raw != null) {
+            return raw;
+        }
+        // 最后一个点固定保留，不参与桶内选择
+        filling.remove(filling.size() - 1);
+        if (waiting != null) {
+            select(waiting, filling.isEmpty() ? coordinates(last) : average(filling));
+        }
+        if (!filling.isEmpty()) {
+            select(filling, coordinates(last));
+        }
+        sampled.add(last);
+        return sampled;
+    }
+
+    private void sample(PriceHistory point) {
+        last = point;
+        if (selected == null) {
+            selected = point;
+            sampled.add(point);
+            return;
+        }
+        int index = bucketOf(point);
+        if (!filling.isEmpty() && index != fillingIndex) {
+            if (waiting != null) {
+                select(waiting, average(filling));
+            }
+            waiting = filling;
+            filling = new ArrayList<>();
+        }
+        fillingIndex = index;
+        filling.add(point);
+    }
+
+    private int bucketOf(PriceHistory point) {
+        long offset = second(point.getCheckedAt()) - fromSecond;
+        return (int) Math.min(bucketCount - 1, Math.max(0, offset * bucketCount / span));
+    }
+
+    /**
+     * 从桶中选出与上一个保留点、下一个桶平均点组成的三角形面积最大的点
+     */
+    private void select(List<PriceHistory> bucket, double[] next) {
+        double ax = second(selected.getCheckedAt());
+        double ay = selected.getPrice().doubleValue();
+        PriceHistory best = bucket.get(0);
+        double bestArea = -1;
+        for (PriceHistory point : bucket) {
+            double area = Math.abs((ax - next[0]) * (point.getPrice().doubleValue() - ay)
+                    - (ax - second(point.getCheckedAt())) * (next[1] - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = point;
+            }
+        }
+        selected = best;
+        sampled.add(best);
+    }
+
+    private static double[] coordinates(PriceHistory point) {
+        return new double[]{second(point.getCheckedAt()), point.getPrice().doubleValue()};
+    }
+
+    private static double[] average(List<PriceHistory> bucket) {
+        double x = 0;
+        double y = 0;
+        for (PriceHistory point : bucket) {
+            x += second(point.getCheckedAt());
+            y += point.getPrice().doubleValue();
+        }
+        return new double[]{x / bucket.size(), y / bucket.size()};
+    }
+
+    private static long second(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
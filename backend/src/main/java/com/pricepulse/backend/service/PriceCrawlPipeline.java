@@ -0,0 +1,439 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.entity.UserProduct;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.mapper.UserProductMapper;
+import com.pricepulse.backend.service.cache.PriceTickStore;
+import com.pricepulse.backend.service.crawler.CrawlExecutor;
+import com.pricepulse.backend.service.crawler.CrawlResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一的价格抓取流水线
+ * <p>
+ * 定时调度、批量检查和手动触发都提交到这里：抓取 → 价格变化交给 {@link PriceWriteBuffer} 批量写回 → 发送降价通知。
+ * 写回的同时更新进程内的 {@link PriceTickStore}，最近价格的读取不必查库。
+ * 价格历史只在价格、原价或折扣变化时新增记录，未变化时只延长最新记录的 last_seen_at。
+ * 同一商品同一时刻只有一次抓取（single-flight）：抓取进行中的请求直接等待同一结果，
+ * 刚完成的结果在复用窗口（crawler.pipeline.reuse-window-ms）内直接返回，不再重复抓取和写入。
+ */
+@Service
+@Slf4j
+public class PriceCrawlPipeline {
+
+    /**
+     * 复用结果表超过此大小时清理过期条目
+     */
+    private static final int PURGE_THRESHOLD = 1024;
+
+    @Autowired
+    private CrawlExecutor crawlExecutor;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private PriceWriteBuffer writeBuffer;
+
+    @Autowired
+    private PriceTickStore priceTickStore;
+
+    @Autowired
+    private UserProductMapper userProductMapper;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 抓取完成后结果可被复用的时长（毫秒）
+     */
+    @Value("${crawler.pipeline.reuse-window-ms:60000}")
+    private long reuseWindowMs;
+
+    private final Map<Long, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<Long, Completed> recent = new ConcurrentHashMap<>();
+
+    /**
+     * 抓取单个商品并等待结果
+     *
+     * @param source 触发来源，写入价格历史的 source 字段（AUTO / MANUAL，其他值按 AUTO 记录）
+     */
+    public Outcome submit(Product product, String source) {
+        Outcome outcome = submitAsync(product, source).join();
+        syncPrice(outcome, product);
+        return outcome;
+    }
+
+    /**
+     * 并发抓取一批商品并等待全部完成，返回顺序与传入顺序一致
+     * <p>
+     * 需要实际抓取的商品一起交给 {@link CrawlExecutor#crawlAllAsync}，支持批量查询的平台按批请求
+     */
+    public List<Outcome> submitAll(List<Product> products, String source) {
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>(products.size());
+        List<Product> toCrawl = new ArrayList<>();
+        List<CompletableFuture<Outcome>> flights = new ArrayList<>();
+        for (Product product : products) {
+            Claim claim = claim(product);
+            futures.add(claim.future());
+            if (claim.owner()) {
+                toCrawl.add(product);
+                flights.add(claim.future());
+            }
+        }
+
+        if (!toCrawl.isEmpty()) {
+            List<CompletableFuture<CrawlResult>> crawls = crawlExecutor.crawlAllAsync(toCrawl);
+            for (int i = 0; i < toCrawl.size(); i++) {
+                complete(toCrawl.get(i).getId(), crawls.get(i), flights.get(i), source);
+            }
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Outcome outcome = futures.get(i).join();
+            syncPrice(outcome, products.get(i));
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
+
+    /**
+     * 提交抓取；已有进行中或刚完成的抓取时复用其结果
+     */
+    public CompletableFuture<Outcome> submitAsync(Product product, String source) {
+        Claim claim = claim(product);
+        if (claim.owner()) {
+            complete(product.getId(), crawlExecutor.crawlAsync(product), claim.future(), source);
+        }
+        return claim.future();
+    }
+
+    /**
+     * 复用刚完成的结果、加入进行中的抓取，或占位由调用方发起抓取（owner = true）
+     */
+    private Claim claim(Product product) {
+        Long productId = product.getId();
+        purgeIfNeeded();
+
+        Outcome reusable = reusableOutcome(productId);
+        if (reusable != null) {
+            count("reused");
+            return new Claim(CompletableFuture.completedFuture(reusable), false);
+        }
+
+        CompletableFuture<Outcome> flight = new CompletableFuture<>();
+        CompletableFuture<Outcome> existing = inFlight.putIfAbsent(productId, flight);
+        if (existing != null) {
+            count("joined");
+            return new Claim(existing, false);
+        }
+
+        // 检查复用结果和占位之间，上一次抓取可能刚好完成
+        reusable = reusableOutcome(productId);
+        if (reusable != null) {
+            inFlight.remove(productId, flight);
+            flight.complete(reusable);
+            count("reused");
+            return new Claim(flight, false);
+        }
+
+        count("crawled");
+        return new Claim(flight, true);
+    }
+
+    /**
+     * 抓取完成后处理结果并完成占位
+     */
+    private void complete(Long productId, CompletableFuture<CrawlResult> crawl,
+                          CompletableFuture<Outcome> flight, String source) {
+        crawl.thenApply(result -> apply(result, source))
+                .whenComplete((outcome, error) -> {
+                    if (outcome != null) {
+                        recent.put(productId, new Completed(outcome, System.nanoTime()));
+                    }
+                    inFlight.remove(productId, flight);
+                    if (error != null) {
+                        flight.completeExceptionally(error);
+                    } else {
+                        flight.complete(outcome);
+                    }
+                });
+    }
+
+    /**
+     * 处理抓取结果：价格信息变化时提交写回（商品价格 + 价格历史）并通知关注用户；
+     * 未变化时只延长最新价格记录的最后出现时间（页面未变化的 notModified 结果与已知最新价格一致时不查库）；抓取失败时不写库。
+     * 命中抓取结果缓存（HIT）的结果不是本次的新观测，价格未变时不延长最后出现时间、不计入价格汇总
+     */
+    Outcome apply(CrawlResult crawlResult, String source) {
+        Product product = crawlResult.getProduct();
+        if (!crawlResult.isSuccess()) {
+            log.warn("爬取商品 {} 价格失败：{}", product.getName(),
+                    crawlResult.getPriceInfo() != null ? crawlResult.getPriceInfo().getErrorMessage() : "返回空值");
+            return new Outcome(crawlResult, false, product.getCurrentPrice());
+        }
+
+        PriceInfo priceInfo = crawlResult.getPriceInfo();
+        log.info("成功爬取商品 {} 价格：{}（耗时 {} ms）", product.getName(),
+                priceInfo.getCurrentPrice(), crawlResult.getElapsedMillis());
+
+        boolean observed = priceInfo.getCacheStatus() != PriceInfo.CacheStatus.HIT;
+        try {
+            if (Boolean.TRUE.equals(priceInfo.getNotModified())) {
+                if (!observed) {
+                    return new Outcome(crawlResult, false, product.getCurrentPrice());
+                }
+                // 页面未变化，价格沿用上次解析结果：与已知的最新价格一致时只延长最新价格记录的最后出现时间，不查库；
+                // 调用方持有的商品对象可能已过时，不能作为依据，已知价格不一致或没有时按普通结果与数据库比较
+                BigDecimal knownPrice = knownPrice(product.getId());
+                if (sameAmount(knownPrice, priceInfo.getCurrentPrice())) {
+                    LocalDateTime now = LocalDateTime.now();
+                    writeBuffer.touch(product.getId(), knownPrice, now);
+                    priceTickStore.touch(product.getId(), knownPrice, now);
+                    return new Outcome(crawlResult, false, knownPrice);
+                }
+            }
+
+            // 以数据库中的最新价格为准，避免调用方持有的旧对象导致重复记录和重复通知
+            Product current = productMapper.selectById(product.getId());
+            if (current == null) {
+                return new Outcome(crawlResult, false, product.getCurrentPrice());
+            }
+
+            // 上一次变化可能还在写回缓冲区中
+            Product pending = writeBuffer.pendingProduct(current.getId());
+            if (pending != null) {
+                current.setCurrentPrice(pending.getCurrentPrice());
+                current.setOriginalPrice(pending.getOriginalPrice());
+                current.setDiscountRate(pending.getDiscountRate());
+            }
+
+            BigDecimal oldPrice = current.getCurrentPrice();
+            BigDecimal newPrice = priceInfo.getCurrentPrice();
+            LocalDateTime now = LocalDateTime.now();
+            if (!isChanged(current, priceInfo)) {
+                // 价格信息未变，只延长最新价格记录的最后出现时间
+                if (observed) {
+                    writeBuffer.touch(current.getId(), oldPrice, now);
+                    priceTickStore.touch(current.getId(), oldPrice, now);
+                }
+                return new Outcome(crawlResult, false, oldPrice);
+            }
+
+            current.setCurrentPrice(newPrice);
+            if (priceInfo.getOriginalPrice() != null) {
+                current.setOriginalPrice(priceInfo.getOriginalPrice());
+            }
+            if (priceInfo.getDiscountRate() != null) {
+                current.setDiscountRate(priceInfo.getDiscountRate());
+            }
+            current.setLastChecked(now);
+            writeBuffer.submit(current, createPriceHistory(current, source));
+            priceTickStore.record(current.getId(), newPrice, now);
+
+            if (oldPrice != null && newPrice.compareTo(oldPrice) < 0) {
+                notifyFollowers(current, oldPrice, newPrice);
+            }
+            log.info("商品 {} 价格更新：{} -> {}", current.getName(), oldPrice, newPrice);
+            return new Outcome(crawlResult, true, oldPrice);
+        } catch (Exception e) {
+            log.error("更新商品 {} 价格失败", product.getName(), e);
+            return new Outcome(crawlResult, false, product.getCurrentPrice());
+        }
+    }
+
+    /**
+     * 不查库能拿到的最新价格：写回缓冲区中尚未写入的价格，其次是 tick 存储缓存的价格；都没有时返回 null
+     */
+    private BigDecimal knownPrice(Long productId) {
+        Product pending = writeBuffer.pendingProduct(productId);
+        if (pending != null) {
+            return pending.getCurrentPrice();
+        }
+        long cents = priceTickStore.latestCents(productId);
+        return cents != PriceTickStore.NO_PRICE ? BigDecimal.valueOf(cents, 2) : null;
+    }
+
+    /**
+     * 价格、原价或折扣是否有变化（抓取结果中未提供的原价、折扣不参与比较）
+     */
+    private boolean isChanged(Product current, PriceInfo priceInfo) {
+        return !sameAmount(current.getCurrentPrice(), priceInfo.getCurrentPrice())
+                || (priceInfo.getOriginalPrice() != null
+                && !sameAmount(current.getOriginalPrice(), priceInfo.getOriginalPrice()))
+                || (priceInfo.getDiscountRate() != null
+                && !sameAmount(current.getDiscountRate(), priceInfo.getDiscountRate()));
+    }
+
+    private boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a != null && b != null && a.compareTo(b) == 0;
+    }
+
+    /**
+     * 将抓取到的最新价格同步到调用方持有的商品对象
+     */
+    private void syncPrice(Outcome outcome, Product target) {
+        if (!outcome.isSuccess()) {
+            return;
+        }
+        PriceInfo priceInfo = outcome.getPriceInfo();
+        target.setCurrentPrice(priceInfo.getCurrentPrice());
+        if (priceInfo.getOriginalPrice() != null) {
+            target.setOriginalPrice(priceInfo.getOriginalPrice());
+        }
+        if (priceInfo.getDiscountRate() != null) {
+            target.setDiscountRate(priceInfo.getDiscountRate());
+        }
+    }
+
+    private PriceHistory createPriceHistory(Product product, String source) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(product.getId());
+        history.setPrice(product.getCurrentPrice());
+        history.setOriginalPrice(product.getOriginalPrice());
+        history.setDiscountRate(product.getDiscountRate());
+        history.setCurrency("CNY");
+        history.setCheckedAt(product.getLastChecked());
+        history.setLastSeenAt(product.getLastChecked());
+        // price_history.source 是 enum('AUTO','MANUAL')，其他值在严格模式下会让整批插入失败
+        history.setSource("MANUAL".equalsIgnoreCase(source) ? "MANUAL" : "AUTO");
+        return history;
+    }
+
+    /**
+     * 按每位关注用户的期望价和降价阈值发送降价通知
+     */
+    private void notifyFollowers(Product product, BigDecimal oldPrice, BigDecimal newPrice) {
+        List<UserProduct> userProducts = userProductMapper.selectByProductId(product.getId());
+        if (userProducts == null || userProducts.isEmpty()) {
+            return;
+        }
+
+        for (UserProduct userProduct : userProducts) {
+            try {
+                if (shouldNotify(userProduct, oldPrice, newPrice)) {
+                    notificationService.sendPriceDropNotification(
+                            userProduct.getUserId(), product.getName(), oldPrice, newPrice);
+                }
+            } catch (Exception e) {
+                log.error("发送降价通知失败，用户 {}，商品 {}", userProduct.getUserId(), product.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * 判断是否应该通知：用户开启了通知，且价格达到期望价或降幅（百分比）达到阈值
+     */
+    private boolean shouldNotify(UserProduct userProduct, BigDecimal oldPrice, BigDecimal newPrice) {
+        if (userProduct.getNotificationEnabled() == null || userProduct.getNotificationEnabled() == 0) {
+            return false;
+        }
+
+        if (userProduct.getTargetPrice() != null && newPrice.compareTo(userProduct.getTargetPrice()) <= 0) {
+            return true;
+        }
+
+        if (userProduct.getPriceDropThreshold() != null && oldPrice.signum() > 0) {
+            BigDecimal dropPercent = oldPrice.subtract(newPrice)
+                    .divide(oldPrice, 4, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal("100"));
+            return dropPercent.compareTo(userProduct.getPriceDropThreshold()) >= 0;
+        }
+
+        return false;
+    }
+
+    private Outcome reusableOutcome(Long productId) {
+        Completed completed = recent.get(productId);
+        if (completed == null || completed.isExpired(System.nanoTime(), reuseWindowMs)) {
+            return null;
+        }
+        return completed.outcome().asReused();
+    }
+
+    private void purgeIfNeeded() {
+        if (recent.size() > PURGE_THRESHOLD) {
+            long now = System.nanoTime();
+            recent.values().removeIf(c -> c.isExpired(now, reuseWindowMs));
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("crawler.pipeline.requests", "result", result).increment();
+    }
+
+    /**
+     * 一次抓取在流水线中的处理结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Outcome {
+
+        private final CrawlResult crawlResult;
+
+        /**
+         * 本次抓取的价格信息（价格、原价或折扣）是否有变化并新增了价格记录
+         */
+        private final boolean priceChanged;
+
+        /**
+         * 抓取前的价格
+         */
+        private final BigDecimal oldPrice;
+
+        /**
+         * 是否复用了已完成的抓取结果
+         */
+        private final boolean reused;
+
+        public Outcome(CrawlResult crawlResult, boolean priceChanged, BigDecimal oldPrice) {
+            this(crawlResult, priceChanged, oldPrice, false);
+        }
+
+        public boolean isSuccess() {
+            return crawlResult.isSuccess();
+        }
+
+        public PriceInfo getPriceInfo() {
+            return crawlResult.getPriceInfo();
+        }
+
+        Outcome asReused() {
+            return new Outcome(crawlResult, priceChanged, oldPrice, true);
+        }
+    }
+
+    private record Claim(CompletableFuture<Outcome> future, boolean owner) {
+    }
+
+    private record Completed(Outcome outcome, long completedAtNanos) {
+
+        boolean isExpired(long nowNanos, long windowMs) {
+            return nowNanos - completedAtNanos > TimeUnit.MILLISECONDS.toNanos(windowMs);
+        }
+    }
+}
@@ -1,28 +1,302 @@
 package com.pricepulse.backend.service;
 
+import com.pricepulse.backend.common.dto.PriceHistoryPage;
 import com.pricepulse.backend.common.entity.PriceHistory;
 import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import com.pricepulse.backend.service.cache.PriceTickStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class PriceHistoryService {
 
+    /**
+     * 原始记录分页中归档记录的游标 id 起点
+     */
+    static final long ARCHIVE_CURSOR_BASE = -1_000_000_000L;
+
     @Autowired
     private PriceHistoryMapper priceHistoryMapper;
 
+    @Autowired
+    private PriceArchiveStore archiveStore;
+
+    @Autowired
+    private PriceTickStore priceTickStore;
+
+    /**
+     * 读取 tick 存储用的数组，每个请求线程一份，不随请求分配
+     */
+    private final ThreadLocal<TickBuffers> tickBuffers =
+            ThreadLocal.withInitial(() -> new TickBuffers(priceTickStore.getCapacity()));
+
+    /**
+     * 获取商品在 [from, to] 内的价格曲线（按时间倒序），最多 maxPoints 个点
+     * <p>
+     * 价格历史只在价格变化时新增记录，价格保持不变的最后一次检查时间记在 last_seen_at 上。
+     * 这里把每条记录展开为起止两个点，还原出与逐次记录相同形状的价格曲线；时间范围在进程内缓存的最近价格段内时
+     * 直接从 {@link PriceTickStore} 生成，否则数据库中的记录逐行流式读取，
+     * 边读边用 {@link LttbDownsampler} 降采样，内存和返回的数据量只取决于 maxPoints，与时间范围无关。
+     * 已归档的冷数据（见 {@link PriceArchiveStore}）只在时间范围早于数据库中最早的记录时读取。
+     * from 为空时从最早的记录开始，to 为空时到当前时间为止。
+     */
+    public List<PriceHistory> getPriceHistory(Long productId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        if (from != null && !from.isAfter(end)) {
+            List<PriceHistory> cached = getCachedPriceHistory(productId, from, end, maxPoints);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        LocalDateTime hotStart = priceHistoryMapper.selectEarliestCheckedAt(productId);
+        List<PriceHistory> archived = readArchivedBefore(productId, from, hotStart);
+
+        LocalDateTime start = from;
+        if (start == null) {
+            start = !archived.isEmpty() ? archived.get(0).getCheckedAt() : hotStart;
+        }
+        if (start == null || start.isAfter(end)) {
+            return List.of();
+        }
+
+        LttbDownsampler sampler = new LttbDownsampler(start, end, maxPoints);
+        Window window = new Window(start, end, sampler);
+        // 在 from 之前开始、跨入时间范围的那条记录只贡献它最后一次出现的点（归档记录在下面逐条过滤）
+        if (from != null && hotStart != null && from.isAfter(hotStart)) {
+            PriceHistory preceding = priceHistoryMapper.selectLatestBefore(productId, from);
+            if (preceding != null) {
+                window.accept(preceding);
+            }
+        }
+        for (PriceHistory record : archived) {
+            window.accept(record);
+        }
+        if (hotStart != null && !hotStart.isAfter(end)) {
+            priceHistoryMapper.streamByProductBetween(productId, from, end,
+                    context -> window.accept(context.getResultObject()));
+        }
+
+        List<PriceHistory> points = new ArrayList<>(sampler.finish());
+        Collections.reverse(points);
+        log.info("查询价格历史，productId: {}，范围 {} ~ {}，返回 {} 个点", productId, start, end, points.size());
+        return points;
+    }
+
+    /**
+     * 时间范围都在 {@link PriceTickStore} 缓存的最近价格段内时直接从内存生成价格曲线，不查库；
+     * 缓存中只有价格和时间，返回的点不带原价、折扣等字段。缓存不足以覆盖时返回 null。
+     * 读取缓存用线程内复用的数组；降采样按段输入，每段仍会生成一个 PriceHistory（最多 capacity 个）
+     */
+    private List<PriceHistory> getCachedPriceHistory(Long productId, LocalDateTime from, LocalDateTime end,
+                                                     int maxPoints) {
+        TickBuffers buffers = tickBuffers.get();
+        long[] starts = buffers.starts;
+        long[] lastSeens = buffers.lastSeens;
+        long[] cents = buffers.cents;
+        int count = priceTickStore.readRecent(productId, starts, lastSeens, cents);
+        if (count < 0 && priceTickStore.load(productId)) {
+            count = priceTickStore.readRecent(productId, starts, lastSeens, cents);
+        }
+        // 最早的一段要在 from 之前开始，才能确定 from 之后的价格段都在缓存里
+        if (count <= 0 || starts[0] >= PriceTickStore.second(from)) {
+            return null;
+        }
+
+        LttbDownsampler sampler = new LttbDownsampler(from, end, maxPoints);
+        Window window = new Window(from, end, sampler);
+        for (int i = 0; i < count; i++) {
+            PriceHistory run = new PriceHistory();
+            run.setProductId(productId);
+            run.setPrice(BigDecimal.valueOf(cents[i], 2));
+            run.setCheckedAt(PriceTickStore.time(starts[i]));
+            run.setLastSeenAt(PriceTickStore.time(lastSeens[i]));
+            window.accept(run);
+        }
+        List<PriceHistory> points = new ArrayList<>(sampler.finish());
+        Collections.reverse(points);
+        return points;
+    }
+
+    /**
+     * 按 (checked_at, id) 游标分页读取 [from, to] 内的原始价格记录（按时间正序），先归档后数据库
+     * <p>
+     * 归档记录没有 id，游标 id 用 {@link #ARCHIVE_CURSOR_BASE} 加上同一 checked_at 内的序号表示（都小于数据库 id）
+     *
+     * @param cursor   上一页最后一条的 checked_at，首页为 null
+     * @param cursorId 上一页最后一条的游标 id；为 null 时跳过 checked_at 等于 cursor 的全部记录
+     */
+    public PriceHistoryPage getRawPage(Long productId, LocalDateTime from, LocalDateTime to,
+                                       LocalDateTime cursor, Long cursorId, int limit) {
+        long afterId = cursorId != null ? cursorId : Long.MAX_VALUE;
+        LocalDateTime lower = cursor != null ? cursor : from;
+        LocalDateTime hotStart = priceHistoryMapper.selectEarliestCheckedAt(productId);
+        List<PriceHistory> items = new ArrayList<>(limit);
+        LocalDateTime lastCheckedAt = cursor;
+        long lastId = afterId;
+        LocalDateTime previous = null;
+        long ordinal = 0;
+        for (PriceHistory record : readArchivedBefore(productId, lower, hotStart)) {
+            if (items.size() == limit) {
+                break;
+            }
+            LocalDateTime checkedAt = record.getCheckedAt();
+            ordinal = checkedAt.equals(previous) ? ordinal + 1 : 0;
+            previous = checkedAt;
+            long id = ARCHIVE_CURSOR_BASE + ordinal;
+            if ((from == null || !checkedAt.isBefore(from))
+                    && (cursor == null || checkedAt.isAfter(cursor) || (checkedAt.equals(cursor) && id > afterId))
+                    && (to == null || !checkedAt.isAfter(to))) {
+                items.add(record);
+                lastCheckedAt = checkedAt;
+                lastId = id;
+            }
+        }
+        if (items.size() < limit && hotStart != null) {
+            for (PriceHistory record : priceHistoryMapper.selectPage(productId, from, lastCheckedAt,
+                    lastCheckedAt != null ? lastId : null, to, limit - items.size())) {
+                items.add(record);
+                lastCheckedAt = record.getCheckedAt();
+                lastId = record.getId();
+            }
+        }
+        return items.size() == limit
+                ? new PriceHistoryPage(items, lastCheckedAt, lastId)
+                : new PriceHistoryPage(items, null, null);
+    }
+
     /**
-     * 获取商品的价格历史记录
+     * 早于数据库中最早记录的归档记录（按时间正序）；查询范围从 from 起都在数据库里时不读归档。
+     * 归档中途失败时同一条记录可能两边都有，以数据库为准
      */
-    public List<PriceHistory> getPriceHistory(Long productId) {
-        log.info("查询价格历史，productId: {}", productId);
-        List<PriceHistory> history = priceHistoryMapper.selectByProductId(productId);
-        log.info("找到 {} 条价格记录", history.size());
-        return history;
+    private List<PriceHistory> readArchivedBefore(Long productId, LocalDateTime from, LocalDateTime hotStart) {
+        if (from != null && hotStart != null && !from.isBefore(hotStart)) {
+            return List.of();
+        }
+        List<PriceHistory> archived;
+        try {
+            archived = archiveStore.read(productId);
+        } catch (Exception e) {
+            log.error("读取商品 {} 的归档价格历史失败，只返回数据库中的记录", productId, e);
+            return List.of();
+        }
+        if (hotStart == null) {
+            return archived;
+        }
+        return archived.stream().filter(record -> record.getCheckedAt().isBefore(hotStart)).toList();
+    }
+
+    /**
+     * 把在 cutoff 之前开始、之后仍被检查到的记录从 cutoff 起复制一条（cutoff 之前的部分随后被清理或归档），
+     * 长期未变价的商品在数据库中始终保留当前价格记录。按 ID 分批，返回复制的条数
+     */
+    public int splitRunsCrossing(LocalDateTime cutoff, int batchSize) {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            List<PriceHistory> runs = priceHistoryMapper.selectRunsCrossing(cutoff, afterId, batchSize);
+            if (runs.isEmpty()) {
+                return total;
+            }
+            List<PriceHistory> copies = new ArrayList<>(runs.size());
+            for (PriceHistory run : runs) {
+                PriceHistory copy = new PriceHistory();
+                copy.setProductId(run.getProductId());
+                copy.setPrice(run.getPrice());
+                copy.setOriginalPrice(run.getOriginalPrice());
+                copy.setDiscountRate(run.getDiscountRate());
+                copy.setCurrency(run.getCurrency());
+                copy.setCheckedAt(cutoff);
+                copy.setLastSeenAt(run.getLastSeenAt());
+                copy.setSource(run.getSource());
+                copies.add(copy);
+            }
+            priceHistoryMapper.insertBatch(copies);
+            total += copies.size();
+            afterId = runs.get(runs.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 从 tick 存储读取最近价格段时复用的数组（每个线程一份，容量为 tick 存储的每商品段数）
+     */
+    private static final class TickBuffers {
+
+        private final long[] starts;
+
+        private final long[] lastSeens;
+
+        private final long[] cents;
+
+        private TickBuffers(int capacity) {
+            starts = new long[capacity];
+            lastSeens = new long[capacity];
+            cents = new long[capacity];
+        }
+    }
+
+    /**
+     * 把记录展开为时间范围内的起止两个点，依次交给降采样器
+     */
+    private static final class Window implements Consumer<PriceHistory> {
+
+        private final LocalDateTime from;
+
+        private final LocalDateTime to;
+
+        private final LttbDownsampler sampler;
+
+        /**
+         * 已交出的最后一个点的时间；记录在 cutoff 处拆分后、旧记录清理前两条会有重叠，重叠的点跳过，保证时间单调
+         */
+        private LocalDateTime lastEmitted;
+
+        Window(LocalDateTime from, LocalDateTime to, LttbDownsampler sampler) {
+            this.from = from;
+            this.to = to;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void accept(PriceHistory record) {
+            emit(record, record.getCheckedAt());
+            if (record.getLastSeenAt() != null && record.getLastSeenAt().isAfter(record.getCheckedAt())) {
+                emit(record, record.getLastSeenAt());
+            }
+        }
+
+        private void emit(PriceHistory record, LocalDateTime at) {
+            if (at == null || at.isBefore(from) || at.isAfter(to)
+                    || (lastEmitted != null && !at.isAfter(lastEmitted))) {
+                return;
+            }
+            lastEmitted = at;
+            if (at.equals(record.getCheckedAt())) {
+                sampler.accept(record);
+                return;
+            }
+            PriceHistory point = new PriceHistory();
+            point.setId(record.getId());
+            point.setProductId(record.getProductId());
+            point.setPrice(record.getPrice());
+            point.setOriginalPrice(record.getOriginalPrice());
+            point.setDiscountRate(record.getDiscountRate());
+            point.setCurrency(record.getCurrency());
+            point.setCheckedAt(at);
+            point.setLastSeenAt(record.getLastSeenAt());
+            point.setSource(record.getSource());
+            sampler.accept(point);
+        }
     }
 
     /**
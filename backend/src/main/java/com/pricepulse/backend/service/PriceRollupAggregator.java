@@ -0,0 +1,107 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.PriceRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把一批价格检查结果折算成小时、每日汇总
+ * <p>
+ * 同一商品同一时间段的多次检查先在内存中合并，每个（商品, 时间段）只生成一行，再由 upsert 与表中已有的汇总合并：
+ * 最高/最低取极值，开盘取更早的、收盘取更晚的，样本和与样本数累加。合并与顺序无关，同一批检查分几次写入结果相同。
+ */
+public class PriceRollupAggregator {
+
+    private final Map<Key, PriceRollup> hourly = new HashMap<>();
+
+    private final Map<Key, PriceRollup> daily = new HashMap<>();
+
+    /**
+     * 记录一次检查：商品在 at 时刻的价格为 price
+     */
+    public void add(Long productId, LocalDateTime at, BigDecimal price) {
+        if (productId == null || at == null || price == null) {
+            return;
+        }
+        merge(hourly, productId, at.truncatedTo(ChronoUnit.HOURS), at, price);
+        merge(daily, productId, at.truncatedTo(ChronoUnit.DAYS), at, price);
+    }
+
+    /**
+     * 记录一条价格历史：checked_at 和 last_seen_at（有时）各算一次检查
+     */
+    public void add(PriceHistory history) {
+        add(history.getProductId(), history.getCheckedAt(), history.getPrice());
+        if (history.getLastSeenAt() != null
+                && (history.getCheckedAt() == null || history.getLastSeenAt().isAfter(history.getCheckedAt()))) {
+            add(history.getProductId(), history.getLastSeenAt(), history.getPrice());
+        }
+    }
+
+    public boolean isEmpty() {
+        return hourly.isEmpty();
+    }
+
+    /**
+     * 小时汇总，按商品和时间排序（多个事务按相同顺序加锁，避免死锁）
+     */
+    public List<PriceRollup> hourly() {
+        return sorted(hourly);
+    }
+
+    /**
+     * 每日汇总，按商品和日期排序
+     */
+    public List<PriceRollup> daily() {
+        return sorted(daily);
+    }
+
+    private static void merge(Map<Key, PriceRollup> rollups, Long productId, LocalDateTime bucketStart,
+                              LocalDateTime at, BigDecimal price) {
+        PriceRollup rollup = rollups.get(new Key(productId, bucketStart));
+        if (rollup == null) {
+            rollup = new PriceRollup();
+            rollup.setProductId(productId);
+            rollup.setBucketStart(bucketStart);
+            rollup.setOpenPrice(price);
+            rollup.setHighPrice(price);
+            rollup.setLowPrice(price);
+            rollup.setClosePrice(price);
+            rollup.setPriceSum(price);
+            rollup.setSampleCount(1);
+            rollup.setOpenAt(at);
+            rollup.setCloseAt(at);
+            rollups.put(new Key(productId, bucketStart), rollup);
+            return;
+        }
+        if (at.isBefore(rollup.getOpenAt())) {
+            rollup.setOpenPrice(price);
+            rollup.setOpenAt(at);
+        }
+        if (!at.isBefore(rollup.getCloseAt())) {
+            rollup.setClosePrice(price);
+            rollup.setCloseAt(at);
+        }
+        rollup.setHighPrice(rollup.getHighPrice().max(price));
+        rollup.setLowPrice(rollup.getLowPrice().min(price));
+        rollup.setPriceSum(rollup.getPriceSum().add(price));
+        rollup.setSampleCount(rollup.getSampleCount() + 1);
+    }
+
+    private static List<PriceRollup> sorted(Map<Key, PriceRollup> rollups) {
+        List<PriceRollup> list = new ArrayList<>(rollups.values());
+        list.sort(Comparator.comparing(PriceRollup::getProductId).thenComparing(PriceRollup::getBucketStart));
+        return list;
+    }
+
+    private record Key(Long productId, LocalDateTime bucketStart) {
+    }
+}
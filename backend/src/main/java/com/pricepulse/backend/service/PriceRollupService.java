@@ -0,0 +1,210 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.PriceRollup;
+import com.pricepulse.backend.common.util.InstanceIdUtil;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 价格汇总服务
+ * <p>
+ * 小时、每日价格汇总由 {@link PriceWriteBuffer} 在写回价格时增量更新；这里负责按天读取汇总（补齐没有检查的日子），
+ * 以及从价格历史重建汇总表（回填）。汇总表为空时应用启动后自动在后台回填（rollup.backfill-on-startup），
+ * 管理员也可以手动重建；多个实例通过 Redis 标记保证同一时间只有一个回填在执行。
+ * 回填期间并发写回的少量检查可能被重复计入样本数，不影响开盘、最高、最低、收盘价。
+ */
+@Service
+@Slf4j
+public class PriceRollupService {
+
+    private static final String BACKFILL_LOCK_KEY = "price:rollup:backfill";
+
+    /**
+     * 回填标记的有效期，实例在回填中途退出时标记到期后可重新回填
+     */
+    private static final Duration BACKFILL_LOCK_TTL = Duration.ofHours(1);
+
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private PriceRollupMapper rollupMapper;
+
+    @Autowired
+    private PriceArchiveStore archiveStore;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * 回填时每批读取的价格历史条数
+     */
+    @Value("${rollup.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    /**
+     * 商品从 startDate 起每天的价格汇总（商品 ID -> 按日期排序）。
+     * 某天没有检查时沿用之前最后一次检查的收盘价（开高低收都取该价，样本数为 0）；
+     * 最后一次检查之后的日子不补齐，期间没有任何检查的商品不返回。
+     * 只读取范围内的每日汇总和每个商品在范围前的最后一条，查询量只与天数和商品数有关。
+     */
+    public Map<Long, List<PriceRollup>> dailySeries(List<Long> productIds, LocalDate startDate) {
+        Map<Long, List<PriceRollup>> series = new LinkedHashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return series;
+        }
+
+        List<PriceRollup> rollups = rollupMapper.selectDailySince(productIds, startDate.atStartOfDay());
+        if (rollups.isEmpty()) {
+            return series;
+        }
+        Map<Long, PriceRollup> carried = rollupMapper.selectLastDailyBefore(productIds, startDate.atStartOfDay())
+                .stream()
+                .collect(Collectors.toMap(PriceRollup::getProductId, rollup -> rollup, (a, b) -> b));
+
+        for (PriceRollup rollup : rollups) {
+            List<PriceRollup> days = series.computeIfAbsent(rollup.getProductId(), id -> new ArrayList<>());
+            PriceRollup previous = days.isEmpty() ? carried.get(rollup.getProductId()) : days.get(days.size() - 1);
+            LocalDate day = days.isEmpty() ? startDate : days.get(days.size() - 1).getBucketStart().toLocalDate().plusDays(1);
+            for (LocalDate end = rollup.getBucketStart().toLocalDate(); previous != null && day.isBefore(end); day = day.plusDays(1)) {
+                days.add(carryForward(previous, day));
+            }
+            days.add(rollup);
+        }
+        return series;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            if (rollupMapper.existsDaily() || priceHistoryMapper.selectMaxId() == 0) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("检查价格汇总表失败，跳过回填：{}", e.getMessage());
+            return;
+        }
+        log.info("价格汇总表为空，开始从价格历史回填");
+        startBackfill();
+    }
+
+    /**
+     * 在后台重建价格汇总；已有回填在执行（本实例或其他实例）时返回 false
+     */
+    public boolean startBackfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(BACKFILL_LOCK_KEY, InstanceIdUtil.current(), BACKFILL_LOCK_TTL))) {
+                log.info("其他实例正在回填价格汇总");
+                backfilling.set(false);
+                return false;
+            }
+        } catch (Exception e) {
+            backfilling.set(false);
+            throw e;
+        }
+
+        Thread.ofVirtual().name("price-rollup-backfill").start(() -> {
+            try {
+                backfill();
+            } catch (Exception e) {
+                log.error("回填价格汇总失败", e);
+            } finally {
+                redisTemplate.delete(BACKFILL_LOCK_KEY);
+                backfilling.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 清空汇总表后按 ID 顺序扫描全部价格历史重建汇总，再逐个商品读取已归档的记录（已删除商品的归档跳过），返回扫描的记录数。
+     * 只扫描开始时已有的记录，之后新写入的记录已由写回缓冲区计入汇总。
+     */
+    long backfill() {
+        long startMillis = System.currentTimeMillis();
+        rollupMapper.truncateHourly();
+        rollupMapper.truncateDaily();
+
+        long maxId = priceHistoryMapper.selectMaxId();
+        long afterId = 0;
+        long rows = 0;
+        while (true) {
+            List<PriceHistory> histories = priceHistoryMapper.selectBatchAfterId(afterId, maxId, backfillBatchSize);
+            if (histories.isEmpty()) {
+                break;
+            }
+            PriceRollupAggregator aggregator = new PriceRollupAggregator();
+            histories.forEach(aggregator::add);
+            if (!aggregator.isEmpty()) {
+                rollupMapper.upsertHourly(aggregator.hourly());
+                rollupMapper.upsertDaily(aggregator.daily());
+            }
+            afterId = histories.get(histories.size() - 1).getId();
+            rows += histories.size();
+        }
+
+        long[] archived = new long[1];
+        archiveStore.forEachProduct(histories -> {
+            // 商品已删除但归档还在时跳过，汇总表有外键约束
+            if (histories.isEmpty() || productMapper.selectById(histories.get(0).getProductId()) == null) {
+                return;
+            }
+            PriceRollupAggregator aggregator = new PriceRollupAggregator();
+            histories.forEach(aggregator::add);
+            if (!aggregator.isEmpty()) {
+                rollupMapper.upsertHourly(aggregator.hourly());
+                rollupMapper.upsertDaily(aggregator.daily());
+            }
+            archived[0] += histories.size();
+        });
+        rows += archived[0];
+        log.info("价格汇总回填完成：扫描价格历史 {} 条，耗时 {} ms", rows, System.currentTimeMillis() - startMillis);
+        return rows;
+    }
+
+    private static PriceRollup carryForward(PriceRollup previous, LocalDate day) {
+        PriceRollup rollup = new PriceRollup();
+        rollup.setProductId(previous.getProductId());
+        rollup.setBucketStart(day.atStartOfDay());
+        rollup.setOpenPrice(previous.getClosePrice());
+        rollup.setHighPrice(previous.getClosePrice());
+        rollup.setLowPrice(previous.getClosePrice());
+        rollup.setClosePrice(previous.getClosePrice());
+        rollup.setSampleCount(0);
+        return rollup;
+    }
+}
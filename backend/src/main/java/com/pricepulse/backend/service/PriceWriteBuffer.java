@@ -0,0 +1,550 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.mapper.ProductMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 抓取结果批量写回缓冲区
+ * <p>
+ * 抓取流水线把价格变化提交到这里，由缓冲区攒批后一次写入：products 用 JDBC batch 执行只更新价格字段的 UPDATE
+ * （同一批内同一商品只保留最后一次），price_history 用一条多行 INSERT；价格未变的商品只延长最新价格记录的
+ * last_seen_at（同一批内同一商品只保留最后一次）。同一事务内把这些检查合并进小时、每日价格汇总（见 {@link PriceRollupAggregator}），
+ * 并用 JDBC batch 写入调度器算出的下次检查时间和价格变动频率（同一商品只保留最后一次）。
+ * 每次刷新一个事务、一次提交。
+ * 攒满 writeback.max-batch-size 条或距上次刷新超过 writeback.flush-interval-ms 时刷新，应用关闭前也会刷新。
+ * 写入失败的处理见 {@link #flush()}；积压最多 writeback.max-buffered 条。
+ */
+@Component
+@Slf4j
+public class PriceWriteBuffer {
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 单次刷新最多写入的条数，攒满后立即刷新
+     */
+    @Value("${writeback.max-batch-size:200}")
+    private int maxBatchSize;
+
+    /**
+     * 每行最多尝试写入的次数（整批失败重试也计入），超过后丢弃
+     */
+    @Value("${writeback.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * 缓冲区最多积压的条数，达到后提交方同步刷新，刷新仍失败时丢弃新提交
+     */
+    @Value("${writeback.max-buffered:5000}")
+    private int maxBuffered;
+
+    private SqlSessionTemplate batchSession;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Timer flushTimer;
+
+    private final Object bufferLock = new Object();
+
+    private final Object flushLock = new Object();
+
+    private List<PendingWrite> buffer = new ArrayList<>();
+
+    /**
+     * 当前缓冲区中每个商品最后一次价格变化
+     */
+    private Map<Long, PendingWrite> buffered = new HashMap<>();
+
+    private Map<Long, Touch> touches = new HashMap<>();
+
+    private Map<Long, Schedule> schedules = new HashMap<>();
+
+    /**
+     * 尚未写入数据库的最新价格（按商品），供流水线判断价格是否变化
+     */
+    private final Map<Long, PendingWrite> pendingByProduct = new ConcurrentHashMap<>();
+
+    /**
+     * 尚未写入数据库的调度信息（按商品），供待抓取队列补充时覆盖数据库中的旧值
+     */
+    private final Map<Long, Schedule> pendingSchedules = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flushTimer = Timer.builder("crawler.writeback.flush")
+                .description("抓取结果批量写回耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交一次价格变化（商品最新价格 + 对应的价格历史）
+     */
+    public void submit(Product product, PriceHistory history) {
+        if (!reserve()) {
+            drop("overflow", product.getId(), null);
+            return;
+        }
+        PendingWrite write = new PendingWrite(product, history);
+        boolean full;
+        synchronized (bufferLock) {
+            buffer.add(write);
+            buffered.put(product.getId(), write);
+            pendingByProduct.put(product.getId(), write);
+            full = buffer.size() + touches.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * 提交一次价格未变的检查，只延长该商品最新价格记录的最后出现时间；price 为本次检查到的价格，计入价格汇总
+     */
+    public void touch(Long productId, BigDecimal price, LocalDateTime seenAt) {
+        if (!reserve()) {
+            drop("overflow", productId, null);
+            return;
+        }
+        boolean full;
+        synchronized (bufferLock) {
+            PendingWrite write = buffered.get(productId);
+            if (write != null) {
+                // 该商品的新记录还在缓冲区中，直接记到新记录上；每次检查单独计入价格汇总
+                write.history.setLastSeenAt(seenAt);
+                write.seenAt.add(seenAt);
+                return;
+            }
+            touches.put(productId, new Touch(price, seenAt));
+            full = buffer.size() + touches.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * 提交商品的下次检查时间和价格变动频率（每个商品只保留最后一次），随下一次刷新写入
+     */
+    public void schedule(Long productId, LocalDateTime nextCheckAt, BigDecimal priceChangeEwma) {
+        Schedule schedule = new Schedule(nextCheckAt, priceChangeEwma);
+        synchronized (bufferLock) {
+            schedules.put(productId, schedule);
+            pendingSchedules.put(productId, schedule);
+        }
+    }
+
+    /**
+     * 缓冲区积压达到 writeback.max-buffered 时由提交方同步刷新（写回跟不上时让抓取线程等待），
+     * 刷新后仍然积压（数据库持续失败）时返回 false，本次提交被丢弃
+     */
+    private boolean reserve() {
+        if (size() < maxBuffered) {
+            return true;
+        }
+        flush();
+        return size() < maxBuffered;
+    }
+
+    private int size() {
+        synchronized (bufferLock) {
+            return buffer.size() + touches.size();
+        }
+    }
+
+    /**
+     * 商品已提交但尚未写入数据库的最新价格信息，没有时返回 null
+     */
+    public Product pendingProduct(Long productId) {
+        PendingWrite write = pendingByProduct.get(productId);
+        return write != null ? write.product : null;
+    }
+
+    /**
+     * 商品有尚未写入数据库的调度信息时，覆盖到 product 上（下次检查时间、价格变动频率）并返回 true
+     */
+    public boolean applyPendingSchedule(Product product) {
+        Schedule schedule = pendingSchedules.get(product.getId());
+        if (schedule == null) {
+            return false;
+        }
+        product.setNextCheckAt(schedule.nextCheckAt);
+        product.setPriceChangeEwma(schedule.priceChangeEwma);
+        return true;
+    }
+
+    /**
+     * 写入当前缓冲的全部数据
+     * <p>
+     * 整批写入失败时：连接、锁等待等瞬时错误把整批放回缓冲区，下次刷新重试；其他错误（如某行数据不合法）
+     * 二分拆批定位失败的行，其余行照常写入，单独写入仍失败的行丢弃。每行最多尝试 writeback.max-attempts 次，
+     * 超过后丢弃。丢弃的行记错误日志并计入 crawler.writeback.dropped。
+     *
+     * @return 写入的条数（价格变化 + 价格未变 + 调度信息）
+     */
+    @Scheduled(fixedDelayString = "${writeback.flush-interval-ms:1000}")
+    public int flush() {
+        return doFlush().rows();
+    }
+
+    /**
+     * 写入当前缓冲的全部数据，返回是否已全部落库：有行因瞬时错误放回缓冲区待重试、或重试次数用完被丢弃时返回 false
+     * （数据不合法被丢弃的行重试也不会成功，不影响结果）。需要确认写回后才能继续的调用方使用，如抓取任务 worker
+     */
+    public boolean flushCompletely() {
+        return doFlush().retried() == 0;
+    }
+
+    private Flushed doFlush() {
+        synchronized (flushLock) {
+            List<PendingWrite> batch;
+            Map<Long, Touch> batchTouches;
+            Map<Long, Schedule> batchSchedules;
+            synchronized (bufferLock) {
+                if (buffer.isEmpty() && touches.isEmpty() && schedules.isEmpty()) {
+                    return new Flushed(0, 0);
+                }
+                batch = buffer;
+                batchTouches = touches;
+                batchSchedules = schedules;
+                buffer = new ArrayList<>();
+                buffered = new HashMap<>();
+                touches = new HashMap<>();
+                schedules = new HashMap<>();
+            }
+
+            List<PendingWrite> failedWrites = new ArrayList<>();
+            Map<Long, Touch> failedTouches = new LinkedHashMap<>();
+            Map<Long, Schedule> failedSchedules = new LinkedHashMap<>();
+            int total = batch.size() + batchTouches.size() + batchSchedules.size();
+            int rows;
+            try {
+                flushTimer.record(() -> write(batch, batchTouches, batchSchedules));
+                rows = total;
+                written(batch);
+                scheduled(batchSchedules);
+            } catch (Exception e) {
+                if (isTransient(e)) {
+                    log.error("批量写回 {} 条价格数据失败，等待下次重试", total, e);
+                    failedWrites.addAll(batch);
+                    failedTouches.putAll(batchTouches);
+                    failedSchedules.putAll(batchSchedules);
+                    rows = 0;
+                } else {
+                    log.error("批量写回 {} 条价格数据失败，拆批定位失败的行", total, e);
+                    rows = writeIsolated(batch, batchTouches, batchSchedules, e,
+                            failedWrites, failedTouches, failedSchedules);
+                }
+            }
+            if (!failedWrites.isEmpty() || !failedTouches.isEmpty() || !failedSchedules.isEmpty()) {
+                requeue(failedWrites, failedTouches, failedSchedules);
+            }
+
+            meterRegistry.counter("crawler.writeback.rows").increment(rows);
+            int retried = failedWrites.size() + failedTouches.size() + failedSchedules.size();
+            log.debug("批量写回 {} 条价格数据，{} 条待重试", rows, retried);
+            return new Flushed(rows, retried);
+        }
+    }
+
+    /**
+     * 整批写入失败后二分拆批：能写入的部分照常写入，单独写入仍失败的行按错误类型放回重试或丢弃，返回写入的条数
+     *
+     * @param cause 本批写入失败的异常；本批有多种数据时不能确定是哪一种导致失败，传 null 先分别重试一次
+     */
+    private int writeIsolated(List<PendingWrite> batch, Map<Long, Touch> batchTouches,
+                              Map<Long, Schedule> batchSchedules, Exception cause, List<PendingWrite> failedWrites,
+                              Map<Long, Touch> failedTouches, Map<Long, Schedule> failedSchedules) {
+        int kinds = (batch.isEmpty() ? 0 : 1) + (batchTouches.isEmpty() ? 0 : 1) + (batchSchedules.isEmpty() ? 0 : 1);
+        boolean mixed = kinds > 1;
+        int rows = 0;
+        if (!batch.isEmpty()) {
+            rows += isolate(batch, mixed ? null : cause, writes -> {
+                write(writes, Map.of(), Map.of());
+                written(writes);
+            }, (write, e) -> {
+                if (isTransient(e)) {
+                    failedWrites.add(write);
+                } else {
+                    pendingByProduct.remove(write.product.getId(), write);
+                    drop("invalid", write.product.getId(), e);
+                }
+            });
+        }
+        if (!batchTouches.isEmpty()) {
+            rows += isolate(new ArrayList<>(batchTouches.entrySet()), mixed ? null : cause, entries -> {
+                Map<Long, Touch> part = new LinkedHashMap<>();
+                entries.forEach(entry -> part.put(entry.getKey(), entry.getValue()));
+                write(List.of(), part, Map.of());
+            }, (entry, e) -> {
+                if (isTransient(e)) {
+                    failedTouches.put(entry.getKey(), entry.getValue());
+                } else {
+                    drop("invalid", entry.getKey(), e);
+                }
+            });
+        }
+        if (!batchSchedules.isEmpty()) {
+            rows += isolate(new ArrayList<>(batchSchedules.entrySet()), mixed ? null : cause, entries -> {
+                Map<Long, Schedule> part = new LinkedHashMap<>();
+                entries.forEach(entry -> part.put(entry.getKey(), entry.getValue()));
+                write(List.of(), Map.of(), part);
+                scheduled(part);
+            }, (entry, e) -> {
+                if (isTransient(e)) {
+                    failedSchedules.put(entry.getKey(), entry.getValue());
+                } else {
+                    pendingSchedules.remove(entry.getKey(), entry.getValue());
+                    drop("invalid", entry.getKey(), e);
+                }
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 写入 rows；cause 不为 null 表示已知 rows 整体写入失败。失败时二分，单行失败或瞬时错误交给 onFailure
+     */
+    private <T> int isolate(List<T> rows, Exception cause, Consumer<List<T>> writer,
+                            BiConsumer<T, Exception> onFailure) {
+        if (cause == null) {
+            try {
+                writer.accept(rows);
+                return rows.size();
+            } catch (Exception e) {
+                cause = e;
+            }
+        }
+        if (rows.size() == 1 || isTransient(cause)) {
+            Exception failure = cause;
+            rows.forEach(row -> onFailure.accept(row, failure));
+            return 0;
+        }
+        int mid = rows.size() / 2;
+        return isolate(rows.subList(0, mid), null, writer, onFailure)
+                + isolate(rows.subList(mid, rows.size()), null, writer, onFailure);
+    }
+
+    /**
+     * 把失败的行放回缓冲区（排在失败期间新提交的数据之前），尝试次数用完的丢弃
+     */
+    private void requeue(List<PendingWrite> failedWrites, Map<Long, Touch> failedTouches,
+                         Map<Long, Schedule> failedSchedules) {
+        List<PendingWrite> retryWrites = new ArrayList<>(failedWrites.size());
+        for (PendingWrite write : failedWrites) {
+            if (++write.attempts < maxAttempts) {
+                retryWrites.add(write);
+            } else {
+                pendingByProduct.remove(write.product.getId(), write);
+                drop("exhausted", write.product.getId(), null);
+            }
+        }
+        Map<Long, Touch> retryTouches = new HashMap<>();
+        failedTouches.forEach((productId, touch) -> {
+            if (++touch.attempts < maxAttempts) {
+                retryTouches.put(productId, touch);
+            } else {
+                drop("exhausted", productId, null);
+            }
+        });
+        Map<Long, Schedule> retrySchedules = new HashMap<>();
+        failedSchedules.forEach((productId, schedule) -> {
+            if (++schedule.attempts < maxAttempts) {
+                retrySchedules.put(productId, schedule);
+            } else {
+                pendingSchedules.remove(productId, schedule);
+                drop("exhausted", productId, null);
+            }
+        });
+
+        synchronized (bufferLock) {
+            for (PendingWrite write : retryWrites) {
+                buffered.putIfAbsent(write.product.getId(), write);
+            }
+            retryWrites.addAll(buffer);
+            buffer = retryWrites;
+            retryTouches.putAll(touches);
+            touches = retryTouches;
+            retrySchedules.putAll(schedules);
+            schedules = retrySchedules;
+        }
+    }
+
+    private void written(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            pendingByProduct.remove(write.product.getId(), write);
+        }
+    }
+
+    private void scheduled(Map<Long, Schedule> writtenSchedules) {
+        writtenSchedules.forEach(pendingSchedules::remove);
+    }
+
+    private void drop(String reason, Long productId, Exception cause) {
+        meterRegistry.counter("crawler.writeback.dropped", "reason", reason).increment();
+        log.error("丢弃商品 {} 的价格写回，原因: {}", productId, reason, cause);
+    }
+
+    /**
+     * 连接失败、锁等待超时、死锁等重试可能成功的错误
+     */
+    private static boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private void write(List<PendingWrite> batch, Map<Long, Touch> batchTouches, Map<Long, Schedule> batchSchedules) {
+        Map<Long, Product> latestByProduct = new LinkedHashMap<>();
+        Map<Long, PriceHistory> latestHistories = new HashMap<>();
+        List<PriceHistory> histories = new ArrayList<>(batch.size());
+        PriceRollupAggregator rollups = new PriceRollupAggregator();
+        for (PendingWrite write : batch) {
+            latestByProduct.put(write.product.getId(), write.product);
+            latestHistories.put(write.product.getId(), write.history);
+            histories.add(write.history);
+            // 新记录的 last_seen_at 来自合并进来的检查，按检查逐次计入汇总，不能只算最后一次
+            rollups.add(write.product.getId(), write.history.getCheckedAt(), write.history.getPrice());
+            for (LocalDateTime seenAt : write.seenAt) {
+                rollups.add(write.product.getId(), seenAt, write.history.getPrice());
+            }
+        }
+        Map<Long, Touch> oldRecordTouches = new LinkedHashMap<>();
+        batchTouches.forEach((productId, touch) -> {
+            rollups.add(productId, touch.seenAt, touch.price);
+            PriceHistory history = latestHistories.get(productId);
+            if (history != null && (history.getCheckedAt() == null || !touch.seenAt.isBefore(history.getCheckedAt()))) {
+                // 新记录之后的检查（如上次刷新失败期间到达的）记到新记录上，不能延长数据库中的旧记录
+                if (history.getLastSeenAt() == null || touch.seenAt.isAfter(history.getLastSeenAt())) {
+                    history.setLastSeenAt(touch.seenAt);
+                }
+            } else {
+                oldRecordTouches.put(productId, touch);
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 先延长已有的最新记录，再插入新记录（新记录之后的未变化检查已记在新记录上）
+            PriceHistoryMapper priceHistoryMapper = batchSession.getMapper(PriceHistoryMapper.class);
+            oldRecordTouches.forEach((productId, touch) -> priceHistoryMapper.touchLatest(productId, touch.seenAt));
+
+            ProductMapper productMapper = batchSession.getMapper(ProductMapper.class);
+            for (Product product : latestByProduct.values()) {
+                productMapper.updateCrawledPrice(product);
+            }
+            batchSchedules.forEach((productId, schedule) ->
+                    productMapper.updateCrawlSchedule(productId, schedule.nextCheckAt, schedule.priceChangeEwma));
+            if (!histories.isEmpty()) {
+                priceHistoryMapper.insertBatch(histories);
+            }
+            if (!rollups.isEmpty()) {
+                PriceRollupMapper rollupMapper = batchSession.getMapper(PriceRollupMapper.class);
+                rollupMapper.upsertHourly(rollups.hourly());
+                rollupMapper.upsertDaily(rollups.daily());
+            }
+            batchSession.flushStatements();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 一次刷新的结果：写入的条数、写入失败（放回重试或重试次数用完丢弃）的条数
+     */
+    private record Flushed(int rows, int retried) {
+    }
+
+    private static final class PendingWrite {
+
+        private final Product product;
+
+        private final PriceHistory history;
+
+        /**
+         * 在缓冲区中合并到这条新记录上的价格未变检查
+         */
+        private final List<LocalDateTime> seenAt = new ArrayList<>();
+
+        /**
+         * 已失败的写入次数
+         */
+        private int attempts;
+
+        private PendingWrite(Product product, PriceHistory history) {
+            this.product = product;
+            this.history = history;
+        }
+    }
+
+    private static final class Touch {
+
+        private final BigDecimal price;
+
+        private final LocalDateTime seenAt;
+
+        private int attempts;
+
+        private Touch(BigDecimal price, LocalDateTime seenAt) {
+            this.price = price;
+            this.seenAt = seenAt;
+        }
+    }
+
+    private static final class Schedule {
+
+        private final LocalDateTime nextCheckAt;
+
+        private final BigDecimal priceChangeEwma;
+
+        private int attempts;
+
+        private Schedule(LocalDateTime nextCheckAt, BigDecimal priceChangeEwma) {
+            this.nextCheckAt = nextCheckAt;
+            this.priceChangeEwma = priceChangeEwma;
+        }
+    }
+}
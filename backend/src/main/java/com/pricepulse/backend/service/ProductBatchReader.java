@@ -0,0 +1,86 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.scheduler.CrawlPartitionLeases;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 按批次遍历全部上架商品
+ * <p>
+ * 使用 id 上的键集分页（WHERE id > 上一批最大 ID ORDER BY id LIMIT n），每次只在内存中保留一批商品，
+ * 批量任务的内存占用与商品总量无关。遍历过程中新增的商品 ID 更大，会在后续批次中被读到。
+ * 定时的全量任务使用 {@link #forEachOwnedBatch}，多实例部署时每个实例只遍历自己持有的分区。
+ */
+@Component
+@Slf4j
+public class ProductBatchReader {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CrawlPartitionLeases partitionLeases;
+
+    /**
+     * 每批读取的商品数
+     */
+    @Value("${batch.product-page-size:500}")
+    private int pageSize;
+
+    /**
+     * 依次把每批商品交给 consumer 处理
+     *
+     * @return 遍历的商品总数
+     */
+    public int forEachBatch(Consumer<List<Product>> consumer) {
+        return forEachBatch(null, consumer);
+    }
+
+    /**
+     * 只遍历本实例持有的分区内的商品（未开启分区时遍历全部商品）
+     *
+     * @return 遍历的商品总数
+     */
+    public int forEachOwnedBatch(Consumer<List<Product>> consumer) {
+        Set<Integer> partitions = partitionLeases.ownedPartitions();
+        if (partitions != null && partitions.isEmpty()) {
+            log.info("本实例未持有抓取分区，跳过遍历");
+            return 0;
+        }
+        return forEachBatch(partitions, consumer);
+    }
+
+    private int forEachBatch(Set<Integer> partitions, Consumer<List<Product>> consumer) {
+        long lastId = 0;
+        int total = 0;
+
+        while (true) {
+            List<Product> batch = partitions == null
+                    ? productMapper.selectActiveAfterId(lastId, pageSize)
+                    : productMapper.selectActiveAfterIdInPartitions(lastId, partitionLeases.getPartitionCount(),
+                    partitions, pageSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            consumer.accept(batch);
+            total += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+
+            if (batch.size() < pageSize) {
+                break;
+            }
+        }
+
+        log.debug("分批遍历商品完成，共 {} 个", total);
+        return total;
+    }
+}
@@ -6,7 +6,8 @@ import com.pricepulse.backend.common.exception.BusinessException;
 import com.pricepulse.backend.mapper.PriceHistoryMapper;
 import com.pricepulse.backend.mapper.ProductMapper;
 import com.pricepulse.backend.mapper.UserProductMapper;
-import com.pricepulse.backend.service.crawler.CrawlerStrategyFactory;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import com.pricepulse.backend.service.cache.PriceTickStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -14,7 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,10 +39,16 @@ public class ProductService {
     private PriceHistoryMapper priceHistoryMapper;
 
     @Autowired
-    private NotificationService notificationService;
+    private PriceTickStore priceTickStore;
 
     @Autowired
-    private CrawlerStrategyFactory crawlerFactory;
+    private PriceArchiveStore archiveStore;
+
+    @Autowired
+    private PriceCrawlPipeline crawlPipeline;
+
+    @Autowired
+    private ProductBatchReader productBatchReader;
 
     @Autowired
     private UserProductMapper userProductMapper;
@@ -154,6 +161,7 @@ public class ProductService {
      * 1. 删除用户关注记录（user_products表）
      * 2. 删除价格历史记录（price_history表）
      * 3. 删除商品本身（products表）
+     * 4. 删除已归档的价格历史（归档段文件）
      *
      * @param id 商品ID
      * @throws BusinessException 当ID无效或商品不存在时抛出
@@ -180,6 +188,7 @@ public class ProductService {
 
         // 删除价格历史记录
         priceHistoryMapper.deleteByProductId(id);
+        priceTickStore.remove(id);
 
         // 删除商品本身
         int result = productMapper.deleteById(id);
@@ -187,6 +196,9 @@ public class ProductService {
             throw new BusinessException("商品删除失败");
         }
 
+        // 删除已归档的冷数据
+        archiveStore.delete(id);
+
         log.info("商品删除成功, ID: {}, name: {}", id, product.getName());
     }
 
@@ -302,153 +314,38 @@ public class ProductService {
         return filters;
     }
 
-    /**
-     * 更新所有商品价格（定时任务）
-     */
-    public int updateAllProductsPrice() {
-        List<Product> allProducts = productMapper.selectAll();
-        int updatedCount = 0;
-
-        for (Product product : allProducts) {
-            try {
-                // 使用真实爬虫获取价格
-                BigDecimal newPrice = crawlRealPrice(product);
-
-                if (newPrice != null && !newPrice.equals(product.getCurrentPrice())) {
-                    // 检查是否降价
-                    boolean isPriceDrop = newPrice.compareTo(product.getCurrentPrice()) < 0;
-
-                    // 更新商品价格
-                    product.setCurrentPrice(newPrice);
-                    int result = productMapper.update(product);
-
-                    if (result > 0) {
-                        updatedCount++;
-
-                        // 记录价格历史
-                        recordPriceHistory(product);
-
-                        // 如果降价，发送通知
-                        if (isPriceDrop) {
-                            sendPriceDropNotifications(product);
-                        }
-
-                        log.info("商品 {} 价格更新：{} -> {}", product.getName(),
-                                product.getCurrentPrice(), newPrice);
-                    }
-                }
-            } catch (Exception e) {
-                log.error("更新商品 {} 价格失败", product.getName(), e);
-            }
-        }
-
-        return updatedCount;
-    }
-
 
     /**
      * 深度更新所有商品（每日执行）
+     * <p>
+     * 按批次遍历商品（多实例部署时只遍历本实例持有的分区），价格经 {@link PriceCrawlPipeline} 写回，之后再刷新销量
      */
     public int deepUpdateAllProducts() {
-        List<Product> allProducts = productMapper.selectAll();
-        int updatedCount = 0;
-
-        for (Product product : allProducts) {
-            try {
-                // 使用真实爬虫获取价格
-                BigDecimal newPrice = crawlRealPrice(product);
-                Integer newSalesCount = simulateSalesUpdate(product.getSalesCount());
-
-                if (newPrice != null) {
-                    product.setCurrentPrice(newPrice);
-                    product.setSalesCount(newSalesCount);
-                    product.setLastChecked(LocalDateTime.now());
-
-                    int result = productMapper.update(product);
-
-                    if (result > 0) {
-                        updatedCount++;
-                        recordPriceHistory(product);
-                    }
-                }
-            } catch (Exception e) {
-                log.error("深度更新商品 {} 失败", product.getName(), e);
-            }
-        }
-
-        return updatedCount;
+        int[] updatedCount = {0};
+        productBatchReader.forEachOwnedBatch(batch -> updatedCount[0] += deepUpdateProducts(batch));
+        return updatedCount[0];
     }
 
-    /**
-     * 爬取真实商品价格
-     */
-    private BigDecimal crawlRealPrice(Product product) {
-        try {
-            String url = product.getUrl();
-            if (url == null || url.isEmpty()) {
-                log.warn("商品 {} 缺少 URL，跳过", product.getName());
-                return product.getCurrentPrice();
-            }
-
-            // 获取对应的爬虫服务
-            com.pricepulse.backend.service.crawler.CrawlerService crawler =
-                    crawlerFactory.getCrawler(url);
-
-            // 爬取价格
-            com.pricepulse.backend.common.dto.PriceInfo priceInfo = crawler.crawlPrice(url);
-
-            if (priceInfo != null && priceInfo.getCurrentPrice() != null) {
-                log.info("成功爬取商品 {} 价格：{}", product.getName(), priceInfo.getCurrentPrice());
-                return priceInfo.getCurrentPrice();
-            } else {
-                log.warn("爬取商品 {} 价格失败，返回空值", product.getName());
-                return product.getCurrentPrice();
+    private int deepUpdateProducts(List<Product> products) {
+        List<PriceCrawlPipeline.Outcome> outcomes = crawlPipeline.submitAll(products, "AUTO");
+        // 价格已由流水线经写回缓冲区写入，这里只整批写回销量
+        List<Product> crawled = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (outcomes.get(i).isSuccess()) {
+                Product product = products.get(i);
+                product.setSalesCount(simulateSalesUpdate(product.getSalesCount()));
+                crawled.add(product);
             }
-        } catch (Exception e) {
-            log.error("爬取商品 {} 价格异常", product.getName(), e);
-            return product.getCurrentPrice();
         }
-    }
-
-    /**
-     * 记录价格历史
-     */
-    private void recordPriceHistory(Product product) {
-        try {
-            com.pricepulse.backend.common.entity.PriceHistory history =
-                    new com.pricepulse.backend.common.entity.PriceHistory();
-            history.setProductId(product.getId());
-            history.setPrice(product.getCurrentPrice());
-            history.setOriginalPrice(product.getOriginalPrice());
-            history.setDiscountRate(product.getDiscountRate());
-            history.setCurrency("CNY");
-            history.setCheckedAt(LocalDateTime.now());
-            history.setSource("SCHEDULER");
-
-            priceHistoryMapper.insert(history);
-        } catch (Exception e) {
-            log.error("记录价格历史失败", e);
+        if (crawled.isEmpty()) {
+            return 0;
         }
-    }
 
-    /**
-     * 发送降价通知
-     */
-    private void sendPriceDropNotifications(Product product) {
         try {
-            // 获取关注该商品的所有用户
-            List<Long> userIds = productMapper.selectUserIdsByProductId(product.getId());
-
-            for (Long userId : userIds) {
-                notificationService.sendPriceDropNotification(
-                        userId,
-                        product.getName(),
-                        product.getOriginalPrice() != null ? product.getOriginalPrice() : product.getCurrentPrice(),
-                        product.getCurrentPrice()
-                );
-            }
+            return productMapper.updateSalesCounts(crawled);
         } catch (Exception e) {
-            log.error("发送降价通知失败", e);
+            log.error("深度更新 {} 个商品的销量失败", crawled.size(), e);
+            return 0;
         }
     }
 
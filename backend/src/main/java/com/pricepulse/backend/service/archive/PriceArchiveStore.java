@@ -0,0 +1,228 @@
+package com.pricepulse.backend.service.archive;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 价格历史归档存储
+ * <p>
+ * 冷数据按商品、按月存成列式压缩段文件（编码见 {@link PriceSegmentCodec}）：{archive.dir}/{商品 ID % 1000}/{商品 ID}/{yyyyMM}.seg。
+ * 段文件写入后不再修改（同一个月重复归档时与已有内容合并后整体替换），先写临时文件再原子改名，读取方不会看到写了一半的文件。
+ * 读取时通过内存映射（FileChannel.map）直接解码，不经过堆内缓冲。多实例部署时 archive.dir 需要挂载共享存储。
+ */
+@Component
+@Slf4j
+public class PriceArchiveStore {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Value("${archive.dir:./data/price-archive}")
+    private String dir;
+
+    /**
+     * 把一个商品的冷数据写入归档（可跨多个月），已归档的同一条记录（checked_at 相同）以新数据为准；
+     * 返回写入的段文件总大小（字节）
+     */
+    public long append(Long productId, List<PriceHistory> records) {
+        long bytes = 0;
+        Map<YearMonth, List<PriceHistory>> byMonth = new TreeMap<>();
+        for (PriceHistory record : records) {
+            byMonth.computeIfAbsent(YearMonth.from(record.getCheckedAt()), m -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<YearMonth, List<PriceHistory>> entry : byMonth.entrySet()) {
+            Path path = segmentPath(productId, entry.getKey());
+            Map<LocalDateTime, PriceHistory> merged = new TreeMap<>();
+            if (Files.exists(path)) {
+                for (PriceHistory record : readSegment(path, productId)) {
+                    merged.put(record.getCheckedAt(), record);
+                }
+            }
+            for (PriceHistory record : entry.getValue()) {
+                merged.put(record.getCheckedAt(), record);
+            }
+            byte[] content = PriceSegmentCodec.encode(new ArrayList<>(merged.values()));
+            writeSegment(path, content);
+            bytes += content.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 商品的全部归档记录（按 checked_at 升序）
+     */
+    public List<PriceHistory> read(Long productId) {
+        List<PriceHistory> records = new ArrayList<>();
+        for (Path segment : segments(productDir(productId))) {
+            records.addAll(readSegment(segment, productId));
+        }
+        return records;
+    }
+
+    /**
+     * 逐个商品读取全部归档记录（用于重建价格汇总）
+     */
+    public void forEachProduct(Consumer<List<PriceHistory>> consumer) {
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        for (Path bucket : children(root)) {
+            for (Path product : children(bucket)) {
+                Long productId = parseProductId(product);
+                if (productId != null) {
+                    consumer.accept(read(productId));
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除整月都早于 cutoff 的段文件，返回删除的文件数
+     */
+    public int deleteBefore(LocalDateTime cutoff) {
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        int deleted = 0;
+        for (Path bucket : children(root)) {
+            for (Path product : children(bucket)) {
+                for (Path segment : segments(product)) {
+                    YearMonth month = monthOf(segment);
+                    if (month != null && month.isBefore(cutoffMonth)) {
+                        try {
+                            Files.deleteIfExists(segment);
+                            deleted++;
+                        } catch (IOException e) {
+                            log.warn("删除归档段 {} 失败：{}", segment, e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除一个商品的全部归档（商品被删除时调用），返回删除的文件数
+     */
+    public int delete(Long productId) {
+        Path productDir = productDir(productId);
+        if (!Files.isDirectory(productDir)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(productDir)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+                deleted++;
+            }
+            Files.deleteIfExists(productDir);
+        } catch (IOException e) {
+            log.warn("删除商品 {} 的归档失败：{}", productId, e.getMessage());
+        }
+        return deleted;
+    }
+
+    private Path productDir(Long productId) {
+        return Paths.get(dir, String.format("%03d", Math.floorMod(productId, 1000L)), productId.toString());
+    }
+
+    private Path segmentPath(Long productId, YearMonth month) {
+        return productDir(productId).resolve(MONTH.format(month) + SEGMENT_SUFFIX);
+    }
+
+    private static List<PriceHistory> readSegment(Path path, Long productId) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return PriceSegmentCodec.decode(buffer, productId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档段失败：" + path, e);
+        }
+    }
+
+    private static void writeSegment(Path path, byte[] content) {
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档段失败：" + path, e);
+        }
+    }
+
+    /**
+     * 目录下的段文件，按月份升序
+     */
+    private static List<Path> segments(Path productDir) {
+        if (!Files.isDirectory(productDir)) {
+            return List.of();
+        }
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(productDir, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                if (monthOf(segment) != null) {
+                    segments.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.sort(Comparator.comparing(segment -> segment.getFileName().toString()));
+        return segments;
+    }
+
+    private static List<Path> children(Path dir) {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            stream.forEach(children::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return children;
+    }
+
+    private static YearMonth monthOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return YearMonth.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length()), MONTH);
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Long parseProductId(Path productDir) {
+        try {
+            return Long.valueOf(productDir.getFileName().toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
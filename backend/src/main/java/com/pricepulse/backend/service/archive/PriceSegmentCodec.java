@@ -0,0 +1,296 @@
+package com.pricepulse.backend.service.archive;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 归档段文件的列式编码
+ * <p>
+ * 一个段保存一个商品一个月的价格历史（按 checked_at 升序），各字段按列连续存放：
+ * <ul>
+ *     <li>checked_at：秒级时间戳，第一条存原值，第二条存差值，之后存差值的差值（定时抓取时大多为 0）</li>
+ *     <li>last_seen_at：与 checked_at 的差值，0 表示为空</li>
+ *     <li>价格：以分为单位的整数，第一条存原值，之后存与上一条的差值</li>
+ *     <li>原价、折扣：与价格（折扣为百分数 × 100）的差值，0 表示为空</li>
+ *     <li>币种、来源：字典编码，段头保存字典</li>
+ * </ul>
+ * 整数都用 zigzag + varint 变长编码，列数据整体再用 Deflate 压缩。
+ * 文件格式：魔数（4 字节）、版本（1 字节）、未压缩长度（4 字节）、压缩后的列数据。
+ */
+public final class PriceSegmentCodec {
+
+    static final int MAGIC = 0x50505347;
+
+    static final byte VERSION = 1;
+
+    private static final int HEADER_LENGTH = 9;
+
+    private PriceSegmentCodec() {
+    }
+
+    /**
+     * 编码一个段，records 需按 checked_at 升序
+     */
+    public static byte[] encode(List<PriceHistory> records) {
+        Writer body = new Writer();
+        body.unsigned(records.size());
+
+        Map<String, Integer> currencies = dictionary(records.stream().map(PriceHistory::getCurrency).toList());
+        Map<String, Integer> sources = dictionary(records.stream().map(PriceHistory::getSource).toList());
+        body.dictionary(currencies);
+        body.dictionary(sources);
+
+        long previousTime = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < records.size(); i++) {
+            long time = epochSecond(records.get(i).getCheckedAt());
+            if (i == 0) {
+                body.signed(time);
+            } else {
+                long delta = time - previousTime;
+                body.signed(i == 1 ? delta : delta - previousDelta);
+                previousDelta = delta;
+            }
+            previousTime = time;
+        }
+        for (PriceHistory record : records) {
+            body.unsigned(record.getLastSeenAt() == null
+                    ? 0 : epochSecond(record.getLastSeenAt()) - epochSecond(record.getCheckedAt()) + 1);
+        }
+        long previousPrice = 0;
+        for (PriceHistory record : records) {
+            long price = cents(record.getPrice());
+            body.signed(price - previousPrice);
+            previousPrice = price;
+        }
+        for (PriceHistory record : records) {
+            body.nullableDelta(record.getOriginalPrice(), cents(record.getPrice()));
+        }
+        for (PriceHistory record : records) {
+            body.nullableDelta(record.getDiscountRate(), 0);
+        }
+        for (PriceHistory record : records) {
+            body.unsigned(currencies.get(record.getCurrency()));
+        }
+        for (PriceHistory record : records) {
+            body.unsigned(sources.get(record.getSource()));
+        }
+
+        byte[] raw = body.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + HEADER_LENGTH);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).put(VERSION).putInt(raw.length);
+            out.write(header.array(), 0, HEADER_LENGTH);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                out.write(chunk, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解码一个段（可以直接传入内存映射的文件内容），productId 写入每条记录
+     */
+    public static List<PriceHistory> decode(ByteBuffer segment, Long productId) {
+        ByteBuffer input = segment.duplicate();
+        if (input.remaining() < HEADER_LENGTH || input.getInt() != MAGIC) {
+            throw new IllegalArgumentException("不是价格归档段文件");
+        }
+        byte version = input.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的归档段版本：" + version);
+        }
+        byte[] raw = new byte[input.getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int offset = 0;
+            while (offset < raw.length) {
+                int length = inflater.inflate(raw, offset, raw.length - offset);
+                if (length == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("归档段数据不完整");
+                }
+                offset += length;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("归档段数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+
+        Reader body = new Reader(ByteBuffer.wrap(raw));
+        int count = (int) body.unsigned();
+        List<String> currencies = body.dictionary();
+        List<String> sources = body.dictionary();
+
+        List<PriceHistory> records = new ArrayList<>(count);
+        long time = 0;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                time = body.signed();
+            } else {
+                delta = i == 1 ? body.signed() : delta + body.signed();
+                time += delta;
+            }
+            PriceHistory record = new PriceHistory();
+            record.setProductId(productId);
+            record.setCheckedAt(LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC));
+            records.add(record);
+        }
+        for (PriceHistory record : records) {
+            long lastSeen = body.unsigned();
+            if (lastSeen > 0) {
+                record.setLastSeenAt(record.getCheckedAt().plusSeconds(lastSeen - 1));
+            }
+        }
+        long price = 0;
+        for (PriceHistory record : records) {
+            price += body.signed();
+            record.setPrice(BigDecimal.valueOf(price, 2));
+        }
+        for (PriceHistory record : records) {
+            record.setOriginalPrice(body.nullableDelta(cents(record.getPrice())));
+        }
+        for (PriceHistory record : records) {
+            record.setDiscountRate(body.nullableDelta(0));
+        }
+        for (PriceHistory record : records) {
+            record.setCurrency(currencies.get((int) body.unsigned()));
+        }
+        for (PriceHistory record : records) {
+            record.setSource(sources.get((int) body.unsigned()));
+        }
+        return records;
+    }
+
+    /**
+     * 字典：0 号固定为 null，其余按出现顺序编号
+     */
+    private static Map<String, Integer> dictionary(List<String> values) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        dictionary.put(null, 0);
+        for (String value : values) {
+            dictionary.putIfAbsent(value, dictionary.size());
+        }
+        return dictionary;
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * 两位小数的金额换算成整数（分）；价格字段都是 DECIMAL(x,2)，多出的小数位说明数据有误，直接报错
+     */
+    private static long cents(BigDecimal value) {
+        return value.movePointRight(2).longValueExact();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void unsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void signed(long value) {
+            unsigned(zigzag(value));
+        }
+
+        void nullableDelta(BigDecimal value, long base) {
+            unsigned(value == null ? 0 : zigzag(cents(value) - base) + 1);
+        }
+
+        void dictionary(Map<String, Integer> dictionary) {
+            unsigned(dictionary.size() - 1);
+            for (String value : dictionary.keySet()) {
+                if (value != null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    unsigned(bytes.length);
+                    out.write(bytes, 0, bytes.length);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer in;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        long unsigned() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("归档段中的变长整数过长");
+        }
+
+        long signed() {
+            long value = unsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        BigDecimal nullableDelta(long base) {
+            long value = unsigned();
+            if (value == 0) {
+                return null;
+            }
+            long delta = value - 1;
+            return BigDecimal.valueOf(((delta >>> 1) ^ -(delta & 1)) + base, 2);
+        }
+
+        List<String> dictionary() {
+            int size = (int) unsigned();
+            List<String> dictionary = new ArrayList<>(size + 1);
+            dictionary.add(null);
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = new byte[(int) unsigned()];
+                in.get(bytes);
+                dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return dictionary;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.pricepulse.backend.service.cache;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.util.ExpiringLruCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抓取结果缓存
+ * <p>
+ * 以平台 + 规范化商品标识（见 AbstractCrawlerService#canonicalKey）为键缓存 PriceInfo，同一商品的不同链接共用一份结果。
+ * 成功结果按平台配置的 TTL 缓存，失败结果按 crawler.cache.negative-ttl-ms 缓存；
+ * 进程内 LRU 为一级缓存，开启 crawler.cache.redis-enabled 后以 Redis 为二级缓存供多实例共享。
+ * 返回的都是副本，并标记 cacheStatus。
+ * <p>
+ * 指标：crawler.cache.requests（platform、result=hit/negative_hit/miss 标签）
+ */
+@Component
+@Slf4j
+public class PriceInfoCacheService {
+
+    private static final String PRICE_INFO_KEY = "crawl:price:";
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private ExpiringLruCache<String, PriceInfo> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = new ExpiringLruCache<>(crawlerProperties.getCache().getMaxEntries());
+    }
+
+    /**
+     * 查询缓存，未命中或缓存未启用时返回 null
+     */
+    public PriceInfo get(String platform, String key) {
+        CrawlerProperties.Cache config = crawlerProperties.getCache();
+        if (!config.isEnabled()) {
+            return null;
+        }
+
+        String cacheKey = cacheKey(platform, key);
+        PriceInfo cached = localCache.get(cacheKey);
+        if (cached == null && config.isRedisEnabled()) {
+            cached = getFromRedis(cacheKey);
+        }
+
+        if (cached == null) {
+            record(platform, "miss");
+            return null;
+        }
+
+        PriceInfo.CacheStatus status = cached.getErrorMessage() != null
+                ? PriceInfo.CacheStatus.NEGATIVE_HIT
+                : PriceInfo.CacheStatus.HIT;
+        record(platform, status.name().toLowerCase());
+        return copyOf(cached, status);
+    }
+
+    /**
+     * 缓存一次实际抓取的结果（成功或失败）
+     */
+    public void put(String platform, String key, PriceInfo priceInfo) {
+        CrawlerProperties.Cache config = crawlerProperties.getCache();
+        if (!config.isEnabled() || priceInfo == null) {
+            return;
+        }
+
+        long ttlMs = priceInfo.getErrorMessage() != null ? config.getNegativeTtlMs() : config.ttlOf(platform);
+        if (ttlMs <= 0) {
+            return;
+        }
+
+        String cacheKey = cacheKey(platform, key);
+        PriceInfo stored = copyOf(priceInfo, null);
+        localCache.put(cacheKey, stored, ttlMs, TimeUnit.MILLISECONDS);
+        if (config.isRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(cacheKey, stored, ttlMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                log.error("写入抓取结果缓存失败，key={}", cacheKey, e);
+            }
+        }
+    }
+
+    /**
+     * 删除某个商品的缓存（例如需要强制重新抓取时）
+     */
+    public void evict(String platform, String key) {
+        String cacheKey = cacheKey(platform, key);
+        localCache.remove(cacheKey);
+        if (crawlerProperties.getCache().isRedisEnabled()) {
+            try {
+                redisTemplate.delete(cacheKey);
+            } catch (Exception e) {
+                log.error("删除抓取结果缓存失败，key={}", cacheKey, e);
+            }
+        }
+    }
+
+    private PriceInfo getFromRedis(String cacheKey) {
+        try {
+            Object value = redisTemplate.opsForValue().get(cacheKey);
+            if (!(value instanceof PriceInfo priceInfo)) {
+                return null;
+            }
+            // 回填一级缓存，剩余有效期取 Redis 中的 TTL
+            Long ttlMs = redisTemplate.getExpire(cacheKey, TimeUnit.MILLISECONDS);
+            if (ttlMs != null && ttlMs > 0) {
+                localCache.put(cacheKey, priceInfo, ttlMs, TimeUnit.MILLISECONDS);
+            }
+            return priceInfo;
+        } catch (Exception e) {
+            log.error("读取抓取结果缓存失败，key={}", cacheKey, e);
+            return null;
+        }
+    }
+
+    private void record(String platform, String result) {
+        meterRegistry.counter("crawler.cache.requests", "platform", platform, "result", result).increment();
+    }
+
+    private static String cacheKey(String platform, String key) {
+        return PRICE_INFO_KEY + platform + ":" + key;
+    }
+
+    private static PriceInfo copyOf(PriceInfo source, PriceInfo.CacheStatus status) {
+        return PriceInfo.builder()
+                .currentPrice(source.getCurrentPrice())
+                .originalPrice(source.getOriginalPrice())
+                .discountRate(source.getDiscountRate())
+                .inStock(source.getInStock())
+                .title(source.getTitle())
+                .imageUrl(source.getImageUrl())
+                .errorMessage(source.getErrorMessage())
+                .failureType(source.getFailureType())
+                .notModified(source.getNotModified())
+                .cacheStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,374 @@
+package com.pricepulse.backend.service.cache;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.ProductBatchReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内价格 tick 存储
+ * <p>
+ * 按商品缓存最近 capacity 段价格（与 price_history 一样，每段为一次价格变化：开始时间、最后出现时间、价格分），
+ * 存放在固定大小的环形 LongBuffer 中（off-heap 开启时为堆外内存），不为每个点创建 PriceHistory 和 BigDecimal。
+ * 抓取流水线写回时同步更新，应用启动后在后台从数据库预热，最多缓存 max-products 个商品。
+ * 当前价格和最近价格段的读取不访问数据库，读取方法把结果写入调用方提供的数组，存储本身不分配对象
+ * （调用方复用数组时整个读取不分配）。
+ * <p>
+ * 价格变化由其他实例写入时（抓取 worker、分区调度），本实例看不到这些写入：max-staleness-ms 大于 0 时，
+ * 超过该时长没有写入或重新加载的商品视为过期，读取方改为查库并重新加载。未配置（-1）时，开启抓取任务队列
+ * （crawler.queue.enabled）或分区调度（scheduler.partition.enabled）按 {@link #DISTRIBUTED_STALENESS_MS} 过期，否则不过期。
+ * <p>
+ * 指标：price.ticks.products（缓存的商品数）、price.ticks.requests（result=hit/miss 标签）
+ */
+@Component
+@Slf4j
+public class PriceTickStore {
+
+    /**
+     * 没有缓存价格时 {@link #latestCents} 的返回值
+     */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    /**
+     * 抓取在其他实例执行时默认的过期时长（毫秒）
+     */
+    static final long DISTRIBUTED_STALENESS_MS = 60_000;
+
+    @Autowired
+    private PriceHistoryMapper priceHistoryMapper;
+
+    @Autowired
+    private ProductBatchReader productBatchReader;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${price-tick.enabled:true}")
+    private boolean enabled;
+
+    @Value("${price-tick.capacity:64}")
+    private int capacity;
+
+    @Value("${price-tick.max-products:10000}")
+    private int maxProducts;
+
+    @Value("${price-tick.off-heap:false}")
+    private boolean offHeap;
+
+    @Value("${price-tick.warm-on-startup:true}")
+    private boolean warmOnStartup;
+
+    @Value("${price-tick.max-staleness-ms:-1}")
+    private long maxStalenessMs;
+
+    @Value("${crawler.queue.enabled:false}")
+    private boolean queueEnabled;
+
+    @Value("${scheduler.partition.enabled:false}")
+    private boolean partitionEnabled;
+
+    private final Map<Long, Ticks> ticks = new ConcurrentHashMap<>();
+
+    private Counter hits;
+
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        if (maxStalenessMs < 0) {
+            maxStalenessMs = queueEnabled || partitionEnabled ? DISTRIBUTED_STALENESS_MS : 0;
+        }
+        if (enabled && maxStalenessMs > 0) {
+            log.info("价格 tick 存储按 {} ms 过期", maxStalenessMs);
+        }
+        hits = meterRegistry.counter("price.ticks.requests", "result", "hit");
+        misses = meterRegistry.counter("price.ticks.requests", "result", "miss");
+        Gauge.builder("price.ticks.products", ticks, Map::size)
+                .description("tick 存储中缓存的商品数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        if (!enabled || !warmOnStartup) {
+            return;
+        }
+        Thread.ofVirtual().name("price-tick-warmup").start(() -> {
+            try {
+                log.info("价格 tick 存储预热完成，共 {} 个商品", warm());
+            } catch (Exception e) {
+                log.error("价格 tick 存储预热失败", e);
+            }
+        });
+    }
+
+    /**
+     * 按商品批次从数据库加载每个商品最近 capacity 段价格，直到缓存满，返回缓存的商品数
+     */
+    public int warm() {
+        productBatchReader.forEachBatch(batch -> {
+            if (ticks.size() >= maxProducts) {
+                return;
+            }
+            List<Long> productIds = batch.stream().map(Product::getId).toList();
+            Map<Long, List<PriceHistory>> byProduct = new HashMap<>();
+            for (PriceHistory record : priceHistoryMapper.selectRecentByProductIds(productIds, capacity)) {
+                byProduct.computeIfAbsent(record.getProductId(), id -> new ArrayList<>()).add(record);
+            }
+            byProduct.forEach(this::replace);
+        });
+        return ticks.size();
+    }
+
+    /**
+     * 从数据库重新加载一个商品，返回是否已缓存
+     */
+    public boolean load(long productId) {
+        if (!enabled) {
+            return false;
+        }
+        replace(productId, priceHistoryMapper.selectRecent(productId, capacity));
+        return ticks.containsKey(productId);
+    }
+
+    /**
+     * 价格变化：开始新的一段
+     */
+    public void record(long productId, BigDecimal price, LocalDateTime checkedAt) {
+        if (!enabled || price == null || checkedAt == null) {
+            return;
+        }
+        Ticks entry = ticks.get(productId);
+        if (entry == null) {
+            if (ticks.size() >= maxProducts) {
+                return;
+            }
+            entry = ticks.computeIfAbsent(productId, id -> new Ticks(allocate()));
+        }
+        entry.append(second(checkedAt), second(checkedAt), cents(price));
+    }
+
+    /**
+     * 价格未变化：延长最新一段的最后出现时间；缓存的最新价格与之不符时说明缓存已过时，丢弃该商品
+     */
+    public void touch(long productId, BigDecimal price, LocalDateTime seenAt) {
+        if (!enabled || price == null || seenAt == null) {
+            return;
+        }
+        Ticks entry = ticks.get(productId);
+        if (entry != null && !entry.extend(cents(price), second(seenAt))) {
+            ticks.remove(productId, entry);
+        }
+    }
+
+    public void remove(long productId) {
+        ticks.remove(productId);
+    }
+
+    /**
+     * 缓存的最新价格（分），未缓存或已过期时返回 {@link #NO_PRICE}
+     */
+    public long latestCents(long productId) {
+        Ticks entry = fresh(productId);
+        return entry != null ? entry.latestCents() : NO_PRICE;
+    }
+
+    /**
+     * 把最近的价格段（按时间升序）写入调用方提供的数组，最多 starts.length 段，返回写入的段数；
+     * 未缓存或已过期时返回 -1
+     */
+    public int readRecent(long productId, long[] starts, long[] lastSeens, long[] cents) {
+        Ticks entry = fresh(productId);
+        return entry != null ? entry.copyRecent(starts, lastSeens, cents) : -1;
+    }
+
+    /**
+     * 最近 count 段中价格变化的次数；未缓存、已过期或不足两段时返回 -1
+     */
+    public int countRecentChanges(long productId, int count) {
+        Ticks entry = fresh(productId);
+        return entry != null ? entry.countChanges(count) : -1;
+    }
+
+    private Ticks fresh(long productId) {
+        Ticks entry = enabled ? ticks.get(productId) : null;
+        if (entry != null && maxStalenessMs > 0
+                && System.nanoTime() - entry.refreshedNanos > maxStalenessMs * 1_000_000) {
+            entry = null;
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    /**
+     * 用数据库中的记录（按时间倒序）替换商品的缓存；缓存中还没写回数据库的最新一段保留
+     */
+    private void replace(Long productId, List<PriceHistory> recent) {
+        if (recent.isEmpty()) {
+            ticks.remove(productId);
+            return;
+        }
+        Ticks previous = ticks.get(productId);
+        if (previous == null && ticks.size() >= maxProducts) {
+            return;
+        }
+        Ticks entry = new Ticks(allocate());
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            PriceHistory record = recent.get(i);
+            LocalDateTime lastSeen = record.getLastSeenAt() != null ? record.getLastSeenAt() : record.getCheckedAt();
+            entry.append(second(record.getCheckedAt()), second(lastSeen), cents(record.getPrice()));
+        }
+        if (previous != null) {
+            previous.appendLatestTo(entry);
+        }
+        ticks.put(productId, entry);
+    }
+
+    private LongBuffer allocate() {
+        int longs = capacity * Ticks.STRIDE;
+        return offHeap
+                ? ByteBuffer.allocateDirect(longs * Long.BYTES).asLongBuffer()
+                : LongBuffer.allocate(longs);
+    }
+
+    public static long second(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime time(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    public static long cents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * 一个商品的环形缓冲区：每段占 STRIDE 个 long（开始时间、最后出现时间、价格分）
+     */
+    static final class Ticks {
+
+        static final int STRIDE = 3;
+
+        private final LongBuffer slots;
+
+        private final int capacity;
+
+        /**
+         * 下一段写入的位置
+         */
+        private int head;
+
+        private int size;
+
+        private volatile long refreshedNanos = System.nanoTime();
+
+        Ticks(LongBuffer slots) {
+            this.slots = slots;
+            this.capacity = slots.capacity() / STRIDE;
+        }
+
+        synchronized void append(long start, long lastSeen, long cents) {
+            if (size > 0 && start <= slots.get(index(size - 1))) {
+                // 与已有的最新一段同时或更早开始（重复写入），只延长
+                extend(cents, lastSeen);
+                return;
+            }
+            int base = head * STRIDE;
+            slots.put(base, start);
+            slots.put(base + 1, lastSeen);
+            slots.put(base + 2, cents);
+            head = (head + 1) % capacity;
+            size = Math.min(size + 1, capacity);
+            refreshedNanos = System.nanoTime();
+        }
+
+        /**
+         * 最新一段价格为 cents 时延长其最后出现时间，否则返回 false
+         */
+        synchronized boolean extend(long cents, long seenAt) {
+            if (size == 0 || slots.get(index(size - 1) + 2) != cents) {
+                return false;
+            }
+            int base = index(size - 1);
+            if (seenAt > slots.get(base + 1)) {
+                slots.put(base + 1, seenAt);
+            }
+            refreshedNanos = System.nanoTime();
+            return true;
+        }
+
+        synchronized long latestCents() {
+            return size > 0 ? slots.get(index(size - 1) + 2) : NO_PRICE;
+        }
+
+        synchronized int copyRecent(long[] starts, long[] lastSeens, long[] cents) {
+            int n = Math.min(size, Math.min(starts.length, Math.min(lastSeens.length, cents.length)));
+            for (int i = 0; i < n; i++) {
+                int base = index(size - n + i);
+                starts[i] = slots.get(base);
+                lastSeens[i] = slots.get(base + 1);
+                cents[i] = slots.get(base + 2);
+            }
+            return n;
+        }
+
+        synchronized int countChanges(int count) {
+            int n = Math.min(size, count);
+            if (n < 2) {
+                return -1;
+            }
+            int changes = 0;
+            for (int i = size - n + 1; i < size; i++) {
+                if (slots.get(index(i) + 2) != slots.get(index(i - 1) + 2)) {
+                    changes++;
+                }
+            }
+            return changes;
+        }
+
+        synchronized void appendLatestTo(Ticks target) {
+            if (size > 0) {
+                int base = index(size - 1);
+                target.append(slots.get(base), slots.get(base + 1), slots.get(base + 2));
+            }
+        }
+
+        /**
+         * 第 i 段（0 为最早的一段）在缓冲区中的起始下标
+         */
+        private int index(int i) {
+            return Math.floorMod(head - size + i, capacity) * STRIDE;
+        }
+    }
+}
@@ -1,16 +1,337 @@
 package com.pricepulse.backend.service.crawler;
 
 import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.service.cache.PriceInfoCacheService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 爬虫服务抽象基类
+ * <p>
+ * 抓取前先查 {@link PriceInfoCacheService}（按 {@link #canonicalKey} 命中则不再请求平台），
+ * 未命中时从 {@link CrawlRateLimiter} 拿到所属平台的许可后再抓取，实际抓取的结果写回缓存。
+ * 批量抓取时，{@link #getMaxBatchSize()} 大于 1 的平台按批调用 {@link #doCrawlPrices}，每批只占用一个许可；
+ * 批量请求失败时整批直接失败，批量结果中缺失的商品逐个抓取，每个单独占用许可。
+ * 异步抓取在虚拟线程上执行并绑定 {@link CrawlDeadline}，到期时中断执行线程并返回超时结果（超时结果不缓存）。
+ * 限流之前先经过平台的 {@link CrawlCircuitBreaker}：熔断期间直接返回 CIRCUIT_OPEN 失败，不再请求平台；
+ * 每次实际请求的耗时和结果（包括子类通过 {@link #markUpstreamFailure()} 报告的接口失败降级）计入熔断统计
  */
 @Slf4j
 public abstract class AbstractCrawlerService implements CrawlerService {
 
+    /**
+     * extractProductId 无法识别商品时的返回值
+     */
+    protected static final String UNKNOWN_PRODUCT_ID = "未知商品";
+
+    /**
+     * 异步抓取使用的执行器（所有平台共用，每次抓取一个虚拟线程）
+     */
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 当前线程上这次抓取是否发生了平台接口失败（子类改用其他方式抓取等情况）
+     */
+    private static final ThreadLocal<Boolean> UPSTREAM_FAILED = new ThreadLocal<>();
+
+    @Autowired
+    private CrawlRateLimiter rateLimiter;
+
+    @Autowired
+    private CrawlCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private PriceInfoCacheService priceInfoCache;
+
     @Override
     public PriceInfo crawlPrice(String url) {
+        String cacheKey = canonicalKey(url);
+        PriceInfo cached = priceInfoCache.get(getPlatform(), cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return crawlUncached(url, cacheKey);
+    }
+
+    @Override
+    public CompletableFuture<PriceInfo> crawlPriceAsync(String url, Duration timeout) {
+        String cacheKey = canonicalKey(url);
+        PriceInfo cached = priceInfoCache.get(getPlatform(), cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CrawlDeadline deadline = CrawlDeadline.after(timeout);
+        CompletableFuture<PriceInfo> result = new CompletableFuture<>();
+        Future<?> task = ASYNC_EXECUTOR.submit(() -> {
+            try {
+                result.complete(deadline.call(() -> crawlUncached(url, cacheKey)));
+            } catch (Exception e) {
+                result.complete(PriceInfo.builder()
+                        .errorMessage("抓取失败：" + e.getMessage())
+                        .failureType(PriceInfo.FailureType.ERROR)
+                        .build());
+            }
+        });
+
+        // 到期未完成时返回超时结果，并中断仍在进行的请求
+        result.completeOnTimeout(timedOut(timeout), timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((priceInfo, error) -> task.cancel(true));
+        return result;
+    }
+
+    @Override
+    public Map<String, PriceInfo> crawlPrices(Collection<String> urls) {
+        Map<String, PriceInfo> results = new LinkedHashMap<>();
+        Map<String, String> cacheKeys = new LinkedHashMap<>();
+        for (String url : new LinkedHashSet<>(urls)) {
+            String cacheKey = canonicalKey(url);
+            PriceInfo cached = priceInfoCache.get(getPlatform(), cacheKey);
+            if (cached != null) {
+                results.put(url, cached);
+            } else {
+                cacheKeys.put(url, cacheKey);
+            }
+        }
+
+        int batchSize = getMaxBatchSize();
+        if (batchSize <= 1) {
+            cacheKeys.forEach((url, cacheKey) -> results.put(url, crawlUncached(url, cacheKey)));
+            return results;
+        }
+
+        List<String> pending = new ArrayList<>(cacheKeys.keySet());
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<String> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            results.putAll(crawlChunk(chunk, cacheKeys));
+        }
+        return results;
+    }
+
+    private PriceInfo crawlUncached(String url, String cacheKey) {
+        if (!circuitBreaker.tryAcquire(getPlatform())) {
+            return circuitOpen();
+        }
+
+        CrawlRateLimiter.Permit permit;
+        try {
+            permit = rateLimiter.acquire(getPlatform());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release(getPlatform());
+            return interrupted();
+        }
+        if (permit == null) {
+            circuitBreaker.release(getPlatform());
+            return permitTimeout();
+        }
+
+        try (permit) {
+            return guardedCrawl(url, cacheKey);
+        }
+    }
+
+    /**
+     * 抓取一批链接：能识别商品 ID 的合并为一次批量请求（占用一个许可、计一次熔断调用）；
+     * 批量请求失败时这些商品直接返回失败，不再逐个请求；批量结果中缺失的和无法识别的逐个抓取，每个都单独限流和计入熔断
+     */
+    private Map<String, PriceInfo> crawlChunk(List<String> urls, Map<String, String> cacheKeys) {
+        Map<String, String> productIds = new LinkedHashMap<>();
+        Map<String, String> urlsByProductId = new LinkedHashMap<>();
+        for (String url : urls) {
+            String productId = safeExtractProductId(url);
+            if (productId != null) {
+                productIds.put(url, productId);
+                urlsByProductId.putIfAbsent(productId, url);
+            }
+        }
+
+        BatchResult batch = urlsByProductId.isEmpty() ? new BatchResult(Map.of(), null) : crawlBatch(urlsByProductId);
+        Map<String, PriceInfo> results = new LinkedHashMap<>();
+        for (String url : urls) {
+            String productId = productIds.get(url);
+            PriceInfo priceInfo = productId != null ? batch.prices().get(productId) : null;
+            if (priceInfo != null) {
+                priceInfoCache.put(getPlatform(), cacheKeys.get(url), priceInfo);
+                results.put(url, markMiss(priceInfo));
+            } else if (productId != null && batch.failure() != null) {
+                results.put(url, batch.failure().get());
+            } else {
+                results.put(url, crawlUncached(url, cacheKeys.get(url)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 在一个许可内发出一次批量请求；熔断、限流或请求失败时返回的 failure 为每个商品生成失败结果（不缓存）
+     */
+    private BatchResult crawlBatch(Map<String, String> urlsByProductId) {
+        if (!circuitBreaker.tryAcquire(getPlatform())) {
+            return new BatchResult(Map.of(), this::circuitOpen);
+        }
+
+        CrawlRateLimiter.Permit permit;
+        try {
+            permit = rateLimiter.acquire(getPlatform());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release(getPlatform());
+            return new BatchResult(Map.of(), AbstractCrawlerService::interrupted);
+        }
+        if (permit == null) {
+            circuitBreaker.release(getPlatform());
+            return new BatchResult(Map.of(), this::permitTimeout);
+        }
+
+        long start = System.nanoTime();
+        UPSTREAM_FAILED.remove();
+        boolean failed = true;
+        try (permit) {
+            log.info("【{}爬虫】批量抓取 {} 个商品价格", getPlatformName(), urlsByProductId.size());
+            Map<String, PriceInfo> prices = doCrawlPrices(urlsByProductId);
+            failed = Boolean.TRUE.equals(UPSTREAM_FAILED.get());
+            return failed ? new BatchResult(Map.of(), this::batchFailed) : new BatchResult(prices, null);
+        } catch (Exception e) {
+            log.error("【{}爬虫】批量抓取失败", getPlatformName(), e);
+            return new BatchResult(Map.of(), this::batchFailed);
+        } finally {
+            circuitBreaker.record(getPlatform(), System.nanoTime() - start, failed);
+            UPSTREAM_FAILED.remove();
+        }
+    }
+
+    @Override
+    public PriceInfo tryCrawlPrice(String url) {
+        String cacheKey = canonicalKey(url);
+        PriceInfo cached = priceInfoCache.get(getPlatform(), cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (!circuitBreaker.tryAcquire(getPlatform())) {
+            return circuitOpen();
+        }
+
+        CrawlRateLimiter.Permit permit = rateLimiter.tryAcquire(getPlatform());
+        if (permit == null) {
+            circuitBreaker.release(getPlatform());
+            log.debug("【{}爬虫】限流许可不足，跳过：{}", getPlatformName(), url);
+            return PriceInfo.builder()
+                    .errorMessage("抓取失败：" + getPlatformName() + "请求过于频繁，请稍后再试")
+                    .failureType(PriceInfo.FailureType.RATE_LIMITED)
+                    .build();
+        }
+
+        try (permit) {
+            return guardedCrawl(url, cacheKey);
+        }
+    }
+
+    /**
+     * 实际抓取一次，并把耗时和结果计入熔断统计
+     */
+    private PriceInfo guardedCrawl(String url, String cacheKey) {
+        long start = System.nanoTime();
+        UPSTREAM_FAILED.remove();
+        PriceInfo priceInfo = null;
+        try {
+            priceInfo = doCrawl(url, cacheKey);
+            return priceInfo;
+        } finally {
+            boolean failed = priceInfo == null || priceInfo.getErrorMessage() != null
+                    || Boolean.TRUE.equals(UPSTREAM_FAILED.get());
+            circuitBreaker.record(getPlatform(), System.nanoTime() - start, failed);
+            UPSTREAM_FAILED.remove();
+        }
+    }
+
+    /**
+     * 子类在平台接口调用失败（超时、连接失败、5xx 等）并降级时调用，本次抓取计为熔断统计中的失败
+     */
+    protected void markUpstreamFailure() {
+        UPSTREAM_FAILED.set(Boolean.TRUE);
+    }
+
+    private PriceInfo doCrawl(String url, String cacheKey) {
+        PriceInfo priceInfo = crawl(url);
+        if (priceInfo.getErrorMessage() != null && priceInfo.getFailureType() == null) {
+            priceInfo.setFailureType(PriceInfo.FailureType.ERROR);
+        }
+        if (!CrawlDeadline.isCurrentExpired()) {
+            priceInfoCache.put(getPlatform(), cacheKey, priceInfo);
+        }
+        return markMiss(priceInfo);
+    }
+
+    /**
+     * 平台接口失败或未返回有效价格时的抓取结果：按失败处理（计入熔断统计、短期负缓存、不写库），不降级为模拟数据
+     */
+    protected PriceInfo upstreamFailed(String reason) {
+        return PriceInfo.builder()
+                .errorMessage("抓取失败：" + getPlatformName() + reason)
+                .failureType(PriceInfo.FailureType.ERROR)
+                .build();
+    }
+
+    private static PriceInfo markMiss(PriceInfo priceInfo) {
+        priceInfo.setCacheStatus(PriceInfo.CacheStatus.MISS);
+        return priceInfo;
+    }
+
+    private static PriceInfo interrupted() {
+        return PriceInfo.builder()
+                .errorMessage("抓取被中断")
+                .failureType(PriceInfo.FailureType.ERROR)
+                .build();
+    }
+
+    private PriceInfo timedOut(Duration timeout) {
+        return PriceInfo.builder()
+                .errorMessage("抓取超时：" + getPlatformName() + "在 " + timeout.toMillis() + " ms 内未返回结果")
+                .failureType(PriceInfo.FailureType.TIMEOUT)
+                .build();
+    }
+
+    private PriceInfo permitTimeout() {
+        return PriceInfo.builder()
+                .errorMessage("抓取失败：等待" + getPlatformName() + "限流许可超时")
+                .failureType(PriceInfo.FailureType.RATE_LIMITED)
+                .build();
+    }
+
+    private PriceInfo batchFailed() {
+        return PriceInfo.builder()
+                .errorMessage("抓取失败：" + getPlatformName() + "批量查询失败")
+                .failureType(PriceInfo.FailureType.ERROR)
+                .build();
+    }
+
+    private PriceInfo circuitOpen() {
+        long retryAfterSeconds = Math.max(1, circuitBreaker.retryAfter(getPlatform()).toSeconds());
+        return PriceInfo.builder()
+                .errorMessage("抓取失败：" + getPlatformName() + "暂时不可用，约 " + retryAfterSeconds + " 秒后重试")
+                .failureType(PriceInfo.FailureType.CIRCUIT_OPEN)
+                .build();
+    }
+
+    private PriceInfo crawl(String url) {
         try {
             log.info("【{}爬虫】开始抓取商品价格：{}", getPlatformName(), url);
 
@@ -27,19 +348,74 @@ public abstract class AbstractCrawlerService implements CrawlerService {
 
             return priceInfo;
 
+        } catch (CrawlTimeoutException e) {
+            log.warn("【{}爬虫】{}：{}", getPlatformName(), e.getMessage(), url);
+            return PriceInfo.builder()
+                    .errorMessage(e.getMessage())
+                    .failureType(PriceInfo.FailureType.TIMEOUT)
+                    .build();
         } catch (Exception e) {
             log.error("【{}爬虫】抓取失败：{}", getPlatformName(), url, e);
             return PriceInfo.builder()
                     .errorMessage("抓取失败：" + e.getMessage())
+                    .failureType(PriceInfo.FailureType.ERROR)
                     .build();
         }
     }
 
+    private String safeExtractProductId(String url) {
+        try {
+            String productId = extractProductId(url);
+            return productId != null && !productId.isBlank() && !UNKNOWN_PRODUCT_ID.equals(productId)
+                    ? productId
+                    : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 缓存键：能提取到商品 ID 时用商品 ID（同一商品的不同链接共用缓存），否则用去掉片段、统一大小写的 URL
+     */
+    protected String canonicalKey(String url) {
+        String productId = safeExtractProductId(url);
+        return productId != null ? "id:" + productId : "url:" + normalizeUrl(url);
+    }
+
+    private static String normalizeUrl(String url) {
+        if (url == null) {
+            return "";
+        }
+        String trimmed = url.trim();
+        try {
+            URI uri = URI.create(trimmed);
+            String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+            String path = uri.getRawPath() != null ? uri.getRawPath() : "";
+            String query = uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "";
+            return host + path + query;
+        } catch (IllegalArgumentException e) {
+            return trimmed;
+        }
+    }
+
     /**
      * 执行实际的价格抓取逻辑
      */
     protected abstract PriceInfo doCrawlPrice(String productId, String url);
 
+    /**
+     * 批量抓取（getMaxBatchSize() 大于 1 时调用），一次请求查询多个商品
+     *
+     * @param urlsByProductId 商品 ID -> 商品链接
+     * @return 商品 ID -> 价格信息；缺失的商品会再逐个抓取。请求失败时抛出异常或调用 {@link #markUpstreamFailure()}，
+     * 整批按失败处理
+     */
+    protected Map<String, PriceInfo> doCrawlPrices(Map<String, String> urlsByProductId) {
+        Map<String, PriceInfo> results = new LinkedHashMap<>();
+        urlsByProductId.forEach((productId, url) -> results.put(productId, doCrawlPrice(productId, url)));
+        return results;
+    }
+
     /**
      * 获取平台名称（用于日志）
      */
@@ -49,4 +425,10 @@ public abstract class AbstractCrawlerService implements CrawlerService {
      * 从 URL 中提取商品 ID
      */
     protected abstract String extractProductId(String url);
+
+    /**
+     * 一次批量请求的结果：prices 为商品 ID -> 价格信息；请求失败时 failure 不为 null
+     */
+    private record BatchResult(Map<String, PriceInfo> prices, Supplier<PriceInfo> failure) {
+    }
 }
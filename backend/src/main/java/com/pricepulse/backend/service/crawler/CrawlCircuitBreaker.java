@@ -0,0 +1,275 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 按平台熔断器
+ * <p>
+ * 每个平台统计最近 window-size 次调用的失败率和慢调用率，任一达到阈值即熔断（OPEN）：
+ * 熔断期间的抓取直接失败，不再等待超时；open-duration-ms 之后进入半开（HALF_OPEN），放行 half-open-calls 次试探，
+ * 全部成功则恢复（CLOSED），任一失败或过慢则重新熔断。
+ * <p>
+ * 指标（均带 platform 标签）：crawler.circuit.state（0=关闭，1=半开，2=熔断）、
+ * crawler.circuit.rejected（熔断期间被拒绝的调用数）、crawler.circuit.transitions（状态切换次数，带 to 标签）
+ */
+@Component
+@Slf4j
+public class CrawlCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LongSupplier nanoClock = System::nanoTime;
+
+    private final Map<String, PlatformBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 申请一次调用；熔断中（或半开试探名额已满）返回 false。
+     * 返回 true 后必须调用 {@link #record} 或 {@link #release} 之一
+     */
+    public boolean tryAcquire(String platform) {
+        PlatformBreaker breaker = breakerFor(platform);
+        if (!breaker.config.isEnabled()) {
+            return true;
+        }
+        boolean permitted = breaker.tryAcquire(nanoClock.getAsLong());
+        if (!permitted) {
+            breaker.rejected.increment();
+        }
+        return permitted;
+    }
+
+    /**
+     * 记录一次调用结果
+     *
+     * @param elapsedNanos 调用耗时
+     * @param failed       是否失败（异常、超时或平台接口调用失败后降级）
+     */
+    public void record(String platform, long elapsedNanos, boolean failed) {
+        PlatformBreaker breaker = breakerFor(platform);
+        if (!breaker.config.isEnabled()) {
+            return;
+        }
+        boolean slow = elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(breaker.config.getSlowCallDurationMs());
+        breaker.record(nanoClock.getAsLong(), failed, slow);
+    }
+
+    /**
+     * 已申请但未实际调用（例如没拿到限流许可），归还半开试探名额
+     */
+    public void release(String platform) {
+        breakerFor(platform).release();
+    }
+
+    /**
+     * 熔断剩余时间，未熔断时为 0
+     */
+    public Duration retryAfter(String platform) {
+        return Duration.ofNanos(breakerFor(platform).remainingOpenNanos(nanoClock.getAsLong()));
+    }
+
+    public State stateOf(String platform) {
+        return breakerFor(platform).state;
+    }
+
+    /**
+     * 手动恢复平台（清空统计并关闭熔断）
+     */
+    public void reset(String platform) {
+        breakerFor(platform).transition(State.CLOSED, nanoClock.getAsLong());
+        log.info("平台 {} 熔断器已手动重置", platform);
+    }
+
+    /**
+     * 已初始化的各平台熔断器状态（按平台排序）
+     */
+    public List<Snapshot> snapshots() {
+        long now = nanoClock.getAsLong();
+        List<Snapshot> snapshots = new ArrayList<>();
+        new TreeMap<>(breakers).forEach((platform, breaker) -> snapshots.add(breaker.snapshot(platform, now)));
+        return snapshots;
+    }
+
+    private PlatformBreaker breakerFor(String platform) {
+        return breakers.computeIfAbsent(platform, this::createBreaker);
+    }
+
+    private PlatformBreaker createBreaker(String platform) {
+        CrawlerProperties.Breaker config = crawlerProperties.getCircuitBreaker().breakerOf(platform);
+        PlatformBreaker breaker = new PlatformBreaker(platform, config);
+        Gauge.builder("crawler.circuit.state", breaker, b -> b.state.ordinal())
+                .description("熔断器状态（0=关闭，1=半开，2=熔断）")
+                .tag("platform", platform)
+                .register(meterRegistry);
+        return breaker;
+    }
+
+    /**
+     * 熔断器状态快照
+     *
+     * @param failureRate   窗口内失败率（百分比）
+     * @param slowCallRate  窗口内慢调用率（百分比）
+     * @param bufferedCalls 窗口内的调用数
+     * @param retryAfterMs  熔断剩余时间（毫秒）
+     */
+    public record Snapshot(String platform, State state, double failureRate, double slowCallRate,
+                           int bufferedCalls, long retryAfterMs) {
+    }
+
+    private final class PlatformBreaker {
+
+        private final String platform;
+
+        private final CrawlerProperties.Breaker config;
+
+        private final boolean[] failures;
+
+        private final boolean[] slowCalls;
+
+        private final Counter rejected;
+
+        private volatile State state = State.CLOSED;
+
+        private int next;
+
+        private int size;
+
+        private int failureCount;
+
+        private int slowCount;
+
+        private long openedAtNanos;
+
+        private int halfOpenInFlight;
+
+        private int halfOpenSuccesses;
+
+        private PlatformBreaker(String platform, CrawlerProperties.Breaker config) {
+            int windowSize = Math.max(1, config.getWindowSize());
+            this.platform = platform;
+            this.config = config;
+            this.failures = new boolean[windowSize];
+            this.slowCalls = new boolean[windowSize];
+            this.rejected = Counter.builder("crawler.circuit.rejected")
+                    .description("熔断期间被拒绝的调用数")
+                    .tag("platform", platform)
+                    .register(meterRegistry);
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (remainingOpenNanos(now) > 0) {
+                    return false;
+                }
+                transition(State.HALF_OPEN, now);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenInFlight + halfOpenSuccesses >= Math.max(1, config.getHalfOpenCalls())) {
+                    return false;
+                }
+                halfOpenInFlight++;
+            }
+            return true;
+        }
+
+        synchronized void record(long now, boolean failed, boolean slow) {
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                if (failed || slow) {
+                    transition(State.OPEN, now);
+                } else if (++halfOpenSuccesses >= Math.max(1, config.getHalfOpenCalls())) {
+                    transition(State.CLOSED, now);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // 熔断前已放行的调用，结果不再计入
+                return;
+            }
+
+            if (size == failures.length) {
+                failureCount -= failures[next] ? 1 : 0;
+                slowCount -= slowCalls[next] ? 1 : 0;
+            } else {
+                size++;
+            }
+            failures[next] = failed;
+            slowCalls[next] = slow;
+            failureCount += failed ? 1 : 0;
+            slowCount += slow ? 1 : 0;
+            next = (next + 1) % failures.length;
+
+            if (size >= Math.max(1, config.getMinimumCalls())
+                    && (rate(failureCount) >= config.getFailureRateThreshold()
+                    || rate(slowCount) >= config.getSlowCallRateThreshold())) {
+                log.warn("平台 {} 熔断：失败率 {}%，慢调用率 {}%（最近 {} 次调用）",
+                        platform, rate(failureCount), rate(slowCount), size);
+                transition(State.OPEN, now);
+            }
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            }
+        }
+
+        synchronized long remainingOpenNanos(long now) {
+            if (state != State.OPEN) {
+                return 0;
+            }
+            long openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs());
+            return Math.max(0, openedAtNanos + openNanos - now);
+        }
+
+        synchronized void transition(State target, long now) {
+            State previous = state;
+            state = target;
+            next = 0;
+            size = 0;
+            failureCount = 0;
+            slowCount = 0;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+            if (target == State.OPEN) {
+                openedAtNanos = now;
+            }
+            if (previous != target) {
+                meterRegistry.counter("crawler.circuit.transitions", "platform", platform, "to", target.name())
+                        .increment();
+                log.info("平台 {} 熔断器状态：{} -> {}", platform, previous, target);
+            }
+        }
+
+        synchronized Snapshot snapshot(String platform, long now) {
+            return new Snapshot(platform, state, rate(failureCount), rate(slowCount), size,
+                    TimeUnit.NANOSECONDS.toMillis(remainingOpenNanos(now)));
+        }
+
+        private double rate(int count) {
+            return size == 0 ? 0 : Math.round(count * 10000.0 / size) / 100.0;
+        }
+    }
+}
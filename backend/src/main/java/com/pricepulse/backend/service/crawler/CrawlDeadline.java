@@ -0,0 +1,91 @@
+package com.pricepulse.backend.service.crawler;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * 单次抓取的截止时间
+ * <p>
+ * 异步抓取（{@link CrawlerService#crawlPriceAsync}）和 {@link CrawlExecutor} 发起的抓取在执行线程上绑定截止时间，
+ * 抓取链路上的各个环节（限流等待、每次 HTTP 请求、搜索兜底、移动端页面兜底）通过 {@link #clamp} 收紧自身超时，
+ * 在开始下一个环节前通过 {@link #checkCurrent} 检查是否已超时。定时任务还在调度线程上绑定一轮抓取的截止时间，
+ * 由 CrawlExecutor 在提交时读取。未绑定截止时间的同步抓取不受影响。
+ */
+public final class CrawlDeadline {
+
+    private static final ThreadLocal<CrawlDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private CrawlDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static CrawlDeadline after(Duration timeout) {
+        return new CrawlDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * 当前线程绑定的截止时间，没有时返回 null
+     */
+    public static CrawlDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程绑定截止时间后执行任务
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        CrawlDeadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 取 timeout 与当前截止时间剩余时长中较小的一个（当前线程没有截止时间时原样返回）
+     */
+    public static Duration clamp(Duration timeout) {
+        CrawlDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return timeout;
+        }
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    /**
+     * 当前截止时间已过时抛出 {@link CrawlTimeoutException}
+     *
+     * @param stage 即将开始的环节（用于错误信息）
+     */
+    public static void checkCurrent(String stage) {
+        CrawlDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new CrawlTimeoutException("抓取超时，已跳过" + stage);
+        }
+    }
+
+    /**
+     * 当前线程是否有已过期的截止时间
+     */
+    public static boolean isCurrentExpired() {
+        CrawlDeadline deadline = CURRENT.get();
+        return deadline != null && deadline.isExpired();
+    }
+}
@@ -0,0 +1,284 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 并发抓取执行器
+ * <p>
+ * 每个抓取任务运行在独立的虚拟线程上，并按平台（jd/pdd/taobao）限制同时进行的抓取数量。
+ * 批量任务先全部提交再统一汇总结果，整轮耗时取决于最慢平台的并发预算，而不是所有请求耗时之和。
+ * 支持批量查询的平台（{@link CrawlerService#getMaxBatchSize()} 大于 1）按平台分组、分批，每批一个任务、一次请求。
+ * <p>
+ * 每次抓取（单个商品或一批商品）不超过 crawler.budget 中的平台时限；提交时调用线程绑定了 {@link CrawlDeadline}（一轮抓取的截止时间）的，
+ * 等待并发名额和抓取本身都不超过该截止时间。截止时间绑定到抓取线程，限流等待和每次 HTTP 请求随之收紧，
+ * 到期未完成的抓取被中断并记为超时（FailureType.TIMEOUT）。
+ * <p>
+ * 指标：crawler.budget.exhausted（platform、scope=product/cycle 标签，因时限用完而放弃的抓取次数）
+ */
+@Component
+@Slf4j
+public class CrawlExecutor {
+
+    @Autowired
+    private CrawlerStrategyFactory crawlerFactory;
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, Semaphore> platformPermits = new ConcurrentHashMap<>();
+
+    /**
+     * 并发抓取一批商品，返回顺序与传入顺序一致
+     */
+    public List<CrawlResult> crawlAll(List<Product> products) {
+        List<CompletableFuture<CrawlResult>> futures = crawlAllAsync(products);
+
+        List<CrawlResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<CrawlResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * 异步抓取一批商品：按平台分组，支持批量查询的平台按批抓取，其余逐个抓取；返回顺序与传入顺序一致
+     */
+    public List<CompletableFuture<CrawlResult>> crawlAllAsync(List<Product> products) {
+        CrawlDeadline cycle = CrawlDeadline.current();
+        List<CompletableFuture<CrawlResult>> futures = new ArrayList<>(products.size());
+        Map<CrawlerService, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            futures.add(null);
+            CrawlerService crawler = resolveCrawler(product);
+            if (crawler == null || crawler.getMaxBatchSize() <= 1) {
+                futures.set(i, CompletableFuture.supplyAsync(() -> crawl(product, cycle), executor));
+            } else {
+                groups.computeIfAbsent(crawler, c -> new ArrayList<>()).add(i);
+            }
+        }
+
+        groups.forEach((crawler, indexes) -> {
+            int batchSize = crawler.getMaxBatchSize();
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+                List<Product> chunkProducts = chunk.stream().map(products::get).toList();
+                CompletableFuture<List<CrawlResult>> batch =
+                        CompletableFuture.supplyAsync(() -> crawlBatch(crawler, chunkProducts, cycle), executor);
+                for (int j = 0; j < chunk.size(); j++) {
+                    int position = j;
+                    futures.set(chunk.get(j), batch.thenApply(results -> results.get(position)));
+                }
+            }
+        });
+        return futures;
+    }
+
+    /**
+     * 在当前线程批量抓取同一平台的一批商品（整批占用一个平台并发名额）
+     */
+    private List<CrawlResult> crawlBatch(CrawlerService crawler, List<Product> products, CrawlDeadline cycle) {
+        String platform = crawler.getPlatform();
+        List<CrawlResult> results = new ArrayList<>(products.size());
+        Semaphore permits = permitsFor(platform);
+        try {
+            if (!acquire(permits, cycle)) {
+                products.forEach(product -> results.add(budgetExhausted(product, platform, "cycle", 0L)));
+                return results;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            products.forEach(product -> results.add(CrawlResult.failed(product, platform, "抓取被中断")));
+            return results;
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<String> urls = products.stream().map(Product::getUrl).toList();
+            Map<String, PriceInfo> priceInfos = callWithin(budgetOf(platform, cycle), () -> crawler.crawlPrices(urls));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            for (Product product : products) {
+                PriceInfo priceInfo = priceInfos.get(product.getUrl());
+                results.add(priceInfo != null
+                        ? new CrawlResult(product, platform, priceInfo, elapsedMillis)
+                        : CrawlResult.failed(product, platform, "批量抓取未返回结果"));
+            }
+        } catch (TimeoutException e) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            String scope = scopeOf(cycle);
+            log.warn("平台 {} 批量抓取 {} 个商品超时（{} ms）", platform, products.size(), elapsedMillis);
+            products.forEach(product -> results.add(budgetExhausted(product, platform, scope, elapsedMillis)));
+        } catch (Exception e) {
+            log.error("平台 {} 批量抓取 {} 个商品异常", platform, products.size(), e);
+            results.clear();
+            products.forEach(product -> results.add(CrawlResult.failed(product, platform, "抓取异常：" + e.getMessage())));
+        } finally {
+            permits.release();
+        }
+        return results;
+    }
+
+    /**
+     * 商品链接对应的爬虫，链接为空或平台不受支持时返回 null
+     */
+    private CrawlerService resolveCrawler(Product product) {
+        String url = product.getUrl();
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        try {
+            return crawlerFactory.getCrawler(url);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在虚拟线程上异步抓取单个商品
+     */
+    public CompletableFuture<CrawlResult> crawlAsync(Product product) {
+        CrawlDeadline cycle = CrawlDeadline.current();
+        return CompletableFuture.supplyAsync(() -> crawl(product, cycle), executor);
+    }
+
+    /**
+     * 在当前线程抓取单个商品（受平台并发上限和抓取时限约束）
+     */
+    public CrawlResult crawl(Product product) {
+        return crawl(product, CrawlDeadline.current());
+    }
+
+    private CrawlResult crawl(Product product, CrawlDeadline cycle) {
+        String url = product.getUrl();
+        if (url == null || url.isEmpty()) {
+            log.warn("商品 {} 缺少 URL，跳过", product.getName());
+            return CrawlResult.failed(product, null, "商品缺少 URL");
+        }
+
+        CrawlerService crawler;
+        try {
+            crawler = crawlerFactory.getCrawler(url);
+        } catch (UnsupportedOperationException e) {
+            log.warn("商品 {} 的链接平台不受支持：{}", product.getName(), url);
+            return CrawlResult.failed(product, null, e.getMessage());
+        }
+
+        String platform = crawler.getPlatform();
+        Semaphore permits = permitsFor(platform);
+        try {
+            if (!acquire(permits, cycle)) {
+                return budgetExhausted(product, platform, "cycle", 0L);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CrawlResult.failed(product, platform, "抓取被中断");
+        }
+
+        long start = System.nanoTime();
+        try {
+            PriceInfo priceInfo = callWithin(budgetOf(platform, cycle), () -> crawler.crawlPrice(url));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new CrawlResult(product, platform, priceInfo, elapsedMillis);
+        } catch (TimeoutException e) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            log.warn("抓取商品 {} 价格超时（{} ms）", product.getName(), elapsedMillis);
+            return budgetExhausted(product, platform, scopeOf(cycle), elapsedMillis);
+        } catch (Exception e) {
+            log.error("抓取商品 {} 价格异常", product.getName(), e);
+            return CrawlResult.failed(product, platform, "抓取异常：" + e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 获取平台并发名额；有本轮截止时间时最多等到截止时间，到期返回 false
+     */
+    private static boolean acquire(Semaphore permits, CrawlDeadline cycle) throws InterruptedException {
+        if (cycle == null) {
+            permits.acquire();
+            return true;
+        }
+        return permits.tryAcquire(cycle.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 本次抓取的时限：平台时限与本轮剩余时间中较小的一个
+     */
+    private Duration budgetOf(String platform, CrawlDeadline cycle) {
+        Duration budget = Duration.ofMillis(crawlerProperties.getBudget().productTimeoutOf(platform));
+        if (cycle == null) {
+            return budget;
+        }
+        Duration remaining = cycle.remaining();
+        return remaining.compareTo(budget) < 0 ? remaining : budget;
+    }
+
+    /**
+     * 在新的虚拟线程上绑定截止时间执行抓取，并在当前线程最多等待 timeout；到期后中断抓取并抛出 TimeoutException
+     */
+    private <T> T callWithin(Duration timeout, Callable<T> task) throws Exception {
+        if (timeout.isZero()) {
+            throw new TimeoutException();
+        }
+        CrawlDeadline deadline = CrawlDeadline.after(timeout);
+        Future<T> future = executor.submit(() -> deadline.call(task));
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    private static String scopeOf(CrawlDeadline cycle) {
+        return cycle != null && cycle.isExpired() ? "cycle" : "product";
+    }
+
+    private CrawlResult budgetExhausted(Product product, String platform, String scope, long elapsedMillis) {
+        meterRegistry.counter("crawler.budget.exhausted", "platform", platform, "scope", scope).increment();
+        String message = "cycle".equals(scope)
+                ? "抓取超时：本轮抓取时间已用完"
+                : "抓取超时：超过单次抓取时限 " + crawlerProperties.getBudget().productTimeoutOf(platform) + " ms";
+        return CrawlResult.timedOut(product, platform, message, elapsedMillis);
+    }
+
+    private Semaphore permitsFor(String platform) {
+        return platformPermits.computeIfAbsent(platform,
+                p -> new Semaphore(crawlerProperties.getExecutor().concurrencyOf(p), true));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
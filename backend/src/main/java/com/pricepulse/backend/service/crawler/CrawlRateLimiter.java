@@ -0,0 +1,234 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按平台限流器
+ * <p>
+ * 每个平台一个令牌桶（速率 + 突发容量）和一个在途请求上限，所有 CrawlerService 的抓取都要先拿到许可。
+ * 调用方可以阻塞等待（{@link #acquire}）或立即尝试（{@link #tryAcquire}），拿到的 {@link Permit} 用完后必须关闭。
+ * <p>
+ * 指标（均带 platform 标签）：
+ * crawler.ratelimit.wait（等待耗时）、crawler.ratelimit.rejected（未拿到许可次数）、
+ * crawler.ratelimit.in.flight（在途请求数）、crawler.ratelimit.saturation（在途占比）、crawler.ratelimit.tokens（剩余令牌）
+ */
+@Component
+@Slf4j
+public class CrawlRateLimiter {
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, PlatformLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 阻塞等待许可，最长等待 crawler.rate-limit.max-wait-ms（当前线程有 {@link CrawlDeadline} 时不超过其剩余时间）
+     *
+     * @return 许可；等待超时返回 null
+     */
+    public Permit acquire(String platform) throws InterruptedException {
+        Duration maxWait = CrawlDeadline.clamp(Duration.ofMillis(crawlerProperties.getRateLimit().getMaxWaitMs()));
+        return acquire(platform, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 阻塞等待许可，最长等待指定时间
+     *
+     * @return 许可；等待超时返回 null
+     */
+    public Permit acquire(String platform, long timeout, TimeUnit unit) throws InterruptedException {
+        PlatformLimiter limiter = limiterFor(platform);
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+
+        if (!limiter.inFlight.tryAcquire(timeout, unit)) {
+            limiter.timeouts.increment();
+            return null;
+        }
+
+        while (true) {
+            long waitNanos = limiter.bucket.nanosUntilToken();
+            if (waitNanos == 0 && limiter.bucket.tryTake()) {
+                limiter.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return new Permit(limiter);
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                limiter.inFlight.release();
+                limiter.timeouts.increment();
+                log.warn("平台 {} 等待限流许可超时", platform);
+                return null;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, Math.min(waitNanos, remaining)));
+        }
+    }
+
+    /**
+     * 不等待，立即尝试获取许可
+     *
+     * @return 许可；当前没有可用令牌或在途请求已满时返回 null
+     */
+    public Permit tryAcquire(String platform) {
+        PlatformLimiter limiter = limiterFor(platform);
+        if (!limiter.inFlight.tryAcquire()) {
+            limiter.rejections.increment();
+            return null;
+        }
+        if (!limiter.bucket.tryTake()) {
+            limiter.inFlight.release();
+            limiter.rejections.increment();
+            return null;
+        }
+        return new Permit(limiter);
+    }
+
+    private PlatformLimiter limiterFor(String platform) {
+        return limiters.computeIfAbsent(platform, this::createLimiter);
+    }
+
+    private PlatformLimiter createLimiter(String platform) {
+        CrawlerProperties.Limit limit = crawlerProperties.getRateLimit().limitOf(platform);
+        log.info("初始化平台 {} 限流器：{} 次/秒，突发 {}，在途上限 {}",
+                platform, limit.getPermitsPerSecond(), limit.getBurst(), limit.getMaxInFlight());
+        return new PlatformLimiter(platform, limit, meterRegistry);
+    }
+
+    /**
+     * 抓取许可，关闭时归还在途名额（重复关闭无副作用）
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final PlatformLimiter limiter;
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(PlatformLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                limiter.inFlight.release();
+            }
+        }
+    }
+
+    private static final class PlatformLimiter {
+
+        private final TokenBucket bucket;
+
+        private final Semaphore inFlight;
+
+        private final Timer waitTimer;
+
+        private final Counter rejections;
+
+        private final Counter timeouts;
+
+        private PlatformLimiter(String platform, CrawlerProperties.Limit limit, MeterRegistry registry) {
+            int maxInFlight = Math.max(1, limit.getMaxInFlight());
+            this.bucket = new TokenBucket(limit.getPermitsPerSecond(), Math.max(1, limit.getBurst()));
+            this.inFlight = new Semaphore(maxInFlight, true);
+
+            this.waitTimer = Timer.builder("crawler.ratelimit.wait")
+                    .description("等待限流许可的耗时")
+                    .tag("platform", platform)
+                    .register(registry);
+            this.rejections = Counter.builder("crawler.ratelimit.rejected")
+                    .description("未拿到限流许可的次数")
+                    .tag("platform", platform)
+                    .tag("reason", "try")
+                    .register(registry);
+            this.timeouts = Counter.builder("crawler.ratelimit.rejected")
+                    .description("未拿到限流许可的次数")
+                    .tag("platform", platform)
+                    .tag("reason", "timeout")
+                    .register(registry);
+
+            Gauge.builder("crawler.ratelimit.in.flight", inFlight, s -> maxInFlight - s.availablePermits())
+                    .tag("platform", platform)
+                    .register(registry);
+            Gauge.builder("crawler.ratelimit.saturation", inFlight,
+                            s -> (double) (maxInFlight - s.availablePermits()) / maxInFlight)
+                    .tag("platform", platform)
+                    .register(registry);
+            Gauge.builder("crawler.ratelimit.tokens", bucket, TokenBucket::availableTokens)
+                    .tag("platform", platform)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * 令牌桶：按固定速率补充令牌，最多累积 capacity 个
+     */
+    static final class TokenBucket {
+
+        private final double permitsPerNano;
+
+        private final double capacity;
+
+        private double tokens;
+
+        private long lastRefillNanos;
+
+        TokenBucket(double permitsPerSecond, int capacity) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 距离下一个可用令牌还需等待的纳秒数，已有令牌时返回 0
+         */
+        synchronized long nanosUntilToken() {
+            refill();
+            if (tokens >= 1) {
+                return 0;
+            }
+            if (permitsPerNano <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        synchronized double availableTokens() {
+            refill();
+            return tokens;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 单个商品的抓取结果
+ */
+@Getter
+@AllArgsConstructor
+public class CrawlResult {
+
+    /**
+     * 被抓取的商品
+     */
+    private final Product product;
+
+    /**
+     * 平台标识（无法识别平台时为 null）
+     */
+    private final String platform;
+
+    /**
+     * 抓取到的价格信息（失败时可能为 null 或带有 errorMessage）
+     */
+    private final PriceInfo priceInfo;
+
+    /**
+     * 抓取耗时（毫秒）
+     */
+    private final long elapsedMillis;
+
+    public static CrawlResult failed(Product product, String platform, String errorMessage) {
+        return new CrawlResult(product, platform,
+                PriceInfo.builder().errorMessage(errorMessage).build(), 0L);
+    }
+
+    public static CrawlResult timedOut(Product product, String platform, String errorMessage, long elapsedMillis) {
+        return new CrawlResult(product, platform, PriceInfo.builder()
+                .errorMessage(errorMessage)
+                .failureType(PriceInfo.FailureType.TIMEOUT)
+                .build(), elapsedMillis);
+    }
+
+    /**
+     * 是否成功拿到了价格
+     */
+    public boolean isSuccess() {
+        return priceInfo != null
+                && priceInfo.getCurrentPrice() != null
+                && priceInfo.getErrorMessage() == null;
+    }
+}
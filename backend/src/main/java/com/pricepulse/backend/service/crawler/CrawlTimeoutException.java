@@ -0,0 +1,11 @@
+package com.pricepulse.backend.service.crawler;
+
+/**
+ * 抓取超过截止时间（见 {@link CrawlDeadline}）
+ */
+public class CrawlTimeoutException extends RuntimeException {
+
+    public CrawlTimeoutException(String message) {
+        super(message);
+    }
+}
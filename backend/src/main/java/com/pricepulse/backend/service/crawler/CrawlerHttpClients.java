@@ -0,0 +1,235 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 爬虫共享 HTTP 客户端
+ * <p>
+ * 每个平台一个 JDK HttpClient（连接池按平台隔离，连接保持复用，https 下通过 ALPN 协商 HTTP/2，不支持时回退 HTTP/1.1），
+ * 连接超时和响应超时取 crawler.http 下的平台配置。API 调用使用 {@link #restTemplate}，页面抓取使用 {@link #fetchPage}，
+ * 两者共用同一个连接池。每个请求的响应超时都按当前线程绑定的 {@link CrawlDeadline} 收紧。
+ * <p>
+ * 指标：RestTemplate 由 RestTemplateBuilder 构建，请求耗时记在 http.client.requests；
+ * 另有 crawler.http.in.flight（platform 标签，进行中的请求数）和 crawler.http.pages（platform、status 标签，页面抓取次数）
+ */
+@Component
+@Slf4j
+public class CrawlerHttpClients {
+
+    @Autowired
+    private CrawlerProperties crawlerProperties;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, PlatformClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * 平台共享的 RestTemplate
+     */
+    public RestTemplate restTemplate(String platform) {
+        return clientFor(platform).restTemplate;
+    }
+
+    /**
+     * 抓取页面 HTML（跟随重定向），非 2xx 响应抛出 IOException；响应超时不超过当前 {@link CrawlDeadline} 的剩余时间
+     */
+    public String fetchPage(String platform, String url, Map<String, String> headers)
+            throws IOException, InterruptedException {
+        PlatformClient client = clientFor(platform);
+        client.inFlight.incrementAndGet();
+        try {
+            HttpResponse<String> response = send(client, platform, url, headers,
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() == 304) {
+                throw new IOException("页面请求失败，HTTP 304：" + url);
+            }
+            return response.body();
+        } finally {
+            client.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 以流的方式读取页面（UTF-8），reader 返回后即关闭响应流，未读取的部分不再下载；
+     * 适合只需要页面前面一部分内容的场景。其余同 {@link #fetchPage(String, String, Map)}
+     */
+    public <T> T fetchPage(String platform, String url, Map<String, String> headers, PageReader<T> pageReader)
+            throws IOException, InterruptedException {
+        return fetchPageIfModified(platform, url, headers, null, null, pageReader).body();
+    }
+
+    /**
+     * 条件请求：带上次响应的 ETag / Last-Modified（为 null 时不带），服务端返回 304 时不读取页面，
+     * 返回 {@link ConditionalPage#notModified()} 为 true 的结果；否则同 {@link #fetchPage(String, String, Map, PageReader)}
+     */
+    public <T> ConditionalPage<T> fetchPageIfModified(String platform, String url, Map<String, String> headers,
+                                                      String etag, String lastModified, PageReader<T> pageReader)
+            throws IOException, InterruptedException {
+        Map<String, String> requestHeaders = headers;
+        if (etag != null || lastModified != null) {
+            requestHeaders = new HashMap<>(headers);
+            if (etag != null) {
+                requestHeaders.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                requestHeaders.put("If-Modified-Since", lastModified);
+            }
+        }
+
+        PlatformClient client = clientFor(platform);
+        client.inFlight.incrementAndGet();
+        try {
+            HttpResponse<InputStream> response = send(client, platform, url, requestHeaders,
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (Reader reader = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+                if (response.statusCode() == 304) {
+                    return new ConditionalPage<>(true, null, etag, lastModified);
+                }
+                T body = pageReader.read(reader);
+                return new ConditionalPage<>(false, body,
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null));
+            }
+        } finally {
+            client.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 发送请求，2xx 和 304 之外的响应抛出 IOException
+     */
+    private <T> HttpResponse<T> send(PlatformClient client, String platform, String url, Map<String, String> headers,
+                                     HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        Duration requestTimeout = CrawlDeadline.clamp(client.readTimeout);
+        if (requestTimeout.isZero()) {
+            throw new CrawlTimeoutException("抓取超时，已跳过页面请求：" + url);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .GET();
+        headers.forEach(builder::header);
+
+        HttpResponse<T> response = client.httpClient.send(builder.build(), bodyHandler);
+        meterRegistry.counter("crawler.http.pages",
+                "platform", platform, "status", String.valueOf(response.statusCode())).increment();
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 304) {
+            if (response.body() instanceof Closeable closeable) {
+                closeable.close();
+            }
+            throw new IOException("页面请求失败，HTTP " + response.statusCode() + "：" + url);
+        }
+        return response;
+    }
+
+    private PlatformClient clientFor(String platform) {
+        return clients.computeIfAbsent(platform, this::createClient);
+    }
+
+    private PlatformClient createClient(String platform) {
+        CrawlerProperties.Timeout timeout = crawlerProperties.getHttp().timeoutOf(platform);
+        Duration readTimeout = Duration.ofMillis(timeout.getReadTimeoutMs());
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(timeout.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+
+        AtomicInteger inFlight = new AtomicInteger();
+        Gauge.builder("crawler.http.in.flight", inFlight, AtomicInteger::get)
+                .tag("platform", platform)
+                .description("进行中的爬虫 HTTP 请求数")
+                .register(meterRegistry);
+
+        // 响应超时按当前线程的抓取截止时间逐个请求收紧，截止时间已过时不再发出请求
+        ClientHttpRequestFactory requestFactory = (uri, method) -> {
+            Duration requestTimeout = CrawlDeadline.clamp(readTimeout);
+            if (requestTimeout.isZero()) {
+                throw new CrawlTimeoutException("抓取超时，已跳过平台接口请求：" + uri);
+            }
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient, executor);
+            factory.setReadTimeout(requestTimeout);
+            return factory.createRequest(uri, method);
+        };
+        ClientHttpRequestInterceptor inFlightInterceptor = (request, body, execution) -> {
+            inFlight.incrementAndGet();
+            try {
+                return execution.execute(request, body);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        RestTemplate restTemplate = restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(inFlightInterceptor)
+                .build();
+
+        log.info("创建平台 {} 的共享 HTTP 客户端，连接超时 {}ms，响应超时 {}ms",
+                platform, timeout.getConnectTimeoutMs(), timeout.getReadTimeoutMs());
+        return new PlatformClient(httpClient, restTemplate, readTimeout, inFlight);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 页面流读取
+     */
+    @FunctionalInterface
+    public interface PageReader<T> {
+
+        T read(Reader reader) throws IOException;
+    }
+
+    /**
+     * 条件请求结果
+     *
+     * @param notModified  服务端返回 304，页面未读取（body 为 null）
+     * @param etag         响应的 ETag（304 时为请求中带的值）
+     * @param lastModified 响应的 Last-Modified（304 时为请求中带的值）
+     */
+    public record ConditionalPage<T>(boolean notModified, T body, String etag, String lastModified) {
+    }
+
+    private record PlatformClient(HttpClient httpClient, RestTemplate restTemplate,
+                                  Duration readTimeout, AtomicInteger inFlight) {
+    }
+}
@@ -2,7 +2,10 @@ package com.pricepulse.backend.service.crawler;
 
 import com.pricepulse.backend.common.dto.PriceInfo;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 商品爬虫服务接口
@@ -16,6 +19,35 @@ public interface CrawlerService {
      */
     PriceInfo crawlPrice(String url);
 
+    /**
+     * 抓取商品价格信息（不等待限流许可，拿不到许可时直接返回带错误信息的结果）
+     * @param url 商品链接
+     * @return 价格信息
+     */
+    PriceInfo tryCrawlPrice(String url);
+
+    /**
+     * 异步抓取商品价格信息，不阻塞调用线程
+     * @param url 商品链接
+     * @param timeout 整条抓取链路（限流等待、API、各级兜底）的截止时长，到期后取消仍在进行的请求
+     * @return 价格信息；超时时为带错误信息的结果，不会异常完成
+     */
+    CompletableFuture<PriceInfo> crawlPriceAsync(String url, Duration timeout);
+
+    /**
+     * 批量抓取商品价格信息（支持的平台一次请求查询多个商品）
+     * @param urls 商品链接
+     * @return 商品链接 -> 价格信息，每个传入的链接都有结果
+     */
+    Map<String, PriceInfo> crawlPrices(Collection<String> urls);
+
+    /**
+     * 批量抓取时单次请求最多包含的商品数（1 表示逐个抓取）
+     */
+    default int getMaxBatchSize() {
+        return 1;
+    }
+
     /**
      * 判断是否支持该平台
      * @param url 商品链接
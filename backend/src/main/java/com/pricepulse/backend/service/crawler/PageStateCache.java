@@ -0,0 +1,82 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.util.ExpiringLruCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 页面抓取状态缓存（按 URL）
+ * <p>
+ * 记录上次成功解析时页面的 ETag / Last-Modified、内容哈希和解析结果。下次抓取时带上条件请求头，
+ * 服务端返回 304 或内容哈希相同时直接沿用上次的解析结果（标记 notModified），流水线只延长最后出现时间，不再写价格。
+ * <p>
+ * 指标：crawler.page.conditional（platform、result=not_modified/same_hash/changed 标签）
+ */
+@Component
+public class PageStateCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${crawler.conditional-fetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${crawler.conditional-fetch.max-entries:10000}")
+    private int maxEntries;
+
+    /**
+     * 状态的有效期（毫秒），过期后完整抓取一次
+     */
+    @Value("${crawler.conditional-fetch.ttl-ms:21600000}")
+    private long ttlMs;
+
+    private ExpiringLruCache<String, PageState> states;
+
+    @PostConstruct
+    public void init() {
+        states = new ExpiringLruCache<>(maxEntries);
+    }
+
+    /**
+     * 上次的页面状态，没有或未启用时返回 null
+     */
+    public PageState get(String url) {
+        return enabled ? states.get(url) : null;
+    }
+
+    public void put(String url, PageState state) {
+        if (enabled) {
+            states.put(url, state, ttlMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void remove(String url) {
+        states.remove(url);
+    }
+
+    /**
+     * 记录一次条件抓取的结果
+     *
+     * @param result not_modified / same_hash / changed
+     */
+    public void record(String platform, String result) {
+        meterRegistry.counter("crawler.page.conditional", "platform", platform, "result", result).increment();
+    }
+
+    /**
+     * 页面状态
+     *
+     * @param etag         响应的 ETag（可能为 null）
+     * @param lastModified 响应的 Last-Modified（可能为 null）
+     * @param contentHash  解析时读取的页面内容的哈希
+     * @param priceInfo    上次的解析结果
+     */
+    public record PageState(String etag, String lastModified, long contentHash, PriceInfo priceInfo) {
+    }
+}
@@ -0,0 +1,257 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 拼多多开放平台网关客户端
+ * <p>
+ * 负责请求签名、发送和商品响应解析，拼多多爬虫和授权备案共用。参数按名称有序保存，签名时直接按顺序拼接；
+ * MD5 实例按线程复用；商品响应用流式解析，只取价格、名称、图片和 goods_sign 字段。
+ * 请求参数和响应内容只在 DEBUG 级别按 crawler.pdd.api.log-sample-rate 抽样打印。
+ */
+@Component
+@Slf4j
+public class PddGatewayClient {
+
+    public static final String PDD_API_URL = "https://gw-api.pinduoduo.com/api/router";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final HttpHeaders FORM_HEADERS = new HttpHeaders();
+
+    static {
+        FORM_HEADERS.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+    }
+
+    @Autowired
+    private CrawlerHttpClients httpClients;
+
+    /**
+     * DEBUG 级别下打印请求和响应内容的抽样比例
+     */
+    @Value("${crawler.pdd.api.log-sample-rate:0.01}")
+    private double logSampleRate;
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        this.restTemplate = httpClients.restTemplate("pdd");
+    }
+
+    /**
+     * 签名并发送请求，返回响应内容（可能为空）；网络错误和非 2xx 响应抛出 RestClientException
+     */
+    public String call(Params params, String clientId, String clientSecret) {
+        params.put("client_id", clientId);
+        params.put("timestamp", Long.toString(System.currentTimeMillis() / 1000));
+        params.put("sign", sign(params.values, clientSecret));
+
+        String type = params.values.get("type");
+        boolean sampled = log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+        if (sampled) {
+            log.debug("拼多多 API 请求 {}：{}", type, params.values);
+        }
+
+        String body = restTemplate.postForObject(PDD_API_URL, new HttpEntity<>(params.toFormBody(), FORM_HEADERS), String.class);
+
+        if (sampled) {
+            log.debug("拼多多 API 响应 {}：{}", type, body);
+        }
+        return body;
+    }
+
+    /**
+     * 生成 API 签名：MD5(secret + 按参数名排序的 key1value1key2value2... + secret)，大写十六进制
+     */
+    static String sign(Map<String, String> sortedParams, String secret) {
+        MessageDigest md5 = MD5.get();
+        md5.reset();
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        md5.update(secretBytes);
+        for (Map.Entry<String, String> entry : sortedParams.entrySet()) {
+            md5.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            md5.update(entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        md5.update(secretBytes);
+
+        byte[] digest = md5.digest();
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 解析 goods.detail / goods.search 响应，只读取 goods_details、goods_list 中的商品字段和 error_response
+     */
+    public static GoodsResponse parseGoods(String body) throws IOException {
+        List<Goods> goods = new ArrayList<>();
+        String errorMessage = null;
+        if (body == null || body.isEmpty()) {
+            return new GoodsResponse(goods, null);
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new GoodsResponse(goods, "响应格式错误");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.FIELD_NAME) {
+                    continue;
+                }
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("error_response".equals(field) && value == JsonToken.START_OBJECT) {
+                    errorMessage = readErrorMessage(parser);
+                } else if (("goods_details".equals(field) || "goods_list".equals(field)) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        goods.add(readGoods(parser));
+                    }
+                } else if (value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                }
+                // 其他对象继续向内查找（goods_detail_response、goods_search_response）
+            }
+        }
+        return new GoodsResponse(goods, errorMessage);
+    }
+
+    private static String readErrorMessage(JsonParser parser) throws IOException {
+        String subMessage = null;
+        String errorMessage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+            } else if ("sub_msg".equals(field)) {
+                subMessage = parser.getValueAsString();
+            } else if ("error_msg".equals(field)) {
+                errorMessage = parser.getValueAsString();
+            }
+        }
+        if (subMessage != null && !subMessage.isEmpty()) {
+            return subMessage;
+        }
+        return errorMessage != null && !errorMessage.isEmpty() ? errorMessage : "未知错误";
+    }
+
+    private static Goods readGoods(JsonParser parser) throws IOException {
+        String goodsSign = null;
+        String goodsName = null;
+        Long minGroupPrice = null;
+        Long minNormalPrice = null;
+        String imageUrl = null;
+        String thumbnailUrl = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "goods_sign" -> goodsSign = parser.getValueAsString();
+                case "goods_name" -> goodsName = parser.getValueAsString();
+                case "min_group_price" -> minGroupPrice = parser.getValueAsLong();
+                case "min_normal_price" -> minNormalPrice = parser.getValueAsLong();
+                case "goods_image_url" -> imageUrl = parser.getValueAsString();
+                case "goods_thumbnail_url" -> thumbnailUrl = parser.getValueAsString();
+                default -> {
+                }
+            }
+        }
+        return new Goods(goodsSign, goodsName, minGroupPrice, minNormalPrice, imageUrl, thumbnailUrl);
+    }
+
+    /**
+     * 请求参数（按参数名排序）
+     */
+    public static final class Params {
+
+        private final TreeMap<String, String> values = new TreeMap<>();
+
+        private Params(String type) {
+            values.put("type", type);
+        }
+
+        public static Params of(String type) {
+            return new Params(type);
+        }
+
+        public Params put(String key, Object value) {
+            values.put(key, String.valueOf(value));
+            return this;
+        }
+
+        private String toFormBody() {
+            StringBuilder body = new StringBuilder(256);
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (!body.isEmpty()) {
+                    body.append('&');
+                }
+                body.append(entry.getKey()).append('=')
+                        .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+            }
+            return body.toString();
+        }
+    }
+
+    /**
+     * 商品响应
+     *
+     * @param errorMessage error_response 中的错误信息，成功时为 null
+     */
+    public record GoodsResponse(List<Goods> goods, String errorMessage) {
+
+        public boolean isError() {
+            return errorMessage != null;
+        }
+    }
+
+    /**
+     * 商品字段（价格单位为分）
+     */
+    public record Goods(String goodsSign, String goodsName, Long minGroupPrice, Long minNormalPrice,
+                        String imageUrl, String thumbnailUrl) {
+    }
+}
@@ -1,15 +1,26 @@
 package com.pricepulse.backend.service.crawler.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pricepulse.backend.common.dto.PriceInfo;
 import com.pricepulse.backend.service.crawler.AbstractCrawlerService;
+import com.pricepulse.backend.service.crawler.CrawlTimeoutException;
+import com.pricepulse.backend.service.crawler.CrawlerHttpClients;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 /**
  * 京东服务 - API 版本
@@ -20,15 +31,32 @@ import java.util.Map;
 @Slf4j
 public class JDApiCrawlerServiceImpl extends AbstractCrawlerService {
 
-    private static final String JD_PRICE_API_URL = "https://p.3.cn/prices/mgets?skuIds=J_{0}";
+    private static final String JD_PRICE_API_URL = "https://p.3.cn/prices/mgets?skuIds=";
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private CrawlerHttpClients httpClients;
+
+    private RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Value("${crawler.jd.api.enabled:true}")
     private boolean apiEnabled;
 
-    public JDApiCrawlerServiceImpl() {
-        this.restTemplate = new RestTemplate();
+    /**
+     * 批量查询时单次请求的 SKU 数
+     */
+    @Value("${crawler.jd.api.batch-size:50}")
+    private int batchSize;
+
+    @PostConstruct
+    public void init() {
+        this.restTemplate = httpClients.restTemplate(getPlatform());
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return apiEnabled ? batchSize : 1;
     }
 
     @Override
@@ -39,61 +67,127 @@ public class JDApiCrawlerServiceImpl extends AbstractCrawlerService {
         }
 
         try {
-            String apiUrl = JD_PRICE_API_URL.replace("{0}", productId);
-            log.info("调用京东价格 API: {}", apiUrl);
+            PriceInfo priceInfo = queryPrices(List.of(productId)).get(productId);
+            if (priceInfo == null) {
+                log.warn("API 未返回商品 {} 的价格", productId);
+                return notFound(productId);
+            }
+            return priceInfo;
 
-            // 调用京东价格 API
-            String response = restTemplate.getForObject(apiUrl, String.class);
+        } catch (CrawlTimeoutException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("调用京东 API 失败：{}", e.getMessage());
+            return upstreamFailed("接口调用失败：" + e.getMessage());
+        }
+    }
 
-            if (response == null || response.isEmpty()) {
-                log.warn("API 返回空响应，使用模拟数据");
-                return generateMockPrice(productId);
+    /**
+     * 一次 mgets 请求查询多个 SKU，未返回有效价格的 SKU（下架或不存在）直接返回失败，不再逐个查询
+     */
+    @Override
+    protected Map<String, PriceInfo> doCrawlPrices(Map<String, String> urlsByProductId) {
+        if (!apiEnabled) {
+            return super.doCrawlPrices(urlsByProductId);
+        }
+        try {
+            Map<String, PriceInfo> results = new HashMap<>(queryPrices(urlsByProductId.keySet()));
+            for (String skuId : urlsByProductId.keySet()) {
+                results.computeIfAbsent(skuId, this::notFound);
             }
+            return results;
+        } catch (CrawlTimeoutException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量调用京东 API 失败：{}", e.getMessage());
+            markUpstreamFailure();
+            return Map.of();
+        }
+    }
 
-            // 解析 API 响应
-            return parseApiResponse(response, productId);
+    private Map<String, PriceInfo> queryPrices(Collection<String> skuIds) throws Exception {
+        StringJoiner joiner = new StringJoiner(",");
+        for (String skuId : skuIds) {
+            joiner.add("J_" + skuId);
+        }
+        String apiUrl = JD_PRICE_API_URL + joiner;
+        log.info("调用京东价格 API，SKU 数：{}", skuIds.size());
 
-        } catch (Exception e) {
-            log.error("调用京东 API 失败，使用模拟数据：{}", e.getMessage());
-            return generateMockPrice(productId);
+        String response = restTemplate.getForObject(apiUrl, String.class);
+        if (response == null || response.isEmpty()) {
+            throw new IllegalStateException("API 返回空响应");
         }
+        return parseApiResponse(response);
     }
 
     /**
-     * 解析 API 响应
-     * 京东 API 返回格式示例：[{"id":"J_12345","p":"9999.00","m":"8999.00"}]
+     * API 响应中没有该 SKU 的有效价格（下架商品 p 为 -1.00，SKU 不存在时不返回）
      */
-    private PriceInfo parseApiResponse(String response, String productId) {
-        try {
-            // 简单的 JSON 解析（实际项目中建议使用 Jackson 或 FastJSON）
-            // 这里简化处理，假设返回格式为 [{"id":"J_xxx","p":"xxx","m":"xxx"}]
+    private PriceInfo notFound(String skuId) {
+        return PriceInfo.builder()
+                .inStock(false)
+                .errorMessage("抓取失败：京东未返回商品 " + skuId + " 的价格，商品可能已下架")
+                .failureType(PriceInfo.FailureType.ERROR)
+                .build();
+    }
+
+    /**
+     * 解析 API 响应，返回 SKU -> 价格信息（无有效价格的 SKU 不返回）
+     * 京东 API 返回格式示例：[{"id":"J_12345","p":"8999.00","op":"9999.00","m":"10999.00"}]
+     * p 为现价，op 为原价，m 为市场价；下架商品 p 为 -1.00
+     */
+    Map<String, PriceInfo> parseApiResponse(String response) throws Exception {
+        Map<String, PriceInfo> results = new HashMap<>();
+        JsonNode rootNode = objectMapper.readTree(response);
+        if (!rootNode.isArray()) {
+            log.warn("API 响应格式不正确：{}", response);
+            return results;
+        }
 
-            BigDecimal currentPrice = new BigDecimal("9999.00");
-            BigDecimal originalPrice = new BigDecimal("8999.00");
+        for (JsonNode item : rootNode) {
+            String skuId = item.path("id").asText("").replaceFirst("^J_", "");
+            BigDecimal currentPrice = parseAmount(item.path("p"));
+            if (skuId.isEmpty() || currentPrice == null) {
+                continue;
+            }
 
-            // TODO: 完善 JSON 解析逻辑
-            // 可以使用 org.json.JSONObject 或 com.fasterxml.jackson.databind.JsonNode
+            BigDecimal originalPrice = parseAmount(item.path("op"));
+            if (originalPrice == null) {
+                originalPrice = parseAmount(item.path("m"));
+            }
+            if (originalPrice == null || originalPrice.compareTo(currentPrice) < 0) {
+                originalPrice = currentPrice;
+            }
 
-            BigDecimal discountRate = currentPrice.divide(originalPrice, 4, BigDecimal.ROUND_HALF_UP)
+            BigDecimal discountRate = currentPrice.divide(originalPrice, 4, RoundingMode.HALF_UP)
                     .multiply(new BigDecimal("100"))
-                    .setScale(2, BigDecimal.ROUND_HALF_UP);
+                    .setScale(2, RoundingMode.HALF_UP);
 
-            return PriceInfo.builder()
+            results.put(skuId, PriceInfo.builder()
                     .currentPrice(currentPrice)
                     .originalPrice(originalPrice)
                     .discountRate(discountRate)
                     .inStock(true)
-                    .title("京东商品-" + productId)
-                    .build();
+                    .title("京东商品-" + skuId)
+                    .build());
+        }
+        return results;
+    }
 
-        } catch (Exception e) {
-            log.error("解析 API 响应失败：{}", e.getMessage());
-            return generateMockPrice(productId);
+    private BigDecimal parseAmount(JsonNode node) {
+        if (node.isMissingNode() || node.isNull()) {
+            return null;
+        }
+        try {
+            BigDecimal amount = new BigDecimal(node.asText());
+            return amount.signum() > 0 ? amount : null;
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
     /**
-     * 生成模拟价格（降级方案）
+     * 生成模拟价格（仅用于未启用 API 的演示模式）
      */
     private PriceInfo generateMockPrice(String productId) {
         java.util.Random random = new java.util.Random(productId.hashCode());
@@ -138,6 +232,6 @@ public class JDApiCrawlerServiceImpl extends AbstractCrawlerService {
         if (matcher.find()) {
             return matcher.group(1);
         }
-        return "未知商品";
+        return UNKNOWN_PRODUCT_ID;
     }
 }
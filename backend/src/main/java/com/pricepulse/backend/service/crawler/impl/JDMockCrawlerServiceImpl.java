@@ -59,6 +59,6 @@ public class JDMockCrawlerServiceImpl extends AbstractCrawlerService {
         if (matcher.find()) {
             return matcher.group(1);
         }
-        return "未知商品";
+        return UNKNOWN_PRODUCT_ID;
     }
 }
@@ -1,36 +1,35 @@
 package com.pricepulse.backend.service.crawler.impl;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pricepulse.backend.common.dto.PriceInfo;
 import com.pricepulse.backend.service.crawler.AbstractCrawlerService;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import com.pricepulse.backend.service.crawler.CrawlDeadline;
+import com.pricepulse.backend.service.crawler.CrawlTimeoutException;
+import com.pricepulse.backend.service.crawler.CrawlerHttpClients;
+import com.pricepulse.backend.service.crawler.PageStateCache;
+import com.pricepulse.backend.service.crawler.PddGatewayClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 @ConditionalOnProperty(name = "crawler.pdd.use-api", havingValue = "true", matchIfMissing = false)
 @Slf4j
 public class PddApiServiceImpl extends AbstractCrawlerService {
 
-    private static final String PDD_API_URL = "http://gw-api.pinduoduo.com/api/router";
+    private static final Map<String, String> MOBILE_PAGE_HEADERS = Map.of(
+            "User-Agent", "Mozilla/5.0 (iPhone; CPU iPhone OS 14_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/14.0 Mobile/15E148 Safari/604.1",
+            "Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+            "Accept-Language", "zh-CN,zh;q=0.8,zh-TW;q=0.7,zh-HK;q=0.5,en-US;q=0.3,en;q=0.2");
 
     @Value("${crawler.pdd.api.client-id}")
     private String clientId;
@@ -44,11 +43,33 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
     @Value("${crawler.pdd.api.enabled:true}")
     private boolean apiEnabled;
 
-    private final RestTemplate restTemplate;
+    /**
+     * 批量查询时单次请求的 goods_sign 数（goods.search 单页最多 100 个）
+     */
+    @Value("${crawler.pdd.api.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * 是否把移动端页面保存到 pdd_page_debug.html（排查页面结构变化时开启，开启后会下载完整页面）
+     */
+    @Value("${crawler.pdd.page-debug-dump:false}")
+    private boolean pageDebugDump;
+
+    @Autowired
+    private CrawlerHttpClients httpClients;
+
+    @Autowired
+    private PddGoodsSignCache goodsSignCache;
+
+    @Autowired
+    private PddGatewayClient gatewayClient;
+
+    @Autowired
+    private PageStateCache pageStates;
+
     private final ObjectMapper objectMapper;
 
     public PddApiServiceImpl() {
-        this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
     }
 
@@ -63,8 +84,8 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
             log.info("【拼多多爬虫】开始抓取商品详情，标识：{}, URL: {}", productId, url);
 
             if (pid == null || pid.isEmpty()) {
-                log.warn("PID 未配置，无法调用 API，使用模拟数据");
-                return generateMockPrice(productId);
+                log.warn("PID 未配置，无法调用 API，从移动端页面抓取");
+                return crawlFromMobilePage(url);
             }
 
             if (productId != null && productId.length() >= 28) {
@@ -75,12 +96,25 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
                 }
             }
 
+            String resolvedGoodsSign = goodsSignCache.get(productId);
+            if (resolvedGoodsSign != null) {
+                log.info("使用已解析的 goods_sign 查询：{} -> {}", productId, resolvedGoodsSign);
+                PriceInfo priceInfo = queryByGoodsSign(resolvedGoodsSign);
+                if (priceInfo != null) {
+                    return priceInfo;
+                }
+                log.warn("已解析的 goods_sign 查询失败，重新解析：{}", productId);
+                goodsSignCache.evict(productId);
+            }
+
+            CrawlDeadline.checkCurrent("商品搜索");
             log.info("goods_sign 长度不足，尝试通过搜索获取真实的 goodsSign");
             String realGoodsSign = searchGoodsSign(productId);
             if (realGoodsSign != null) {
                 log.info("搜索到真实的 goodsSign: {}", realGoodsSign);
                 PriceInfo priceInfo = queryByGoodsSign(realGoodsSign);
                 if (priceInfo != null) {
+                    goodsSignCache.put(productId, realGoodsSign);
                     return priceInfo;
                 }
             }
@@ -88,252 +122,209 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
             log.warn("API 查询失败，尝试从移动端页面抓取");
             return crawlFromMobilePage(url);
 
+        } catch (CrawlTimeoutException e) {
+            throw e;
         } catch (Exception e) {
             log.error("调用 API 失败，尝试从移动端页面抓取：{}", e.getMessage());
+            markUpstreamFailure();
             return crawlFromMobilePage(url);
         }
     }
 
-    private String searchGoodsSign(String keyword) throws Exception {
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "pdd.ddk.goods.search");
-        params.put("client_id", clientId);
-        params.put("timestamp", System.currentTimeMillis() / 1000);
-        params.put("keyword", keyword);
-        params.put("page", 1);
-        params.put("page_size", 20);
-        params.put("pid", pid);
-
-        String signature = generateSignature(params, clientSecret);
-        params.put("sign", signature);
+    @Override
+    public int getMaxBatchSize() {
+        return apiEnabled && pid != null && !pid.isEmpty() ? Math.min(batchSize, 100) : 1;
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        HttpEntity<MultiValueMap<String, String>> request = createRequestEntity(params, headers);
+    /**
+     * 按 goods_sign_list 一次搜索多个商品（短标识使用已解析的 goods_sign）；
+     * 没有 goods_sign 的标识和未搜到的商品交给基类逐个抓取（搜索 / 移动端页面兜底）
+     */
+    @Override
+    protected Map<String, PriceInfo> doCrawlPrices(Map<String, String> urlsByProductId) {
+        if (getMaxBatchSize() <= 1) {
+            return super.doCrawlPrices(urlsByProductId);
+        }
 
-        ResponseEntity<String> response = restTemplate.postForEntity(PDD_API_URL, request, String.class);
+        Map<String, String> productIdsByGoodsSign = new HashMap<>();
+        for (String productId : urlsByProductId.keySet()) {
+            String goodsSign = productId.length() >= 28 ? productId : goodsSignCache.get(productId);
+            if (goodsSign != null) {
+                productIdsByGoodsSign.put(goodsSign, productId);
+            }
+        }
+        if (productIdsByGoodsSign.isEmpty()) {
+            return Map.of();
+        }
 
-        log.info("搜索 API 响应状态码：{}", response.getStatusCode());
-        log.info("搜索 API 响应内容：{}", response.getBody());
+        try {
+            Map<String, PriceInfo> results = new HashMap<>();
+            queryByGoodsSigns(new ArrayList<>(productIdsByGoodsSign.keySet()))
+                    .forEach((goodsSign, priceInfo) -> results.put(productIdsByGoodsSign.get(goodsSign), priceInfo));
+            return results;
+        } catch (Exception e) {
+            log.error("批量查询拼多多商品失败：{}", e.getMessage());
+            markUpstreamFailure();
+            return Map.of();
+        }
+    }
 
-        if (response.getBody() == null || response.getBody().isEmpty()) {
-            return null;
+    private Map<String, PriceInfo> queryByGoodsSigns(List<String> goodsSigns) throws Exception {
+        PddGatewayClient.Params params = PddGatewayClient.Params.of("pdd.ddk.goods.search")
+                .put("goods_sign_list", objectMapper.writeValueAsString(goodsSigns))
+                .put("page", 1)
+                .put("page_size", goodsSigns.size())
+                .put("pid", pid);
+
+        log.info("批量查询拼多多商品，goods_sign 数：{}", goodsSigns.size());
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(
+                gatewayClient.call(params, clientId, clientSecret));
+        if (response.isError()) {
+            log.error("批量查询 API 返回错误：{}", response.errorMessage());
+            markUpstreamFailure();
+            return Map.of();
         }
 
-        JsonNode rootNode = objectMapper.readTree(response.getBody());
+        Map<String, PriceInfo> results = new HashMap<>();
+        for (PddGatewayClient.Goods goods : response.goods()) {
+            if (goods.goodsSign() != null && goodsSigns.contains(goods.goodsSign())) {
+                results.put(goods.goodsSign(), toPriceInfo(goods, goods.goodsSign()));
+            }
+        }
+        return results;
+    }
 
-        if (rootNode.has("error_response")) {
+    private String searchGoodsSign(String keyword) throws Exception {
+        PddGatewayClient.Params params = PddGatewayClient.Params.of("pdd.ddk.goods.search")
+                .put("keyword", keyword)
+                .put("page", 1)
+                .put("page_size", 20)
+                .put("pid", pid);
+
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(
+                gatewayClient.call(params, clientId, clientSecret));
+        if (response.isError()) {
+            log.warn("搜索 API 返回错误：{}", response.errorMessage());
             return null;
         }
-
-        JsonNode goodsList = rootNode.path("goods_search_response").path("goods_list");
-        if (goodsList.isMissingNode() || !goodsList.isArray() || goodsList.size() == 0) {
+        if (response.goods().isEmpty()) {
             return null;
         }
-
-        return goodsList.get(0).path("goods_sign").asText();
+        return response.goods().get(0).goodsSign();
     }
 
     private PriceInfo queryByGoodsSign(String goodsSign) throws Exception {
-        Map<String, Object> params = new HashMap<>();
-        params.put("type", "pdd.ddk.goods.detail");
-        params.put("client_id", clientId);
-        params.put("timestamp", System.currentTimeMillis() / 1000);
-        params.put("goods_img_type", 1);
-        params.put("goods_sign", goodsSign);
-        params.put("pid", pid);
-
-        String signature = generateSignature(params, clientSecret);
-
-        log.info("请求参数列表：");
-        params.forEach((key, value) -> log.info("  {} = {}", key, value));
-        log.info("生成的 API 签名：{}", signature);
-
-        params.put("sign", signature);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        HttpEntity<MultiValueMap<String, String>> request = createRequestEntity(params, headers);
-
-        ResponseEntity<String> response = restTemplate.postForEntity(PDD_API_URL, request, String.class);
-
-        log.info("API 响应状态码：{}", response.getStatusCode());
-        log.info("API 响应内容：{}", response.getBody());
-
-        if (response.getBody() == null || response.getBody().isEmpty()) {
-            return null;
-        }
-
-        JsonNode rootNode = objectMapper.readTree(response.getBody());
-
-        if (rootNode.has("error_response")) {
-            JsonNode errorNode = rootNode.get("error_response");
-            String errorMsg = errorNode.has("sub_msg") ? errorNode.get("sub_msg").asText() : "未知错误";
-            log.error("API 返回错误：{}", errorMsg);
+        PddGatewayClient.Params params = PddGatewayClient.Params.of("pdd.ddk.goods.detail")
+                .put("goods_img_type", 1)
+                .put("goods_sign", goodsSign)
+                .put("pid", pid);
+
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(
+                gatewayClient.call(params, clientId, clientSecret));
+        if (response.isError()) {
+            log.error("API 返回错误：{}", response.errorMessage());
             return null;
         }
-
-        JsonNode goodsDetailNode = rootNode.path("goods_detail_response").path("goods_details");
-        if (goodsDetailNode.isMissingNode() || !goodsDetailNode.isArray() || goodsDetailNode.size() == 0) {
+        if (response.goods().isEmpty()) {
             return null;
         }
-
-        goodsDetailNode = goodsDetailNode.get(0);
-        return parseApiResponse(goodsDetailNode, goodsSign);
+        return toPriceInfo(response.goods().get(0), goodsSign);
     }
 
-    private String generateSignature(Map<String, Object> params, String secret) throws Exception {
-        StringBuilder sb = new StringBuilder();
-
-        params.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    sb.append(entry.getKey()).append(entry.getValue());
-                });
-
-        String signSource = secret + sb.toString() + secret;
-
-        log.debug("签名原文：{}", signSource);
+    private PriceInfo toPriceInfo(PddGatewayClient.Goods goods, String productId) {
+        BigDecimal currentPrice = goods.minGroupPrice() != null
+                ? new BigDecimal(goods.minGroupPrice()).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP)
+                : null;
 
-        java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-        byte[] digest = md.digest(signSource.getBytes("UTF-8"));
+        BigDecimal originalPrice = goods.minNormalPrice() != null
+                ? new BigDecimal(goods.minNormalPrice()).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP)
+                : null;
 
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : digest) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
+        if (currentPrice == null && originalPrice == null) {
+            log.warn("商品 {} 价格为空", productId);
+            return upstreamFailed("未返回商品价格");
         }
 
-        String sign = hexString.toString().toUpperCase();
-        log.debug("最终签名：{}", sign);
-
-        return sign;
-    }
-
-    private HttpEntity<MultiValueMap<String, String>> createRequestEntity(
-            Map<String, Object> params, HttpHeaders headers) {
-        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
-        params.forEach((key, value) -> formData.add(key, String.valueOf(value)));
-        return new HttpEntity<>(formData, headers);
-    }
-
-    private PriceInfo parseApiResponse(JsonNode goodsDetail, String productId) throws Exception {
-        try {
-            JsonNode minGroupPriceNode = goodsDetail.get("min_group_price");
-            JsonNode minNormalPriceNode = goodsDetail.get("min_normal_price");
-
-            BigDecimal currentPrice = minGroupPriceNode != null && !minGroupPriceNode.isNull()
-                    ? new BigDecimal(minGroupPriceNode.asLong()).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP)
-                    : null;
-
-            BigDecimal originalPrice = minNormalPriceNode != null && !minNormalPriceNode.isNull()
-                    ? new BigDecimal(minNormalPriceNode.asLong()).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP)
-                    : null;
-
-            if (currentPrice == null && originalPrice == null) {
-                log.warn("价格为空，使用模拟数据");
-                return generateMockPrice(productId);
-            }
-
-            if (originalPrice == null || originalPrice.compareTo(BigDecimal.ZERO) == 0) {
-                originalPrice = currentPrice != null ? currentPrice.multiply(new BigDecimal("1.2")).setScale(2, BigDecimal.ROUND_HALF_UP) : new BigDecimal("0");
-            }
-
-            if (currentPrice == null || currentPrice.compareTo(BigDecimal.ZERO) == 0) {
-                currentPrice = originalPrice.multiply(new BigDecimal("0.9")).setScale(2, BigDecimal.ROUND_HALF_UP);
-            }
+        if (originalPrice == null || originalPrice.compareTo(BigDecimal.ZERO) == 0) {
+            originalPrice = currentPrice != null ? currentPrice.multiply(new BigDecimal("1.2")).setScale(2, BigDecimal.ROUND_HALF_UP) : new BigDecimal("0");
+        }
 
-            BigDecimal discountRate = currentPrice.divide(originalPrice, 4, BigDecimal.ROUND_HALF_UP)
-                    .multiply(new BigDecimal("100"))
-                    .setScale(2, BigDecimal.ROUND_HALF_UP);
+        if (currentPrice == null || currentPrice.compareTo(BigDecimal.ZERO) == 0) {
+            currentPrice = originalPrice.multiply(new BigDecimal("0.9")).setScale(2, BigDecimal.ROUND_HALF_UP);
+        }
 
-            JsonNode goodsNameNode = goodsDetail.get("goods_name");
-            String title = goodsNameNode != null && !goodsNameNode.isNull()
-                    ? goodsNameNode.asText()
-                    : "拼多多商品-" + productId;
+        if (originalPrice.compareTo(BigDecimal.ZERO) == 0) {
+            log.warn("商品 {} 价格为 0", productId);
+            return upstreamFailed("返回的商品价格为 0");
+        }
 
-            JsonNode imageUrlNode = goodsDetail.get("goods_image_url");
-            String imageUrl = imageUrlNode != null && !imageUrlNode.isNull()
-                    ? imageUrlNode.asText()
-                    : null;
+        BigDecimal discountRate = currentPrice.divide(originalPrice, 4, BigDecimal.ROUND_HALF_UP)
+                .multiply(new BigDecimal("100"))
+                .setScale(2, BigDecimal.ROUND_HALF_UP);
 
-            if (imageUrl == null || imageUrl.isEmpty()) {
-                JsonNode thumbnailNode = goodsDetail.get("goods_thumbnail_url");
-                imageUrl = thumbnailNode != null && !thumbnailNode.isNull() ? thumbnailNode.asText() : null;
-            }
+        String title = goods.goodsName() != null ? goods.goodsName() : "拼多多商品-" + productId;
 
-            log.info("API 解析成功 - 价格：{}, 原价：{}, 标题：{}", currentPrice, originalPrice, title);
+        String imageUrl = goods.imageUrl();
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            imageUrl = goods.thumbnailUrl();
+        }
 
-            return PriceInfo.builder()
-                    .currentPrice(currentPrice)
-                    .originalPrice(originalPrice)
-                    .discountRate(discountRate)
-                    .inStock(true)
-                    .title(title)
-                    .imageUrl(imageUrl)
-                    .build();
+        log.debug("API 解析成功 - 价格：{}, 原价：{}, 标题：{}", currentPrice, originalPrice, title);
 
-        } catch (Exception e) {
-            log.error("解析 API 响应失败：{}", e.getMessage(), e);
-            return generateMockPrice(productId);
-        }
+        return PriceInfo.builder()
+                .currentPrice(currentPrice)
+                .originalPrice(originalPrice)
+                .discountRate(discountRate)
+                .inStock(true)
+                .title(title)
+                .imageUrl(imageUrl)
+                .build();
     }
 
     private PriceInfo crawlFromMobilePage(String url) {
+        CrawlDeadline.checkCurrent("移动端页面抓取");
         try {
             log.info("开始从移动端页面抓取：{}", url);
 
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (iPhone; CPU iPhone OS 14_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/14.0 Mobile/15E148 Safari/604.1")
-                    .timeout(15000)
-                    .followRedirects(true)
-                    .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                    .header("Accept-Language", "zh-CN,zh;q=0.8,zh-TW;q=0.7,zh-HK;q=0.5,en-US;q=0.3,en;q=0.2")
-                    .get();
-
-            String pageHtml = doc.html();
-            log.info("页面内容长度：{} 字节", pageHtml.length());
-
-            try {
-                java.nio.file.Files.write(
-                        java.nio.file.Paths.get("pdd_page_debug.html"),
-                        pageHtml.getBytes("UTF-8")
-                );
-                log.info("页面已保存到 pdd_page_debug.html");
-            } catch (Exception e) {
-                log.debug("保存页面失败：{}", e.getMessage());
-            }
-
-            BigDecimal currentPrice = extractPrice(pageHtml, "\"minGroupPrice\":\\s*(\\d+)");
-            if (currentPrice == null) {
-                currentPrice = extractPrice(pageHtml, "\"finalPrice\":\\s*(\\d+)");
-            }
-            if (currentPrice == null) {
-                currentPrice = extractPrice(pageHtml, "\"price\":\\s*(\\d+)");
+            PageStateCache.PageState previous = pageDebugDump ? null : pageStates.get(url);
+            PddPageExtractor.Result page;
+            String etag = null;
+            String lastModified = null;
+            if (pageDebugDump) {
+                page = extractWithDebugDump(url);
+            } else {
+                CrawlerHttpClients.ConditionalPage<PddPageExtractor.Result> response = httpClients.fetchPageIfModified(
+                        getPlatform(), url, MOBILE_PAGE_HEADERS,
+                        previous != null ? previous.etag() : null,
+                        previous != null ? previous.lastModified() : null,
+                        PddPageExtractor::extract);
+                if (response.notModified() && previous != null) {
+                    log.debug("移动端页面未变化（304），沿用上次结果：{}", url);
+                    pageStates.record(getPlatform(), "not_modified");
+                    return previous.priceInfo().toBuilder().notModified(true).build();
+                }
+                page = response.body();
+                etag = response.etag();
+                lastModified = response.lastModified();
             }
-
-            BigDecimal originalPrice = extractPrice(pageHtml, "\"minNormalPrice\":\\s*(\\d+)");
-            if (originalPrice == null) {
-                originalPrice = extractPrice(pageHtml, "\"marketPrice\":\\s*(\\d+)");
+            log.debug("移动端页面扫描 {} 个字符，字段{}：{}", page.charsRead(), page.complete() ? "已找齐" : "未找齐",
+                    page.fields().keySet());
+
+            if (previous != null && previous.contentHash() == page.contentHash()) {
+                log.debug("移动端页面内容未变化，沿用上次结果：{}", url);
+                pageStates.record(getPlatform(), "same_hash");
+                pageStates.put(url, new PageStateCache.PageState(etag, lastModified, page.contentHash(), previous.priceInfo()));
+                return previous.priceInfo().toBuilder().notModified(true).build();
             }
 
-            String title = extractString(pageHtml, "\"goodsName\":\\s*\"([^\"]+)\"");
-            if (title == null) {
-                title = extractString(pageHtml, "\"goodsDesc\":\\s*\"([^\"]+)\"");
-            }
-
-            String imageUrl = extractString(pageHtml, "\"hdThumbImage\":\\s*\"([^\"]+)\"");
-            if (imageUrl == null) {
-                imageUrl = extractString(pageHtml, "\"thumbUrl\":\\s*\"([^\"]+)\"");
-            }
-            if (imageUrl != null) {
-                imageUrl = imageUrl.replaceAll("\\\\/", "/");
-            }
+            BigDecimal currentPrice = toYuan(page.first("minGroupPrice", "finalPrice", "price"));
+            BigDecimal originalPrice = toYuan(page.first("minNormalPrice", "marketPrice"));
+            String title = page.first("goodsName", "goodsDesc");
+            String imageUrl = page.first("hdThumbImage", "thumbUrl");
 
             if (currentPrice == null && originalPrice == null && title == null) {
-                log.warn("页面中未找到商品信息，使用模拟数据");
-                return generateMockPrice("pdd_mobile");
+                log.warn("页面中未找到商品信息：{}", url);
+                return upstreamFailed("移动端页面中未找到商品信息");
             }
 
             if (originalPrice == null || originalPrice.compareTo(BigDecimal.ZERO) == 0) {
@@ -354,7 +345,7 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
 
             log.info("移动端页面抓取成功 - 价格：{}, 原价：{}, 标题：{}", currentPrice, originalPrice, title);
 
-            return PriceInfo.builder()
+            PriceInfo priceInfo = PriceInfo.builder()
                     .currentPrice(currentPrice)
                     .originalPrice(originalPrice)
                     .discountRate(discountRate)
@@ -362,41 +353,36 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
                     .title(title)
                     .imageUrl(imageUrl)
                     .build();
+            if (!pageDebugDump) {
+                pageStates.record(getPlatform(), "changed");
+                pageStates.put(url, new PageStateCache.PageState(etag, lastModified, page.contentHash(), priceInfo));
+            }
+            return priceInfo;
 
         } catch (Exception e) {
+            // 截止时间已到（包括请求被中断）时按超时处理
+            CrawlDeadline.checkCurrent("移动端页面抓取");
             log.error("从移动端页面抓取失败：{}", e.getMessage(), e);
-            return generateMockPrice("pdd_mobile_error");
+            return upstreamFailed("移动端页面抓取失败：" + e.getMessage());
         }
     }
 
-    private BigDecimal extractPrice(String html, String regex) {
+    /**
+     * 下载完整页面并保存到 pdd_page_debug.html（仅在开启 crawler.pdd.page-debug-dump 时使用）
+     */
+    private PddPageExtractor.Result extractWithDebugDump(String url) throws Exception {
+        String pageHtml = httpClients.fetchPage(getPlatform(), url, MOBILE_PAGE_HEADERS);
         try {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(html);
-            if (matcher.find()) {
-                BigDecimal price = new BigDecimal(matcher.group(1)).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP);
-                log.info("通过正则 [{}] 提取到价格：{}", regex, price);
-                return price;
-            }
+            java.nio.file.Files.writeString(java.nio.file.Paths.get("pdd_page_debug.html"), pageHtml);
+            log.info("页面已保存到 pdd_page_debug.html，长度：{} 字节", pageHtml.length());
         } catch (Exception e) {
-            log.debug("提取价格失败：{}", e.getMessage());
+            log.debug("保存页面失败：{}", e.getMessage());
         }
-        return null;
+        return PddPageExtractor.extract(new java.io.StringReader(pageHtml));
     }
 
-    private String extractString(String html, String regex) {
-        try {
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(html);
-            if (matcher.find()) {
-                String value = matcher.group(1);
-                log.debug("通过正则 [{}] 提取到字符串：{}", regex, value);
-                return value;
-            }
-        } catch (Exception e) {
-            log.debug("提取字符串失败：{}", e.getMessage());
-        }
-        return null;
+    private static BigDecimal toYuan(String cents) {
+        return cents != null ? new BigDecimal(cents).divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP) : null;
     }
 
     private PriceInfo generateMockPrice(String productId) {
@@ -449,12 +435,12 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
                         return goodsSign;
                     }
                     if (param.startsWith("goods_id=")) {
-                        String goodsId = param.substring(11);
+                        String goodsId = param.substring("goods_id=".length());
                         log.info("从 URL 中提取到 goods_id: {}", goodsId);
                         return goodsId;
                     }
                     if (param.startsWith("goodsSign=")) {
-                        String goodsSign = param.substring(12);
+                        String goodsSign = param.substring("goodsSign=".length());
                         log.info("从 URL 中提取到 goodsSign: {}", goodsSign);
                         return goodsSign;
                     }
@@ -483,6 +469,6 @@ public class PddApiServiceImpl extends AbstractCrawlerService {
         }
 
         log.warn("无法从 URL 中提取商品 ID: {}", url);
-        return "未知商品";
+        return UNKNOWN_PRODUCT_ID;
     }
 }
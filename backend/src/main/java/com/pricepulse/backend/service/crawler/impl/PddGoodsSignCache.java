@@ -0,0 +1,99 @@
+package com.pricepulse.backend.service.crawler.impl;
+
+import com.pricepulse.backend.common.util.ExpiringLruCache;
+import com.pricepulse.backend.mapper.PddGoodsSignMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拼多多 goods_sign 解析缓存
+ * <p>
+ * 商品链接中只有 goods_id 等短标识时，需要先调用 goods.search 才能拿到 goods_sign。
+ * 解析结果保存在 pdd_goods_sign 表中，进程内再加一层有过期时间的 LRU 缓存，
+ * 之后抓取同一商品只需要一次 goods.detail 调用；goods_sign 查询失败时由调用方 {@link #evict} 后重新解析。
+ * <p>
+ * 指标：crawler.pdd.goods.sign.lookups（result=memory/db/miss 标签）
+ */
+@Component
+@Slf4j
+public class PddGoodsSignCache {
+
+    @Autowired
+    private PddGoodsSignMapper goodsSignMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${crawler.pdd.goods-sign-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${crawler.pdd.goods-sign-cache.ttl-ms:86400000}")
+    private long ttlMs;
+
+    private ExpiringLruCache<String, String> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = new ExpiringLruCache<>(maxEntries);
+    }
+
+    /**
+     * 查询已解析的 goods_sign，先查进程内缓存再查数据库，都没有时返回 null
+     */
+    public String get(String goodsKey) {
+        String goodsSign = localCache.get(goodsKey);
+        if (goodsSign != null) {
+            record("memory");
+            return goodsSign;
+        }
+
+        try {
+            goodsSign = goodsSignMapper.selectGoodsSign(goodsKey);
+        } catch (Exception e) {
+            log.error("查询 goods_sign 解析结果失败，goodsKey={}", goodsKey, e);
+            goodsSign = null;
+        }
+        if (goodsSign == null || goodsSign.isEmpty()) {
+            record("miss");
+            return null;
+        }
+
+        localCache.put(goodsKey, goodsSign, ttlMs, TimeUnit.MILLISECONDS);
+        record("db");
+        return goodsSign;
+    }
+
+    /**
+     * 保存解析结果
+     */
+    public void put(String goodsKey, String goodsSign) {
+        localCache.put(goodsKey, goodsSign, ttlMs, TimeUnit.MILLISECONDS);
+        try {
+            goodsSignMapper.upsert(goodsKey, goodsSign);
+        } catch (Exception e) {
+            log.error("保存 goods_sign 解析结果失败，goodsKey={}", goodsKey, e);
+        }
+    }
+
+    /**
+     * 删除解析结果，下次抓取时重新解析
+     */
+    public void evict(String goodsKey) {
+        localCache.remove(goodsKey);
+        try {
+            goodsSignMapper.deleteByKey(goodsKey);
+        } catch (Exception e) {
+            log.error("删除 goods_sign 解析结果失败，goodsKey={}", goodsKey, e);
+        }
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("crawler.pdd.goods.sign.lookups", "result", result).increment();
+    }
+}
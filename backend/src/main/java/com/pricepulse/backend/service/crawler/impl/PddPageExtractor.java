@@ -0,0 +1,258 @@
+package com.pricepulse.backend.service.crawler.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 拼多多移动端页面商品字段提取
+ * <p>
+ * 页面中的商品数据以 JSON 形式内嵌在 window.rawData 脚本里。这里逐字符扫描页面流，查找 "字段名": 值 的形式，
+ * 每个字段只取第一次出现的值（数字字段取整数，字符串字段解码 JSON 转义）；
+ * 主要字段（团购价、原价、名称、高清图）都找到后立即停止读取，不再下载和扫描页面剩余部分。
+ * 同时对读取过的内容计算 64 位 FNV-1a 哈希，内容相同则哈希相同（与网络分块无关），用于判断页面是否变化。
+ */
+final class PddPageExtractor {
+
+    static final Set<String> NUMBER_FIELDS = Set.of("minGroupPrice", "finalPrice", "price", "minNormalPrice", "marketPrice");
+
+    static final Set<String> STRING_FIELDS = Set.of("goodsName", "goodsDesc", "hdThumbImage", "thumbUrl");
+
+    /**
+     * 找齐即可停止读取的字段
+     */
+    private static final Set<String> REQUIRED_FIELDS = Set.of("minGroupPrice", "minNormalPrice", "goodsName", "hdThumbImage");
+
+    private static final int MAX_FIELD_NAME_LENGTH = 16;
+
+    private static final int MAX_NUMBER_LENGTH = 18;
+
+    private static final int MAX_STRING_LENGTH = 4096;
+
+    private PddPageExtractor() {
+    }
+
+    /**
+     * 扫描页面，返回找到的字段和读取的字符数；不关闭 reader
+     */
+    static Result extract(Reader source) throws IOException {
+        Scanner reader = new Scanner(source);
+        Map<String, String> fields = new HashMap<>();
+        StringBuilder name = new StringBuilder(MAX_FIELD_NAME_LENGTH);
+
+        int c;
+        while (reader.skipToQuote()) {
+            name.setLength(0);
+            while ((c = reader.read()) != -1 && isNameChar(c) && name.length() <= MAX_FIELD_NAME_LENGTH) {
+                name.append((char) c);
+            }
+            if (c != '"') {
+                // 不是目标字段名，交回去重新扫描（可能是下一个引号）
+                reader.unread(c);
+                continue;
+            }
+
+            String field = name.toString();
+            boolean number = NUMBER_FIELDS.contains(field);
+            if ((!number && !STRING_FIELDS.contains(field)) || fields.containsKey(field)) {
+                continue;
+            }
+            c = reader.read();
+            if (c != ':') {
+                reader.unread(c);
+                continue;
+            }
+
+            c = skipWhitespace(reader);
+            String value = number ? readNumber(reader, c) : readString(reader, c);
+            if (value != null) {
+                fields.put(field, value);
+                if (fields.keySet().containsAll(REQUIRED_FIELDS)) {
+                    return new Result(fields, reader.charsRead(), reader.contentHash(), true);
+                }
+            }
+        }
+        return new Result(fields, reader.charsRead(), reader.contentHash(), false);
+    }
+
+    private static String readNumber(Scanner reader, int c) throws IOException {
+        StringBuilder digits = new StringBuilder();
+        while (c >= '0' && c <= '9' && digits.length() < MAX_NUMBER_LENGTH) {
+            digits.append((char) c);
+            c = reader.read();
+        }
+        reader.unread(c);
+        return digits.isEmpty() ? null : digits.toString();
+    }
+
+    private static String readString(Scanner reader, int c) throws IOException {
+        if (c != '"') {
+            reader.unread(c);
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        while ((c = reader.read()) != -1 && c != '"') {
+            if (value.length() >= MAX_STRING_LENGTH) {
+                return null;
+            }
+            if (c != '\\') {
+                value.append((char) c);
+                continue;
+            }
+            c = reader.read();
+            switch (c) {
+                case 'n' -> value.append('\n');
+                case 't' -> value.append('\t');
+                case 'r' -> value.append('\r');
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'u' -> {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(reader.read(), 16);
+                        if (digit < 0) {
+                            return null;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                }
+                case -1 -> {
+                    return null;
+                }
+                default -> value.append((char) c);
+            }
+        }
+        return c == '"' && !value.isEmpty() ? value.toString() : null;
+    }
+
+    private static int skipWhitespace(Scanner reader) throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+        return c;
+    }
+
+    private static boolean isNameChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * 按块读取的字符扫描器，支持退回一个字符
+     */
+    private static final class Scanner {
+
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private final Reader reader;
+
+        private long hash = FNV_OFFSET_BASIS;
+
+        private final char[] buffer = new char[8192];
+
+        private int position;
+
+        private int limit;
+
+        private long consumed;
+
+        Scanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * 退回刚读到的字符（-1 忽略）
+         */
+        void unread(int c) {
+            if (c != -1) {
+                position--;
+            }
+        }
+
+        /**
+         * 跳到下一个引号之后，流结束时返回 false
+         */
+        boolean skipToQuote() throws IOException {
+            while (true) {
+                for (int i = position; i < limit; i++) {
+                    if (buffer[i] == '"') {
+                        position = i + 1;
+                        return true;
+                    }
+                }
+                position = limit;
+                if (!fill()) {
+                    return false;
+                }
+            }
+        }
+
+        long charsRead() {
+            return consumed - (limit - position);
+        }
+
+        /**
+         * 已读取内容的哈希
+         */
+        long contentHash() {
+            return hashChunk(hash, position);
+        }
+
+        private long hashChunk(long h, int end) {
+            for (int i = 0; i < end; i++) {
+                h = (h ^ buffer[i]) * FNV_PRIME;
+            }
+            return h;
+        }
+
+        private boolean fill() throws IOException {
+            // 当前块已全部读完
+            hash = hashChunk(hash, limit);
+            position = 0;
+            limit = 0;
+            int n;
+            do {
+                n = reader.read(buffer, 0, buffer.length);
+            } while (n == 0);
+            if (n < 0) {
+                return false;
+            }
+            limit = n;
+            consumed += n;
+            return true;
+        }
+    }
+
+    /**
+     * 提取结果
+     *
+     * @param fields      字段名 -> 值（数字字段为整数字符串，单位为分）
+     * @param charsRead   读取的字符数
+     * @param contentHash 读取过的内容的哈希
+     * @param complete    主要字段是否都已找到（找到后提前停止读取）
+     */
+    record Result(Map<String, String> fields, long charsRead, long contentHash, boolean complete) {
+
+        String first(String... names) {
+            for (String name : names) {
+                String value = fields.get(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
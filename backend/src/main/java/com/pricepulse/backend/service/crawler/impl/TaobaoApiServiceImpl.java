@@ -60,6 +60,6 @@ public class TaobaoApiServiceImpl extends AbstractCrawlerService {
         } catch (Exception e) {
             // Deleted:log.warn("URL 解析失败", e);
         }
-        return "未知商品";
+        return UNKNOWN_PRODUCT_ID;
     }
 }
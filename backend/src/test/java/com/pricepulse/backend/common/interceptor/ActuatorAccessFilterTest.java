@@ -0,0 +1,77 @@
+package com.pricepulse.backend.common.interceptor;
+
+import com.pricepulse.backend.common.entity.User;
+import com.pricepulse.backend.common.util.JwtUtil;
+import com.pricepulse.backend.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ActuatorAccessFilterTest {
+
+    private JwtUtil jwtUtil;
+
+    private UserMapper userMapper;
+
+    private ActuatorAccessFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = mock(JwtUtil.class);
+        userMapper = mock(UserMapper.class);
+        when(jwtUtil.validateToken("admin-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("admin-token")).thenReturn(1L);
+        when(jwtUtil.validateToken("user-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("user-token")).thenReturn(2L);
+        when(userMapper.selectById(1L)).thenReturn(createUser("ADMIN"));
+        when(userMapper.selectById(2L)).thenReturn(createUser("USER"));
+
+        filter = new ActuatorAccessFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userMapper", userMapper);
+    }
+
+    @Test
+    void testHealthIsPublic() throws Exception {
+        assertThat(send("/actuator/health", null).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testMetricsRequireAdminToken() throws Exception {
+        assertThat(send("/actuator/metrics", null).getStatus()).isEqualTo(401);
+        assertThat(send("/actuator/metrics/crawler.queue.pending", "user-token").getStatus()).isEqualTo(403);
+        assertThat(send("/actuator/metrics/crawler.queue.pending", "admin-token").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testPathParametersDoNotBypassFilter() throws Exception {
+        assertThat(send("/actuator;x/metrics", null).getStatus()).isEqualTo(401);
+        assertThat(send("/actuator/health;x/../metrics", null).getStatus()).isEqualTo(401);
+        assertThat(send("/actuator/metrics;jsessionid=abc", "user-token").getStatus()).isEqualTo(403);
+        assertThat(send("//actuator/metrics", null).getStatus()).isEqualTo(401);
+        assertThat(send("/actuator/health;x", null).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse send(String uri, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static User createUser(String role) {
+        User user = new User();
+        user.setRole(role);
+        return user;
+    }
+}
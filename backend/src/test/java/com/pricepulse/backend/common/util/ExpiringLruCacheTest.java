@@ -0,0 +1,38 @@
+package com.pricepulse.backend.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringLruCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testEntryExpiresAfterTtl() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, now::get);
+        cache.put("a", "1", 100, TimeUnit.NANOSECONDS);
+
+        now.set(99);
+        assertThat(cache.get("a")).isEqualTo("1");
+        now.set(100);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, now::get);
+        cache.put("a", "1", 1, TimeUnit.SECONDS);
+        cache.put("b", "2", 1, TimeUnit.SECONDS);
+        cache.get("a");
+        cache.put("c", "3", 1, TimeUnit.SECONDS);
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+}
@@ -0,0 +1,135 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.PriceWriteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlDueQueueTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 4, 6, 12, 0);
+
+    private ProductMapper productMapper;
+
+    private PriceWriteBuffer writeBuffer;
+
+    private CrawlDueQueue dueQueue;
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.selectDueProducts(any(), anyInt())).thenReturn(List.of(
+                createProduct(1L, now.minusMinutes(5)),
+                createProduct(2L, now.minusMinutes(1)),
+                createProduct(3L, now.plusMinutes(2))));
+
+        writeBuffer = mock(PriceWriteBuffer.class);
+
+        dueQueue = new CrawlDueQueue();
+        ReflectionTestUtils.setField(dueQueue, "productMapper", productMapper);
+        ReflectionTestUtils.setField(dueQueue, "writeBuffer", writeBuffer);
+        ReflectionTestUtils.setField(dueQueue, "partitionLeases", new CrawlPartitionLeases());
+        ReflectionTestUtils.setField(dueQueue, "refillHorizonMs", 300000L);
+        ReflectionTestUtils.setField(dueQueue, "refillIntervalMs", 60000L);
+        ReflectionTestUtils.setField(dueQueue, "refillBatchSize", 100);
+    }
+
+    @Test
+    void testPollDueReturnsOnlyDueProductsInOrder() {
+        List<Product> due = dueQueue.pollDue(now, 10);
+
+        assertThat(due).extracting(Product::getId).containsExactly(1L, 2L);
+        assertThat(dueQueue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testPollDueRespectsMax() {
+        assertThat(dueQueue.pollDue(now, 1)).extracting(Product::getId).containsExactly(1L);
+        assertThat(dueQueue.pollDue(now, 1)).extracting(Product::getId).containsExactly(2L);
+        assertThat(dueQueue.pollDue(now, 1)).isEmpty();
+    }
+
+    @Test
+    void testRefillDoesNotDuplicateQueuedProducts() {
+        dueQueue.pollDue(now, 1);
+        // 超过例行补充间隔，再次查询到的 2、3 号商品已在队列中，不应重复入队
+        List<Product> due = dueQueue.pollDue(now.plusMinutes(3), 10);
+
+        verify(productMapper, times(2)).selectDueProducts(any(), anyInt());
+        assertThat(due).extracting(Product::getId).containsExactly(1L, 2L, 3L);
+        assertThat(dueQueue.size()).isZero();
+    }
+
+    @Test
+    void testRescheduleIsBufferedAndPendingScheduleKeepsProductOut() {
+        Product crawled = createProduct(1L, now.minusMinutes(5));
+        dueQueue.reschedule(crawled, now.plusHours(1));
+        verify(writeBuffer).schedule(1L, now.plusHours(1), null);
+        verify(productMapper, never()).updateCrawlSchedule(any(), any(), any());
+
+        // 新的检查时间尚未写入数据库，补充时查到的仍是旧时间
+        when(writeBuffer.applyPendingSchedule(any())).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            if (product.getId() != 1L) {
+                return false;
+            }
+            product.setNextCheckAt(now.plusHours(1));
+            return true;
+        });
+
+        assertThat(dueQueue.pollDue(now, 10)).extracting(Product::getId).containsExactly(2L);
+        assertThat(dueQueue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testPollDueLoadsOnlyOwnedPartitionsAndDropsLostOnes() {
+        CrawlPartitionLeases leases = mock(CrawlPartitionLeases.class);
+        when(leases.getPartitionCount()).thenReturn(4);
+        when(leases.ownedPartitions()).thenReturn(Set.of(1, 2, 3));
+        when(leases.owns(anyLong())).thenReturn(true);
+        when(leases.version()).thenReturn(1L);
+        when(productMapper.selectDueProductsInPartitions(any(), anyInt(), anyCollection(), anyInt()))
+                .thenReturn(List.of(createProduct(1L, now.minusMinutes(5)), createProduct(2L, now.minusMinutes(1))));
+        ReflectionTestUtils.setField(dueQueue, "partitionLeases", leases);
+
+        assertThat(dueQueue.pollDue(now.minusMinutes(3), 10)).extracting(Product::getId).containsExactly(1L);
+        verify(productMapper).selectDueProductsInPartitions(any(), eq(4), eq(Set.of(1, 2, 3)), anyInt());
+        verify(productMapper, never()).selectDueProducts(any(), anyInt());
+
+        // 分区 2 被其他实例接管：队列中的 2 号商品丢弃，按新的分区重新补充
+        when(leases.ownedPartitions()).thenReturn(Set.of(1, 3));
+        when(leases.owns(anyLong())).thenAnswer(invocation -> invocation.<Long>getArgument(0) % 4 != 2);
+        when(leases.version()).thenReturn(2L);
+        when(productMapper.selectDueProductsInPartitions(any(), anyInt(), anyCollection(), anyInt())).thenReturn(List.of());
+
+        assertThat(dueQueue.pollDue(now, 10)).isEmpty();
+        assertThat(dueQueue.size()).isZero();
+        verify(productMapper).selectDueProductsInPartitions(any(), eq(4), eq(Set.of(1, 3)), anyInt());
+    }
+
+    private Product createProduct(Long id, LocalDateTime nextCheckAt) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("测试商品" + id);
+        product.setNextCheckAt(nextCheckAt);
+        return product;
+    }
+}
@@ -0,0 +1,164 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.entity.ProductFollowerStats;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.UserProductMapper;
+import com.pricepulse.backend.service.cache.PriceTickStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlIntervalPolicyTest {
+
+    private UserProductMapper userProductMapper;
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceTickStore priceTickStore;
+
+    private CrawlIntervalPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        userProductMapper = mock(UserProductMapper.class);
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        when(priceHistoryMapper.selectRecentPrices(anyLong(), anyInt())).thenReturn(List.of());
+        priceTickStore = mock(PriceTickStore.class);
+        when(priceTickStore.countRecentChanges(anyLong(), anyInt())).thenReturn(-1);
+
+        policy = new CrawlIntervalPolicy();
+        ReflectionTestUtils.setField(policy, "userProductMapper", userProductMapper);
+        ReflectionTestUtils.setField(policy, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(policy, "priceTickStore", priceTickStore);
+        ReflectionTestUtils.setField(policy, "baseIntervalMs", 1800000L);
+        ReflectionTestUtils.setField(policy, "minIntervalMs", 300000L);
+        ReflectionTestUtils.setField(policy, "maxIntervalMs", 86400000L);
+        ReflectionTestUtils.setField(policy, "ewmaAlpha", 0.3);
+        ReflectionTestUtils.setField(policy, "orphanScore", 0.125);
+        ReflectionTestUtils.setField(policy, "nearTargetRatio", 0.05);
+        ReflectionTestUtils.setField(policy, "closeTargetRatio", 0.15);
+    }
+
+    @Test
+    void testOrphanStableProductIsCheckedRarely() {
+        Product product = createProduct(1L, "100.00", "0.0000");
+        when(userProductMapper.selectFollowerStatsByProductIds(List.of(1L))).thenReturn(List.of());
+
+        long interval = policy.nextInterval(product, false);
+
+        // 分数 0.125 * 0.25 → 32 倍基础间隔（16 小时）
+        assertThat(interval).isEqualTo(57600000L);
+    }
+
+    @Test
+    void testHotProductNearTargetIsCheckedOften() {
+        Product product = createProduct(2L, "102.00", "0.5000");
+
+        long interval = policy.nextInterval(product, true, createStats(2L, 16, "100.00"));
+
+        assertThat(interval).isEqualTo(300000L);
+    }
+
+    @Test
+    void testSingleFollowerFarFromTargetKeepsBaseRange() {
+        Product product = createProduct(3L, "200.00", "0.2500");
+        when(userProductMapper.selectFollowerStatsByProductIds(List.of(3L)))
+                .thenReturn(List.of(createStats(3L, 1, "100.00")));
+
+        long interval = policy.nextInterval(product, false);
+
+        // EWMA 0.175 → 分数 0.775
+        assertThat(interval).isBetween(2300000L, 2330000L);
+    }
+
+    @Test
+    void testRetryIntervalKeepsChangeRate() {
+        Product product = createProduct(9L, "200.00", "0.2500");
+
+        long interval = policy.retryInterval(product, createStats(9L, 1, "100.00"));
+
+        // 分数 1 * (0.25 + 3 * 0.25) = 1 → 基础间隔，EWMA 不衰减
+        assertThat(interval).isEqualTo(1800000L);
+        assertThat(product.getPriceChangeEwma()).isEqualByComparingTo("0.2500");
+    }
+
+    @Test
+    void testFollowerStatsAreLoadedOnceForBatch() {
+        List<Product> products = List.of(createProduct(7L, "10.00", "0.1000"), createProduct(8L, "20.00", "0.1000"));
+        when(userProductMapper.selectFollowerStatsByProductIds(List.of(7L, 8L)))
+                .thenReturn(List.of(createStats(8L, 4, "18.00")));
+
+        Map<Long, ProductFollowerStats> stats = policy.followerStats(products);
+
+        assertThat(stats).containsOnlyKeys(8L);
+        assertThat(stats.get(8L).getFollowers()).isEqualTo(4);
+        verify(userProductMapper, times(1)).selectFollowerStatsByProductIds(anyList());
+        assertThat(policy.followerStats(List.of())).isEmpty();
+        verify(userProductMapper, times(1)).selectFollowerStatsByProductIds(anyList());
+    }
+
+    @Test
+    void testChangeRateIsUpdatedAndSeededFromPriorWhenMissing() {
+        Product product = createProduct(4L, "50.00", null);
+
+        policy.updateChangeRate(product, true);
+
+        assertThat(product.getPriceChangeEwma()).isEqualByComparingTo("0.4750");
+    }
+
+    @Test
+    void testChangeRateSeededFromPriceHistory() {
+        Product product = createProduct(5L, "50.00", null);
+        when(priceHistoryMapper.selectRecentPrices(eq(5L), anyInt())).thenReturn(List.of(
+                new BigDecimal("50.00"), new BigDecimal("55.00"), new BigDecimal("50.00"),
+                new BigDecimal("55.00"), new BigDecimal("60.00")));
+
+        policy.updateChangeRate(product, false);
+
+        // (0.25 + 4/20) / 2 = 0.225，再乘 0.7
+        assertThat(product.getPriceChangeEwma()).isEqualByComparingTo("0.1575");
+    }
+
+    @Test
+    void testChangeRateSeededFromTickStoreWithoutQuery() {
+        Product product = createProduct(6L, "50.00", null);
+        when(priceTickStore.countRecentChanges(eq(6L), anyInt())).thenReturn(4);
+
+        policy.updateChangeRate(product, false);
+
+        assertThat(product.getPriceChangeEwma()).isEqualByComparingTo("0.1575");
+        verify(priceHistoryMapper, never()).selectRecentPrices(anyLong(), anyInt());
+    }
+
+    private ProductFollowerStats createStats(Long productId, int followers, String maxTargetPrice) {
+        ProductFollowerStats stats = new ProductFollowerStats();
+        stats.setProductId(productId);
+        stats.setFollowers(followers);
+        stats.setMaxTargetPrice(new BigDecimal(maxTargetPrice));
+        return stats;
+    }
+
+    private Product createProduct(Long id, String currentPrice, String ewma) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCurrentPrice(new BigDecimal(currentPrice));
+        product.setPriceChangeEwma(ewma != null ? new BigDecimal(ewma) : null);
+        return product;
+    }
+}
@@ -0,0 +1,110 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.PriceWriteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlJobWorkerTest {
+
+    private CrawlJobQueue jobQueue;
+
+    private ProductMapper productMapper;
+
+    private PriceCrawlerScheduler scheduler;
+
+    private PriceWriteBuffer writeBuffer;
+
+    private CrawlJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        jobQueue = mock(CrawlJobQueue.class);
+        productMapper = mock(ProductMapper.class);
+        scheduler = mock(PriceCrawlerScheduler.class);
+        writeBuffer = mock(PriceWriteBuffer.class);
+
+        worker = new CrawlJobWorker();
+        ReflectionTestUtils.setField(worker, "jobQueue", jobQueue);
+        ReflectionTestUtils.setField(worker, "productMapper", productMapper);
+        ReflectionTestUtils.setField(worker, "scheduler", scheduler);
+        ReflectionTestUtils.setField(worker, "writeBuffer", writeBuffer);
+    }
+
+    @Test
+    void testProcessCrawlsWritesBackThenAcks() throws Exception {
+        List<CrawlJobQueue.Job> jobs = List.of(job("1-0", 1L), job("2-0", 2L), job("3-0", 1L));
+        List<Product> products = List.of(createProduct(1L), createProduct(2L));
+        when(productMapper.selectActiveByIds(List.of(1L, 2L))).thenReturn(products);
+        when(writeBuffer.flushCompletely()).thenReturn(true);
+
+        int crawled = worker.process(jobs);
+
+        assertThat(crawled).isEqualTo(2);
+        InOrder order = inOrder(scheduler, writeBuffer, jobQueue);
+        order.verify(scheduler).crawlDue(any(), any());
+        order.verify(writeBuffer).flushCompletely();
+        order.verify(jobQueue).ack(jobs);
+    }
+
+    @Test
+    void testProcessAcksJobsOfRemovedProductsWithoutCrawling() throws Exception {
+        List<CrawlJobQueue.Job> jobs = List.of(job("1-0", 9L), job("2-0", null));
+        when(productMapper.selectActiveByIds(anyList())).thenReturn(List.of());
+
+        assertThat(worker.process(jobs)).isZero();
+
+        verify(scheduler, never()).crawlDue(any(), any());
+        verify(jobQueue).ack(jobs);
+    }
+
+    @Test
+    void testProcessLeavesJobsUnackedWhenCrawlFails() throws Exception {
+        List<CrawlJobQueue.Job> jobs = List.of(job("1-0", 1L));
+        when(productMapper.selectActiveByIds(anyList())).thenReturn(List.of(createProduct(1L)));
+        when(scheduler.crawlDue(any(), any())).thenThrow(new IllegalStateException("数据库不可用"));
+
+        assertThatThrownBy(() -> worker.process(jobs)).isInstanceOf(IllegalStateException.class);
+
+        verify(jobQueue, never()).ack(anyList());
+    }
+
+    @Test
+    void testProcessLeavesJobsUnackedWhenWriteBackFails() throws Exception {
+        List<CrawlJobQueue.Job> jobs = List.of(job("1-0", 1L));
+        when(productMapper.selectActiveByIds(anyList())).thenReturn(List.of(createProduct(1L)));
+        when(writeBuffer.flushCompletely()).thenReturn(false);
+
+        assertThat(worker.process(jobs)).isEqualTo(1);
+
+        verify(jobQueue, never()).ack(anyList());
+    }
+
+    private static CrawlJobQueue.Job job(String id, Long productId) {
+        return new CrawlJobQueue.Job(RecordId.of(id), productId);
+    }
+
+    private static Product createProduct(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("测试商品" + id);
+        product.setUrl("https://item.jd.com/" + id + ".html");
+        return product;
+    }
+}
@@ -0,0 +1,122 @@
+package com.pricepulse.backend.scheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CrawlPartitionLeasesTest {
+
+    private static final int PARTITION_COUNT = 8;
+
+    /**
+     * 用内存中的 Map 模拟 Redis 里的租约和实例心跳（不模拟过期）
+     */
+    private final Map<String, String> leaseValues = new ConcurrentHashMap<>();
+
+    private final Map<String, Double> instances = new ConcurrentHashMap<>();
+
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> leaseValues.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        doAnswer(invocation -> {
+            RedisScript<Long> script = invocation.getArgument(0);
+            String key = invocation.<List<String>>getArgument(1).get(0);
+            String owner = (String) ((Object[]) invocation.getRawArguments()[2])[0];
+            if (!owner.equals(leaseValues.get(key))) {
+                return 0L;
+            }
+            if (script.getScriptAsString().contains("'del'")) {
+                leaseValues.remove(key);
+            }
+            return 1L;
+        }).when(redisTemplate).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+        when(zSetOps.add(anyString(), anyString(), anyDouble()))
+                .thenAnswer(invocation -> instances.put(invocation.getArgument(1), invocation.getArgument(2)) == null);
+        when(zSetOps.zCard(anyString())).thenAnswer(invocation -> (long) instances.size());
+        when(zSetOps.remove(anyString(), any()))
+                .thenAnswer(invocation -> instances.remove((String) invocation.getArgument(1)) != null ? 1L : 0L);
+    }
+
+    @Test
+    void testDisabledOwnsEverything() {
+        CrawlPartitionLeases leases = new CrawlPartitionLeases();
+
+        assertThat(leases.ownedPartitions()).isNull();
+        assertThat(leases.owns(42L)).isTrue();
+    }
+
+    @Test
+    void testPartitionsRebalanceWhenInstancesJoinAndLeave() {
+        CrawlPartitionLeases first = createLeases("node-a");
+        CrawlPartitionLeases second = createLeases("node-b");
+
+        first.rebalance();
+        assertThat(first.ownedPartitions()).hasSize(PARTITION_COUNT);
+
+        // 新实例加入：老实例让出一半分区，新实例下次续约时认领
+        second.rebalance();
+        first.rebalance();
+        second.rebalance();
+
+        assertThat(first.ownedPartitions()).hasSize(PARTITION_COUNT / 2);
+        assertThat(second.ownedPartitions()).hasSize(PARTITION_COUNT / 2);
+        Set<Integer> all = new HashSet<>(first.ownedPartitions());
+        all.addAll(second.ownedPartitions());
+        assertThat(all).hasSize(PARTITION_COUNT);
+        for (long productId = 1; productId <= 20; productId++) {
+            assertThat(first.owns(productId)).isNotEqualTo(second.owns(productId));
+        }
+
+        // 实例退出后剩下的实例接管全部分区
+        long version = first.version();
+        second.releaseAll();
+        first.rebalance();
+
+        assertThat(second.ownedPartitions()).isEmpty();
+        assertThat(first.ownedPartitions()).hasSize(PARTITION_COUNT);
+        assertThat(first.version()).isGreaterThan(version);
+    }
+
+    private CrawlPartitionLeases createLeases(String instanceId) {
+        CrawlPartitionLeases leases = new CrawlPartitionLeases();
+        ReflectionTestUtils.setField(leases, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(leases, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(leases, "enabled", true);
+        ReflectionTestUtils.setField(leases, "partitionCount", PARTITION_COUNT);
+        ReflectionTestUtils.setField(leases, "leaseTtlMs", 60000L);
+        ReflectionTestUtils.setField(leases, "instanceId", instanceId);
+        return leases;
+    }
+}
@@ -0,0 +1,95 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.PriceHistoryService;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceHistoryArchiveJobTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    /**
+     * 归档 90 天前：按整月对齐到 2026-07-01
+     */
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceArchiveStore archiveStore;
+
+    private PriceHistoryArchiveJob job;
+
+    @BeforeEach
+    void setUp() {
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        archiveStore = mock(PriceArchiveStore.class);
+        PriceHistoryService priceHistoryService = mock(PriceHistoryService.class);
+
+        job = new PriceHistoryArchiveJob();
+        ReflectionTestUtils.setField(job, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(job, "priceHistoryService", priceHistoryService);
+        ReflectionTestUtils.setField(job, "archiveStore", archiveStore);
+        ReflectionTestUtils.setField(job, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "afterDays", 90);
+        ReflectionTestUtils.setField(job, "productBatchSize", 100);
+        ReflectionTestUtils.setField(job, "retentionMonths", 12);
+    }
+
+    @Test
+    void testArchivesColdRecordsThenDeletesThem() {
+        PriceHistory split = createRecord(CUTOFF.minusMonths(2), CUTOFF.plusDays(5));
+        when(priceHistoryMapper.selectProductIdsBefore(CUTOFF, 0L, 100)).thenReturn(List.of(1L));
+        when(priceHistoryMapper.selectProductIdsBefore(CUTOFF, 1L, 100)).thenReturn(List.of());
+        when(priceHistoryMapper.selectLatestByProductId(1L)).thenReturn(createRecord(CUTOFF, CUTOFF.plusDays(5)));
+        when(priceHistoryMapper.selectByProductBefore(1L, CUTOFF)).thenReturn(List.of(split));
+
+        job.archive(TODAY);
+
+        verify(archiveStore).append(1L, List.of(split));
+        verify(priceHistoryMapper).deleteByProductBefore(1L, CUTOFF);
+        // 已在边界处拆分的记录，归档部分截止到边界之前
+        assertThat(split.getLastSeenAt()).isEqualTo(CUTOFF.minusSeconds(1));
+        verify(archiveStore).deleteBefore(LocalDateTime.of(2025, 10, 1, 0, 0));
+    }
+
+    @Test
+    void testKeepsLatestRecordOfIdleProductInDatabase() {
+        LocalDateTime latestAt = CUTOFF.minusMonths(1);
+        when(priceHistoryMapper.selectProductIdsBefore(any(), anyLong(), anyInt())).thenReturn(List.of(2L)).thenReturn(List.of());
+        when(priceHistoryMapper.selectLatestByProductId(2L)).thenReturn(createRecord(latestAt, null));
+        when(priceHistoryMapper.selectByProductBefore(2L, latestAt)).thenReturn(List.of());
+
+        job.archive(TODAY);
+
+        verify(archiveStore, never()).append(any(), any());
+        verify(priceHistoryMapper, never()).deleteByProductBefore(any(), any());
+    }
+
+    private static PriceHistory createRecord(LocalDateTime checkedAt, LocalDateTime lastSeenAt) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(1L);
+        history.setPrice(new BigDecimal("10.00"));
+        history.setCheckedAt(checkedAt);
+        history.setLastSeenAt(lastSeenAt);
+        return history;
+    }
+}
@@ -0,0 +1,122 @@
+package com.pricepulse.backend.scheduler;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.service.PriceHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceHistoryRetentionJobTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    /**
+     * 保留 6 个整月：2026-04-01 之前的数据过期
+     */
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 4, 1, 0, 0);
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceRollupMapper rollupMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PriceHistoryRetentionJob job;
+
+    @BeforeEach
+    void setUp() {
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        rollupMapper = mock(PriceRollupMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        PriceHistoryService priceHistoryService = new PriceHistoryService();
+        ReflectionTestUtils.setField(priceHistoryService, "priceHistoryMapper", priceHistoryMapper);
+
+        job = new PriceHistoryRetentionJob();
+        ReflectionTestUtils.setField(job, "priceHistoryService", priceHistoryService);
+        ReflectionTestUtils.setField(job, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(job, "rollupMapper", rollupMapper);
+        ReflectionTestUtils.setField(job, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(job, "priceHistoryMonths", 6);
+        ReflectionTestUtils.setField(job, "hourlyRollupDays", 30);
+        ReflectionTestUtils.setField(job, "dailyRollupDays", 730);
+        ReflectionTestUtils.setField(job, "precreateMonths", 2);
+        ReflectionTestUtils.setField(job, "deleteChunkSize", 2);
+        ReflectionTestUtils.setField(job, "chunkPauseMs", 0L);
+    }
+
+    @Test
+    void testSplitsLiveRunsBeforeDroppingExpiredPartitions() {
+        PriceHistory run = new PriceHistory();
+        run.setId(7L);
+        run.setProductId(1L);
+        run.setPrice(new BigDecimal("99.00"));
+        run.setCheckedAt(CUTOFF.minusMonths(3));
+        run.setLastSeenAt(CUTOFF.plusDays(20));
+        when(priceHistoryMapper.selectRunsCrossing(CUTOFF, 0L, 2)).thenReturn(List.of(run));
+        when(priceHistoryMapper.selectRunsCrossing(CUTOFF, 7L, 2)).thenReturn(List.of());
+
+        when(priceHistoryMapper.selectPartitions()).thenReturn(List.of(
+                Map.of("name", "p_initial", "bound", "100"),
+                Map.of("name", "p202604", "bound", "200"),
+                Map.of("name", "p202610", "bound", "300"),
+                Map.of("name", "p_future", "bound", "MAXVALUE")));
+        // 上界按会话时区换算后落在前一天晚上
+        when(priceHistoryMapper.fromUnixTimestamp(300L)).thenReturn(LocalDateTime.of(2026, 10, 31, 16, 0));
+        when(priceHistoryMapper.toUnixTimestamp(CUTOFF)).thenReturn(100L);
+
+        job.purge(TODAY);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PriceHistory>> copies = ArgumentCaptor.forClass(List.class);
+        verify(priceHistoryMapper).insertBatch(copies.capture());
+        assertThat(copies.getValue()).singleElement().satisfies(copy -> {
+            assertThat(copy.getCheckedAt()).isEqualTo(CUTOFF);
+            assertThat(copy.getLastSeenAt()).isEqualTo(run.getLastSeenAt());
+            assertThat(copy.getPrice()).isEqualByComparingTo("99.00");
+        });
+
+        verify(priceHistoryMapper).addPartition("p202611", "2026-12-01 00:00:00");
+        verify(priceHistoryMapper).addPartition("p202612", "2027-01-01 00:00:00");
+        verify(priceHistoryMapper, times(2)).addPartition(any(), any());
+        verify(priceHistoryMapper).dropPartition("p_initial");
+        verify(priceHistoryMapper, times(1)).dropPartition(any());
+        verify(priceHistoryMapper, never()).deleteOlderThan(any(), anyInt());
+    }
+
+    @Test
+    void testDeletesInChunksWhenNotPartitioned() {
+        when(priceHistoryMapper.selectRunsCrossing(any(), anyLong(), anyInt())).thenReturn(List.of());
+        when(priceHistoryMapper.selectPartitions()).thenReturn(List.of());
+        when(priceHistoryMapper.deleteOlderThan(CUTOFF, 2)).thenReturn(2, 2, 1);
+        when(rollupMapper.deleteHourlyOlderThan(eq(TODAY.minusDays(30).atStartOfDay()), eq(2))).thenReturn(0);
+
+        job.purge(TODAY);
+
+        verify(priceHistoryMapper, times(3)).deleteOlderThan(CUTOFF, 2);
+        verify(rollupMapper, times(1)).deleteHourlyOlderThan(any(), anyInt());
+        verify(priceHistoryMapper, never()).dropPartition(any());
+        assertThat(meterRegistry.counter("retention.rows.deleted", "table", "price_history").count()).isEqualTo(5);
+    }
+}
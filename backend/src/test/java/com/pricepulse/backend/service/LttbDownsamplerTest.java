@@ -0,0 +1,70 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LttbDownsamplerTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 4, 1, 0, 0);
+
+    @Test
+    void testKeepsAllPointsWhenUnderLimit() {
+        LttbDownsampler sampler = new LttbDownsampler(start, start.plusHours(2), 5);
+        for (int i = 0; i < 3; i++) {
+            sampler.accept(point(i, "100.00"));
+        }
+
+        assertThat(sampler.finish()).hasSize(3);
+    }
+
+    @Test
+    void testKeepsEndpointsAndSpikes() {
+        LttbDownsampler sampler = new LttbDownsampler(start, start.plusHours(999), 12);
+        for (int i = 0; i < 1000; i++) {
+            sampler.accept(point(i, i == 500 ? "10.00" : "100.00"));
+        }
+
+        List<PriceHistory> sampled = sampler.finish();
+
+        assertThat(sampled).hasSize(12);
+        assertThat(sampled.get(0).getCheckedAt()).isEqualTo(start);
+        assertThat(sampled.get(11).getCheckedAt()).isEqualTo(start.plusHours(999));
+        assertThat(sampled).extracting(PriceHistory::getCheckedAt).isSorted();
+        assertThat(sampled).extracting(PriceHistory::getPrice).contains(new BigDecimal("10.00"));
+    }
+
+    @Test
+    void testSparseBucketsProduceFewerPoints() {
+        LttbDownsampler sampler = new LttbDownsampler(start, start.plusHours(999), 10);
+        for (int i = 0; i < 20; i++) {
+            sampler.accept(point(i, "100.00"));
+        }
+        sampler.accept(point(999, "80.00"));
+
+        List<PriceHistory> sampled = sampler.finish();
+
+        assertThat(sampled).hasSizeLessThanOrEqualTo(10);
+        assertThat(sampled.get(sampled.size() - 1).getPrice()).isEqualByComparingTo("80.00");
+    }
+
+    @Test
+    void testRejectsTooFewPoints() {
+        assertThatThrownBy(() -> new LttbDownsampler(start, start.plusHours(1), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PriceHistory point(int hour, String price) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(1L);
+        history.setPrice(new BigDecimal(price));
+        history.setCheckedAt(start.plusHours(hour));
+        return history;
+    }
+}
@@ -36,15 +36,6 @@ class PriceCheckServiceTest {
         // 注意：实际爬虫可能会失败，这里主要验证流程
     }
 
-    @Test
-    void testCheckAllProducts() {
-        // 批量检查所有商品（这个测试会调用实际的爬虫）
-        priceCheckService.checkAllProducts();
-
-        // 验证执行成功（主要看日志输出）
-        assertThat(true).isTrue();
-    }
-
     private Product createTestProduct() {
         Product product = new Product();
         product.setName("测试商品");
@@ -0,0 +1,265 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.common.entity.UserProduct;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.mapper.UserProductMapper;
+import com.pricepulse.backend.service.cache.PriceTickStore;
+import com.pricepulse.backend.service.crawler.CrawlExecutor;
+import com.pricepulse.backend.service.crawler.CrawlResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceCrawlPipelineTest {
+
+    private CrawlExecutor crawlExecutor;
+
+    private ProductMapper productMapper;
+
+    private PriceWriteBuffer writeBuffer;
+
+    private PriceTickStore priceTickStore;
+
+    private UserProductMapper userProductMapper;
+
+    private NotificationService notificationService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PriceCrawlPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        crawlExecutor = mock(CrawlExecutor.class);
+        productMapper = mock(ProductMapper.class);
+        writeBuffer = mock(PriceWriteBuffer.class);
+        priceTickStore = mock(PriceTickStore.class);
+        userProductMapper = mock(UserProductMapper.class);
+        notificationService = mock(NotificationService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(productMapper.selectById(1L)).thenReturn(createProduct(1L, "100.00"));
+
+        pipeline = new PriceCrawlPipeline();
+        ReflectionTestUtils.setField(pipeline, "crawlExecutor", crawlExecutor);
+        ReflectionTestUtils.setField(pipeline, "productMapper", productMapper);
+        ReflectionTestUtils.setField(pipeline, "writeBuffer", writeBuffer);
+        ReflectionTestUtils.setField(pipeline, "priceTickStore", priceTickStore);
+        ReflectionTestUtils.setField(pipeline, "userProductMapper", userProductMapper);
+        ReflectionTestUtils.setField(pipeline, "notificationService", notificationService);
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "reuseWindowMs", 60000L);
+    }
+
+    @Test
+    void testConcurrentSubmitsShareOneCrawl() {
+        Product product = createProduct(1L, "100.00");
+        CompletableFuture<CrawlResult> crawl = new CompletableFuture<>();
+        when(crawlExecutor.crawlAsync(any())).thenReturn(crawl);
+
+        CompletableFuture<PriceCrawlPipeline.Outcome> first = pipeline.submitAsync(product, "SCHEDULER");
+        CompletableFuture<PriceCrawlPipeline.Outcome> second = pipeline.submitAsync(createProduct(1L, "100.00"), "manual");
+        crawl.complete(successResult(product, "90.00"));
+
+        assertThat(first.join()).isSameAs(second.join());
+        assertThat(first.join().isPriceChanged()).isTrue();
+        verify(crawlExecutor, times(1)).crawlAsync(any());
+        verify(writeBuffer, times(1)).submit(any(), any());
+        assertThat(meterRegistry.counter("crawler.pipeline.requests", "result", "joined").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSubmitAllCrawlsOnlyUnclaimedProductsTogether() {
+        when(productMapper.selectById(2L)).thenReturn(createProduct(2L, "50.00"));
+        Product first = createProduct(1L, "100.00");
+        Product second = createProduct(2L, "50.00");
+        when(crawlExecutor.crawlAllAsync(any())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            return products.stream()
+                    .map(p -> CompletableFuture.completedFuture(successResult(p, "40.00")))
+                    .toList();
+        });
+
+        List<PriceCrawlPipeline.Outcome> outcomes = pipeline.submitAll(List.of(first, second, first), "SCHEDULER");
+
+        assertThat(outcomes).hasSize(3);
+        assertThat(outcomes.get(2)).isSameAs(outcomes.get(0));
+        assertThat(second.getCurrentPrice()).isEqualByComparingTo("40.00");
+        verify(crawlExecutor, times(1)).crawlAllAsync(eq(List.of(first, second)));
+        verify(crawlExecutor, never()).crawlAsync(any());
+    }
+
+    @Test
+    void testRecentResultIsReusedWithinWindow() {
+        Product product = createProduct(1L, "100.00");
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(successResult(product, "90.00")));
+
+        pipeline.submit(product, "SCHEDULER");
+        Product other = createProduct(1L, "100.00");
+        PriceCrawlPipeline.Outcome reused = pipeline.submit(other, "manual");
+
+        assertThat(reused.isReused()).isTrue();
+        assertThat(other.getCurrentPrice()).isEqualByComparingTo("90.00");
+        verify(crawlExecutor, times(1)).crawlAsync(any());
+        verify(writeBuffer, times(1)).submit(any(), any());
+    }
+
+    @Test
+    void testExpiredResultIsCrawledAgain() {
+        ReflectionTestUtils.setField(pipeline, "reuseWindowMs", 0L);
+        Product product = createProduct(1L, "100.00");
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(successResult(product, "100.00")));
+
+        pipeline.submit(product, "SCHEDULER");
+        pipeline.submit(product, "SCHEDULER");
+
+        verify(crawlExecutor, times(2)).crawlAsync(any());
+        // 价格未变，不新增记录，只延长最新记录
+        verify(writeBuffer, never()).submit(any(), any());
+        verify(writeBuffer, times(2)).touch(eq(1L), any(), any());
+    }
+
+    @Test
+    void testNotModifiedPageOnlyTouchesLastSeen() {
+        Product product = createProduct(1L, "100.00");
+        PriceInfo priceInfo = PriceInfo.builder().currentPrice(new BigDecimal("90.00")).notModified(true).build();
+        when(priceTickStore.latestCents(1L)).thenReturn(9000L);
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new CrawlResult(product, "pdd", priceInfo, 10L)));
+
+        PriceCrawlPipeline.Outcome outcome = pipeline.submit(product, "SCHEDULER");
+
+        // 调用方持有的 100.00 已过时，按已知的最新价格 90.00 延长
+        assertThat(outcome.isPriceChanged()).isFalse();
+        verify(writeBuffer).touch(eq(1L), eq(new BigDecimal("90.00")), any());
+        verify(priceTickStore).touch(eq(1L), eq(new BigDecimal("90.00")), any());
+        verify(writeBuffer, never()).submit(any(), any());
+        verify(productMapper, never()).selectById(anyLong());
+    }
+
+    @Test
+    void testNotModifiedPageWithUnknownPriceIsComparedWithDatabase() {
+        Product product = createProduct(1L, "90.00");
+        PriceInfo priceInfo = PriceInfo.builder().currentPrice(new BigDecimal("90.00")).notModified(true).build();
+        when(priceTickStore.latestCents(1L)).thenReturn(PriceTickStore.NO_PRICE);
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new CrawlResult(product, "pdd", priceInfo, 10L)));
+
+        PriceCrawlPipeline.Outcome outcome = pipeline.submit(product, "SCHEDULER");
+
+        // 数据库中的价格是 100.00，页面沿用的 90.00 仍要记录为一次变化
+        assertThat(outcome.isPriceChanged()).isTrue();
+        verify(productMapper, times(1)).selectById(1L);
+        verify(writeBuffer, times(1)).submit(any(), any());
+    }
+
+    @Test
+    void testCacheHitDoesNotExtendLastSeen() {
+        Product product = createProduct(1L, "100.00");
+        PriceInfo priceInfo = PriceInfo.builder()
+                .currentPrice(new BigDecimal("100.00"))
+                .cacheStatus(PriceInfo.CacheStatus.HIT)
+                .build();
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new CrawlResult(product, "jd", priceInfo, 0L)));
+
+        PriceCrawlPipeline.Outcome outcome = pipeline.submit(product, "AUTO");
+
+        assertThat(outcome.isPriceChanged()).isFalse();
+        verify(writeBuffer, never()).touch(any(), any(), any());
+        verify(priceTickStore, never()).touch(anyLong(), any(), any());
+        verify(writeBuffer, never()).submit(any(), any());
+    }
+
+    @Test
+    void testNotifiesOnlyFollowersWhoseConditionIsMet() {
+        Product product = createProduct(1L, "100.00");
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(successResult(product, "97.00")));
+        when(userProductMapper.selectByProductId(1L)).thenReturn(List.of(
+                createFollow(10L, "98.00", "50.00"),
+                createFollow(11L, null, "2.00"),
+                createFollow(12L, null, "5.00")));
+
+        pipeline.submit(product, "SCHEDULER");
+
+        verify(notificationService).sendPriceDropNotification(eq(10L), any(), any(), any());
+        verify(notificationService).sendPriceDropNotification(eq(11L), any(), any(), any());
+        verify(notificationService, never()).sendPriceDropNotification(eq(12L), any(), any(), any());
+        verify(productMapper, times(1)).selectById(anyLong());
+        verify(priceTickStore).record(eq(1L), eq(new BigDecimal("97.00")), any());
+    }
+
+    @Test
+    void testPendingWriteIsUsedAsOldPrice() {
+        Product product = createProduct(1L, "100.00");
+        when(writeBuffer.pendingProduct(1L)).thenReturn(createProduct(1L, "90.00"));
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(successResult(product, "90.00")));
+
+        PriceCrawlPipeline.Outcome outcome = pipeline.submit(product, "SCHEDULER");
+
+        // 上一次价格变化尚未写入数据库，本次价格与之相同，不应重复写入和通知
+        assertThat(outcome.isPriceChanged()).isFalse();
+        verify(writeBuffer, never()).submit(any(), any());
+    }
+
+    @Test
+    void testDiscountChangeIsRecorded() {
+        Product product = createProduct(1L, "100.00");
+        PriceInfo priceInfo = PriceInfo.builder()
+                .currentPrice(new BigDecimal("100.00"))
+                .discountRate(new BigDecimal("80.00"))
+                .build();
+        when(crawlExecutor.crawlAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new CrawlResult(product, "jd", priceInfo, 10L)));
+
+        PriceCrawlPipeline.Outcome outcome = pipeline.submit(product, "SCHEDULER");
+
+        assertThat(outcome.isPriceChanged()).isTrue();
+        verify(writeBuffer, times(1)).submit(any(), any());
+        verify(notificationService, never()).sendPriceDropNotification(any(), any(), any(), any());
+    }
+
+    private CrawlResult successResult(Product product, String price) {
+        PriceInfo priceInfo = PriceInfo.builder().currentPrice(new BigDecimal(price)).build();
+        return new CrawlResult(product, "jd", priceInfo, 10L);
+    }
+
+    private Product createProduct(Long id, String currentPrice) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("测试商品" + id);
+        product.setCurrentPrice(new BigDecimal(currentPrice));
+        return product;
+    }
+
+    private UserProduct createFollow(Long userId, String targetPrice, String threshold) {
+        UserProduct userProduct = new UserProduct();
+        userProduct.setUserId(userId);
+        userProduct.setProductId(1L);
+        userProduct.setNotificationEnabled(1);
+        userProduct.setTargetPrice(targetPrice != null ? new BigDecimal(targetPrice) : null);
+        userProduct.setPriceDropThreshold(new BigDecimal(threshold));
+        return userProduct;
+    }
+}
@@ -0,0 +1,207 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.dto.PriceHistoryPage;
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import com.pricepulse.backend.service.cache.PriceTickStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceHistoryServiceTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 4, 1, 8, 0);
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceArchiveStore archiveStore;
+
+    private PriceTickStore priceTickStore;
+
+    private PriceHistoryService service;
+
+    /**
+     * 模拟数据库中的记录（按时间正序）
+     */
+    private final List<PriceHistory> hot = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        archiveStore = mock(PriceArchiveStore.class);
+        when(archiveStore.read(1L)).thenReturn(List.of());
+        priceTickStore = mock(PriceTickStore.class);
+        when(priceTickStore.readRecent(anyLong(), any(), any(), any())).thenReturn(-1);
+        when(priceHistoryMapper.selectEarliestCheckedAt(1L))
+                .thenAnswer(invocation -> hot.isEmpty() ? null : hot.get(0).getCheckedAt());
+        doAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(1);
+            LocalDateTime to = invocation.getArgument(2);
+            ResultHandler<PriceHistory> handler = invocation.getArgument(3);
+            for (PriceHistory record : hot) {
+                if ((from == null || !record.getCheckedAt().isBefore(from)) && !record.getCheckedAt().isAfter(to)) {
+                    ResultContext<PriceHistory> context = mock(ResultContext.class);
+                    when(context.getResultObject()).thenReturn(record);
+                    handler.handleResult(context);
+                }
+            }
+            return null;
+        }).when(priceHistoryMapper).streamByProductBetween(eq(1L), any(), any(), any());
+
+        service = new PriceHistoryService();
+        ReflectionTestUtils.setField(service, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(service, "archiveStore", archiveStore);
+        ReflectionTestUtils.setField(service, "priceTickStore", priceTickStore);
+    }
+
+    @Test
+    void testPriceHistoryExpandsRunsToLastSeenPoints() {
+        hot.add(createRecord(1L, "100.00", start, start.plusDays(3).minusHours(1)));
+        hot.add(createRecord(2L, "90.00", start.plusDays(3), start.plusDays(5)));
+
+        List<PriceHistory> points = service.getPriceHistory(1L, null, start.plusDays(6), 100);
+
+        assertThat(points).extracting(PriceHistory::getCheckedAt).containsExactly(
+                start.plusDays(5), start.plusDays(3), start.plusDays(3).minusHours(1), start);
+        assertThat(points).extracting(PriceHistory::getPrice).extracting(BigDecimal::toPlainString)
+                .containsExactly("90.00", "90.00", "100.00", "100.00");
+    }
+
+    @Test
+    void testPriceHistoryWindowIncludesLastSeenOfPrecedingRun() {
+        hot.add(createRecord(1L, "100.00", start, start.plusDays(3).minusHours(1)));
+        hot.add(createRecord(2L, "90.00", start.plusDays(3), start.plusDays(5)));
+        when(priceHistoryMapper.selectLatestBefore(1L, start.plusDays(2))).thenReturn(hot.get(0));
+
+        List<PriceHistory> points = service.getPriceHistory(1L, start.plusDays(2), start.plusDays(4), 100);
+
+        assertThat(points).extracting(PriceHistory::getCheckedAt).containsExactly(
+                start.plusDays(3), start.plusDays(3).minusHours(1));
+        verify(archiveStore, never()).read(any());
+    }
+
+    @Test
+    void testPriceHistoryServedFromTickStoreWhenWindowIsCovered() {
+        PriceTickStore store = new PriceTickStore();
+        ReflectionTestUtils.setField(store, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "capacity", 8);
+        ReflectionTestUtils.setField(store, "maxProducts", 10);
+        store.init();
+        store.record(1L, new BigDecimal("100.00"), start);
+        store.touch(1L, new BigDecimal("100.00"), start.plusDays(3).minusHours(1));
+        store.record(1L, new BigDecimal("90.00"), start.plusDays(3));
+        store.touch(1L, new BigDecimal("90.00"), start.plusDays(5));
+        ReflectionTestUtils.setField(service, "priceTickStore", store);
+
+        List<PriceHistory> points = service.getPriceHistory(1L, start.plusDays(2), start.plusDays(6), 100);
+
+        assertThat(points).extracting(PriceHistory::getCheckedAt).containsExactly(
+                start.plusDays(5), start.plusDays(3), start.plusDays(3).minusHours(1));
+        assertThat(points).extracting(PriceHistory::getPrice).extracting(BigDecimal::toPlainString)
+                .containsExactly("90.00", "90.00", "100.00");
+        verify(priceHistoryMapper, never()).selectEarliestCheckedAt(any());
+        verify(priceHistoryMapper, never()).streamByProductBetween(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPriceHistoryIsDownsampledToMaxPoints() {
+        for (int i = 0; i < 1000; i++) {
+            hot.add(createRecord((long) i, i % 2 == 0 ? "100.00" : "90.00", start.plusHours(i), null));
+        }
+
+        List<PriceHistory> points = service.getPriceHistory(1L, null, start.plusHours(999), 50);
+
+        assertThat(points).hasSize(50);
+        assertThat(points.get(0).getCheckedAt()).isEqualTo(start.plusHours(999));
+        assertThat(points.get(49).getCheckedAt()).isEqualTo(start);
+    }
+
+    @Test
+    void testPriceHistoryPrefersDatabaseRecordsOverArchivedDuplicates() {
+        PriceHistory archivedOld = createRecord(null, "120.00", start.minusMonths(4), null);
+        PriceHistory archivedDuplicate = createRecord(null, "110.00", start, null);
+        hot.add(createRecord(1L, "100.00", start, null));
+        when(archiveStore.read(1L)).thenReturn(List.of(archivedOld, archivedDuplicate));
+
+        List<PriceHistory> points = service.getPriceHistory(1L, null, start.plusDays(1), 100);
+
+        assertThat(points).containsExactly(hot.get(0), archivedOld);
+    }
+
+    @Test
+    void testRawPageReadsArchiveThenDatabaseWithCursor() {
+        PriceHistory archived = createRecord(null, "120.00", start.minusMonths(4), null);
+        hot.add(createRecord(1L, "100.00", start, null));
+        hot.add(createRecord(2L, "90.00", start.plusDays(1), null));
+        when(archiveStore.read(1L)).thenReturn(List.of(archived));
+        when(priceHistoryMapper.selectPage(eq(1L), any(), eq(archived.getCheckedAt()),
+                eq(PriceHistoryService.ARCHIVE_CURSOR_BASE), any(), eq(1)))
+                .thenReturn(List.of(hot.get(0)));
+        when(priceHistoryMapper.selectPage(eq(1L), any(), eq(start), eq(1L), any(), eq(2)))
+                .thenReturn(List.of(hot.get(1)));
+
+        PriceHistoryPage first = service.getRawPage(1L, null, null, null, null, 2);
+        PriceHistoryPage second = service.getRawPage(1L, null, null, first.getNextCursor(),
+                first.getNextCursorId(), 2);
+
+        assertThat(first.getItems()).containsExactly(archived, hot.get(0));
+        assertThat(first.getNextCursor()).isEqualTo(start);
+        assertThat(first.getNextCursorId()).isEqualTo(1L);
+        assertThat(second.getItems()).containsExactly(hot.get(1));
+        assertThat(second.getNextCursor()).isNull();
+        verify(priceHistoryMapper, never()).selectPage(any(), any(), any(), any(), any(), eq(0));
+        verify(archiveStore).read(1L);
+        verify(priceHistoryMapper, never()).selectLatestBefore(any(), any());
+    }
+
+    @Test
+    void testRawPageKeepsArchivedRecordsWithSameCheckedAt() {
+        LocalDateTime checkedAt = start.minusMonths(4);
+        List<PriceHistory> archived = List.of(
+                createRecord(null, "120.00", checkedAt, null),
+                createRecord(null, "110.00", checkedAt, null),
+                createRecord(null, "100.00", checkedAt, null));
+        hot.add(createRecord(1L, "90.00", start, null));
+        when(archiveStore.read(1L)).thenReturn(archived);
+
+        PriceHistoryPage first = service.getRawPage(1L, null, null, null, null, 2);
+        PriceHistoryPage second = service.getRawPage(1L, null, null, first.getNextCursor(),
+                first.getNextCursorId(), 1);
+
+        assertThat(first.getItems()).containsExactly(archived.get(0), archived.get(1));
+        assertThat(first.getNextCursorId()).isEqualTo(PriceHistoryService.ARCHIVE_CURSOR_BASE + 1);
+        assertThat(second.getItems()).containsExactly(archived.get(2));
+    }
+
+    private PriceHistory createRecord(Long id, String price, LocalDateTime checkedAt, LocalDateTime lastSeenAt) {
+        PriceHistory history = new PriceHistory();
+        history.setId(id);
+        history.setProductId(1L);
+        history.setPrice(new BigDecimal(price));
+        history.setCheckedAt(checkedAt);
+        history.setLastSeenAt(lastSeenAt);
+        return history;
+    }
+}
@@ -0,0 +1,166 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.PriceRollup;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.service.archive.PriceArchiveStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceRollupServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 4, 1);
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceRollupMapper rollupMapper;
+
+    private PriceArchiveStore archiveStore;
+
+    private ProductMapper productMapper;
+
+    private PriceRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        rollupMapper = mock(PriceRollupMapper.class);
+
+        rollupService = new PriceRollupService();
+        ReflectionTestUtils.setField(rollupService, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(rollupService, "rollupMapper", rollupMapper);
+        archiveStore = mock(PriceArchiveStore.class);
+        productMapper = mock(ProductMapper.class);
+        ReflectionTestUtils.setField(rollupService, "archiveStore", archiveStore);
+        ReflectionTestUtils.setField(rollupService, "productMapper", productMapper);
+        ReflectionTestUtils.setField(rollupService, "backfillBatchSize", 2);
+    }
+
+    @Test
+    void testAggregatorMergesChecksRegardlessOfOrder() {
+        PriceRollupAggregator aggregator = new PriceRollupAggregator();
+        LocalDateTime noon = START.atTime(12, 0);
+        aggregator.add(1L, noon.plusMinutes(20), new BigDecimal("95.00"));
+        aggregator.add(1L, noon, new BigDecimal("100.00"));
+        aggregator.add(1L, noon.plusMinutes(40), new BigDecimal("90.00"));
+        aggregator.add(1L, noon.plusHours(3), new BigDecimal("120.00"));
+
+        assertThat(aggregator.hourly()).hasSize(2);
+        PriceRollup hour = aggregator.hourly().get(0);
+        assertThat(hour.getBucketStart()).isEqualTo(noon);
+        assertThat(hour.getOpenPrice()).isEqualByComparingTo("100.00");
+        assertThat(hour.getClosePrice()).isEqualByComparingTo("90.00");
+        assertThat(hour.getHighPrice()).isEqualByComparingTo("100.00");
+        assertThat(hour.getLowPrice()).isEqualByComparingTo("90.00");
+        assertThat(hour.getAvgPrice()).isEqualByComparingTo("95.00");
+
+        PriceRollup day = aggregator.daily().get(0);
+        assertThat(day.getBucketStart()).isEqualTo(START.atStartOfDay());
+        assertThat(day.getSampleCount()).isEqualTo(4);
+        assertThat(day.getClosePrice()).isEqualByComparingTo("120.00");
+        assertThat(day.getHighPrice()).isEqualByComparingTo("120.00");
+    }
+
+    @Test
+    void testDailySeriesCarriesLastCloseAcrossDaysWithoutChecks() {
+        when(rollupMapper.selectDailySince(List.of(1L, 2L), START.atStartOfDay())).thenReturn(List.of(
+                rollup(1L, START.plusDays(2), "90.00"),
+                rollup(1L, START.plusDays(4), "85.00"),
+                rollup(2L, START, "50.00")));
+        when(rollupMapper.selectLastDailyBefore(List.of(1L, 2L), START.atStartOfDay()))
+                .thenReturn(List.of(rollup(1L, START.minusDays(10), "100.00")));
+
+        Map<Long, List<PriceRollup>> series = rollupService.dailySeries(List.of(1L, 2L), START);
+
+        // 商品 1：范围前的收盘价补齐前两天，第 3 天的收盘价补齐第 4 天
+        assertThat(series.get(1L)).extracting(rollup -> rollup.getBucketStart().toLocalDate())
+                .containsExactly(START, START.plusDays(1), START.plusDays(2), START.plusDays(3), START.plusDays(4));
+        assertThat(series.get(1L)).extracting(PriceRollup::getClosePrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("100.00"), new BigDecimal("90.00"),
+                        new BigDecimal("90.00"), new BigDecimal("85.00"));
+        assertThat(series.get(1L).get(3).getSampleCount()).isZero();
+        assertThat(series.get(1L).get(3).getAvgPrice()).isEqualByComparingTo("90.00");
+
+        // 商品 2：最后一次检查之后不补齐
+        assertThat(series.get(2L)).hasSize(1);
+    }
+
+    @Test
+    void testBackfillRebuildsFromHistoryInBatches() {
+        when(priceHistoryMapper.selectMaxId()).thenReturn(3L);
+        when(priceHistoryMapper.selectBatchAfterId(0L, 3L, 2)).thenReturn(List.of(
+                history(1L, "100.00", START.atTime(8, 0), START.plusDays(1).atTime(9, 0)),
+                history(2L, "90.00", START.atTime(8, 30), null)));
+        when(priceHistoryMapper.selectBatchAfterId(2L, 3L, 2)).thenReturn(List.of(
+                history(3L, "80.00", START.plusDays(1).atTime(10, 0), null)));
+        when(priceHistoryMapper.selectBatchAfterId(eq(3L), anyLong(), any(Integer.class))).thenReturn(List.of());
+
+        assertThat(rollupService.backfill()).isEqualTo(3);
+
+        verify(rollupMapper).truncateHourly();
+        verify(rollupMapper).truncateDaily();
+        verify(rollupMapper, times(2)).upsertHourly(anyList());
+        verify(rollupMapper, times(2)).upsertDaily(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfillSkipsArchivesOfDeletedProducts() {
+        when(priceHistoryMapper.selectMaxId()).thenReturn(0L);
+        when(priceHistoryMapper.selectBatchAfterId(anyLong(), anyLong(), any(Integer.class))).thenReturn(List.of());
+        PriceHistory kept = history(1L, "100.00", START.atTime(8, 0), null);
+        PriceHistory orphan = history(2L, "90.00", START.atTime(8, 0), null);
+        orphan.setProductId(9L);
+        doAnswer(invocation -> {
+            Consumer<List<PriceHistory>> consumer = invocation.getArgument(0);
+            consumer.accept(List.of(orphan));
+            consumer.accept(List.of(kept));
+            return null;
+        }).when(archiveStore).forEachProduct(any(Consumer.class));
+        when(productMapper.selectById(1L)).thenReturn(new Product());
+
+        assertThat(rollupService.backfill()).isEqualTo(1);
+
+        verify(rollupMapper, times(1)).upsertHourly(anyList());
+        verify(rollupMapper, times(1)).upsertDaily(anyList());
+    }
+
+    private static PriceRollup rollup(Long productId, LocalDate day, String price) {
+        PriceRollupAggregator aggregator = new PriceRollupAggregator();
+        aggregator.add(productId, day.atTime(12, 0), new BigDecimal(price));
+        return aggregator.daily().get(0);
+    }
+
+    private static PriceHistory history(Long id, String price, LocalDateTime checkedAt, LocalDateTime lastSeenAt) {
+        PriceHistory history = new PriceHistory();
+        history.setId(id);
+        history.setProductId(1L);
+        history.setPrice(new BigDecimal(price));
+        history.setCheckedAt(checkedAt);
+        history.setLastSeenAt(lastSeenAt);
+        return history;
+    }
+}
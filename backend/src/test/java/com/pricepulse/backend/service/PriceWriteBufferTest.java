@@ -0,0 +1,286 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.PriceRollup;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.mapper.PriceRollupMapper;
+import com.pricepulse.backend.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceWriteBufferTest {
+
+    private PlatformTransactionManager transactionManager;
+
+    private ProductMapper productMapper;
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private PriceRollupMapper rollupMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PriceWriteBuffer writeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        productMapper = mock(ProductMapper.class);
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        rollupMapper = mock(PriceRollupMapper.class);
+        SqlSessionTemplate batchSession = mock(SqlSessionTemplate.class);
+        when(batchSession.getMapper(ProductMapper.class)).thenReturn(productMapper);
+        when(batchSession.getMapper(PriceHistoryMapper.class)).thenReturn(priceHistoryMapper);
+        when(batchSession.getMapper(PriceRollupMapper.class)).thenReturn(rollupMapper);
+        meterRegistry = new SimpleMeterRegistry();
+
+        writeBuffer = new PriceWriteBuffer();
+        ReflectionTestUtils.setField(writeBuffer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(writeBuffer, "maxBatchSize", 3);
+        ReflectionTestUtils.setField(writeBuffer, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writeBuffer, "maxBuffered", 100);
+        ReflectionTestUtils.setField(writeBuffer, "batchSession", batchSession);
+        ReflectionTestUtils.setField(writeBuffer, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(writeBuffer, "flushTimer", meterRegistry.timer("crawler.writeback.flush"));
+    }
+
+    @Test
+    void testFlushWritesOneTransactionAndCoalescesProductUpdates() {
+        writeBuffer.submit(createProduct(1L, "90.00"), new PriceHistory());
+        writeBuffer.submit(createProduct(1L, "80.00"), new PriceHistory());
+
+        assertThat(writeBuffer.pendingProduct(1L).getCurrentPrice()).isEqualByComparingTo("80.00");
+        assertThat(writeBuffer.flush()).isEqualTo(2);
+
+        verify(productMapper, times(1)).updateCrawledPrice(any());
+        verify(priceHistoryMapper, times(1)).insertBatch(anyList());
+        verify(transactionManager, times(1)).commit(any());
+        assertThat(writeBuffer.pendingProduct(1L)).isNull();
+    }
+
+    @Test
+    void testFlushesWhenBatchIsFull() {
+        writeBuffer.submit(createProduct(1L, "10.00"), new PriceHistory());
+        writeBuffer.submit(createProduct(2L, "20.00"), new PriceHistory());
+        verify(priceHistoryMapper, never()).insertBatch(anyList());
+
+        writeBuffer.submit(createProduct(3L, "30.00"), new PriceHistory());
+
+        verify(priceHistoryMapper, times(1)).insertBatch(anyList());
+        verify(productMapper, times(3)).updateCrawledPrice(any());
+        assertThat(writeBuffer.flush()).isZero();
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        doThrow(new TransientDataAccessResourceException("db down")).doReturn(1).when(priceHistoryMapper).insertBatch(anyList());
+        writeBuffer.submit(createProduct(1L, "90.00"), new PriceHistory());
+
+        assertThat(writeBuffer.flushCompletely()).isFalse();
+        assertThat(writeBuffer.pendingProduct(1L)).isNotNull();
+        assertThat(writeBuffer.flush()).isEqualTo(1);
+        verify(priceHistoryMapper, times(2)).insertBatch(anyList());
+    }
+
+    @Test
+    void testRetriesAreCapped() {
+        doThrow(new TransientDataAccessResourceException("db down")).when(priceHistoryMapper).insertBatch(anyList());
+        writeBuffer.submit(createProduct(1L, "90.00"), new PriceHistory());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(writeBuffer.flush()).isZero();
+        }
+
+        assertThat(writeBuffer.pendingProduct(1L)).isNull();
+        assertThat(writeBuffer.flush()).isZero();
+        verify(priceHistoryMapper, times(3)).insertBatch(anyList());
+        assertThat(meterRegistry.counter("crawler.writeback.dropped", "reason", "exhausted").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testInvalidRowIsIsolatedFromBatch() {
+        PriceHistory invalid = new PriceHistory();
+        doAnswer(invocation -> {
+            if (invocation.<List<PriceHistory>>getArgument(0).contains(invalid)) {
+                throw new DataIntegrityViolationException("Data truncated for column 'source'");
+            }
+            return 1;
+        }).when(priceHistoryMapper).insertBatch(anyList());
+        writeBuffer.submit(createProduct(1L, "90.00"), createHistory(1L, "90.00", LocalDateTime.now()));
+        writeBuffer.submit(createProduct(2L, "80.00"), invalid);
+
+        assertThat(writeBuffer.flush()).isEqualTo(1);
+
+        assertThat(writeBuffer.pendingProduct(1L)).isNull();
+        assertThat(writeBuffer.pendingProduct(2L)).isNull();
+        assertThat(writeBuffer.flush()).isZero();
+        verify(priceHistoryMapper, times(3)).insertBatch(anyList());
+        assertThat(meterRegistry.counter("crawler.writeback.dropped", "reason", "invalid").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSubmitIsDroppedWhenBufferStaysFull() {
+        ReflectionTestUtils.setField(writeBuffer, "maxBuffered", 2);
+        doThrow(new TransientDataAccessResourceException("db down")).when(priceHistoryMapper).insertBatch(anyList());
+        writeBuffer.submit(createProduct(1L, "10.00"), new PriceHistory());
+        writeBuffer.submit(createProduct(2L, "20.00"), new PriceHistory());
+
+        writeBuffer.submit(createProduct(3L, "30.00"), new PriceHistory());
+
+        verify(priceHistoryMapper, times(1)).insertBatch(anyList());
+        assertThat(writeBuffer.pendingProduct(1L)).isNotNull();
+        assertThat(writeBuffer.pendingProduct(3L)).isNull();
+        assertThat(meterRegistry.counter("crawler.writeback.dropped", "reason", "overflow").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSchedulesAreCoalescedAndWrittenInFlush() {
+        LocalDateTime nextCheckAt = LocalDateTime.of(2026, 4, 6, 13, 0);
+        writeBuffer.schedule(1L, nextCheckAt.minusMinutes(30), new BigDecimal("0.2000"));
+        writeBuffer.schedule(1L, nextCheckAt, new BigDecimal("0.3000"));
+
+        Product product = createProduct(1L, "90.00");
+        assertThat(writeBuffer.applyPendingSchedule(product)).isTrue();
+        assertThat(product.getNextCheckAt()).isEqualTo(nextCheckAt);
+        assertThat(writeBuffer.flush()).isEqualTo(1);
+
+        verify(productMapper, times(1)).updateCrawlSchedule(any(), any(), any());
+        verify(productMapper).updateCrawlSchedule(1L, nextCheckAt, new BigDecimal("0.3000"));
+        verify(transactionManager, times(1)).commit(any());
+        assertThat(writeBuffer.applyPendingSchedule(createProduct(1L, "90.00"))).isFalse();
+    }
+
+    @Test
+    void testTouchIsWrittenWithoutNewHistory() {
+        LocalDateTime seenAt = LocalDateTime.of(2026, 4, 6, 12, 0);
+        writeBuffer.touch(1L, new BigDecimal("90.00"), seenAt.minusMinutes(10));
+        writeBuffer.touch(1L, new BigDecimal("90.00"), seenAt);
+
+        assertThat(writeBuffer.flush()).isEqualTo(1);
+
+        verify(priceHistoryMapper, times(1)).touchLatest(1L, seenAt);
+        verify(priceHistoryMapper, never()).insertBatch(anyList());
+        verify(productMapper, never()).updateCrawledPrice(any());
+    }
+
+    @Test
+    void testTouchAfterBufferedChangeExtendsNewRecord() {
+        LocalDateTime seenAt = LocalDateTime.of(2026, 4, 6, 12, 0);
+        PriceHistory history = new PriceHistory();
+        writeBuffer.submit(createProduct(1L, "90.00"), history);
+        writeBuffer.touch(1L, new BigDecimal("90.00"), seenAt);
+
+        writeBuffer.flush();
+
+        assertThat(history.getLastSeenAt()).isEqualTo(seenAt);
+        verify(priceHistoryMapper, never()).touchLatest(any(), any());
+        verify(priceHistoryMapper, times(1)).insertBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEveryTouchFoldedIntoNewRecordCountsInRollups() {
+        LocalDateTime checkedAt = LocalDateTime.of(2026, 4, 6, 10, 0);
+        PriceHistory history = createHistory(1L, "90.00", checkedAt);
+        writeBuffer.submit(createProduct(1L, "90.00"), history);
+        writeBuffer.touch(1L, new BigDecimal("90.00"), checkedAt.plusMinutes(10));
+        writeBuffer.touch(1L, new BigDecimal("90.00"), checkedAt.plusMinutes(20));
+
+        writeBuffer.flush();
+
+        ArgumentCaptor<List<PriceRollup>> hourly = ArgumentCaptor.forClass(List.class);
+        verify(rollupMapper).upsertHourly(hourly.capture());
+        PriceRollup hour = hourly.getValue().get(0);
+        assertThat(hour.getSampleCount()).isEqualTo(3);
+        assertThat(hour.getPriceSum()).isEqualByComparingTo("270.00");
+        assertThat(hour.getCloseAt()).isEqualTo(checkedAt.plusMinutes(20));
+        assertThat(history.getLastSeenAt()).isEqualTo(checkedAt.plusMinutes(20));
+    }
+
+    @Test
+    void testTouchArrivingDuringFailedFlushExtendsNewRecord() {
+        LocalDateTime checkedAt = LocalDateTime.of(2026, 4, 6, 12, 0);
+        PriceHistory history = createHistory(1L, "90.00", checkedAt);
+        writeBuffer.submit(createProduct(1L, "90.00"), history);
+        doAnswer(invocation -> {
+            // 刷新进行中到达的检查进入 touches，而不是直接记到新记录上
+            writeBuffer.touch(1L, new BigDecimal("90.00"), checkedAt.plusMinutes(5));
+            throw new TransientDataAccessResourceException("db down");
+        }).doReturn(1).when(priceHistoryMapper).insertBatch(anyList());
+
+        assertThat(writeBuffer.flushCompletely()).isFalse();
+        writeBuffer.flush();
+
+        verify(priceHistoryMapper, never()).touchLatest(any(), any());
+        assertThat(history.getLastSeenAt()).isEqualTo(checkedAt.plusMinutes(5));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushMergesChecksIntoRollups() {
+        LocalDateTime checkedAt = LocalDateTime.of(2026, 4, 6, 10, 15);
+        writeBuffer.touch(1L, new BigDecimal("100.00"), checkedAt.minusHours(1));
+        writeBuffer.submit(createProduct(2L, "80.00"), createHistory(2L, "80.00", checkedAt));
+        writeBuffer.touch(2L, new BigDecimal("80.00"), checkedAt.plusMinutes(30));
+
+        writeBuffer.flush();
+
+        ArgumentCaptor<List<PriceRollup>> hourly = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<PriceRollup>> daily = ArgumentCaptor.forClass(List.class);
+        verify(rollupMapper).upsertHourly(hourly.capture());
+        verify(rollupMapper).upsertDaily(daily.capture());
+
+        assertThat(hourly.getValue()).extracting(PriceRollup::getProductId, PriceRollup::getBucketStart)
+                .containsExactly(
+                        tuple(1L, LocalDateTime.of(2026, 4, 6, 9, 0)),
+                        tuple(2L, LocalDateTime.of(2026, 4, 6, 10, 0)));
+        PriceRollup day = daily.getValue().get(1);
+        assertThat(day.getProductId()).isEqualTo(2L);
+        assertThat(day.getSampleCount()).isEqualTo(2);
+        assertThat(day.getOpenAt()).isEqualTo(checkedAt);
+        assertThat(day.getCloseAt()).isEqualTo(checkedAt.plusMinutes(30));
+        assertThat(day.getAvgPrice()).isEqualByComparingTo("80.00");
+    }
+
+    private PriceHistory createHistory(Long productId, String price, LocalDateTime checkedAt) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(productId);
+        history.setPrice(new BigDecimal(price));
+        history.setCheckedAt(checkedAt);
+        return history;
+    }
+
+    private Product createProduct(Long id, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCurrentPrice(new BigDecimal(price));
+        return product;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pricepulse.backend.service;
+
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.ProductMapper;
+import com.pricepulse.backend.scheduler.CrawlPartitionLeases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ProductBatchReaderTest {
+
+    private ProductMapper productMapper;
+
+    private ProductBatchReader reader;
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        reader = new ProductBatchReader();
+        ReflectionTestUtils.setField(reader, "productMapper", productMapper);
+        ReflectionTestUtils.setField(reader, "pageSize", 2);
+        ReflectionTestUtils.setField(reader, "partitionLeases", new CrawlPartitionLeases());
+    }
+
+    @Test
+    void testIteratesByKeysetUntilShortBatch() {
+        when(productMapper.selectActiveAfterId(0L, 2)).thenReturn(List.of(createProduct(3L), createProduct(7L)));
+        when(productMapper.selectActiveAfterId(7L, 2)).thenReturn(List.of(createProduct(9L)));
+
+        List<Integer> batchSizes = new ArrayList<>();
+        int total = reader.forEachBatch(batch -> batchSizes.add(batch.size()));
+
+        assertThat(total).isEqualTo(3);
+        assertThat(batchSizes).containsExactly(2, 1);
+        verify(productMapper, never()).selectActiveAfterId(9L, 2);
+    }
+
+    @Test
+    void testStopsOnEmptyBatch() {
+        when(productMapper.selectActiveAfterId(0L, 2)).thenReturn(List.of(createProduct(1L), createProduct(2L)));
+        when(productMapper.selectActiveAfterId(2L, 2)).thenReturn(List.of());
+
+        List<Integer> batchSizes = new ArrayList<>();
+        int total = reader.forEachBatch(batch -> batchSizes.add(batch.size()));
+
+        assertThat(total).isEqualTo(2);
+        assertThat(batchSizes).containsExactly(2);
+    }
+
+    @Test
+    void testOwnedBatchesReadOnlyOwnedPartitions() {
+        CrawlPartitionLeases leases = mock(CrawlPartitionLeases.class);
+        when(leases.ownedPartitions()).thenReturn(Set.of(1));
+        when(leases.getPartitionCount()).thenReturn(4);
+        ReflectionTestUtils.setField(reader, "partitionLeases", leases);
+        when(productMapper.selectActiveAfterIdInPartitions(0L, 4, Set.of(1), 2)).thenReturn(List.of(createProduct(5L)));
+
+        int total = reader.forEachOwnedBatch(batch -> {
+        });
+
+        assertThat(total).isEqualTo(1);
+        verify(productMapper, never()).selectActiveAfterId(0L, 2);
+    }
+
+    @Test
+    void testOwnedBatchesSkippedWithoutPartitions() {
+        CrawlPartitionLeases leases = mock(CrawlPartitionLeases.class);
+        when(leases.ownedPartitions()).thenReturn(Set.of());
+        ReflectionTestUtils.setField(reader, "partitionLeases", leases);
+
+        assertThat(reader.forEachOwnedBatch(batch -> {
+        })).isZero();
+        verifyNoInteractions(productMapper);
+    }
+
+    private Product createProduct(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,85 @@
+package com.pricepulse.backend.service.archive;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceArchiveStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private PriceArchiveStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new PriceArchiveStore();
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+    }
+
+    @Test
+    void testAppendSplitsByMonthAndMergesRepeatedArchives() {
+        LocalDateTime march = LocalDateTime.of(2026, 3, 30, 12, 0);
+        store.append(1001L, List.of(createRecord(march, "100.00"), createRecord(march.plusDays(3), "90.00")));
+        // 中途失败后重新归档：同一条记录不重复
+        store.append(1001L, List.of(createRecord(march.plusDays(3), "90.00"), createRecord(march.plusDays(4), "95.00")));
+
+        assertThat(Files.exists(dir.resolve("001/1001/202603.seg"))).isTrue();
+        assertThat(Files.exists(dir.resolve("001/1001/202604.seg"))).isTrue();
+        assertThat(store.read(1001L)).extracting(PriceHistory::getCheckedAt)
+                .containsExactly(march, march.plusDays(3), march.plusDays(4));
+        assertThat(store.read(2002L)).isEmpty();
+
+        List<List<PriceHistory>> products = new ArrayList<>();
+        store.forEachProduct(products::add);
+        assertThat(products).singleElement().asList().hasSize(3);
+    }
+
+    @Test
+    void testDeleteBeforeRemovesWholeExpiredMonths() {
+        store.append(7L, List.of(
+                createRecord(LocalDateTime.of(2025, 12, 31, 23, 0), "10.00"),
+                createRecord(LocalDateTime.of(2026, 1, 15, 8, 0), "11.00")));
+
+        assertThat(store.deleteBefore(LocalDateTime.of(2026, 1, 1, 0, 0))).isEqualTo(1);
+
+        assertThat(store.read(7L)).extracting(PriceHistory::getPrice)
+                .containsExactly(new BigDecimal("11.00"));
+    }
+
+    @Test
+    void testDeleteRemovesAllSegmentsOfProduct() {
+        store.append(1001L, List.of(
+                createRecord(LocalDateTime.of(2026, 3, 30, 12, 0), "100.00"),
+                createRecord(LocalDateTime.of(2026, 4, 2, 12, 0), "90.00")));
+        store.append(2001L, List.of(createRecord(LocalDateTime.of(2026, 3, 30, 12, 0), "50.00")));
+
+        assertThat(store.delete(1001L)).isEqualTo(2);
+
+        assertThat(Files.exists(dir.resolve("001/1001"))).isFalse();
+        assertThat(store.read(1001L)).isEmpty();
+        assertThat(store.read(2001L)).hasSize(1);
+        assertThat(store.delete(3003L)).isZero();
+    }
+
+    private static PriceHistory createRecord(LocalDateTime checkedAt, String price) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(1L);
+        history.setCheckedAt(checkedAt);
+        history.setPrice(new BigDecimal(price));
+        history.setCurrency("CNY");
+        history.setSource("AUTO");
+        return history;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pricepulse.backend.service.archive;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceSegmentCodecTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    void testRoundTripKeepsEveryColumn() {
+        List<PriceHistory> records = List.of(
+                createRecord(start, start.plusHours(5), "1999.00", "2299.00", "13.05", "CNY", "AUTO"),
+                createRecord(start.plusHours(6), null, "1899.50", null, null, "CNY", "MANUAL"),
+                createRecord(start.plusHours(6).plusSeconds(17), start.plusDays(3), "-0.01", "0.00", "0.00", null, null),
+                createRecord(start.plusDays(3).plusMinutes(1), null, "2099.00", "2299.00", "8.70", "USD", "AUTO"));
+
+        List<PriceHistory> decoded = PriceSegmentCodec.decode(ByteBuffer.wrap(PriceSegmentCodec.encode(records)), 42L);
+
+        assertThat(decoded).hasSize(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            PriceHistory expected = records.get(i);
+            PriceHistory actual = decoded.get(i);
+            assertThat(actual.getProductId()).isEqualTo(42L);
+            assertThat(actual.getCheckedAt()).isEqualTo(expected.getCheckedAt());
+            assertThat(actual.getLastSeenAt()).isEqualTo(expected.getLastSeenAt());
+            assertThat(actual.getPrice()).isEqualTo(expected.getPrice());
+            assertThat(actual.getOriginalPrice()).isEqualTo(expected.getOriginalPrice());
+            assertThat(actual.getDiscountRate()).isEqualTo(expected.getDiscountRate());
+            assertThat(actual.getCurrency()).isEqualTo(expected.getCurrency());
+            assertThat(actual.getSource()).isEqualTo(expected.getSource());
+        }
+    }
+
+    @Test
+    void testRegularChecksCompressToAFewBytesPerRecord() {
+        // 一个月每小时一条、价格小幅波动
+        List<PriceHistory> records = new ArrayList<>();
+        for (int i = 0; i < 24 * 30; i++) {
+            LocalDateTime checkedAt = start.plusHours(i).plusSeconds(i % 3);
+            String price = BigDecimal.valueOf(199900 + (i % 7) * 100 - (i % 5) * 50, 2).toPlainString();
+            records.add(createRecord(checkedAt, checkedAt.plusMinutes(40), price, "2299.00", null, "CNY", "AUTO"));
+        }
+
+        byte[] segment = PriceSegmentCodec.encode(records);
+
+        assertThat(segment.length).isLessThan(records.size() * 4);
+        assertThat(PriceSegmentCodec.decode(ByteBuffer.wrap(segment), 1L)).hasSize(records.size());
+    }
+
+    @Test
+    void testRejectsForeignFiles() {
+        assertThatThrownBy(() -> PriceSegmentCodec.decode(ByteBuffer.wrap("not a segment".getBytes()), 1L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PriceHistory createRecord(LocalDateTime checkedAt, LocalDateTime lastSeenAt, String price,
+                                             String originalPrice, String discountRate, String currency, String source) {
+        PriceHistory history = new PriceHistory();
+        history.setCheckedAt(checkedAt);
+        history.setLastSeenAt(lastSeenAt);
+        history.setPrice(new BigDecimal(price));
+        history.setOriginalPrice(originalPrice != null ? new BigDecimal(originalPrice) : null);
+        history.setDiscountRate(discountRate != null ? new BigDecimal(discountRate) : null);
+        history.setCurrency(currency);
+        history.setSource(source);
+        return history;
+    }
+}
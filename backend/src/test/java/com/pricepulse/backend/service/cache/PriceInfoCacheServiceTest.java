@@ -0,0 +1,141 @@
+package com.pricepulse.backend.service.cache;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.service.crawler.AbstractCrawlerService;
+import com.pricepulse.backend.service.crawler.CrawlCircuitBreaker;
+import com.pricepulse.backend.service.crawler.CrawlRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PriceInfoCacheServiceTest {
+
+    private CrawlerProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private PriceInfoCacheService cacheService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new CrawlerProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        redisTemplate = mock(RedisTemplate.class);
+
+        cacheService = new PriceInfoCacheService();
+        ReflectionTestUtils.setField(cacheService, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(cacheService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cacheService, "redisTemplate", redisTemplate);
+        cacheService.init();
+    }
+
+    @Test
+    void testHitReturnsMarkedCopy() {
+        PriceInfo priceInfo = PriceInfo.builder().currentPrice(new BigDecimal("99.00")).build();
+        cacheService.put("jd", "id:100", priceInfo);
+        priceInfo.setCurrentPrice(new BigDecimal("1.00"));
+
+        PriceInfo first = cacheService.get("jd", "id:100");
+        first.setCurrentPrice(new BigDecimal("2.00"));
+        PriceInfo second = cacheService.get("jd", "id:100");
+
+        assertThat(second.getCurrentPrice()).isEqualByComparingTo("99.00");
+        assertThat(second.getCacheStatus()).isEqualTo(PriceInfo.CacheStatus.HIT);
+        assertThat(cacheService.get("jd", "id:200")).isNull();
+        assertThat(meterRegistry.counter("crawler.cache.requests", "platform", "jd", "result", "hit").count())
+                .isEqualTo(2.0);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void testFailureIsCachedAsNegativeHit() {
+        cacheService.put("pdd", "id:abc", PriceInfo.builder().errorMessage("抓取失败：超时").build());
+
+        PriceInfo cached = cacheService.get("pdd", "id:abc");
+
+        assertThat(cached.getCacheStatus()).isEqualTo(PriceInfo.CacheStatus.NEGATIVE_HIT);
+        assertThat(cached.getErrorMessage()).isEqualTo("抓取失败：超时");
+    }
+
+    @Test
+    void testZeroTtlDisablesCachingForPlatform() {
+        properties.getCache().getTtlMs().put("taobao", 0L);
+
+        cacheService.put("taobao", "id:1", PriceInfo.builder().currentPrice(BigDecimal.TEN).build());
+
+        assertThat(cacheService.get("taobao", "id:1")).isNull();
+    }
+
+    @Test
+    void testCrawlerUsesCacheForSameProduct() {
+        CrawlerProperties.Limit limit = new CrawlerProperties.Limit();
+        limit.setPermitsPerSecond(1000);
+        limit.setBurst(10);
+        limit.setMaxInFlight(10);
+        properties.getRateLimit().getPlatforms().put("stub", limit);
+        CrawlRateLimiter rateLimiter = new CrawlRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+
+        CrawlCircuitBreaker circuitBreaker = new CrawlCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(circuitBreaker, "meterRegistry", meterRegistry);
+
+        StubCrawler crawler = new StubCrawler();
+        ReflectionTestUtils.setField(crawler, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(crawler, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(crawler, "priceInfoCache", cacheService);
+
+        PriceInfo first = crawler.crawlPrice("https://item.example.com/100.html");
+        PriceInfo second = crawler.tryCrawlPrice("https://item.example.com/100.html?spm=abc#comment");
+
+        assertThat(first.getCacheStatus()).isEqualTo(PriceInfo.CacheStatus.MISS);
+        assertThat(second.getCacheStatus()).isEqualTo(PriceInfo.CacheStatus.HIT);
+        assertThat(second.getCurrentPrice()).isEqualByComparingTo("88.00");
+        assertThat(crawler.calls.get()).isEqualTo(1);
+    }
+
+    private static class StubCrawler extends AbstractCrawlerService {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        protected PriceInfo doCrawlPrice(String productId, String url) {
+            calls.incrementAndGet();
+            return PriceInfo.builder().currentPrice(new BigDecimal("88.00")).build();
+        }
+
+        @Override
+        protected String getPlatformName() {
+            return "测试";
+        }
+
+        @Override
+        protected String extractProductId(String url) {
+            return url.replaceAll(".*/(\\d+)\\.html.*", "$1");
+        }
+
+        @Override
+        public String getPlatform() {
+            return "stub";
+        }
+
+        @Override
+        public boolean supports(String url) {
+            return true;
+        }
+    }
+}
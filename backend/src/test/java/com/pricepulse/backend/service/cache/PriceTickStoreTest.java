@@ -0,0 +1,183 @@
+package com.pricepulse.backend.service.cache;
+
+import com.pricepulse.backend.common.entity.PriceHistory;
+import com.pricepulse.backend.common.entity.Product;
+import com.pricepulse.backend.mapper.PriceHistoryMapper;
+import com.pricepulse.backend.service.ProductBatchReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceTickStoreTest {
+
+    private static final int CAPACITY = 4;
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 4, 1, 8, 0);
+
+    private PriceHistoryMapper priceHistoryMapper;
+
+    private ProductBatchReader productBatchReader;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PriceTickStore store;
+
+    @BeforeEach
+    void setUp() {
+        priceHistoryMapper = mock(PriceHistoryMapper.class);
+        productBatchReader = mock(ProductBatchReader.class);
+        meterRegistry = new SimpleMeterRegistry();
+        store = createStore(false);
+    }
+
+    @Test
+    void testRingKeepsMostRecentRuns() {
+        for (int i = 0; i < 6; i++) {
+            store.record(1L, new BigDecimal(100 + i), start.plusHours(i));
+        }
+        store.touch(1L, new BigDecimal("105"), start.plusHours(7));
+
+        long[] starts = new long[CAPACITY];
+        long[] lastSeens = new long[CAPACITY];
+        long[] cents = new long[CAPACITY];
+        int count = store.readRecent(1L, starts, lastSeens, cents);
+
+        assertThat(count).isEqualTo(CAPACITY);
+        assertThat(PriceTickStore.time(starts[0])).isEqualTo(start.plusHours(2));
+        assertThat(cents).containsExactly(10200, 10300, 10400, 10500);
+        assertThat(PriceTickStore.time(lastSeens[3])).isEqualTo(start.plusHours(7));
+        assertThat(store.latestCents(1L)).isEqualTo(10500);
+        assertThat(store.countRecentChanges(1L, 20)).isEqualTo(3);
+        assertThat(store.latestCents(2L)).isEqualTo(PriceTickStore.NO_PRICE);
+        assertThat(meterRegistry.counter("price.ticks.requests", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testTouchWithDifferentPriceDropsStaleEntry() {
+        store.record(1L, new BigDecimal("100.00"), start);
+
+        store.touch(1L, new BigDecimal("90.00"), start.plusHours(1));
+
+        assertThat(store.latestCents(1L)).isEqualTo(PriceTickStore.NO_PRICE);
+    }
+
+    @Test
+    void testOffHeapBuffersBehaveTheSame() {
+        PriceTickStore offHeap = createStore(true);
+        offHeap.record(1L, new BigDecimal("99.99"), start);
+        offHeap.record(1L, new BigDecimal("89.99"), start.plusHours(1));
+
+        assertThat(offHeap.latestCents(1L)).isEqualTo(8999);
+        assertThat(offHeap.countRecentChanges(1L, 20)).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWarmLoadsRecentRunsPerProduct() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<Product>>>getArgument(0).accept(List.of(createProduct(1L), createProduct(2L)));
+            return 2;
+        }).when(productBatchReader).forEachBatch(any(Consumer.class));
+        when(priceHistoryMapper.selectRecentByProductIds(List.of(1L, 2L), CAPACITY)).thenReturn(List.of(
+                createRecord(1L, "90.00", start.plusDays(1), start.plusDays(2)),
+                createRecord(1L, "100.00", start, start.plusHours(20)),
+                createRecord(2L, "50.00", start, null)));
+
+        assertThat(store.warm()).isEqualTo(2);
+
+        long[] starts = new long[CAPACITY];
+        long[] lastSeens = new long[CAPACITY];
+        long[] cents = new long[CAPACITY];
+        assertThat(store.readRecent(1L, starts, lastSeens, cents)).isEqualTo(2);
+        assertThat(cents[0]).isEqualTo(10000);
+        assertThat(PriceTickStore.time(lastSeens[1])).isEqualTo(start.plusDays(2));
+        assertThat(store.latestCents(2L)).isEqualTo(5000);
+    }
+
+    @Test
+    void testLoadKeepsRunNotYetWrittenToDatabase() {
+        store.record(1L, new BigDecimal("80.00"), start.plusDays(3));
+        when(priceHistoryMapper.selectRecent(1L, CAPACITY)).thenReturn(List.of(
+                createRecord(1L, "90.00", start, start.plusDays(2))));
+
+        assertThat(store.load(1L)).isTrue();
+
+        assertThat(store.latestCents(1L)).isEqualTo(8000);
+        assertThat(store.countRecentChanges(1L, 20)).isEqualTo(1);
+    }
+
+    @Test
+    void testStaleEntriesAreNotServed() {
+        ReflectionTestUtils.setField(store, "maxStalenessMs", 1L);
+        store.record(1L, new BigDecimal("100.00"), start);
+        when(priceHistoryMapper.selectRecent(anyLong(), anyInt())).thenReturn(List.of());
+
+        long deadline = System.nanoTime() + 5_000_000;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(store.latestCents(1L)).isEqualTo(PriceTickStore.NO_PRICE);
+    }
+
+    @Test
+    void testStalenessIsOnByDefaultWhenCrawlsRunElsewhere() {
+        PriceTickStore partitioned = new PriceTickStore();
+        ReflectionTestUtils.setField(partitioned, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(partitioned, "maxStalenessMs", -1L);
+        ReflectionTestUtils.setField(partitioned, "partitionEnabled", true);
+        partitioned.init();
+
+        PriceTickStore standalone = new PriceTickStore();
+        ReflectionTestUtils.setField(standalone, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(standalone, "maxStalenessMs", -1L);
+        standalone.init();
+
+        assertThat(ReflectionTestUtils.getField(partitioned, "maxStalenessMs"))
+                .isEqualTo(PriceTickStore.DISTRIBUTED_STALENESS_MS);
+        assertThat(ReflectionTestUtils.getField(standalone, "maxStalenessMs")).isEqualTo(0L);
+    }
+
+    private PriceTickStore createStore(boolean offHeap) {
+        PriceTickStore tickStore = new PriceTickStore();
+        ReflectionTestUtils.setField(tickStore, "priceHistoryMapper", priceHistoryMapper);
+        ReflectionTestUtils.setField(tickStore, "productBatchReader", productBatchReader);
+        ReflectionTestUtils.setField(tickStore, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tickStore, "enabled", true);
+        ReflectionTestUtils.setField(tickStore, "capacity", CAPACITY);
+        ReflectionTestUtils.setField(tickStore, "maxProducts", 10);
+        ReflectionTestUtils.setField(tickStore, "offHeap", offHeap);
+        tickStore.init();
+        return tickStore;
+    }
+
+    private static Product createProduct(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+
+    private static PriceHistory createRecord(Long productId, String price, LocalDateTime checkedAt,
+                                             LocalDateTime lastSeenAt) {
+        PriceHistory history = new PriceHistory();
+        history.setProductId(productId);
+        history.setPrice(new BigDecimal(price));
+        history.setCheckedAt(checkedAt);
+        history.setLastSeenAt(lastSeenAt);
+        return history;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.service.cache.PriceInfoCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AbstractCrawlerServiceTest {
+
+    private static final List<String> URLS = List.of(
+            "https://item.example.com/1.html",
+            "https://item.example.com/2.html",
+            "https://item.example.com/3.html");
+
+    private CrawlCircuitBreaker circuitBreaker;
+
+    private BatchCrawler crawler;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties properties = new CrawlerProperties();
+        CrawlerProperties.Limit limit = new CrawlerProperties.Limit();
+        limit.setPermitsPerSecond(1000);
+        limit.setBurst(10);
+        limit.setMaxInFlight(10);
+        properties.getRateLimit().getPlatforms().put("stub", limit);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        PriceInfoCacheService cacheService = new PriceInfoCacheService();
+        ReflectionTestUtils.setField(cacheService, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(cacheService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cacheService, "redisTemplate", mock(RedisTemplate.class));
+        cacheService.init();
+
+        CrawlRateLimiter rateLimiter = new CrawlRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+
+        circuitBreaker = new CrawlCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(circuitBreaker, "meterRegistry", meterRegistry);
+
+        crawler = new BatchCrawler();
+        ReflectionTestUtils.setField(crawler, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(crawler, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(crawler, "priceInfoCache", cacheService);
+    }
+
+    @Test
+    void testFailedBatchFailsChunkWithoutSingleRequests() {
+        crawler.batchFails = true;
+
+        Map<String, PriceInfo> results = crawler.crawlPrices(URLS);
+
+        assertThat(results.values()).allSatisfy(priceInfo -> {
+            assertThat(priceInfo.getErrorMessage()).contains("批量查询失败");
+            assertThat(priceInfo.getFailureType()).isEqualTo(PriceInfo.FailureType.ERROR);
+        });
+        assertThat(crawler.singleCalls.get()).isZero();
+        assertThat(bufferedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void testItemsMissingFromBatchAreCrawledOneByOne() {
+        Map<String, PriceInfo> results = crawler.crawlPrices(URLS);
+
+        assertThat(results.get(URLS.get(0)).getCurrentPrice()).isEqualByComparingTo("10.00");
+        assertThat(results.get(URLS.get(2)).getCurrentPrice()).isEqualByComparingTo("66.00");
+        assertThat(crawler.singleCalls.get()).isEqualTo(1);
+        // 一次批量请求 + 一次逐个请求，各计一次熔断调用
+        assertThat(bufferedCalls()).isEqualTo(2);
+    }
+
+    private int bufferedCalls() {
+        return circuitBreaker.snapshots().get(0).bufferedCalls();
+    }
+
+    private static class BatchCrawler extends AbstractCrawlerService {
+
+        private final AtomicInteger singleCalls = new AtomicInteger();
+
+        private boolean batchFails;
+
+        @Override
+        public int getMaxBatchSize() {
+            return 10;
+        }
+
+        @Override
+        protected Map<String, PriceInfo> doCrawlPrices(Map<String, String> urlsByProductId) {
+            if (batchFails) {
+                markUpstreamFailure();
+                return Map.of();
+            }
+            // 批量结果中缺少商品 3
+            return Map.of(
+                    "1", PriceInfo.builder().currentPrice(new BigDecimal("10.00")).build(),
+                    "2", PriceInfo.builder().currentPrice(new BigDecimal("20.00")).build());
+        }
+
+        @Override
+        protected PriceInfo doCrawlPrice(String productId, String url) {
+            singleCalls.incrementAndGet();
+            return PriceInfo.builder().currentPrice(new BigDecimal("66.00")).build();
+        }
+
+        @Override
+        protected String getPlatformName() {
+            return "测试";
+        }
+
+        @Override
+        protected String extractProductId(String url) {
+            return url.replaceAll(".*/(\\d+)\\.html.*", "$1");
+        }
+
+        @Override
+        public String getPlatform() {
+            return "stub";
+        }
+
+        @Override
+        public boolean supports(String url) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CrawlCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties properties = new CrawlerProperties();
+        CrawlerProperties.Breaker breaker = new CrawlerProperties.Breaker();
+        breaker.setWindowSize(10);
+        breaker.setMinimumCalls(4);
+        breaker.setFailureRateThreshold(50);
+        breaker.setSlowCallDurationMs(1000);
+        breaker.setSlowCallRateThreshold(100);
+        breaker.setOpenDurationMs(30000);
+        breaker.setHalfOpenCalls(2);
+        properties.getCircuitBreaker().getPlatforms().put("jd", breaker);
+        meterRegistry = new SimpleMeterRegistry();
+
+        circuitBreaker = new CrawlCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(circuitBreaker, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(circuitBreaker, "nanoClock", (LongSupplier) now::get);
+    }
+
+    @Test
+    void testOpensWhenFailureRateReached() {
+        call(false);
+        call(true);
+        call(false);
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.CLOSED);
+
+        call(true);
+
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire("jd")).isFalse();
+        assertThat(circuitBreaker.retryAfter("jd").toMillis()).isEqualTo(30000);
+        assertThat(meterRegistry.counter("crawler.circuit.rejected", "platform", "jd").count()).isEqualTo(1.0);
+        // 其他平台不受影响
+        assertThat(circuitBreaker.tryAcquire("pdd")).isTrue();
+    }
+
+    @Test
+    void testOpensWhenAllCallsAreSlow() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+            circuitBreaker.record("jd", TimeUnit.SECONDS.toNanos(2), false);
+        }
+
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void testHalfOpenClosesAfterSuccessfulProbes() {
+        openBreaker();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+        // 试探名额已满
+        assertThat(circuitBreaker.tryAcquire("jd")).isFalse();
+
+        circuitBreaker.record("jd", 0, false);
+        circuitBreaker.record("jd", 0, false);
+
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testHalfOpenReopensOnFailedProbe() {
+        openBreaker();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+        circuitBreaker.record("jd", 0, true);
+
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.retryAfter("jd").toMillis()).isEqualTo(30000);
+    }
+
+    @Test
+    void testResetClosesBreaker() {
+        openBreaker();
+
+        circuitBreaker.reset("jd");
+
+        assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+        assertThat(circuitBreaker.snapshots()).singleElement()
+                .satisfies(snapshot -> {
+                    assertThat(snapshot.state()).isEqualTo(CrawlCircuitBreaker.State.CLOSED);
+                    assertThat(snapshot.bufferedCalls()).isZero();
+                });
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(circuitBreaker.stateOf("jd")).isEqualTo(CrawlCircuitBreaker.State.OPEN);
+    }
+
+    private void call(boolean failed) {
+        assertThat(circuitBreaker.tryAcquire("jd")).isTrue();
+        circuitBreaker.record("jd", TimeUnit.MILLISECONDS.toNanos(10), failed);
+    }
+}
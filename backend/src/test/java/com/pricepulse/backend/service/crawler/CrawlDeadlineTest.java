@@ -0,0 +1,143 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.service.cache.PriceInfoCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class CrawlDeadlineTest {
+
+    private PriceInfoCacheService cacheService;
+
+    private CrawlRateLimiter rateLimiter;
+
+    private CrawlCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties properties = new CrawlerProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        cacheService = new PriceInfoCacheService();
+        ReflectionTestUtils.setField(cacheService, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(cacheService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cacheService, "redisTemplate", mock(RedisTemplate.class));
+        cacheService.init();
+
+        rateLimiter = new CrawlRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+
+        circuitBreaker = new CrawlCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(circuitBreaker, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void testClampAndCheckUseBoundDeadline() throws Exception {
+        assertThat(CrawlDeadline.clamp(Duration.ofSeconds(5))).isEqualTo(Duration.ofSeconds(5));
+
+        CrawlDeadline.after(Duration.ofMillis(200)).call(() -> {
+            assertThat(CrawlDeadline.clamp(Duration.ofSeconds(5))).isLessThanOrEqualTo(Duration.ofMillis(200));
+            return null;
+        });
+        CrawlDeadline.after(Duration.ZERO).call(() -> {
+            assertThatThrownBy(() -> CrawlDeadline.checkCurrent("移动端页面抓取"))
+                    .isInstanceOf(CrawlTimeoutException.class);
+            return null;
+        });
+        assertThat(CrawlDeadline.current()).isNull();
+    }
+
+    @Test
+    void testAsyncCrawlTimesOutAndInterruptsWork() throws Exception {
+        SlowCrawler crawler = createCrawler(Duration.ofSeconds(10));
+
+        long start = System.nanoTime();
+        PriceInfo priceInfo = crawler.crawlPriceAsync("https://item.example.com/1.html", Duration.ofMillis(100))
+                .get(2, TimeUnit.SECONDS);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(priceInfo.getErrorMessage()).contains("抓取超时");
+        assertThat(crawler.interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        // 超时结果不缓存
+        assertThat(cacheService.get("stub", "id:1")).isNull();
+    }
+
+    @Test
+    void testAsyncCrawlCompletesWithinDeadline() throws Exception {
+        SlowCrawler crawler = createCrawler(Duration.ZERO);
+
+        PriceInfo priceInfo = crawler.crawlPriceAsync("https://item.example.com/2.html", Duration.ofSeconds(2))
+                .get(2, TimeUnit.SECONDS);
+        PriceInfo cached = crawler.crawlPriceAsync("https://item.example.com/2.html", Duration.ofSeconds(2))
+                .getNow(null);
+
+        assertThat(priceInfo.getCurrentPrice()).isEqualByComparingTo("66.00");
+        assertThat(cached.getCacheStatus()).isEqualTo(PriceInfo.CacheStatus.HIT);
+    }
+
+    private SlowCrawler createCrawler(Duration delay) {
+        SlowCrawler crawler = new SlowCrawler(delay);
+        ReflectionTestUtils.setField(crawler, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(crawler, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(crawler, "priceInfoCache", cacheService);
+        return crawler;
+    }
+
+    private static class SlowCrawler extends AbstractCrawlerService {
+
+        private final Duration delay;
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        SlowCrawler(Duration delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        protected PriceInfo doCrawlPrice(String productId, String url) {
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("请求被中断");
+            }
+            return PriceInfo.builder().currentPrice(new BigDecimal("66.00")).build();
+        }
+
+        @Override
+        protected String getPlatformName() {
+            return "测试";
+        }
+
+        @Override
+        protected String extractProductId(String url) {
+            return url.replaceAll(".*/(\\d+)\\.html.*", "$1");
+        }
+
+        @Override
+        public String getPlatform() {
+            return "stub";
+        }
+
+        @Override
+        public boolean supports(String url) {
+            return true;
+        }
+    }
+}
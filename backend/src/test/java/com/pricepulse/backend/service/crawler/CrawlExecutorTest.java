@@ -0,0 +1,188 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.pricepulse.backend.common.dto.PriceInfo;
+import com.pricepulse.backend.common.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlExecutorTest {
+
+    private CrawlExecutor crawlExecutor;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private CrawlerProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CrawlerProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        properties.getExecutor().getConcurrency().put("jd", 3);
+
+        CrawlerService slowCrawler = mock(CrawlerService.class);
+        when(slowCrawler.getPlatform()).thenReturn("jd");
+        when(slowCrawler.crawlPrice(anyString())).thenAnswer(invocation -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return PriceInfo.builder().currentPrice(new BigDecimal("99.00")).build();
+        });
+
+        CrawlerStrategyFactory factory = mock(CrawlerStrategyFactory.class);
+        when(factory.getCrawler(anyString())).thenReturn(slowCrawler);
+
+        crawlExecutor = new CrawlExecutor();
+        ReflectionTestUtils.setField(crawlExecutor, "crawlerFactory", factory);
+        ReflectionTestUtils.setField(crawlExecutor, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(crawlExecutor, "meterRegistry", meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        crawlExecutor.shutdown();
+    }
+
+    @Test
+    void testCrawlAllRespectsPlatformConcurrency() {
+        List<Product> products = new ArrayList<>();
+        for (long i = 1; i <= 12; i++) {
+            products.add(createProduct(i));
+        }
+
+        List<CrawlResult> results = crawlExecutor.crawlAll(products);
+
+        assertThat(results).hasSize(12);
+        assertThat(results).allMatch(CrawlResult::isSuccess);
+        assertThat(results.get(5).getProduct().getId()).isEqualTo(6L);
+        assertThat(maxRunning.get()).isBetween(2, 3);
+    }
+
+    @Test
+    void testCrawlWithoutUrl() {
+        Product product = createProduct(1L);
+        product.setUrl(null);
+
+        CrawlResult result = crawlExecutor.crawl(product);
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getPriceInfo().getErrorMessage()).isNotBlank();
+    }
+
+    @Test
+    void testCrawlAllBatchesByPlatform() {
+        CrawlerService batchCrawler = mock(CrawlerService.class);
+        when(batchCrawler.getPlatform()).thenReturn("jd");
+        when(batchCrawler.getMaxBatchSize()).thenReturn(5);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        when(batchCrawler.crawlPrices(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> urls = invocation.getArgument(0);
+            batchSizes.add(urls.size());
+            Map<String, PriceInfo> results = new HashMap<>();
+            for (String url : urls) {
+                results.put(url, PriceInfo.builder().currentPrice(new BigDecimal(url.length())).build());
+            }
+            return results;
+        });
+        CrawlerStrategyFactory factory = mock(CrawlerStrategyFactory.class);
+        when(factory.getCrawler(anyString())).thenReturn(batchCrawler);
+        ReflectionTestUtils.setField(crawlExecutor, "crawlerFactory", factory);
+
+        List<Product> products = new ArrayList<>();
+        for (long i = 1; i <= 12; i++) {
+            products.add(createProduct(i));
+        }
+
+        List<CrawlResult> results = crawlExecutor.crawlAll(products);
+
+        assertThat(batchSizes).containsExactlyInAnyOrder(5, 5, 2);
+        assertThat(results).allMatch(CrawlResult::isSuccess);
+        assertThat(results.get(11).getProduct().getId()).isEqualTo(12L);
+        assertThat(results.get(11).getPriceInfo().getCurrentPrice())
+                .isEqualByComparingTo(new BigDecimal(products.get(11).getUrl().length()));
+        verify(batchCrawler, never()).crawlPrice(anyString());
+    }
+
+    @Test
+    void testCrawlAbandonedWhenProductBudgetRunsOut() throws Exception {
+        properties.getBudget().getProductTimeoutMs().put("jd", 100L);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean deadlineBound = new AtomicBoolean();
+        CrawlerService hangingCrawler = mock(CrawlerService.class);
+        when(hangingCrawler.getPlatform()).thenReturn("jd");
+        when(hangingCrawler.crawlPrice(anyString())).thenAnswer(invocation -> {
+            deadlineBound.set(CrawlDeadline.current() != null);
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return PriceInfo.builder().currentPrice(BigDecimal.ONE).build();
+        });
+        CrawlerStrategyFactory factory = mock(CrawlerStrategyFactory.class);
+        when(factory.getCrawler(anyString())).thenReturn(hangingCrawler);
+        ReflectionTestUtils.setField(crawlExecutor, "crawlerFactory", factory);
+
+        long start = System.nanoTime();
+        CrawlResult result = crawlExecutor.crawl(createProduct(1L));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getPriceInfo().getFailureType()).isEqualTo(PriceInfo.FailureType.TIMEOUT);
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(deadlineBound).isTrue();
+        assertThat(meterRegistry.counter("crawler.budget.exhausted", "platform", "jd", "scope", "product").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testCrawlSkippedWhenCycleDeadlineExpired() throws Exception {
+        CrawlDeadline cycle = CrawlDeadline.after(Duration.ZERO);
+
+        List<CrawlResult> results = cycle.call(() -> crawlExecutor.crawlAll(List.of(createProduct(1L), createProduct(2L))));
+
+        assertThat(results).allMatch(result -> result.getPriceInfo().getFailureType() == PriceInfo.FailureType.TIMEOUT);
+        assertThat(running.get()).isZero();
+        assertThat(maxRunning.get()).isZero();
+        assertThat(meterRegistry.counter("crawler.budget.exhausted", "platform", "jd", "scope", "cycle").count())
+                .isEqualTo(2.0);
+    }
+
+    private Product createProduct(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("测试商品" + id);
+        product.setUrl("https://item.jd.com/10000000" + id + ".html");
+        product.setCurrentPrice(new BigDecimal("100.00"));
+        return product;
+    }
+}
@@ -0,0 +1,89 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlRateLimiterTest {
+
+    private CrawlRateLimiter rateLimiter;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties.Limit limit = new CrawlerProperties.Limit();
+        limit.setPermitsPerSecond(20);
+        limit.setBurst(2);
+        limit.setMaxInFlight(2);
+
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getRateLimit().getPlatforms().put("pdd", limit);
+
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new CrawlRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "crawlerProperties", properties);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void testTryAcquireStopsAtMaxInFlight() {
+        CrawlRateLimiter.Permit first = rateLimiter.tryAcquire("pdd");
+        CrawlRateLimiter.Permit second = rateLimiter.tryAcquire("pdd");
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(rateLimiter.tryAcquire("pdd")).isNull();
+        assertThat(meterRegistry.get("crawler.ratelimit.saturation").tag("platform", "pdd").gauge().value())
+                .isEqualTo(1.0);
+
+        first.close();
+        first.close();
+        assertThat(meterRegistry.get("crawler.ratelimit.in.flight").tag("platform", "pdd").gauge().value())
+                .isEqualTo(1.0);
+        second.close();
+    }
+
+    @Test
+    void testTryAcquireStopsWhenBucketIsEmpty() {
+        rateLimiter.tryAcquire("pdd").close();
+        rateLimiter.tryAcquire("pdd").close();
+
+        assertThat(rateLimiter.tryAcquire("pdd")).isNull();
+        assertThat(meterRegistry.get("crawler.ratelimit.rejected")
+                .tag("platform", "pdd").tag("reason", "try").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testAcquireWaitsForRefill() throws InterruptedException {
+        rateLimiter.tryAcquire("pdd").close();
+        rateLimiter.tryAcquire("pdd").close();
+
+        long start = System.nanoTime();
+        CrawlRateLimiter.Permit permit = rateLimiter.acquire("pdd", 1, TimeUnit.SECONDS);
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(permit).isNotNull();
+        assertThat(waitedMillis).isBetween(20L, 500L);
+        permit.close();
+    }
+
+    @Test
+    void testAcquireTimesOut() throws InterruptedException {
+        CrawlRateLimiter.Permit first = rateLimiter.tryAcquire("pdd");
+        CrawlRateLimiter.Permit second = rateLimiter.tryAcquire("pdd");
+
+        assertThat(rateLimiter.acquire("pdd", 50, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(meterRegistry.get("crawler.ratelimit.rejected")
+                .tag("platform", "pdd").tag("reason", "timeout").counter().count()).isEqualTo(1.0);
+
+        first.close();
+        second.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.pricepulse.backend.service.crawler;
+
+import com.pricepulse.backend.common.config.CrawlerProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CrawlerHttpClientsTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CrawlerHttpClients httpClients;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            byte[] body = ("ua=" + exchange.getRequestHeaders().getFirst("User-Agent")).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/etag", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "page-v1".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClients = new CrawlerHttpClients();
+        ReflectionTestUtils.setField(httpClients, "crawlerProperties", new CrawlerProperties());
+        ReflectionTestUtils.setField(httpClients, "restTemplateBuilder", new RestTemplateBuilder());
+        ReflectionTestUtils.setField(httpClients, "meterRegistry", meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClients.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testRestTemplateIsSharedPerPlatform() {
+        assertThat(httpClients.restTemplate("jd")).isSameAs(httpClients.restTemplate("jd"));
+        assertThat(httpClients.restTemplate("jd")).isNotSameAs(httpClients.restTemplate("pdd"));
+
+        String body = httpClients.restTemplate("jd").getForObject(baseUrl + "/ok", String.class);
+
+        assertThat(body).startsWith("ua=");
+        assertThat(meterRegistry.get("crawler.http.in.flight").tag("platform", "jd").gauge().value()).isZero();
+    }
+
+    @Test
+    void testRestTemplateSkipsRequestAfterDeadline() throws Exception {
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ignored) {
+                // 服务端停止
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        RestTemplate restTemplate = httpClients.restTemplate("jd");
+
+        assertThatThrownBy(() -> CrawlDeadline.after(Duration.ZERO)
+                .call(() -> restTemplate.getForObject(baseUrl + "/ok", String.class)))
+                .isInstanceOf(CrawlTimeoutException.class);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> CrawlDeadline.after(Duration.ofMillis(200))
+                .call(() -> restTemplate.getForObject(baseUrl + "/slow", String.class)))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+    }
+
+    @Test
+    void testFetchPageSendsHeadersAndRejectsErrorStatus() throws Exception {
+        String page = httpClients.fetchPage("pdd", baseUrl + "/ok", Map.of("User-Agent", "test-agent"));
+
+        assertThat(page).isEqualTo("ua=test-agent");
+        assertThatThrownBy(() -> httpClients.fetchPage("pdd", baseUrl + "/missing", Map.of()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("404");
+        assertThat(meterRegistry.counter("crawler.http.pages", "platform", "pdd", "status", "404").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testFetchPageWithReaderReadsOnlyWhatItNeeds() throws Exception {
+        char[] prefix = new char[3];
+
+        int read = httpClients.fetchPage("pdd", baseUrl + "/ok", Map.of("User-Agent", "test-agent"),
+                reader -> reader.read(prefix));
+
+        assertThat(read).isEqualTo(3);
+        assertThat(new String(prefix)).isEqualTo("ua=");
+        assertThat(meterRegistry.get("crawler.http.in.flight").tag("platform", "pdd").gauge().value()).isZero();
+    }
+
+    @Test
+    void testConditionalFetchReturnsNotModified() throws Exception {
+        CrawlerHttpClients.PageReader<String> readAll = reader -> new BufferedReader(reader).readLine();
+
+        CrawlerHttpClients.ConditionalPage<String> first = httpClients.fetchPageIfModified(
+                "pdd", baseUrl + "/etag", Map.of(), null, null, readAll);
+        CrawlerHttpClients.ConditionalPage<String> second = httpClients.fetchPageIfModified(
+                "pdd", baseUrl + "/etag", Map.of(), first.etag(), first.lastModified(), readAll);
+
+        assertThat(first.notModified()).isFalse();
+        assertThat(first.body()).isEqualTo("page-v1");
+        assertThat(first.etag()).isEqualTo("\"v1\"");
+        assertThat(second.notModified()).isTrue();
+        assertThat(second.body()).isNull();
+        assertThat(meterRegistry.counter("crawler.http.pages", "platform", "pdd", "status", "304").count())
+                .isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.pricepulse.backend.service.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PddGatewayClientTest {
+
+    @Test
+    void testSignMatchesGatewayAlgorithm() throws Exception {
+        Map<String, String> params = new TreeMap<>(Map.of(
+                "type", "pdd.ddk.goods.detail",
+                "client_id", "client",
+                "timestamp", "1700000000",
+                "goods_sign", "E9H2oSNvFx5sLOMRwvfZ_ZCJsmtmHq6V_JQIfpkgn3A",
+                "pid", "44231125_315023937"));
+
+        StringBuilder source = new StringBuilder("secret");
+        params.forEach((key, value) -> source.append(key).append(value));
+        source.append("secret");
+        byte[] digest = MessageDigest.getInstance("MD5").digest(source.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder expected = new StringBuilder();
+        for (byte b : digest) {
+            expected.append(String.format("%02X", b));
+        }
+
+        assertThat(PddGatewayClient.sign(params, "secret")).isEqualTo(expected.toString());
+        // 同一线程复用 MD5 实例，结果不受上一次调用影响
+        assertThat(PddGatewayClient.sign(params, "secret")).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void testParseDetailResponseReadsOnlyGoodsFields() throws Exception {
+        String body = """
+                {"goods_detail_response":{"goods_details":[{"goods_sign":"sign-1","goods_name":"测试商品",
+                "min_group_price":1990,"min_normal_price":2990,"goods_image_url":null,
+                "goods_thumbnail_url":"https://img.example.com/1.jpg","goods_gallery_urls":["a","b"],
+                "unified_tags":["百亿补贴"],"extra":{"nested":[1,2,3]}}],"request_id":"abc"}}
+                """;
+
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(body);
+
+        assertThat(response.isError()).isFalse();
+        assertThat(response.goods()).containsExactly(new PddGatewayClient.Goods(
+                "sign-1", "测试商品", 1990L, 2990L, null, "https://img.example.com/1.jpg"));
+    }
+
+    @Test
+    void testParseSearchResponseWithSeveralGoods() throws Exception {
+        String body = """
+                {"goods_search_response":{"list_id":"x","goods_list":[
+                {"goods_sign":"sign-1","min_group_price":100},{"goods_sign":"sign-2","min_group_price":"200"}],
+                "total_count":2}}
+                """;
+
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(body);
+
+        assertThat(response.goods()).extracting(PddGatewayClient.Goods::goodsSign).containsExactly("sign-1", "sign-2");
+        assertThat(response.goods().get(1).minGroupPrice()).isEqualTo(200L);
+    }
+
+    @Test
+    void testParseErrorResponse() throws Exception {
+        String body = """
+                {"error_response":{"error_code":50001,"error_msg":"业务服务错误","sub_msg":"商品不存在","sub_code":"1"}}
+                """;
+
+        PddGatewayClient.GoodsResponse response = PddGatewayClient.parseGoods(body);
+
+        assertThat(response.isError()).isTrue();
+        assertThat(response.errorMessage()).isEqualTo("商品不存在");
+        assertThat(response.goods()).isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package com.pricepulse.backend.service.crawler.impl;
+
+import com.pricepulse.backend.common.dto.PriceInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JDApiCrawlerServiceImplTest {
+
+    private final JDApiCrawlerServiceImpl crawler = new JDApiCrawlerServiceImpl();
+
+    @Test
+    void testParseMultiSkuResponse() throws Exception {
+        String response = "[{\"id\":\"J_100012043978\",\"p\":\"8999.00\",\"op\":\"9999.00\",\"m\":\"10999.00\"},"
+                + "{\"id\":\"J_100008348542\",\"p\":\"199.00\",\"m\":\"299.00\"},"
+                + "{\"id\":\"J_100000000001\",\"p\":\"-1.00\",\"m\":\"59.00\"}]";
+
+        Map<String, PriceInfo> prices = crawler.parseApiResponse(response);
+
+        assertThat(prices).containsOnlyKeys("100012043978", "100008348542");
+        assertThat(prices.get("100012043978").getCurrentPrice()).isEqualByComparingTo("8999.00");
+        assertThat(prices.get("100012043978").getOriginalPrice()).isEqualByComparingTo("9999.00");
+        assertThat(prices.get("100012043978").getDiscountRate()).isEqualByComparingTo("90.00");
+        assertThat(prices.get("100008348542").getOriginalPrice()).isEqualByComparingTo("299.00");
+    }
+
+    @Test
+    void testParseUnexpectedResponse() throws Exception {
+        assertThat(crawler.parseApiResponse("{\"error\":\"pin\"}")).isEmpty();
+    }
+
+    @Test
+    void testApiFailureIsReportedInsteadOfMockPrice() {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(anyString(), eq(String.class)))
+                .thenThrow(new ResourceAccessException("Connection reset"));
+        ReflectionTestUtils.setField(crawler, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(crawler, "apiEnabled", true);
+
+        PriceInfo priceInfo = crawler.doCrawlPrice("100012043978", "https://item.jd.com/100012043978.html");
+
+        assertThat(priceInfo.getCurrentPrice()).isNull();
+        assertThat(priceInfo.getErrorMessage()).contains("接口调用失败");
+        assertThat(priceInfo.getFailureType()).isEqualTo(PriceInfo.FailureType.ERROR);
+    }
+}
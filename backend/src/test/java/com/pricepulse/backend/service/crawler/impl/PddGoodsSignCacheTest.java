@@ -0,0 +1,66 @@
+package com.pricepulse.backend.service.crawler.impl;
+
+import com.pricepulse.backend.mapper.PddGoodsSignMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PddGoodsSignCacheTest {
+
+    private PddGoodsSignMapper goodsSignMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PddGoodsSignCache goodsSignCache;
+
+    @BeforeEach
+    void setUp() {
+        goodsSignMapper = mock(PddGoodsSignMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        goodsSignCache = new PddGoodsSignCache();
+        ReflectionTestUtils.setField(goodsSignCache, "goodsSignMapper", goodsSignMapper);
+        ReflectionTestUtils.setField(goodsSignCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(goodsSignCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(goodsSignCache, "ttlMs", 60000L);
+        goodsSignCache.init();
+    }
+
+    @Test
+    void testDatabaseResultIsKeptInMemory() {
+        when(goodsSignMapper.selectGoodsSign("123456")).thenReturn("E9H2sign_of_goods_123456_xyz");
+
+        assertThat(goodsSignCache.get("123456")).isEqualTo("E9H2sign_of_goods_123456_xyz");
+        assertThat(goodsSignCache.get("123456")).isEqualTo("E9H2sign_of_goods_123456_xyz");
+
+        verify(goodsSignMapper, times(1)).selectGoodsSign("123456");
+        assertThat(meterRegistry.counter("crawler.pdd.goods.sign.lookups", "result", "memory").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testPutAndEvict() {
+        goodsSignCache.put("123456", "E9H2sign_of_goods_123456_xyz");
+        assertThat(goodsSignCache.get("123456")).isEqualTo("E9H2sign_of_goods_123456_xyz");
+        verify(goodsSignMapper).upsert("123456", "E9H2sign_of_goods_123456_xyz");
+
+        goodsSignCache.evict("123456");
+
+        assertThat(goodsSignCache.get("123456")).isNull();
+        verify(goodsSignMapper).deleteByKey("123456");
+    }
+
+    @Test
+    void testDatabaseFailureIsTreatedAsMiss() {
+        when(goodsSignMapper.selectGoodsSign("123456")).thenThrow(new RuntimeException("连接失败"));
+
+        assertThat(goodsSignCache.get("123456")).isNull();
+        assertThat(meterRegistry.counter("crawler.pdd.goods.sign.lookups", "result", "miss").count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.pricepulse.backend.service.crawler.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PddPageExtractorTest {
+
+    @Test
+    void testStopsReadingOnceRequiredFieldsAreFound() throws Exception {
+        String head = "<html><script>window.rawData={\"store\":{\"initDataObj\":{\"goods\":{"
+                + "\"goodsName\":\"测试\\u5546\\u54c1 \\\"新款\\\"\",\"minGroupPrice\": 1990,"
+                + "\"hdThumbImage\":\"https:\\/\\/img.pddpic.com\\/a.jpg\",\"minNormalPrice\":2990";
+        String tail = ",\"goodsName\":\"后面的名称\"}}}}</script>" + "x".repeat(100_000) + "</html>";
+
+        PddPageExtractor.Result result = PddPageExtractor.extract(new StringReader(head + tail));
+
+        assertThat(result.complete()).isTrue();
+        assertThat(result.charsRead()).isLessThanOrEqualTo(head.length() + 1);
+        assertThat(result.fields())
+                .containsEntry("goodsName", "测试商品 \"新款\"")
+                .containsEntry("minGroupPrice", "1990")
+                .containsEntry("minNormalPrice", "2990")
+                .containsEntry("hdThumbImage", "https://img.pddpic.com/a.jpg");
+    }
+
+    @Test
+    void testFallbackFieldsAndNonMatchingValues() throws Exception {
+        String html = "<div class=\"price\">¥19.9</div><script>var d={\"price\":\"abc\",\"finalPrice\":1800,"
+                + "\"price\":1500,\"marketPrice\":2500,\"goodsDesc\":\"商品描述\",\"thumbUrl\":\"https://img/t.jpg\"}</script>";
+
+        PddPageExtractor.Result result = PddPageExtractor.extract(new StringReader(html));
+
+        assertThat(result.complete()).isFalse();
+        assertThat(result.charsRead()).isEqualTo(html.length());
+        assertThat(result.first("minGroupPrice", "finalPrice", "price")).isEqualTo("1800");
+        assertThat(result.fields()).containsEntry("price", "1500");
+        assertThat(result.first("minNormalPrice", "marketPrice")).isEqualTo("2500");
+        assertThat(result.first("goodsName", "goodsDesc")).isEqualTo("商品描述");
+        assertThat(result.first("hdThumbImage", "thumbUrl")).isEqualTo("https://img/t.jpg");
+    }
+
+    @Test
+    void testPageWithoutGoodsData() throws Exception {
+        String html = "<html><script>window.rawData={\"store\":{\"initDataObj\":{\"needLogin\":true}}}</script></html>";
+
+        PddPageExtractor.Result result = PddPageExtractor.extract(new StringReader(html));
+
+        assertThat(result.fields()).isEmpty();
+    }
+
+    @Test
+    void testContentHashDependsOnlyOnContent() throws Exception {
+        String html = "<html>" + "a".repeat(20_000) + "{\"goodsName\":\"商品\",\"minGroupPrice\":100}</html>";
+
+        long whole = PddPageExtractor.extract(new StringReader(html)).contentHash();
+        long trickled = PddPageExtractor.extract(new FilterReader(new StringReader(html)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                // 模拟网络分块：每次只返回少量字符
+                return super.read(buffer, offset, Math.min(length, 7));
+            }
+        }).contentHash();
+        long changed = PddPageExtractor.extract(new StringReader(html.replace("100", "101"))).contentHash();
+
+        assertThat(trickled).isEqualTo(whole);
+        assertThat(changed).isNotEqualTo(whole);
+    }
+}
@@ -0,0 +1,4 @@
+-- 为 products 表添加价格变动频率（每次检查价格是否变化的指数加权平均），用于自适应调整抓取间隔
+ALTER TABLE `products`
+ADD COLUMN `price_change_ewma` decimal(6,4) NULL DEFAULT NULL COMMENT '价格变动频率（EWMA，0~1）'
+AFTER `next_check_at`;
@@ -0,0 +1,10 @@
+-- 为 products 表添加下次检查时间，定时任务只抓取已到期的商品
+ALTER TABLE `products`
+ADD COLUMN `next_check_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次价格检查时间'
+AFTER `last_checked`;
+
+-- 将现有商品的首次检查时间打散到 30 分钟内，避免同一时刻集中到期
+UPDATE `products` SET `next_check_at` = DATE_ADD(NOW(), INTERVAL FLOOR(RAND() * 1800) SECOND);
+
+-- 按到期时间取待检查商品
+CREATE INDEX `idx_products_status_next_check` ON `products` (`status`, `next_check_at`);
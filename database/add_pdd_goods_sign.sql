@@ -0,0 +1,8 @@
+-- 拼多多商品标识 -> goods_sign 映射：短标识（goods_id、关键词等）需要先调用 goods.search 才能拿到 goods_sign，
+-- 解析结果持久化后，后续抓取直接调用 goods.detail
+CREATE TABLE IF NOT EXISTS `pdd_goods_sign` (
+  `goods_key` varchar(255) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '从商品链接中提取的标识',
+  `goods_sign` varchar(128) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '解析得到的 goods_sign',
+  `resolved_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最近一次解析时间',
+  PRIMARY KEY (`goods_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='拼多多 goods_sign 解析缓存';
@@ -0,0 +1,37 @@
+-- 价格历史改为只在价格变化时新增记录：价格未变时只延长最新一条记录的最后出现时间
+ALTER TABLE `price_history`
+ADD COLUMN `last_seen_at` timestamp NULL DEFAULT NULL COMMENT '该价格最后一次被检查到的时间'
+AFTER `checked_at`;
+
+-- 按商品取最新记录、按商品和时间范围查询
+CREATE INDEX `idx_price_history_product_checked` ON `price_history` (`product_id`, `checked_at`);
+
+-- 压缩已有的连续重复记录：每段价格、原价、折扣都相同的连续记录只保留第一条，
+-- 并把这一段最后一次出现的时间记到 last_seen_at
+CREATE TEMPORARY TABLE `price_history_runs` AS
+SELECT `id`, `is_start`,
+       MAX(`checked_at`) OVER (PARTITION BY `product_id`, `run_no`) AS `run_last_seen`
+FROM (
+    SELECT `id`, `product_id`, `checked_at`, `is_start`,
+           SUM(`is_start`) OVER (PARTITION BY `product_id` ORDER BY `checked_at`, `id`) AS `run_no`
+    FROM (
+        SELECT `id`, `product_id`, `checked_at`,
+               CASE WHEN `price` <=> LAG(`price`) OVER w
+                     AND `original_price` <=> LAG(`original_price`) OVER w
+                     AND `discount_rate` <=> LAG(`discount_rate`) OVER w
+                    THEN 0 ELSE 1 END AS `is_start`
+        FROM `price_history`
+        WINDOW w AS (PARTITION BY `product_id` ORDER BY `checked_at`, `id`)
+    ) `marked`
+) `numbered`;
+
+UPDATE `price_history` ph
+JOIN `price_history_runs` r ON ph.`id` = r.`id`
+SET ph.`last_seen_at` = r.`run_last_seen`
+WHERE r.`is_start` = 1;
+
+DELETE ph FROM `price_history` ph
+JOIN `price_history_runs` r ON ph.`id` = r.`id`
+WHERE r.`is_start` = 0;
+
+DROP TEMPORARY TABLE `price_history_runs`;
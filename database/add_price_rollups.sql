@@ -0,0 +1,32 @@
+-- 价格历史按小时、按天汇总（开盘/最高/最低/收盘/样本和/样本数），写回价格时增量更新，
+-- 仪表盘趋势查询直接读汇总表，查询量只与天数和商品数有关，与抓取频率无关。
+-- 已有价格历史由应用启动时的回填任务写入（汇总表为空时自动执行，也可由管理员手动重建）
+CREATE TABLE IF NOT EXISTS `price_rollup_hourly` (
+  `product_id` bigint NOT NULL,
+  `bucket_start` datetime NOT NULL COMMENT '整点时间',
+  `open_price` decimal(10,2) NOT NULL COMMENT '该小时第一次检查到的价格',
+  `high_price` decimal(10,2) NOT NULL,
+  `low_price` decimal(10,2) NOT NULL,
+  `close_price` decimal(10,2) NOT NULL COMMENT '该小时最后一次检查到的价格',
+  `price_sum` decimal(16,2) NOT NULL COMMENT '样本价格之和，平均价 = price_sum / sample_count',
+  `sample_count` int NOT NULL,
+  `open_at` datetime NOT NULL COMMENT '开盘价的检查时间',
+  `close_at` datetime NOT NULL COMMENT '收盘价的检查时间',
+  PRIMARY KEY (`product_id`, `bucket_start`),
+  CONSTRAINT `price_rollup_hourly_product_fk` FOREIGN KEY (`product_id`) REFERENCES `products` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='价格小时汇总';
+
+CREATE TABLE IF NOT EXISTS `price_rollup_daily` (
+  `product_id` bigint NOT NULL,
+  `bucket_start` datetime NOT NULL COMMENT '当天零点',
+  `open_price` decimal(10,2) NOT NULL COMMENT '当天第一次检查到的价格',
+  `high_price` decimal(10,2) NOT NULL,
+  `low_price` decimal(10,2) NOT NULL,
+  `close_price` decimal(10,2) NOT NULL COMMENT '当天最后一次检查到的价格',
+  `price_sum` decimal(16,2) NOT NULL COMMENT '样本价格之和，平均价 = price_sum / sample_count',
+  `sample_count` int NOT NULL,
+  `open_at` datetime NOT NULL COMMENT '开盘价的检查时间',
+  `close_at` datetime NOT NULL COMMENT '收盘价的检查时间',
+  PRIMARY KEY (`product_id`, `bucket_start`),
+  CONSTRAINT `price_rollup_daily_product_fk` FOREIGN KEY (`product_id`) REFERENCES `products` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='价格每日汇总';
@@ -0,0 +1,26 @@
+-- price_history 按月分区（RANGE，按 checked_at），过期数据按分区整体删除（DROP PARTITION），不再逐行 DELETE。
+-- MySQL 分区表不支持外键，且主键必须包含分区列：去掉到 products 的外键（删除商品时由应用删除价格历史），
+-- 主键改为 (id, checked_at)。当月之前的记录放在 p_initial，当月一个分区，之后每月的分区由保留任务
+-- （PriceHistoryRetentionJob）提前从 p_future 中拆出。
+ALTER TABLE `price_history` DROP FOREIGN KEY `price_history_ibfk_1`;
+
+UPDATE `price_history` SET `checked_at` = COALESCE(`last_seen_at`, CURRENT_TIMESTAMP) WHERE `checked_at` IS NULL;
+
+ALTER TABLE `price_history`
+  MODIFY `checked_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`, `checked_at`);
+
+SET @partition_sql = CONCAT(
+  'ALTER TABLE `price_history` PARTITION BY RANGE (UNIX_TIMESTAMP(`checked_at`)) (',
+  'PARTITION `p_initial` VALUES LESS THAN (UNIX_TIMESTAMP(''', DATE_FORMAT(CURRENT_DATE, '%Y-%m-01'), ''')), ',
+  'PARTITION `p', DATE_FORMAT(CURRENT_DATE, '%Y%m'), '` VALUES LESS THAN (UNIX_TIMESTAMP(''',
+  DATE_FORMAT(CURRENT_DATE + INTERVAL 1 MONTH, '%Y-%m-01'), ''')), ',
+  'PARTITION `p_future` VALUES LESS THAN MAXVALUE)');
+PREPARE partition_stmt FROM @partition_sql;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
+
+-- 汇总表按时间段分块清理
+CREATE INDEX `idx_price_rollup_hourly_bucket` ON `price_rollup_hourly` (`bucket_start`);
+CREATE INDEX `idx_price_rollup_daily_bucket` ON `price_rollup_daily` (`bucket_start`);
@@ -117,11 +117,12 @@ export function addProduct(data) {
     })
 }
 
-// 获取价格历史记录
-export function getPriceHistory(productId) {
+// 获取价格历史记录（params 可传 from、to、maxPoints）
+export function getPriceHistory(productId, params) {
     return request({
         url: `/products/${productId}/price-history`,
-        method: 'get'
+        method: 'get',
+        params
     })
 }
 